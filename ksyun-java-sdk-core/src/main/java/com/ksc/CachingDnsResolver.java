@@ -0,0 +1,486 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc;
+
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.ksc.annotation.SdkInternalApi;
+import com.ksc.annotation.ThreadSafe;
+
+/**
+ * A {@link DnsResolver} caching the addresses of each host name for a fixed
+ * time, independently of the JVM wide DNS cache settings.
+ * <p>
+ * Successful lookups are cached for the time to live, and failed lookups for
+ * the negative time to live so that an unknown host does not cost a lookup per
+ * request. A host name resolved after the given share of its time to live has
+ * passed is looked up again in the background, so that requests never wait for
+ * the lookup of a host name in use. Concurrent resolutions of a host name
+ * missing from the cache share a single lookup.
+ * <p>
+ * When a host name has several addresses, their order, which decides the
+ * address new connections are opened to, is rotated between resolutions or
+ * sorted by the number of open connections to each address, so that the
+ * connections of a client spread across all the addresses.
+ *
+ * @see ClientConfiguration#setDnsResolver(DnsResolver)
+ */
+@ThreadSafe
+public class CachingDnsResolver implements DnsResolver, CachingDnsResolverMBean {
+
+    /** How the addresses of a host name are ordered for each resolution. */
+    public enum AddressOrdering {
+        /** In the order returned by the lookup. */
+        AS_RESOLVED,
+        /** Rotated by one address at each resolution. */
+        ROUND_ROBIN,
+        /**
+         * By increasing number of connections opened to each address by the
+         * clients using this resolver, ties being rotated.
+         */
+        LEAST_CONNECTIONS
+    }
+
+    /** The default time to live of a successful lookup. */
+    public static final long DEFAULT_TTL_MILLIS = 60 * 1000;
+    /** The default time to live of a failed lookup. */
+    public static final long DEFAULT_NEGATIVE_TTL_MILLIS = 10 * 1000;
+    /** The default share of the time to live after which a lookup is refreshed ahead of expiry. */
+    public static final double DEFAULT_REFRESH_AHEAD_FACTOR = 0.8;
+
+    private static final Log log = LogFactory.getLog(CachingDnsResolver.class);
+
+    /** Runs the refreshes ahead of expiry of all the resolvers. */
+    private static final ThreadPoolExecutor refreshExecutor = newRefreshExecutor();
+
+    private final DnsResolver delegate;
+    private volatile long ttlMillis = DEFAULT_TTL_MILLIS;
+    private volatile long negativeTtlMillis = DEFAULT_NEGATIVE_TTL_MILLIS;
+    private volatile double refreshAheadFactor = DEFAULT_REFRESH_AHEAD_FACTOR;
+    private volatile AddressOrdering addressOrdering = AddressOrdering.ROUND_ROBIN;
+
+    private final ConcurrentMap<String, Entry> cache = new ConcurrentHashMap<String, Entry>();
+    /** The lookups in progress on a cache miss, by host name. */
+    private final ConcurrentMap<String, FutureTask<Entry>> pendingLookups =
+            new ConcurrentHashMap<String, FutureTask<Entry>>();
+    /** The open connections by socket, for the least connections ordering. */
+    private final ConcurrentMap<Socket, InetAddress> connections = new ConcurrentHashMap<Socket, InetAddress>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong failedLookups = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong totalLookupNanos = new AtomicLong();
+    private final AtomicLong maxLookupNanos = new AtomicLong();
+
+    /** Caches the lookups of the {@link SystemDefaultDnsResolver}. */
+    public CachingDnsResolver() {
+        this(new SystemDefaultDnsResolver());
+    }
+
+    /** Caches the lookups of the given resolver. */
+    public CachingDnsResolver(DnsResolver delegate) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("delegate cannot be null");
+        }
+        this.delegate = delegate;
+    }
+
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    /**
+     * Sets how long the addresses of a host name are cached, or zero to not
+     * cache them. Defaults to a minute.
+     */
+    public void setTtlMillis(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+
+    public CachingDnsResolver withTtlMillis(long ttlMillis) {
+        setTtlMillis(ttlMillis);
+        return this;
+    }
+
+    public long getNegativeTtlMillis() {
+        return negativeTtlMillis;
+    }
+
+    /**
+     * Sets how long a failed lookup is cached, or zero to not cache it.
+     * Defaults to ten seconds.
+     */
+    public void setNegativeTtlMillis(long negativeTtlMillis) {
+        this.negativeTtlMillis = negativeTtlMillis;
+    }
+
+    public CachingDnsResolver withNegativeTtlMillis(long negativeTtlMillis) {
+        setNegativeTtlMillis(negativeTtlMillis);
+        return this;
+    }
+
+    public double getRefreshAheadFactor() {
+        return refreshAheadFactor;
+    }
+
+    /**
+     * Sets the share of the time to live after which a host name being
+     * resolved is looked up again in the background, or 1 or more to never
+     * refresh ahead of expiry. Defaults to 0.8.
+     */
+    public void setRefreshAheadFactor(double refreshAheadFactor) {
+        if (refreshAheadFactor <= 0) {
+            throw new IllegalArgumentException("refreshAheadFactor must be positive");
+        }
+        this.refreshAheadFactor = refreshAheadFactor;
+    }
+
+    public CachingDnsResolver withRefreshAheadFactor(double refreshAheadFactor) {
+        setRefreshAheadFactor(refreshAheadFactor);
+        return this;
+    }
+
+    public AddressOrdering getAddressOrdering() {
+        return addressOrdering;
+    }
+
+    /**
+     * Sets how the addresses of a host name are ordered for each resolution.
+     * Defaults to {@link AddressOrdering#ROUND_ROBIN}. The connections are only
+     * counted by the clients created after {@link AddressOrdering#LEAST_CONNECTIONS}
+     * is set.
+     */
+    public void setAddressOrdering(AddressOrdering addressOrdering) {
+        if (addressOrdering == null) {
+            throw new IllegalArgumentException("addressOrdering cannot be null");
+        }
+        this.addressOrdering = addressOrdering;
+    }
+
+    public CachingDnsResolver withAddressOrdering(AddressOrdering addressOrdering) {
+        setAddressOrdering(addressOrdering);
+        return this;
+    }
+
+    @Override
+    public InetAddress[] resolve(String host) throws UnknownHostException {
+        final String key = host.toLowerCase(Locale.ENGLISH);
+        Entry entry = cache.get(key);
+        final long now = System.nanoTime();
+        if (entry != null && now - entry.expiresAtNanos < 0) {
+            hits.incrementAndGet();
+            if (entry.addresses == null) {
+                throw new UnknownHostException(entry.failure);
+            }
+            if (now - entry.refreshAtNanos >= 0 && entry.refreshing.compareAndSet(false, true)) {
+                refreshAhead(key, host, entry);
+            }
+        } else {
+            misses.incrementAndGet();
+            entry = lookupOnce(key, host);
+        }
+        return order(entry);
+    }
+
+    /**
+     * Records a connection opened to one of the resolved addresses, so that
+     * the least connections ordering can favor the others until it is closed.
+     */
+    @SdkInternalApi
+    public void connectionOpened(Socket socket) {
+        final InetAddress address = socket.getInetAddress();
+        if (address == null) {
+            return;
+        }
+        purgeClosedConnections();
+        connections.put(socket, address);
+    }
+
+    /**
+     * Looks the given host name up and caches the outcome.
+     *
+     * @param cacheFailure true to cache a failure, false to leave the current
+     *            entry alone.
+     */
+    private Entry lookup(String key, String host, boolean cacheFailure) throws UnknownHostException {
+        lookups.incrementAndGet();
+        final long startNanos = System.nanoTime();
+        InetAddress[] addresses = null;
+        UnknownHostException failure = null;
+        try {
+            addresses = delegate.resolve(host);
+            if (addresses == null || addresses.length == 0) {
+                failure = new UnknownHostException("No address found for " + host);
+            }
+        } catch (UnknownHostException e) {
+            failure = e;
+        }
+        final long endNanos = System.nanoTime();
+        recordLookup(endNanos - startNanos);
+        if (failure != null) {
+            failedLookups.incrementAndGet();
+            if (cacheFailure) {
+                if (negativeTtlMillis > 0) {
+                    cache.put(key, new Entry(null, failure.getMessage(), endNanos,
+                            TimeUnit.MILLISECONDS.toNanos(negativeTtlMillis), 1));
+                } else {
+                    cache.remove(key);
+                }
+            }
+            throw failure;
+        }
+        final Entry entry = new Entry(addresses.clone(), null, endNanos,
+                TimeUnit.MILLISECONDS.toNanos(Math.max(ttlMillis, 0)), refreshAheadFactor);
+        if (ttlMillis > 0) {
+            cache.put(key, entry);
+        } else {
+            cache.remove(key);
+        }
+        return entry;
+    }
+
+    /**
+     * Looks the given host name up and caches the outcome, unless another
+     * thread is already doing so, in which case its outcome is shared.
+     */
+    private Entry lookupOnce(final String key, final String host) throws UnknownHostException {
+        final FutureTask<Entry> task = new FutureTask<Entry>(new Callable<Entry>() {
+            @Override
+            public Entry call() throws UnknownHostException {
+                return lookup(key, host, true);
+            }
+        });
+        FutureTask<Entry> pending = pendingLookups.putIfAbsent(key, task);
+        if (pending == null) {
+            pending = task;
+            try {
+                task.run();
+            } finally {
+                pendingLookups.remove(key, task);
+            }
+        }
+        try {
+            return pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UnknownHostException("Interrupted while waiting for the lookup of " + host);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof UnknownHostException) {
+                throw (UnknownHostException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private void refreshAhead(final String key, final String host, final Entry entry) {
+        try {
+            refreshExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        refreshes.incrementAndGet();
+                        lookup(key, host, false);
+                    } catch (UnknownHostException e) {
+                        // Keep serving the current addresses until they expire
+                        log.debug("Unable to refresh the addresses of " + host, e);
+                    } finally {
+                        entry.refreshing.set(false);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            entry.refreshing.set(false);
+        }
+    }
+
+    private void recordLookup(long nanos) {
+        totalLookupNanos.addAndGet(nanos);
+        long max;
+        while (nanos > (max = maxLookupNanos.get())) {
+            if (maxLookupNanos.compareAndSet(max, nanos)) {
+                break;
+            }
+        }
+    }
+
+    private InetAddress[] order(Entry entry) {
+        final InetAddress[] resolved = entry.addresses;
+        final int n = resolved.length;
+        final AddressOrdering ordering = addressOrdering;
+        if (n == 1 || ordering == AddressOrdering.AS_RESOLVED) {
+            return resolved.clone();
+        }
+        final int first = (entry.rotation.getAndIncrement() & Integer.MAX_VALUE) % n;
+        final InetAddress[] ordered = new InetAddress[n];
+        for (int i = 0; i < n; i++) {
+            ordered[i] = resolved[(first + i) % n];
+        }
+        if (ordering == AddressOrdering.LEAST_CONNECTIONS) {
+            final Map<InetAddress, Integer> counts = countConnections();
+            // A stable sort, so that ties keep the rotated order
+            Arrays.sort(ordered, new Comparator<InetAddress>() {
+                @Override
+                public int compare(InetAddress a, InetAddress b) {
+                    return countOf(counts, a) - countOf(counts, b);
+                }
+            });
+        }
+        return ordered;
+    }
+
+    private Map<InetAddress, Integer> countConnections() {
+        final Map<InetAddress, Integer> counts = new HashMap<InetAddress, Integer>();
+        for (Iterator<Map.Entry<Socket, InetAddress>> it = connections.entrySet().iterator(); it.hasNext();) {
+            final Map.Entry<Socket, InetAddress> connection = it.next();
+            if (connection.getKey().isClosed()) {
+                it.remove();
+            } else {
+                counts.put(connection.getValue(), countOf(counts, connection.getValue()) + 1);
+            }
+        }
+        return counts;
+    }
+
+    private static int countOf(Map<InetAddress, Integer> counts, InetAddress address) {
+        final Integer count = counts.get(address);
+        return count == null ? 0 : count;
+    }
+
+    private void purgeClosedConnections() {
+        for (Iterator<Socket> it = connections.keySet().iterator(); it.hasNext();) {
+            if (it.next().isClosed()) {
+                it.remove();
+            }
+        }
+    }
+
+    @Override
+    public int getCachedHostCount() {
+        return cache.size();
+    }
+
+    @Override
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    @Override
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    @Override
+    public double getHitRate() {
+        final long hitCount = hits.get();
+        final long total = hitCount + misses.get();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    @Override
+    public long getLookupCount() {
+        return lookups.get();
+    }
+
+    @Override
+    public long getFailedLookupCount() {
+        return failedLookups.get();
+    }
+
+    @Override
+    public long getRefreshAheadCount() {
+        return refreshes.get();
+    }
+
+    @Override
+    public double getAverageLookupMillis() {
+        final long count = lookups.get();
+        return count == 0 ? 0 : totalLookupNanos.get() / 1e6 / count;
+    }
+
+    @Override
+    public double getMaxLookupMillis() {
+        return maxLookupNanos.get() / 1e6;
+    }
+
+    @Override
+    public void clearCache() {
+        cache.clear();
+    }
+
+    private static ThreadPoolExecutor newRefreshExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "java-sdk-dns-refresh");
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+        // Let the thread go when there is nothing to refresh
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /** The outcome of a lookup. */
+    private static final class Entry {
+        /** The resolved addresses; or null if the lookup failed. */
+        final InetAddress[] addresses;
+        /** The message of the failure; or null if the lookup succeeded. */
+        final String failure;
+        final long expiresAtNanos;
+        final long refreshAtNanos;
+        final AtomicBoolean refreshing = new AtomicBoolean();
+        final AtomicInteger rotation = new AtomicInteger();
+
+        Entry(InetAddress[] addresses, String failure, long nowNanos, long ttlNanos, double refreshAheadFactor) {
+            this.addresses = addresses;
+            this.failure = failure;
+            this.expiresAtNanos = nowNanos + ttlNanos;
+            this.refreshAtNanos = nowNanos + (long) (ttlNanos * Math.min(refreshAheadFactor, 1));
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc;
+
+/**
+ * MBean interface of the statistics of a {@link CachingDnsResolver}.
+ */
+public interface CachingDnsResolverMBean {
+    /** Returns the number of host names currently cached, including failed lookups. */
+    public int getCachedHostCount();
+
+    /** Returns the number of resolutions served from the cache. */
+    public long getHitCount();
+
+    /** Returns the number of resolutions that had to wait for a lookup. */
+    public long getMissCount();
+
+    /** Returns the share of resolutions served from the cache, between 0 and 1. */
+    public double getHitRate();
+
+    /** Returns the number of lookups made, including refreshes ahead of expiry. */
+    public long getLookupCount();
+
+    /** Returns the number of lookups that failed. */
+    public long getFailedLookupCount();
+
+    /** Returns the number of lookups made in the background ahead of expiry. */
+    public long getRefreshAheadCount();
+
+    /** Returns the average duration of a lookup in milliseconds. */
+    public double getAverageLookupMillis();
+
+    /** Returns the longest duration of a lookup in milliseconds. */
+    public double getMaxLookupMillis();
+
+    /** Drops all the cached entries. */
+    public void clearCache();
+}
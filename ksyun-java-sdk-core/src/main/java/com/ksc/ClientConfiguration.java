@@ -15,14 +15,24 @@
 package com.ksc;
 
 import com.ksc.http.IdleConnectionReaper;
+import com.ksc.http.client.HttpTransportFactory;
+import com.ksc.retry.CircuitBreakerConfig;
+import com.ksc.retry.HedgingPolicy;
 import com.ksc.retry.PredefinedRetryPolicies;
 import com.ksc.retry.RetryPolicy;
+import com.ksc.tracing.Tracer;
 import com.ksc.util.VersionInfoUtils;
 
 import org.apache.http.annotation.NotThreadSafe;
 
 import java.net.InetAddress;
 import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Client configuration options such as proxy settings, user agent string, max retry attempts, etc.
@@ -101,11 +111,68 @@ public class ClientConfiguration {
      */
     public static final boolean DEFAULT_THROTTLE_RETRIES = false;
 
+    /**
+     * The default on whether to use adaptive client side rate limiting.
+     */
+    public static final boolean DEFAULT_USE_ADAPTIVE_RATE_LIMITING = false;
+
     /**
      * The default response metadata cache size.
      */
     public static final int DEFAULT_RESPONSE_METADATA_CACHE_SIZE = 50;
 
+    /**
+     * The default interval for sampling the connection pool statistics, in milliseconds; a
+     * non-positive value disables the sampling.
+     */
+    public static final long DEFAULT_CONNECTION_POOL_SAMPLING_INTERVAL_MILLIS = 0;
+
+    /**
+     * The default maximum time spent retrying a request, ie no limit.
+     */
+    public static final long DEFAULT_MAX_RETRY_TIME_MILLIS = -1;
+
+    /**
+     * By default, the client execution timeout interrupts the calling thread.
+     */
+    public static final boolean DEFAULT_USE_COOPERATIVE_CLIENT_EXECUTION_TIMEOUT = false;
+
+    /**
+     * By default, requests are signed with the clock of the endpoint as
+     * estimated from the Date header of its responses.
+     */
+    public static final boolean DEFAULT_USE_CLOCK_SKEW_CORRECTION = true;
+
+    /**
+     * The default number of connections opened to the endpoint of a client
+     * when it is set, ie none.
+     */
+    public static final int DEFAULT_WARM_UP_CONNECTIONS = 0;
+
+    /**
+     * The default time a pooled connection may stay idle before it is
+     * validated ahead of its next use.
+     */
+    public static final int DEFAULT_VALIDATE_AFTER_INACTIVITY_MILLIS = 5 * 1000;
+
+    /**
+     * The default number of TLS sessions cached for resumption, ie the JSSE
+     * default.
+     */
+    public static final int DEFAULT_TLS_SESSION_CACHE_SIZE = -1;
+
+    /**
+     * The default time in seconds a cached TLS session may be resumed, ie the
+     * JSSE default.
+     */
+    public static final int DEFAULT_TLS_SESSION_TIMEOUT_SECONDS = -1;
+
+    /**
+     * The default number of attempts of asynchronous executions which may
+     * wait for a thread of the async executor owned by the client.
+     */
+    public static final int DEFAULT_ASYNC_EXECUTOR_QUEUE_SIZE = 10000;
+
     /** The HTTP user agent header passed with all HTTP requests. */
     private String userAgent = DEFAULT_USER_AGENT;
 
@@ -183,6 +250,8 @@ public class ClientConfiguration {
 
     private boolean throttleRetries = DEFAULT_THROTTLE_RETRIES;
 
+    private boolean adaptiveRateLimiting = DEFAULT_USE_ADAPTIVE_RATE_LIMITING;
+
     /**
      * Optional size hint (in bytes) for the low level TCP send buffer. This is an advanced option
      * for advanced users who want to tune low level TCP parameters to try and squeeze out more
@@ -269,6 +338,100 @@ public class ClientConfiguration {
      */
     private boolean useExpectContinue = DEFAULT_USE_EXPECT_CONTINUE;
 
+    /**
+     * The interval at which the statistics of the connection pool are sampled by the
+     * {@link com.ksc.http.ConnectionPoolSampler}, in milliseconds.
+     */
+    private long connectionPoolSamplingIntervalMillis = DEFAULT_CONNECTION_POOL_SAMPLING_INTERVAL_MILLIS;
+
+    /**
+     * The tracer notified of the spans of each request; records nothing by default.
+     */
+    private Tracer tracer = Tracer.NONE;
+
+    /**
+     * Configuration of the per endpoint circuit breakers; or null if circuit
+     * breaking is disabled.
+     */
+    private CircuitBreakerConfig circuitBreakerConfig;
+
+    /**
+     * Policy of hedged requests; or null if request hedging is disabled.
+     */
+    private HedgingPolicy hedgingPolicy;
+
+    /**
+     * The maximum time in milliseconds from the start of the execution of a
+     * request after which it is not retried anymore; or negative for no limit.
+     */
+    private long maxRetryTimeMillis = DEFAULT_MAX_RETRY_TIME_MILLIS;
+
+    /**
+     * Whether the client execution timeout is enforced through a deadline
+     * instead of interrupting the calling thread.
+     */
+    private boolean useCooperativeClientExecutionTimeout = DEFAULT_USE_COOPERATIVE_CLIENT_EXECUTION_TIMEOUT;
+
+    /**
+     * Whether requests are signed with the clock skew of their endpoint as
+     * estimated from previous responses.
+     */
+    private boolean clockSkewCorrection = DEFAULT_USE_CLOCK_SKEW_CORRECTION;
+
+    /**
+     * Maximum number of connections per host, overriding the maximum number
+     * of connections for the hosts it contains; or null if there is none.
+     */
+    private Map<String, Integer> maxConnectionsPerHost;
+
+    /**
+     * Groups of hosts served by their own connection pool; or null if all
+     * the hosts share the default pool.
+     */
+    private List<ConnectionPoolGroup> connectionPoolGroups;
+
+    /**
+     * The number of connections opened ahead of the first requests whenever
+     * the endpoint of a client is set; or zero to open them on demand.
+     */
+    private int warmUpConnections = DEFAULT_WARM_UP_CONNECTIONS;
+
+    /**
+     * The time a pooled connection may stay idle before it is validated ahead
+     * of its next use; or a non-positive value to never validate it.
+     */
+    private int validateAfterInactivityMillis = DEFAULT_VALIDATE_AFTER_INACTIVITY_MILLIS;
+
+    /**
+     * The maximum number of TLS sessions cached for resumption, zero for no
+     * limit, or a negative value for the JSSE default.
+     */
+    private int tlsSessionCacheSize = DEFAULT_TLS_SESSION_CACHE_SIZE;
+
+    /**
+     * The time in seconds a cached TLS session may be resumed, zero for no
+     * limit, or a negative value for the JSSE default.
+     */
+    private int tlsSessionTimeoutSeconds = DEFAULT_TLS_SESSION_TIMEOUT_SECONDS;
+
+    /**
+     * The factory of the transport sending the requests; or null for the
+     * Apache http client.
+     */
+    private HttpTransportFactory httpTransportFactory;
+
+    /**
+     * The executor the attempts of asynchronous executions run on; or null
+     * for a pool owned by the client.
+     */
+    private ExecutorService asyncExecutor;
+
+    /**
+     * The number of attempts which may wait for a thread of the async
+     * executor owned by the client.
+     */
+    private int asyncExecutorQueueSize = DEFAULT_ASYNC_EXECUTOR_QUEUE_SIZE;
+
     /**
      * Can be used to specify custom specific Apache HTTP client configurations.
      */
@@ -284,6 +447,7 @@ public class ClientConfiguration {
         this.maxErrorRetry = other.maxErrorRetry;
         this.retryPolicy = other.retryPolicy;
         this.throttleRetries = other.throttleRetries;
+        this.adaptiveRateLimiting = other.adaptiveRateLimiting;
         this.localAddress = other.localAddress;
         this.protocol = other.protocol;
         this.proxyDomain = other.proxyDomain;
@@ -306,6 +470,26 @@ public class ClientConfiguration {
         this.responseMetadataCacheSize = other.responseMetadataCacheSize;
         this.dnsResolver = other.dnsResolver;
         this.useExpectContinue = other.useExpectContinue;
+        this.connectionPoolSamplingIntervalMillis = other.connectionPoolSamplingIntervalMillis;
+        this.tracer = other.tracer;
+        this.circuitBreakerConfig = other.circuitBreakerConfig == null
+                ? null : new CircuitBreakerConfig(other.circuitBreakerConfig);
+        this.hedgingPolicy = other.hedgingPolicy == null
+                ? null : new HedgingPolicy(other.hedgingPolicy);
+        this.maxRetryTimeMillis = other.maxRetryTimeMillis;
+        this.useCooperativeClientExecutionTimeout = other.useCooperativeClientExecutionTimeout;
+        this.clockSkewCorrection = other.clockSkewCorrection;
+        this.maxConnectionsPerHost = other.maxConnectionsPerHost == null
+                ? null : new LinkedHashMap<String, Integer>(other.maxConnectionsPerHost);
+        this.connectionPoolGroups = other.connectionPoolGroups == null
+                ? null : new ArrayList<ConnectionPoolGroup>(other.connectionPoolGroups);
+        this.warmUpConnections = other.warmUpConnections;
+        this.validateAfterInactivityMillis = other.validateAfterInactivityMillis;
+        this.tlsSessionCacheSize = other.tlsSessionCacheSize;
+        this.tlsSessionTimeoutSeconds = other.tlsSessionTimeoutSeconds;
+        this.httpTransportFactory = other.httpTransportFactory;
+        this.asyncExecutor = other.asyncExecutor;
+        this.asyncExecutorQueueSize = other.asyncExecutorQueueSize;
         this.apacheHttpClientConfig = new ApacheHttpClientConfig(other.apacheHttpClientConfig);
     }
 
@@ -791,6 +975,12 @@ public class ClientConfiguration {
     /**
      * Sets the retry policy upon failed requests. User could specify whether the RetryPolicy should
      * honor maxErrorRetry set by {@link #setMaxErrorRetry(int)}.
+     * <p>
+     * Besides {@link PredefinedRetryPolicies}, policies can be assembled from
+     * the back-off strategies of {@link com.ksc.retry.BackoffStrategies}, eg
+     * decorrelated jitter honoring Retry-After hints, and per error code
+     * rules with {@link com.ksc.retry.ErrorCodeRetryCondition}.
+     * </p>
      *
      * @param retryPolicy
      *            The retry policy upon failed requests.
@@ -1077,6 +1267,11 @@ public class ClientConfiguration {
      * this feature.
      * </p>
      * <p>
+     * The connection pool request, connect and socket timeouts of each HTTP request are shortened
+     * to the time left before this timeout, so that the last attempts fail by themselves instead
+     * of being aborted.
+     * </p>
+     * <p>
      * <b>Note:</b> This feature is not compatible with Java 1.6.
      * </p>
      *
@@ -1084,6 +1279,7 @@ public class ClientConfiguration {
      *            The amount of time (in milliseconds) to allow the client to complete the execution
      *            of an API call. A value of null disables this feature for this request.
      * @see {@link ClientConfiguration#setRequestTimeout(int)} to enforce a timeout per HTTP request
+     * @see #setUseCooperativeClientExecutionTimeout(boolean)
      */
     public void setClientExecutionTimeout(int clientExecutionTimeout) {
         this.clientExecutionTimeout = clientExecutionTimeout;
@@ -1233,6 +1429,46 @@ public class ClientConfiguration {
         return this;
     }
 
+    /**
+     * Returns whether adaptive client side rate limiting is used.
+     * <p>
+     * When enabled, requests to an endpoint are gated by a token bucket whose
+     * rate starts unlimited, is cut back multiplicatively whenever the
+     * endpoint returns a throttling error, and grows back as requests succeed,
+     * so that sustained load converges on the quota of the service.
+     * </p>
+     *
+     * @return true if adaptive rate limiting will be used
+     * @see com.ksc.retry.AdaptiveRateLimiter
+     */
+    public boolean useAdaptiveRateLimiting() {
+        return adaptiveRateLimiting;
+    }
+
+    /**
+     * Sets whether adaptive client side rate limiting should be used.
+     *
+     * @param use
+     *            true if adaptive rate limiting should be used
+     * @see #useAdaptiveRateLimiting()
+     */
+    public void setUseAdaptiveRateLimiting(boolean use) {
+        this.adaptiveRateLimiting = use;
+    }
+
+    /**
+     * Sets whether adaptive client side rate limiting should be used.
+     *
+     * @param use
+     *            true if adaptive rate limiting should be used
+     * @return The updated ClientConfiguration object.
+     * @see #useAdaptiveRateLimiting()
+     */
+    public ClientConfiguration withAdaptiveRateLimiting(boolean use) {
+        setUseAdaptiveRateLimiting(use);
+        return this;
+    }
+
     /**
      * Checks if gzip compression is used
      *
@@ -1642,6 +1878,8 @@ public class ClientConfiguration {
 
     /**
      * Sets the DNS Resolver that should be used to for resolving KSC IP addresses.
+     * A {@link CachingDnsResolver} caches lookups, refreshes them ahead of
+     * expiry, and spreads connections across the addresses of a host name.
      */
     public void setDnsResolver(final DnsResolver resolver) {
         if (resolver == null) {
@@ -1757,4 +1995,565 @@ public class ClientConfiguration {
 
         return this;
     }
+
+    /**
+     * Returns the interval at which the total and per-route statistics of the connection pool are
+     * sampled in the background, in milliseconds; or a non-positive value if sampling is disabled.
+     */
+    public long getConnectionPoolSamplingIntervalMillis() {
+        return connectionPoolSamplingIntervalMillis;
+    }
+
+    /**
+     * Sets the interval at which the total and per-route statistics of the connection pool are
+     * sampled in the background. The samples are kept in ring buffers exposed via JMX and reported
+     * to the service metric collector, which can be used to size {@link #setMaxConnections(int)}.
+     * By default, it is set to {@value #DEFAULT_CONNECTION_POOL_SAMPLING_INTERVAL_MILLIS}, i.e.
+     * sampling is disabled.
+     *
+     * @param connectionPoolSamplingIntervalMillis
+     *            the sampling interval, in milliseconds; or a non-positive value to disable
+     *            sampling.
+     */
+    public void setConnectionPoolSamplingIntervalMillis(long connectionPoolSamplingIntervalMillis) {
+        this.connectionPoolSamplingIntervalMillis = connectionPoolSamplingIntervalMillis;
+    }
+
+    /**
+     * Fluent API for {@link #setConnectionPoolSamplingIntervalMillis(long)}.
+     *
+     * @return The updated ClientConfiguration object.
+     */
+    public ClientConfiguration withConnectionPoolSamplingIntervalMillis(long connectionPoolSamplingIntervalMillis) {
+        setConnectionPoolSamplingIntervalMillis(connectionPoolSamplingIntervalMillis);
+        return this;
+    }
+
+    /**
+     * Returns the tracer notified of the execution, attempts, backoff pauses,
+     * signing and unmarshalling of each request. Returns {@link Tracer#NONE}
+     * by default.
+     */
+    public Tracer getTracer() {
+        return tracer;
+    }
+
+    /**
+     * Sets the tracer notified of the execution, attempts, backoff pauses,
+     * signing and unmarshalling of each request.
+     */
+    public void setTracer(final Tracer tracer) {
+        if (tracer == null) {
+            throw new IllegalArgumentException("tracer cannot be null");
+        }
+        this.tracer = tracer;
+    }
+
+    /**
+     * Sets the tracer notified of the execution, attempts, backoff pauses,
+     * signing and unmarshalling of each request.
+     *
+     * @return The updated ClientConfiguration object.
+     */
+    public ClientConfiguration withTracer(final Tracer tracer) {
+        setTracer(tracer);
+        return this;
+    }
+
+    /**
+     * Returns the configuration of the per endpoint circuit breakers; or null
+     * if circuit breaking is disabled, which is the default.
+     */
+    public CircuitBreakerConfig getCircuitBreakerConfig() {
+        return circuitBreakerConfig;
+    }
+
+    /**
+     * Enables a circuit breaker per endpoint with the given configuration, or
+     * disables circuit breaking if null.
+     * <p>
+     * While the breaker of an endpoint is open, ie a large share of the
+     * recent requests to it failed with IO errors or 5xx responses, requests
+     * to the endpoint fail fast with a
+     * {@link com.ksc.retry.CircuitBreakerOpenException} and are not retried.
+     * </p>
+     */
+    public void setCircuitBreakerConfig(CircuitBreakerConfig circuitBreakerConfig) {
+        this.circuitBreakerConfig = circuitBreakerConfig;
+    }
+
+    /**
+     * Enables a circuit breaker per endpoint with the given configuration, or
+     * disables circuit breaking if null.
+     *
+     * @return The updated ClientConfiguration object.
+     * @see #setCircuitBreakerConfig(CircuitBreakerConfig)
+     */
+    public ClientConfiguration withCircuitBreakerConfig(CircuitBreakerConfig circuitBreakerConfig) {
+        setCircuitBreakerConfig(circuitBreakerConfig);
+        return this;
+    }
+
+    /**
+     * Returns the policy of hedged requests; or null if request hedging is
+     * disabled, which is the default.
+     */
+    public HedgingPolicy getHedgingPolicy() {
+        return hedgingPolicy;
+    }
+
+    /**
+     * Enables hedged requests with the given policy, or disables them if
+     * null.
+     * <p>
+     * When enabled, if the response to a request of an idempotent operation
+     * has not arrived after a delay derived from the recent latencies of the
+     * operation, an identical request is sent to the same endpoint and the
+     * first successful response is used, the other request being aborted.
+     * Hedged requests consume retry capacity like retries do, are capped by
+     * {@link HedgingPolicy#getMaxConcurrentHedges()}, and are only sent for
+     * requests without a streamed payload.
+     * </p>
+     */
+    public void setHedgingPolicy(HedgingPolicy hedgingPolicy) {
+        this.hedgingPolicy = hedgingPolicy;
+    }
+
+    /**
+     * Enables hedged requests with the given policy, or disables them if
+     * null.
+     *
+     * @return The updated ClientConfiguration object.
+     * @see #setHedgingPolicy(HedgingPolicy)
+     */
+    public ClientConfiguration withHedgingPolicy(HedgingPolicy hedgingPolicy) {
+        setHedgingPolicy(hedgingPolicy);
+        return this;
+    }
+
+    /**
+     * Returns the retry time budget of a request in milliseconds; or a
+     * negative value if unlimited, which is the default.
+     */
+    public long getMaxRetryTimeMillis() {
+        return maxRetryTimeMillis;
+    }
+
+    /**
+     * Sets the retry time budget of a request in milliseconds, or a negative
+     * value for no limit. Once this much time has passed since the request
+     * started executing, it is not retried anymore, and back-off delays are
+     * shortened so as not to exceed the budget; the maximum number of retries
+     * still applies. Unlike the client execution timeout, the attempt in
+     * flight is never interrupted.
+     *
+     * @see #setRetryPolicy(RetryPolicy)
+     */
+    public void setMaxRetryTimeMillis(long maxRetryTimeMillis) {
+        this.maxRetryTimeMillis = maxRetryTimeMillis;
+    }
+
+    /**
+     * Sets the retry time budget of a request in milliseconds, or a negative
+     * value for no limit.
+     *
+     * @return The updated ClientConfiguration object.
+     * @see #setMaxRetryTimeMillis(long)
+     */
+    public ClientConfiguration withMaxRetryTimeMillis(long maxRetryTimeMillis) {
+        setMaxRetryTimeMillis(maxRetryTimeMillis);
+        return this;
+    }
+
+    /**
+     * Checks if the client execution timeout is enforced cooperatively.
+     *
+     * @return if the client execution timeout is enforced without interrupting the calling thread
+     * @see #setUseCooperativeClientExecutionTimeout(boolean)
+     */
+    public boolean useCooperativeClientExecutionTimeout() {
+        return useCooperativeClientExecutionTimeout;
+    }
+
+    /**
+     * Sets whether the client execution timeout is enforced cooperatively. By default the timer
+     * of the {@link #setClientExecutionTimeout(int) client execution timeout} interrupts the
+     * calling thread, which may also disturb unrelated blocking code running on that thread when
+     * the interrupt arrives late. In cooperative mode the execution relies on its deadline
+     * instead: the connection lease, connect and socket timeouts of each attempt are shortened to
+     * the time left, the pauses before retries never run past it, the execution checks it between
+     * steps, and the timer only aborts the HTTP request in flight. The calling thread is never
+     * interrupted.
+     *
+     * @param use
+     *            whether the client execution timeout is enforced cooperatively
+     */
+    public void setUseCooperativeClientExecutionTimeout(boolean use) {
+        this.useCooperativeClientExecutionTimeout = use;
+    }
+
+    /**
+     * Sets whether the client execution timeout is enforced cooperatively.
+     *
+     * @param use
+     *            whether the client execution timeout is enforced cooperatively
+     * @return The updated ClientConfiguration object.
+     * @see #setUseCooperativeClientExecutionTimeout(boolean)
+     */
+    public ClientConfiguration withCooperativeClientExecutionTimeout(boolean use) {
+        setUseCooperativeClientExecutionTimeout(use);
+        return this;
+    }
+
+    /**
+     * Checks if proactive clock skew correction is used.
+     *
+     * @return true if requests are signed with the estimated clock skew of their endpoint
+     * @see #setUseClockSkewCorrection(boolean)
+     */
+    public boolean useClockSkewCorrection() {
+        return clockSkewCorrection;
+    }
+
+    /**
+     * Sets whether proactive clock skew correction should be used. When enabled, which is the
+     * default, the client estimates the skew between the local clock and the clock of each
+     * endpoint from the Date header of its successful responses, and signs the following requests
+     * to that endpoint with it; so a JVM with a bad clock does not have to wait for a request to
+     * be rejected with a clock skew error before correcting it. When disabled, the time offset is
+     * only adjusted after such an error.
+     *
+     * @param use
+     *            true if proactive clock skew correction should be used
+     */
+    public void setUseClockSkewCorrection(boolean use) {
+        this.clockSkewCorrection = use;
+    }
+
+    /**
+     * Sets whether proactive clock skew correction should be used.
+     *
+     * @param use
+     *            true if proactive clock skew correction should be used
+     * @return The updated ClientConfiguration object.
+     * @see #setUseClockSkewCorrection(boolean)
+     */
+    public ClientConfiguration withClockSkewCorrection(boolean use) {
+        setUseClockSkewCorrection(use);
+        return this;
+    }
+
+    /**
+     * Returns the maximum number of connections per host, keyed by "host" or
+     * "host:port"; or null if every host is limited by the maximum number of
+     * connections, which is the default.
+     */
+    public Map<String, Integer> getMaxConnectionsPerHost() {
+        return maxConnectionsPerHost;
+    }
+
+    /**
+     * Sets the maximum number of connections per host, keyed by "host" for
+     * any port or by "host:port"; or null to limit every host by the maximum
+     * number of connections. A host of a
+     * {@link ConnectionPoolGroup} is limited within the pool of its group.
+     * <p>
+     * The limits can also be changed at runtime through the
+     * {@code com.ksc.management:type=ConnectionPoolLimits} MBeans of the client.
+     *
+     * @see #setMaxConnections(int)
+     */
+    public void setMaxConnectionsPerHost(Map<String, Integer> maxConnectionsPerHost) {
+        this.maxConnectionsPerHost = maxConnectionsPerHost == null
+                ? null : new LinkedHashMap<String, Integer>(maxConnectionsPerHost);
+    }
+
+    /**
+     * Sets the maximum number of connections to the given host, given as
+     * "host" for any port or as "host:port".
+     *
+     * @return The updated ClientConfiguration object.
+     * @see #setMaxConnectionsPerHost(Map)
+     */
+    public ClientConfiguration withMaxConnectionsPerHost(String host, int maxConnections) {
+        if (maxConnectionsPerHost == null) {
+            maxConnectionsPerHost = new LinkedHashMap<String, Integer>();
+        }
+        maxConnectionsPerHost.put(host, maxConnections);
+        return this;
+    }
+
+    /**
+     * Returns the groups of hosts served by their own connection pool; or
+     * null if all the hosts share the default pool, which is the default.
+     */
+    public List<ConnectionPoolGroup> getConnectionPoolGroups() {
+        return connectionPoolGroups;
+    }
+
+    /**
+     * Sets the groups of hosts served by their own connection pool, or null
+     * to serve all the hosts from the default pool. Requests to the hosts of
+     * a group never wait for a connection of the default pool or of another
+     * group, so a slow or saturated endpoint cannot starve the others. Each
+     * group pool is sized by its own maximum number of connections, on top of
+     * the maximum number of connections of the default pool.
+     */
+    public void setConnectionPoolGroups(List<ConnectionPoolGroup> connectionPoolGroups) {
+        this.connectionPoolGroups = connectionPoolGroups == null
+                ? null : new ArrayList<ConnectionPoolGroup>(connectionPoolGroups);
+    }
+
+    /**
+     * Sets the groups of hosts served by their own connection pool.
+     *
+     * @return The updated ClientConfiguration object.
+     * @see #setConnectionPoolGroups(List)
+     */
+    public ClientConfiguration withConnectionPoolGroups(ConnectionPoolGroup... connectionPoolGroups) {
+        setConnectionPoolGroups(connectionPoolGroups == null ? null : Arrays.asList(connectionPoolGroups));
+        return this;
+    }
+
+    /**
+     * Returns the number of connections opened to the endpoint of a client
+     * by {@link KscWebServiceClient#warmUp()}; zero, the default, if
+     * connections are opened on demand.
+     */
+    public int getWarmUpConnections() {
+        return warmUpConnections;
+    }
+
+    /**
+     * Sets the number of connections opened to the endpoint of a client by
+     * {@link KscWebServiceClient#warmUp()}, or zero to open connections on
+     * demand. The connections are opened in parallel, including their TLS
+     * handshakes, so that the first requests after startup do not pay for
+     * them. Setting the endpoint or region does not open them. The number is
+     * capped by the maximum number of connections.
+     *
+     * @see KscWebServiceClient#warmUpConnections(int)
+     */
+    public void setWarmUpConnections(int warmUpConnections) {
+        this.warmUpConnections = warmUpConnections;
+    }
+
+    /**
+     * Sets the number of connections opened to the endpoint of a client by
+     * {@link KscWebServiceClient#warmUp()}, or zero to open connections on
+     * demand.
+     *
+     * @return The updated ClientConfiguration object.
+     * @see #setWarmUpConnections(int)
+     */
+    public ClientConfiguration withWarmUpConnections(int warmUpConnections) {
+        setWarmUpConnections(warmUpConnections);
+        return this;
+    }
+
+    /**
+     * Returns the time in milliseconds a pooled connection may stay idle
+     * before it is checked for having been closed by the server ahead of its
+     * next use; or a non-positive value if it is never checked.
+     */
+    public int getValidateAfterInactivityMillis() {
+        return validateAfterInactivityMillis;
+    }
+
+    /**
+     * Sets the time in milliseconds a pooled connection may stay idle before
+     * it is checked for having been closed by the server ahead of its next
+     * use, or a non-positive value to never check it. The check blocks on a
+     * short read, so connections reused back to back skip it; it is meant to
+     * catch connections the server dropped while they sat in the pool, which
+     * would otherwise fail with a {@code NoHttpResponseException}. Defaults to
+     * five seconds.
+     *
+     * @see #setConnectionMaxIdleMillis(long)
+     */
+    public void setValidateAfterInactivityMillis(int validateAfterInactivityMillis) {
+        this.validateAfterInactivityMillis = validateAfterInactivityMillis;
+    }
+
+    /**
+     * Sets the time in milliseconds a pooled connection may stay idle before
+     * it is checked ahead of its next use, or a non-positive value to never
+     * check it.
+     *
+     * @return The updated ClientConfiguration object.
+     * @see #setValidateAfterInactivityMillis(int)
+     */
+    public ClientConfiguration withValidateAfterInactivityMillis(int validateAfterInactivityMillis) {
+        setValidateAfterInactivityMillis(validateAfterInactivityMillis);
+        return this;
+    }
+
+    /**
+     * Returns the maximum number of TLS sessions cached for resumption, zero
+     * for no limit, or a negative value for the JSSE default.
+     */
+    public int getTlsSessionCacheSize() {
+        return tlsSessionCacheSize;
+    }
+
+    /**
+     * Sets the maximum number of TLS sessions cached for resumption, zero for
+     * no limit, or a negative value to keep the JSSE default. A connection to
+     * a host with a cached session resumes it with an abbreviated handshake,
+     * saving a round trip and the key exchange. The cache belongs to the
+     * client; it is ignored when a custom SSL socket factory is configured
+     * through {@link ApacheHttpClientConfig#setSslSocketFactory}.
+     *
+     * @see #setTlsSessionTimeoutSeconds(int)
+     */
+    public void setTlsSessionCacheSize(int tlsSessionCacheSize) {
+        this.tlsSessionCacheSize = tlsSessionCacheSize;
+    }
+
+    /**
+     * Sets the maximum number of TLS sessions cached for resumption, zero for
+     * no limit, or a negative value to keep the JSSE default.
+     *
+     * @return The updated ClientConfiguration object.
+     * @see #setTlsSessionCacheSize(int)
+     */
+    public ClientConfiguration withTlsSessionCacheSize(int tlsSessionCacheSize) {
+        setTlsSessionCacheSize(tlsSessionCacheSize);
+        return this;
+    }
+
+    /**
+     * Returns the time in seconds a cached TLS session may be resumed, zero
+     * for no limit, or a negative value for the JSSE default.
+     */
+    public int getTlsSessionTimeoutSeconds() {
+        return tlsSessionTimeoutSeconds;
+    }
+
+    /**
+     * Sets the time in seconds a cached TLS session may be resumed, zero for
+     * no limit, or a negative value to keep the JSSE default. Servers may
+     * refuse to resume sessions earlier than that, in which case a full
+     * handshake takes place.
+     *
+     * @see #setTlsSessionCacheSize(int)
+     */
+    public void setTlsSessionTimeoutSeconds(int tlsSessionTimeoutSeconds) {
+        this.tlsSessionTimeoutSeconds = tlsSessionTimeoutSeconds;
+    }
+
+    /**
+     * Sets the time in seconds a cached TLS session may be resumed, zero for
+     * no limit, or a negative value to keep the JSSE default.
+     *
+     * @return The updated ClientConfiguration object.
+     * @see #setTlsSessionTimeoutSeconds(int)
+     */
+    public ClientConfiguration withTlsSessionTimeoutSeconds(int tlsSessionTimeoutSeconds) {
+        setTlsSessionTimeoutSeconds(tlsSessionTimeoutSeconds);
+        return this;
+    }
+
+    /**
+     * Returns the factory of the transport sending the requests; or null for
+     * the Apache http client.
+     */
+    public HttpTransportFactory getHttpTransportFactory() {
+        return httpTransportFactory;
+    }
+
+    /**
+     * Sets the factory of the transport sending the requests, or null for
+     * the Apache http client, which is the default. The same request
+     * marshalling, signing, retries, timeouts and response handling apply
+     * whatever transport sends the requests; settings specific to the Apache
+     * http client, such as the connection pool ones, only apply to the
+     * transports which honor them.
+     *
+     * @see com.ksc.http.urlconnection.UrlConnectionHttpTransportFactory
+     * @see com.ksc.http.http2.Http2HttpTransportFactory
+     */
+    public void setHttpTransportFactory(HttpTransportFactory httpTransportFactory) {
+        this.httpTransportFactory = httpTransportFactory;
+    }
+
+    /**
+     * Sets the factory of the transport sending the requests, or null for
+     * the Apache http client.
+     *
+     * @return The updated ClientConfiguration object.
+     * @see #setHttpTransportFactory(HttpTransportFactory)
+     */
+    public ClientConfiguration withHttpTransportFactory(HttpTransportFactory httpTransportFactory) {
+        setHttpTransportFactory(httpTransportFactory);
+        return this;
+    }
+
+    /**
+     * Returns the executor the attempts of asynchronous executions run on;
+     * or null for a pool owned by the client.
+     */
+    public ExecutorService getAsyncExecutor() {
+        return asyncExecutor;
+    }
+
+    /**
+     * Sets the executor the attempts of asynchronous executions run on, or
+     * null for a pool owned by the client of at most
+     * {@link #getMaxConnections()} threads and a queue of
+     * {@link #getAsyncExecutorQueueSize()} attempts, which is the default. The pauses
+     * before retries are scheduled on a shared timer and hold no thread of
+     * the executor. The executor should be bounded; it is not shut down with
+     * the client, and an execution whose attempt it rejects fails.
+     *
+     * @see com.ksc.http.KSCHttpClient#executeAsync
+     */
+    public void setAsyncExecutor(ExecutorService asyncExecutor) {
+        this.asyncExecutor = asyncExecutor;
+    }
+
+    /**
+     * Sets the executor the attempts of asynchronous executions run on, or
+     * null for a pool owned by the client.
+     *
+     * @return The updated ClientConfiguration object.
+     * @see #setAsyncExecutor(ExecutorService)
+     */
+    public ClientConfiguration withAsyncExecutor(ExecutorService asyncExecutor) {
+        setAsyncExecutor(asyncExecutor);
+        return this;
+    }
+
+    /**
+     * Returns the number of attempts of asynchronous executions which may
+     * wait for a thread of the async executor owned by the client.
+     */
+    public int getAsyncExecutorQueueSize() {
+        return asyncExecutorQueueSize;
+    }
+
+    /**
+     * Sets the number of attempts of asynchronous executions which may wait
+     * for a thread of the async executor owned by the client; an execution
+     * whose attempt finds the queue full fails. It does not apply to an
+     * executor set with {@link #setAsyncExecutor(ExecutorService)}.
+     */
+    public void setAsyncExecutorQueueSize(int asyncExecutorQueueSize) {
+        if (asyncExecutorQueueSize <= 0) {
+            throw new IllegalArgumentException("asyncExecutorQueueSize should be positive");
+        }
+        this.asyncExecutorQueueSize = asyncExecutorQueueSize;
+    }
+
+    /**
+     * Sets the number of attempts of asynchronous executions which may wait
+     * for a thread of the async executor owned by the client.
+     *
+     * @return The updated ClientConfiguration object.
+     * @see #setAsyncExecutorQueueSize(int)
+     */
+    public ClientConfiguration withAsyncExecutorQueueSize(int asyncExecutorQueueSize) {
+        setAsyncExecutorQueueSize(asyncExecutorQueueSize);
+        return this;
+    }
 }
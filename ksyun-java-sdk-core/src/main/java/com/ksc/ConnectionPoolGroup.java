@@ -0,0 +1,84 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * A group of hosts served by a connection pool of their own, isolated from
+ * the default pool of the client and from the other groups; so that bulk
+ * traffic to some endpoints cannot starve latency sensitive calls to others
+ * of connections.
+ * <p>
+ * Hosts are given either as a host name, matching any port, or as
+ * {@code host:port}.
+ *
+ * @see ClientConfiguration#setConnectionPoolGroups(java.util.List)
+ */
+public class ConnectionPoolGroup {
+    private final String name;
+    private final int maxConnections;
+    private final Set<String> hosts;
+
+    /**
+     * @param name the name of the group, which identifies its pool in JMX.
+     * @param maxConnections the maximum number of connections of the pool.
+     * @param hosts the hosts whose requests use the pool.
+     */
+    public ConnectionPoolGroup(String name, int maxConnections, Collection<String> hosts) {
+        if (name == null || name.length() == 0)
+            throw new IllegalArgumentException("name must not be empty");
+        if (maxConnections <= 0)
+            throw new IllegalArgumentException("maxConnections must be positive");
+        if (hosts == null || hosts.isEmpty())
+            throw new IllegalArgumentException("hosts must not be empty");
+        Set<String> normalized = new LinkedHashSet<String>();
+        for (String host : hosts) {
+            normalized.add(host.toLowerCase(Locale.ENGLISH));
+        }
+        this.name = name;
+        this.maxConnections = maxConnections;
+        this.hosts = Collections.unmodifiableSet(normalized);
+    }
+
+    public ConnectionPoolGroup(String name, int maxConnections, String... hosts) {
+        this(name, maxConnections, Arrays.asList(hosts));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * Returns the hosts of the group, in lower case.
+     */
+    public Set<String> getHosts() {
+        return hosts;
+    }
+
+    @Override
+    public String toString() {
+        return name + hosts + " max " + maxConnections;
+    }
+}
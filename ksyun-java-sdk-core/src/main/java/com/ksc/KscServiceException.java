@@ -16,6 +16,10 @@ package com.ksc;
 
 import com.ksc.util.StringUtils;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Extension of KscClientException that represents an error response returned
  * by an Ksc web service. Receiving an exception of this type indicates that
@@ -101,6 +105,11 @@ public class KscServiceException extends KscClientException {
      */
     private byte[] rawResponse;
 
+    /**
+     * The HTTP headers of the error response.
+     */
+    private Map<String, String> httpHeaders = Collections.emptyMap();
+
     /**
      * Constructs a new KscServiceException with the specified message.
      *
@@ -291,4 +300,21 @@ public class KscServiceException extends KscClientException {
     public void setRawResponse(byte[] rawResponse) {
         this.rawResponse = rawResponse == null ? null : rawResponse.clone();
     }
+
+    /**
+     * Returns the HTTP headers of the error response, eg to look up a
+     * Retry-After hint; never null.
+     */
+    public Map<String, String> getHttpHeaders() {
+        return httpHeaders;
+    }
+
+    /**
+     * Sets the HTTP headers of the error response.
+     */
+    public void setHttpHeaders(Map<String, String> httpHeaders) {
+        this.httpHeaders = httpHeaders == null
+                ? Collections.<String, String>emptyMap()
+                : new HashMap<String, String>(httpHeaders);
+    }
 }
@@ -18,10 +18,13 @@ import com.ksc.annotation.SdkProtectedApi;
 import com.ksc.auth.RegionAwareSigner;
 import com.ksc.auth.Signer;
 import com.ksc.auth.SignerFactory;
+import com.ksc.handlers.AsyncHandler;
 import com.ksc.handlers.RequestHandler;
 import com.ksc.handlers.RequestHandler2;
+import com.ksc.http.ConnectionWarmUpResult;
 import com.ksc.http.KSCHttpClient;
 import com.ksc.http.ExecutionContext;
+import com.ksc.http.HttpResponseHandler;
 import com.ksc.internal.DefaultServiceEndpointBuilder;
 import com.ksc.log.CommonsLogFactory;
 import com.ksc.metrics.KscSdkMetrics;
@@ -37,6 +40,7 @@ import org.apache.commons.logging.LogFactory;
 import java.net.URI;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
 
 import static com.ksc.SDKGlobalConfiguration.PROFILING_SYSTEM_PROPERTY;
 
@@ -313,6 +317,42 @@ public abstract class KscWebServiceClient {
         }
     }
 
+    /**
+     * Opens the given number of connections to the endpoint of this client
+     * in parallel, completing their TCP and TLS handshakes ahead of the first
+     * requests, and reports how long it took. The number of connections is
+     * capped by the maximum number of connections per route.
+     *
+     * @param connections
+     *            The number of connections to open.
+     * @return How many connections were opened and how long it took.
+     * @throws IllegalArgumentException
+     *             If the endpoint of this client is not set.
+     * @see ClientConfiguration#setWarmUpConnections(int)
+     */
+    public ConnectionWarmUpResult warmUpConnections(int connections) {
+        return client.warmUpConnections(endpoint, connections);
+    }
+
+    /**
+     * Opens the {@link ClientConfiguration#getWarmUpConnections() configured
+     * number} of connections to the endpoint of this client, blocking until
+     * they are open. Call it once the endpoint or region is set, typically at
+     * application startup; nothing is opened if no connections are configured.
+     *
+     * @return How many connections were opened and how long it took.
+     * @throws IllegalArgumentException
+     *             If the endpoint of this client is not set.
+     * @see #warmUpConnections(int)
+     */
+    public ConnectionWarmUpResult warmUp() {
+        final int connections = clientConfiguration.getWarmUpConnections();
+        if (connections <= 0) {
+            return new ConnectionWarmUpResult(endpoint, 0, 0, 0, null);
+        }
+        return warmUpConnections(connections);
+    }
+
     /**
      * Convenient method for setting region.
      *
@@ -553,6 +593,43 @@ public abstract class KscWebServiceClient {
         }
     }
 
+    /**
+     * Executes the request asynchronously, and ends the client execution once
+     * it completes, as service clients otherwise do in a finally block around
+     * {@link KSCHttpClient#execute}. The caller starts the
+     * {@link Field#ClientExecuteTime} event, as for a synchronous execution.
+     *
+     * @param asyncHandler notified of the outcome after the client execution
+     *            has ended and, unless the future is cancelled, before the
+     *            returned future completes; may be null.
+     * @see KSCHttpClient#executeAsync(Request, HttpResponseHandler, HttpResponseHandler, ExecutionContext, AsyncHandler)
+     */
+    protected final <X> Future<Response<X>> executeAsync(
+            final Request<?> request,
+            HttpResponseHandler<KscWebServiceResponse<X>> responseHandler,
+            HttpResponseHandler<KscServiceException> errorResponseHandler,
+            final ExecutionContext executionContext,
+            final AsyncHandler<KscWebServiceRequest<?>, Response<X>> asyncHandler) {
+        return client.executeAsync(request, responseHandler, errorResponseHandler, executionContext,
+                new AsyncHandler<KscWebServiceRequest<?>, Response<X>>() {
+                    @Override
+                    public void onError(Exception exception) {
+                        endClientExecution(executionContext.getKscRequestMetrics(), request, null);
+                        if (asyncHandler != null) {
+                            asyncHandler.onError(exception);
+                        }
+                    }
+
+                    @Override
+                    public void onSuccess(KscWebServiceRequest<?> originalRequest, Response<X> response) {
+                        endClientExecution(executionContext.getKscRequestMetrics(), request, response);
+                        if (asyncHandler != null) {
+                            asyncHandler.onSuccess(originalRequest, response);
+                        }
+                    }
+                });
+    }
+
     /**
      * @deprecated by {@link #getServiceName()}.
      */
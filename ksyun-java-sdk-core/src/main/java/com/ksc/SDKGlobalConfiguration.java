@@ -126,6 +126,15 @@ public class SDKGlobalConfiguration {
     public static final String PROFILING_SYSTEM_PROPERTY =
         "com.ksc.sdk.enableRuntimeProfiling";
 
+    /**
+     * Tick duration, in milliseconds, of the shared timer that enforces the
+     * request timeout and client execution timeout features. Timeouts fire
+     * at most one tick late; a smaller tick is more precise but wakes the
+     * timer thread more often. Defaults to 10 milliseconds.
+     */
+    public static final String TIMEOUT_TIMER_TICK_MILLIS_SYSTEM_PROPERTY =
+        "com.ksc.sdk.timeoutTimerTickMillis";
+
     /////////////////////// Environment Variables ///////////////////////
     /** Environment variable name for the AWS access key ID */
     public static final String ACCESS_KEY_ENV_VAR = "AWS_ACCESS_KEY_ID";
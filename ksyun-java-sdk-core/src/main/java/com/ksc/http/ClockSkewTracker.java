@@ -0,0 +1,117 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.http;
+
+import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.Header;
+
+import com.ksc.annotation.ThreadSafe;
+import com.ksc.util.DateUtils;
+
+/**
+ * Estimates the clock skew between this JVM and each endpoint from the
+ * {@code Date} header of its responses, so that requests can be signed with
+ * the clock of the server before any of them fails with a clock skew error.
+ * <p>
+ * The {@code Date} header only has a resolution of one second, so each
+ * sample is taken against the middle of that second and of the round trip
+ * of the request, and the samples are smoothed with an exponentially
+ * weighted moving average.
+ */
+@ThreadSafe
+final class ClockSkewTracker {
+    /** Weight of the latest sample in the estimate. */
+    private static final double SMOOTHING = 0.2;
+    /** Marks an endpoint without estimate. */
+    private static final long UNKNOWN = Long.MIN_VALUE;
+
+    /** Estimated skew in milliseconds by endpoint, client time minus server time. */
+    private final ConcurrentMap<String, AtomicLong> skews = new ConcurrentHashMap<String, AtomicLong>();
+
+    /**
+     * Adds a sample to the estimate of the given endpoint from the
+     * {@code Date} header of the given response, if any.
+     *
+     * @param sentAtMillis when the request was sent, in client time.
+     * @param receivedAtMillis when the response was received, in client time.
+     */
+    void record(String endpoint, org.apache.http.HttpResponse response, long sentAtMillis,
+                long receivedAtMillis) {
+        final Header dateHeader = response.getFirstHeader("Date");
+        if (dateHeader == null) {
+            return;
+        }
+        final Date serverDate;
+        try {
+            serverDate = DateUtils.parseRFC822Date(dateHeader.getValue());
+        } catch (RuntimeException e) {
+            return;
+        }
+        final long sample = (sentAtMillis + receivedAtMillis) / 2 - (serverDate.getTime() + 500);
+        final AtomicLong skew = skewOf(endpoint);
+        while (true) {
+            final long current = skew.get();
+            final long next = current == UNKNOWN ? sample
+                    : Math.round(current + SMOOTHING * (sample - current));
+            if (skew.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Replaces the estimate of the given endpoint, typically after the
+     * service rejected a request because of clock skew.
+     */
+    void reset(String endpoint, long skewMillis) {
+        skewOf(endpoint).set(skewMillis);
+    }
+
+    /**
+     * Returns the time offset in seconds to sign requests to the given
+     * endpoint with, as expected by {@link com.ksc.Request#setTimeOffset(int)};
+     * or null if no response of the endpoint has been seen yet.
+     */
+    Integer getTimeOffset(String endpoint) {
+        final Long skewMillis = getSkewMillis(endpoint);
+        return skewMillis == null ? null : (int) Math.round(skewMillis / 1000.0);
+    }
+
+    /**
+     * Returns the estimated clock skew in milliseconds with the given
+     * endpoint, client time minus server time; or null if unknown.
+     */
+    Long getSkewMillis(String endpoint) {
+        final AtomicLong skew = skews.get(endpoint);
+        final long skewMillis = skew == null ? UNKNOWN : skew.get();
+        return skewMillis == UNKNOWN ? null : skewMillis;
+    }
+
+    private AtomicLong skewOf(String endpoint) {
+        AtomicLong skew = skews.get(endpoint);
+        if (skew == null) {
+            AtomicLong newSkew = new AtomicLong(UNKNOWN);
+            skew = skews.putIfAbsent(endpoint, newSkew);
+            if (skew == null) {
+                skew = newSkew;
+            }
+        }
+        return skew;
+    }
+}
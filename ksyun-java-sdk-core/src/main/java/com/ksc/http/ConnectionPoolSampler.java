@@ -0,0 +1,207 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.http;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.ConnPoolControl;
+import org.apache.http.pool.PoolStats;
+
+import com.ksc.annotation.SdkTestInternalApi;
+import com.ksc.http.conn.RoutingHttpClientConnectionManager;
+import com.ksc.jmx.spi.SdkMBeanRegistry;
+import com.ksc.metrics.ConnectionPoolMetrics;
+
+/**
+ * Daemon thread to periodically sample the statistics of connection pools.
+ * <p/>
+ * The per-request pool counters captured by {@link KSCHttpClient} only show
+ * the state of the pool at the moment a request is sent. This sampler instead
+ * records the total and per-route leased, available, pending and max values at
+ * a fixed interval into the ring buffers of a {@link ConnectionPoolMetrics},
+ * which is registered as an MBean and reports each sample to the service
+ * metric collector. This makes pool saturation between requests visible.
+ * <p/>
+ * Similar to the {@link IdleConnectionReaper}, a single shared thread serves
+ * all the registered connection managers, and is stopped once the last one
+ * has been removed.
+ */
+public final class ConnectionPoolSampler {
+
+    static final Log log = LogFactory.getLog(ConnectionPoolSampler.class);
+    /**
+     * Number of samples retained per time series.
+     */
+    public static final int DEFAULT_CAPACITY = 300;
+
+    private static final String MBEAN_OBJECT_NAME_PREFIX =
+            "com.ksc.management:type=ConnectionPool,name=";
+
+    private static final AtomicInteger poolIds = new AtomicInteger();
+
+    private static final Map<HttpClientConnectionManager, SampledPool> pools =
+            new IdentityHashMap<HttpClientConnectionManager, SampledPool>();
+
+    private static ScheduledThreadPoolExecutor executor;
+
+    private ConnectionPoolSampler() {
+    }
+
+    /**
+     * Starts sampling the given connection manager every given number of
+     * milliseconds.
+     *
+     * @return the metrics the samples are recorded into; or null if the
+     *         connection manager does not expose pool statistics.
+     */
+    public static synchronized ConnectionPoolMetrics registerConnectionManager(
+            HttpClientConnectionManager connectionManager, long periodMillis) {
+        if (!(connectionManager instanceof ConnPoolControl<?>))
+            return null;
+        if (periodMillis <= 0)
+            throw new IllegalArgumentException("periodMillis must be positive");
+        SampledPool existing = pools.get(connectionManager);
+        if (existing != null)
+            return existing.metrics;
+        if (executor == null) {
+            executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "java-sdk-http-connection-pool-sampler");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        String poolId = "pool-" + poolIds.incrementAndGet();
+        @SuppressWarnings("unchecked")
+        SampledPool pool = new SampledPool(connectionManager,
+                (ConnPoolControl<HttpRoute>) connectionManager,
+                new ConnectionPoolMetrics(poolId, DEFAULT_CAPACITY));
+        pool.future = executor.scheduleAtFixedRate(pool, 0, periodMillis, TimeUnit.MILLISECONDS);
+        pools.put(connectionManager, pool);
+
+        String objectName = MBEAN_OBJECT_NAME_PREFIX + poolId;
+        if (SdkMBeanRegistry.Factory.registerMBean(objectName, pool.metrics))
+            pool.objectName = objectName;
+        return pool.metrics;
+    }
+
+    /**
+     * Stops sampling the given connection manager, and shuts down the
+     * sampler thread if there is no connection manager left.
+     *
+     * @return true if the connection manager was being sampled; false
+     *         otherwise.
+     */
+    public static synchronized boolean removeConnectionManager(HttpClientConnectionManager connectionManager) {
+        SampledPool pool = pools.remove(connectionManager);
+        if (pool == null)
+            return false;
+        pool.future.cancel(false);
+        pool.metrics.close();
+        if (pool.objectName != null)
+            SdkMBeanRegistry.Factory.getMBeanRegistry().unregisterMBean(pool.objectName);
+        if (pools.isEmpty() && executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the metrics of the given connection manager; or null if it is
+     * not being sampled.
+     */
+    public static synchronized ConnectionPoolMetrics getMetrics(HttpClientConnectionManager connectionManager) {
+        SampledPool pool = pools.get(connectionManager);
+        return pool == null ? null : pool.metrics;
+    }
+
+    @SdkTestInternalApi
+    public static synchronized List<ConnectionPoolMetrics> getRegisteredMetrics() {
+        List<ConnectionPoolMetrics> list = new ArrayList<ConnectionPoolMetrics>(pools.size());
+        for (SampledPool pool : pools.values())
+            list.add(pool.metrics);
+        return Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Returns the routes of the given connection manager; or null if it does
+     * not expose them.
+     */
+    private static Collection<HttpRoute> routesOf(HttpClientConnectionManager connectionManager) {
+        if (connectionManager instanceof PoolingHttpClientConnectionManager)
+            return ((PoolingHttpClientConnectionManager) connectionManager).getRoutes();
+        if (connectionManager instanceof RoutingHttpClientConnectionManager)
+            return ((RoutingHttpClientConnectionManager) connectionManager).getRoutes();
+        return null;
+    }
+
+    private static final class SampledPool implements Runnable {
+        final HttpClientConnectionManager connectionManager;
+        final ConnPoolControl<HttpRoute> control;
+        final ConnectionPoolMetrics metrics;
+        ScheduledFuture<?> future;
+        String objectName;
+
+        SampledPool(HttpClientConnectionManager connectionManager,
+                ConnPoolControl<HttpRoute> control, ConnectionPoolMetrics metrics) {
+            this.connectionManager = connectionManager;
+            this.control = control;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public void run() {
+            // Never let an exception escape, as it would cancel future samples
+            try {
+                final long now = System.currentTimeMillis();
+                PoolStats totals = control.getTotalStats();
+                metrics.recordTotal(now, totals.getLeased(), totals.getAvailable(),
+                        totals.getPending(), totals.getMax());
+                Collection<HttpRoute> routes = routesOf(connectionManager);
+                if (routes != null) {
+                    List<String> live = new ArrayList<String>(routes.size());
+                    for (HttpRoute route : routes) {
+                        String name = route.toString();
+                        PoolStats stats = control.getStats(route);
+                        metrics.recordRoute(name, now, stats.getLeased(), stats.getAvailable(),
+                                stats.getPending(), stats.getMax());
+                        live.add(name);
+                    }
+                    metrics.retainRoutes(live);
+                }
+            } catch (Throwable t) {
+                log.debug("Unable to sample connection pool " + metrics.getPoolId(), t);
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.http;
+
+import java.net.URI;
+
+/**
+ * The outcome of opening connections to an endpoint ahead of the first
+ * requests, so that they do not pay the DNS, TCP and TLS handshake costs.
+ *
+ * @see KSCHttpClient#warmUpConnections(URI, int)
+ */
+public class ConnectionWarmUpResult {
+    private final URI endpoint;
+    private final int requestedConnections;
+    private final int openedConnections;
+    private final long elapsedMillis;
+    private final Throwable lastFailure;
+
+    public ConnectionWarmUpResult(URI endpoint, int requestedConnections, int openedConnections,
+                                  long elapsedMillis, Throwable lastFailure) {
+        this.endpoint = endpoint;
+        this.requestedConnections = requestedConnections;
+        this.openedConnections = openedConnections;
+        this.elapsedMillis = elapsedMillis;
+        this.lastFailure = lastFailure;
+    }
+
+    /** Returns the endpoint the connections were opened to. */
+    public URI getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * Returns the number of connections that were to be opened, after capping
+     * by the maximum number of connections of the route.
+     */
+    public int getRequestedConnections() {
+        return requestedConnections;
+    }
+
+    /** Returns the number of connections opened and handed over to the pool. */
+    public int getOpenedConnections() {
+        return openedConnections;
+    }
+
+    /** Returns the number of connections that could not be opened. */
+    public int getFailedConnections() {
+        return requestedConnections - openedConnections;
+    }
+
+    /** Returns how long the warm-up took in milliseconds. */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /** Returns the last error opening a connection; or null if there was none. */
+    public Throwable getLastFailure() {
+        return lastFailure;
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionWarmUpResult{endpoint=" + endpoint
+                + ", requested=" + requestedConnections
+                + ", opened=" + openedConnections
+                + ", elapsedMillis=" + elapsedMillis
+                + (lastFailure == null ? "" : ", lastFailure=" + lastFailure)
+                + "}";
+    }
+}
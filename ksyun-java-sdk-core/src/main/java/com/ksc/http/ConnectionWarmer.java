@@ -0,0 +1,228 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.http;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.client.utils.URIUtils;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.routing.HttpRoutePlanner;
+import org.apache.http.impl.conn.DefaultRoutePlanner;
+import org.apache.http.impl.conn.DefaultSchemePortResolver;
+import org.apache.http.message.BasicHttpRequest;
+import org.apache.http.pool.ConnPoolControl;
+
+import com.ksc.annotation.SdkInternalApi;
+import com.ksc.http.apache.SdkProxyRoutePlanner;
+import com.ksc.http.conn.UnpooledConnectionManager;
+import com.ksc.http.settings.HttpClientSettings;
+
+/**
+ * Opens connections to an endpoint in parallel, completing their TCP and TLS
+ * handshakes, and hands them over to the connection pool so that the first
+ * requests to the endpoint find them ready.
+ * <p>
+ * The connections are all leased before any is released, since the pool
+ * would otherwise hand the same connection over again. HTTPS connections
+ * tunnelled through a proxy are not warmed up, as opening the tunnel is the
+ * job of the request executor.
+ */
+@SdkInternalApi
+final class ConnectionWarmer {
+
+    private static final Log log = LogFactory.getLog(ConnectionWarmer.class);
+
+    /** Lease timeout used when neither the pool request nor the connection timeout is set. */
+    private static final int DEFAULT_LEASE_TIMEOUT_MILLIS = 10 * 1000;
+
+    private final HttpClientConnectionManager connectionManager;
+    private final HttpClientSettings settings;
+
+    ConnectionWarmer(HttpClientConnectionManager connectionManager, HttpClientSettings settings) {
+        this.connectionManager = connectionManager;
+        this.settings = settings;
+    }
+
+    ConnectionWarmUpResult warmUp(URI endpoint, int connections) {
+        if (endpoint == null) {
+            throw new IllegalArgumentException("Endpoint is not set");
+        }
+        if (connections <= 0) {
+            throw new IllegalArgumentException("connections must be positive");
+        }
+        final long startNanos = System.nanoTime();
+        if (connectionManager instanceof UnpooledConnectionManager) {
+            log.debug("Not warming up connections to " + endpoint + " which are not pooled by the SDK");
+            return done(endpoint, 0, 0, startNanos, null);
+        }
+        final HttpRoute route;
+        try {
+            route = determineRoute(endpoint);
+        } catch (HttpException e) {
+            return done(endpoint, connections, 0, startNanos, e);
+        }
+        if (route.isTunnelled()) {
+            log.debug("Not warming up connections to " + endpoint + " tunnelled through a proxy");
+            return done(endpoint, 0, 0, startNanos, null);
+        }
+        if (connectionManager instanceof ConnPoolControl<?>) {
+            @SuppressWarnings("unchecked")
+            ConnPoolControl<HttpRoute> control = (ConnPoolControl<HttpRoute>) connectionManager;
+            connections = Math.min(connections, control.getMaxPerRoute(route));
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(connections, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "java-sdk-connection-warm-up");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        final List<Future<HttpClientConnection>> futures = new ArrayList<Future<HttpClientConnection>>(connections);
+        final List<HttpClientConnection> opened = new ArrayList<HttpClientConnection>(connections);
+        Throwable lastFailure = null;
+        InterruptedException interrupted = null;
+        try {
+            for (int i = 0; i < connections; i++) {
+                futures.add(executor.submit(new Callable<HttpClientConnection>() {
+                    @Override
+                    public HttpClientConnection call() throws Exception {
+                        return open(route);
+                    }
+                }));
+            }
+            // Every task is waited for, even once interrupted, since a task
+            // which leased a connection must have it released
+            for (Future<HttpClientConnection> future : futures) {
+                for (;;) {
+                    try {
+                        opened.add(future.get());
+                    } catch (ExecutionException e) {
+                        lastFailure = e.getCause();
+                    } catch (CancellationException e) {
+                        // never started, so leased nothing
+                    } catch (InterruptedException e) {
+                        if (interrupted == null) {
+                            interrupted = e;
+                            stopWarmUp(executor);
+                        }
+                        continue;
+                    }
+                    break;
+                }
+            }
+        } finally {
+            executor.shutdown();
+            final long keepAliveMillis = Math.max(settings.getMaxIdleConnectionTime(), 0);
+            for (HttpClientConnection conn : opened) {
+                connectionManager.releaseConnection(conn, null, keepAliveMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (interrupted != null) {
+            Thread.currentThread().interrupt();
+            lastFailure = interrupted;
+        }
+        if (lastFailure != null && log.isDebugEnabled()) {
+            log.debug("Unable to open a connection to " + endpoint, lastFailure);
+        }
+        return done(endpoint, connections, opened.size(), startNanos, lastFailure);
+    }
+
+    /**
+     * Interrupts the tasks waiting for a connection, and cancels those which
+     * have not started. The futures of the running tasks are left alone so
+     * that the connections they still lease can be collected and released.
+     */
+    private static void stopWarmUp(ExecutorService executor) {
+        for (Runnable task : executor.shutdownNow()) {
+            if (task instanceof Future<?>) {
+                ((Future<?>) task).cancel(false);
+            }
+        }
+    }
+
+    private ConnectionWarmUpResult done(URI endpoint, int requested, int opened, long startNanos,
+                                        Throwable lastFailure) {
+        final ConnectionWarmUpResult result = new ConnectionWarmUpResult(endpoint, requested, opened,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos), lastFailure);
+        if (log.isInfoEnabled()) {
+            log.info("Warmed up " + opened + " of " + requested + " connections to " + endpoint
+                    + " in " + result.getElapsedMillis() + " ms");
+        }
+        return result;
+    }
+
+    /**
+     * Returns the route requests to the given endpoint take, so that the
+     * connections land in the same pool entries.
+     */
+    private HttpRoute determineRoute(URI endpoint) throws HttpException {
+        final HttpRoutePlanner routePlanner = settings.getProxyHost() != null && settings.getProxyPort() > 0
+                ? new SdkProxyRoutePlanner(settings.getProxyHost(), settings.getProxyPort(),
+                        settings.getNonProxyHosts())
+                : new DefaultRoutePlanner(DefaultSchemePortResolver.INSTANCE);
+        final HttpClientContext context = HttpClientContext.create();
+        context.setRequestConfig(RequestConfig.custom().setLocalAddress(settings.getLocalAddress()).build());
+        final HttpHost target = URIUtils.extractHost(endpoint);
+        return routePlanner.determineRoute(target, new BasicHttpRequest("GET", "/"), context);
+    }
+
+    private HttpClientConnection open(HttpRoute route) throws Exception {
+        final int connectionTimeout = settings.getConnectionTimeout();
+        final int leaseTimeout = settings.getConnectionPoolRequestTimeout() > 0
+                ? settings.getConnectionPoolRequestTimeout()
+                : connectionTimeout > 0 ? connectionTimeout : DEFAULT_LEASE_TIMEOUT_MILLIS;
+        final HttpClientConnection conn = connectionManager.requestConnection(route, null)
+                .get(leaseTimeout, TimeUnit.MILLISECONDS);
+        try {
+            if (!conn.isOpen()) {
+                final HttpClientContext context = HttpClientContext.create();
+                connectionManager.connect(conn, route, connectionTimeout, context);
+                connectionManager.routeComplete(conn, route, context);
+                // Binds the session buffers to the socket, which the stale
+                // connection check expects of a connection that served a request
+                conn.flush();
+            }
+            return conn;
+        } catch (Exception e) {
+            try {
+                conn.shutdown();
+            } catch (Exception ignored) {
+                // the connection is discarded anyway
+            }
+            connectionManager.releaseConnection(conn, null, 0, TimeUnit.MILLISECONDS);
+            throw e;
+        }
+    }
+}
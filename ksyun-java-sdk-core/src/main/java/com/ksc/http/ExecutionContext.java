@@ -25,7 +25,9 @@ import com.ksc.auth.Signer;
 import com.ksc.auth.credentials.AWSCredentials;
 import com.ksc.handlers.RequestHandler2;
 import com.ksc.http.timers.client.ClientExecutionAbortTrackerTask;
+import com.ksc.http.timers.client.ClientExecutionDeadline;
 import com.ksc.retry.internal.AuthErrorRetryStrategy;
+import com.ksc.tracing.Span;
 import com.ksc.util.KscRequestMetrics;
 import com.ksc.util.KscRequestMetricsFullSupport;
 
@@ -55,6 +57,10 @@ public class ExecutionContext {
 
     private ClientExecutionAbortTrackerTask clientExecutionTrackerTask;
 
+    private ClientExecutionDeadline clientExecutionDeadline = ClientExecutionDeadline.NONE;
+
+    private Span clientExecutionSpan = Span.NOOP;
+
     /** For testing purposes. */
     public ExecutionContext(boolean isMetricEnabled) {
         this(null, isMetricEnabled, null);
@@ -170,4 +176,29 @@ public class ExecutionContext {
         this.clientExecutionTrackerTask = clientExecutionTrackerTask;
     }
 
+    /**
+     * Returns the deadline of this client execution, which its blocking steps
+     * bound themselves by; {@link ClientExecutionDeadline#NONE} if it has no
+     * client execution timeout.
+     */
+    public ClientExecutionDeadline getClientExecutionDeadline() {
+        return clientExecutionDeadline;
+    }
+
+    public void setClientExecutionDeadline(ClientExecutionDeadline clientExecutionDeadline) {
+        this.clientExecutionDeadline = clientExecutionDeadline;
+    }
+
+    /**
+     * Returns the tracing span of this client execution, the parent of the
+     * spans of each attempt; {@link Span#NOOP} if tracing is disabled.
+     */
+    public Span getClientExecutionSpan() {
+        return clientExecutionSpan;
+    }
+
+    public void setClientExecutionSpan(Span clientExecutionSpan) {
+        this.clientExecutionSpan = clientExecutionSpan;
+    }
+
 }
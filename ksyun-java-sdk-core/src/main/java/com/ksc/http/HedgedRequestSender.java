@@ -0,0 +1,466 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.http;
+
+import com.ksc.annotation.ThreadSafe;
+import com.ksc.http.apache.client.impl.ConnectionManagerAwareHttpClient;
+import com.ksc.http.timers.HashedWheelTimer;
+import com.ksc.http.timers.request.HttpRequestAbortTaskTracker;
+import com.ksc.http.timers.request.HttpRequestTimer;
+import com.ksc.retry.HedgingPolicy;
+import com.ksc.util.CapacityManager;
+import com.ksc.util.KscRequestMetrics;
+import com.ksc.util.KscRequestMetrics.Field;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.StatusLine;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.concurrent.Cancellable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static com.ksc.util.IOUtils.closeQuietly;
+
+/**
+ * Sends hedged requests on behalf of {@link KSCHttpClient}: the primary
+ * request is executed on the calling thread, and if no successful response
+ * has arrived after a delay derived from the recent latencies of the
+ * operation, an identical hedged request is executed on a worker thread. The
+ * first successful response wins and the other request is aborted.
+ * <p>
+ * The hedging delays are scheduled on the shared {@link HashedWheelTimer},
+ * and the hedged requests run on a pool of at most
+ * {@link HedgingPolicy#getMaxConcurrentHedges()} threads without queue: a
+ * request that becomes due for hedging while that many hedged requests are
+ * in flight is not hedged.
+ */
+@ThreadSafe
+class HedgedRequestSender {
+    /** Number of most recent latencies kept per operation. */
+    private static final int LATENCY_SAMPLES = 256;
+    /** Number of recorded latencies after which the percentile is recomputed. */
+    private static final int RECOMPUTE_INTERVAL = 32;
+
+    private final HedgingPolicy policy;
+    private final ConcurrentMap<String, LatencyWindow> latencies =
+            new ConcurrentHashMap<String, LatencyWindow>();
+    private final HashedWheelTimer timer;
+    private final ThreadPoolExecutor workers;
+
+    HedgedRequestSender(HedgingPolicy policy) {
+        this.policy = policy;
+        this.timer = HashedWheelTimer.getSharedTimer();
+        this.workers = new ThreadPoolExecutor(0, policy.getMaxConcurrentHedges(), 60, TimeUnit.SECONDS,
+                new SynchronousQueue<Runnable>(), daemonThreadFactory("java-sdk-hedged-request"));
+    }
+
+    /**
+     * Returns true if requests of the given API action may be hedged.
+     */
+    boolean isHedged(String action) {
+        return policy.isHedged(action);
+    }
+
+    /**
+     * Executes the primary request, and the hedged request if the primary one
+     * is too slow.
+     *
+     * @param hedgeRequest
+     *            An identical copy of the primary request.
+     * @param hedgeMetrics
+     *            The metrics the hedged request records into; returned by
+     *            {@link Outcome#getHedgeMetrics()} once it has completed.
+     * @param capacity
+     *            The retry capacity a hedged request must acquire the given
+     *            cost from before being sent; released back if the
+     *            outcome is successful.
+     * @return the outcome, whose response is the first successful one or else
+     *         the one of the primary request.
+     * @throws IOException
+     *             the failure of the primary request if neither request
+     *             succeeded and the primary one returned no response.
+     */
+    Outcome send(final ConnectionManagerAwareHttpClient httpClient,
+                 final HttpRequestBase primaryRequest,
+                 final HttpClientContext primaryContext,
+                 final HttpRequestBase hedgeRequest,
+                 final HttpClientContext hedgeContext,
+                 final KscRequestMetrics hedgeMetrics,
+                 final String operation,
+                 final CapacityManager capacity,
+                 final int capacityCost,
+                 final HttpRequestTimer httpRequestTimer,
+                 final int requestTimeoutMillis) throws IOException, InterruptedException {
+        final Hedge hedge = new Hedge(httpClient, primaryRequest, hedgeRequest, hedgeContext,
+                hedgeMetrics, capacity, capacityCost, httpRequestTimer, requestTimeoutMillis);
+        hedge.timeout = timer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    workers.execute(hedge);
+                } catch (RejectedExecutionException e) {
+                    // Too many hedged requests in flight, or shutting down;
+                    // just wait for the primary request
+                    hedge.abandon();
+                }
+            }
+        }, delayMillis(operation), TimeUnit.MILLISECONDS);
+
+        final long startNanos = System.nanoTime();
+        HttpResponse primaryResponse = null;
+        IOException primaryFailure = null;
+        try {
+            primaryResponse = httpClient.execute(primaryRequest, primaryContext);
+        } catch (IOException e) {
+            primaryFailure = e;
+        } catch (RuntimeException e) {
+            hedge.abandon();
+            throw e;
+        }
+        final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+
+        if (hedge.claimForPrimary(primaryResponse)) {
+            if (primaryResponse != null) {
+                recordLatency(operation, elapsedMillis);
+            }
+            if (primaryFailure != null) {
+                throw primaryFailure;
+            }
+            return hedge.outcome(primaryRequest, primaryResponse, false);
+        }
+        // Either the hedged request already won, or it is in flight while
+        // the primary one failed
+        final HttpResponse hedgeResponse;
+        try {
+            hedgeResponse = hedge.await();
+        } catch (InterruptedException e) {
+            hedge.abandon();
+            discard(primaryRequest, primaryResponse);
+            throw e;
+        }
+        // The primary request took at least that long
+        recordLatency(operation, elapsedMillis);
+        if (isSuccessful(hedgeResponse)) {
+            discard(primaryRequest, primaryResponse);
+            return hedge.outcome(hedgeRequest, hedgeResponse, true);
+        }
+        discard(hedgeRequest, hedgeResponse);
+        if (primaryFailure != null) {
+            throw primaryFailure;
+        }
+        return hedge.outcome(primaryRequest, primaryResponse, false);
+    }
+
+    /**
+     * Returns the delay in milliseconds after which a hedged request of the
+     * given operation is sent.
+     */
+    long delayMillis(String operation) {
+        LatencyWindow window = operation == null ? null : latencies.get(operation);
+        long percentile = window == null ? -1 : window.percentile();
+        if (percentile < 0) {
+            return policy.getInitialDelayMillis();
+        }
+        return Math.max(policy.getMinimumDelayMillis(), percentile);
+    }
+
+    void recordLatency(String operation, long millis) {
+        if (operation == null) {
+            return;
+        }
+        LatencyWindow window = latencies.get(operation);
+        if (window == null) {
+            LatencyWindow newWindow = new LatencyWindow(policy);
+            window = latencies.putIfAbsent(operation, newWindow);
+            if (window == null) {
+                window = newWindow;
+            }
+        }
+        window.add(millis);
+    }
+
+    void shutdown() {
+        workers.shutdownNow();
+    }
+
+    private static boolean isSuccessful(HttpResponse response) {
+        if (response == null) {
+            return false;
+        }
+        StatusLine statusLine = response.getStatusLine();
+        return statusLine != null && statusLine.getStatusCode() / 100 == HttpStatus.SC_OK / 100;
+    }
+
+    /**
+     * Aborts the given request, releasing its connection, and closes its
+     * response if any.
+     */
+    private static void discard(HttpRequestBase request, HttpResponse response) {
+        request.abort();
+        if (response instanceof Closeable) {
+            closeQuietly((Closeable) response, null);
+        }
+    }
+
+    private static ThreadFactory daemonThreadFactory(final String name) {
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, name);
+                t.setDaemon(true);
+                return t;
+            }
+        };
+    }
+
+    /**
+     * The outcome of sending a possibly hedged request.
+     */
+    static final class Outcome {
+        private final HttpRequestBase request;
+        private final HttpResponse response;
+        private final boolean hedged;
+        private final boolean hedgeWon;
+        private final KscRequestMetrics hedgeMetrics;
+
+        Outcome(HttpRequestBase request, HttpResponse response, boolean hedged, boolean hedgeWon,
+                KscRequestMetrics hedgeMetrics) {
+            this.request = request;
+            this.response = response;
+            this.hedged = hedged;
+            this.hedgeWon = hedgeWon;
+            this.hedgeMetrics = hedgeMetrics;
+        }
+
+        /** Returns the request whose response is used. */
+        HttpRequestBase getRequest() {
+            return request;
+        }
+
+        HttpResponse getResponse() {
+            return response;
+        }
+
+        /** Returns true if a hedged request was sent. */
+        boolean isHedged() {
+            return hedged;
+        }
+
+        /** Returns true if the response is the one of the hedged request. */
+        boolean isHedgeWon() {
+            return hedgeWon;
+        }
+
+        /**
+         * Returns the metrics recorded by the hedged request; or null if it
+         * was not sent, or was aborted while still in flight and so may still
+         * be recording into them.
+         */
+        KscRequestMetrics getHedgeMetrics() {
+            return hedgeMetrics;
+        }
+    }
+
+    /**
+     * The hedged request, executed on a worker thread once the hedging delay
+     * has elapsed.
+     */
+    private static final class Hedge implements Runnable {
+        private final ConnectionManagerAwareHttpClient httpClient;
+        private final HttpRequestBase primaryRequest;
+        private final HttpRequestBase request;
+        private final HttpClientContext context;
+        private final KscRequestMetrics metrics;
+        private final CapacityManager capacity;
+        private final int capacityCost;
+        private final HttpRequestTimer httpRequestTimer;
+        private final int requestTimeoutMillis;
+        volatile Cancellable timeout;
+
+        // Guarded by this
+        private boolean abandoned;
+        private boolean primaryClaimed;
+        private boolean sent;
+        private boolean done;
+        private boolean won;
+        private HttpResponse response;
+
+        Hedge(ConnectionManagerAwareHttpClient httpClient, HttpRequestBase primaryRequest,
+              HttpRequestBase request, HttpClientContext context, KscRequestMetrics metrics,
+              CapacityManager capacity, int capacityCost, HttpRequestTimer httpRequestTimer,
+              int requestTimeoutMillis) {
+            this.httpClient = httpClient;
+            this.primaryRequest = primaryRequest;
+            this.request = request;
+            this.context = context;
+            this.metrics = metrics;
+            this.capacity = capacity;
+            this.capacityCost = capacityCost;
+            this.httpRequestTimer = httpRequestTimer;
+            this.requestTimeoutMillis = requestTimeoutMillis;
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (abandoned) {
+                    return;
+                }
+            }
+            if (!capacity.acquire(capacityCost)) {
+                return;
+            }
+            synchronized (this) {
+                if (abandoned) {
+                    capacity.release(capacityCost);
+                    return;
+                }
+                sent = true;
+            }
+            final HttpRequestAbortTaskTracker requestAbortTaskTracker =
+                    httpRequestTimer.startTimer(request, requestTimeoutMillis);
+            HttpResponse hedgeResponse = null;
+            metrics.startEvent(Field.HedgedRequestTime);
+            try {
+                hedgeResponse = httpClient.execute(request, context);
+            } catch (IOException e) {
+                // Reported through the primary request, if it failed as well
+            } catch (RuntimeException e) {
+                // Ditto
+            } finally {
+                requestAbortTaskTracker.cancelTask();
+                metrics.endEvent(Field.HedgedRequestTime);
+            }
+            final boolean discard;
+            final boolean abortPrimary;
+            synchronized (this) {
+                done = true;
+                discard = abandoned;
+                abortPrimary = !abandoned && !primaryClaimed && isSuccessful(hedgeResponse);
+                if (!discard) {
+                    response = hedgeResponse;
+                    won = abortPrimary;
+                }
+                notifyAll();
+            }
+            if (discard) {
+                discard(request, hedgeResponse);
+            } else if (abortPrimary) {
+                primaryRequest.abort();
+            }
+        }
+
+        /**
+         * Claims the outcome for the primary request, abandoning the hedged
+         * one, unless the hedged request already won, or is in flight while
+         * the primary request failed.
+         */
+        synchronized boolean claimForPrimary(HttpResponse primaryResponse) {
+            if (won) {
+                return false;
+            }
+            if (isSuccessful(primaryResponse) || !sent) {
+                primaryClaimed = true;
+                abandon();
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Waits for the hedged request to complete and returns its response,
+         * or null if it failed.
+         */
+        synchronized HttpResponse await() throws InterruptedException {
+            while (!done) {
+                wait();
+            }
+            return response;
+        }
+
+        /**
+         * Abandons the hedged request: it is not sent if still pending, or
+         * aborted if in flight.
+         */
+        synchronized void abandon() {
+            if (abandoned) {
+                return;
+            }
+            abandoned = true;
+            if (timeout != null) {
+                timeout.cancel();
+            }
+            if (sent && !done) {
+                request.abort();
+            }
+        }
+
+        synchronized Outcome outcome(HttpRequestBase request, HttpResponse response, boolean hedgeWon) {
+            if (sent && isSuccessful(response)) {
+                capacity.release(capacityCost);
+            }
+            // Once done, the hedged request no longer touches its metrics
+            return new Outcome(request, response, sent, hedgeWon, sent && done ? metrics : null);
+        }
+    }
+
+    /**
+     * The most recent latencies of an operation.
+     */
+    private static final class LatencyWindow {
+        private final HedgingPolicy policy;
+        private final long[] samples = new long[LATENCY_SAMPLES];
+        private int count;
+        private int index;
+        private int sinceRecompute;
+        private volatile long percentile = -1;
+
+        LatencyWindow(HedgingPolicy policy) {
+            this.policy = policy;
+        }
+
+        synchronized void add(long millis) {
+            samples[index] = millis;
+            index = (index + 1) % samples.length;
+            if (count < samples.length) {
+                count++;
+            }
+            if (count >= policy.getMinimumSamples()
+                    && (percentile < 0 || ++sinceRecompute >= RECOMPUTE_INTERVAL)) {
+                sinceRecompute = 0;
+                long[] sorted = Arrays.copyOf(samples, count);
+                Arrays.sort(sorted);
+                int rank = (int) Math.ceil(policy.getDelayPercentile() / 100.0 * count) - 1;
+                percentile = sorted[Math.max(0, Math.min(count - 1, rank))];
+            }
+        }
+
+        /** Returns the configured percentile, or -1 if not enough samples. */
+        long percentile() {
+            return percentile;
+        }
+    }
+}
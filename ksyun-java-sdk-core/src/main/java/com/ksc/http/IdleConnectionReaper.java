@@ -15,15 +15,19 @@
 package com.ksc.http;
 
 import com.ksc.annotation.SdkTestInternalApi;
+import com.ksc.jmx.spi.SdkMBeanRegistry;
+import com.ksc.metrics.ConnectionReaperMetrics;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.pool.ConnPoolControl;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Daemon thread to periodically check connection pools for idle connections.
@@ -42,6 +46,11 @@ import java.util.concurrent.TimeUnit;
  * cleaning up old/inactive HTTP connections, we'd see more IO exceptions when
  * stale connections (i.e. closed on the AWS side) are left in the connection
  * pool, and requests grab one of them to begin executing a request.
+ * <p/>
+ * Each connection manager is reaped on its own schedule, derived from the
+ * maximum idle time and time to live of its connections so that they are
+ * closed soon after they become unusable, and its statistics are registered
+ * as a {@link ConnectionReaperMetrics} MBean.
  */
 public final class IdleConnectionReaper extends Thread {
 
@@ -50,15 +59,29 @@ public final class IdleConnectionReaper extends Thread {
      */
     static final Log log = LogFactory.getLog(IdleConnectionReaper.class);
     /**
-     * The period between invocations of the idle connection reaper.
+     * The default period between invocations of the idle connection reaper,
+     * which is also the longest.
      */
     private static final int PERIOD_MILLISECONDS = 1000 * 60 * 1;
+    /**
+     * The shortest period between invocations of the idle connection reaper.
+     */
+    private static final int MIN_PERIOD_MILLISECONDS = 500;
+    /**
+     * The default maximum idle time of a connection.
+     */
+    private static final long DEFAULT_MAX_IDLE_MILLISECONDS = 1000 * 60 * 1;
+
+    private static final String MBEAN_OBJECT_NAME_PREFIX =
+            "com.ksc.management:type=IdleConnectionReaper,name=";
+
+    private static final AtomicInteger poolIds = new AtomicInteger();
     /**
      * The list of registered connection managers, whose connections
      * will be periodically checked and idle connections closed.
      */
-    private static final ArrayList<HttpClientConnectionManager>
-            connectionManagers = new ArrayList<HttpClientConnectionManager>();
+    private static final ArrayList<ReapedConnectionManager>
+            connectionManagers = new ArrayList<ReapedConnectionManager>();
     /**
      * Singleton instance of the connection reaper.
      */
@@ -78,17 +101,56 @@ public final class IdleConnectionReaper extends Thread {
     }
 
     /**
-     * Registers the given connection manager with this reaper;
+     * Registers the given connection manager with this reaper, closing
+     * connections idle for more than a minute every minute.
      *
      * @return true if the connection manager has been successfully registered;
      * false otherwise.
      */
-    public static synchronized boolean registerConnectionManager(HttpClientConnectionManager connectionManager) {
+    public static boolean registerConnectionManager(HttpClientConnectionManager connectionManager) {
+        return registerConnectionManager(connectionManager, DEFAULT_MAX_IDLE_MILLISECONDS, -1);
+    }
+
+    /**
+     * Registers the given connection manager with this reaper. It is reaped
+     * every half of the given maximum idle time or time to live, whichever is
+     * shorter, within half a second and a minute; each run closes expired
+     * connections and connections idle for longer than the maximum idle time.
+     *
+     * @param maxIdleMillis
+     *            how long a connection may stay idle; or a non-positive value
+     *            for a minute.
+     * @param connectionTTLMillis
+     *            the time to live of the connections; or a non-positive value
+     *            if they do not expire.
+     * @return true if the connection manager has been successfully registered;
+     * false otherwise.
+     */
+    public static synchronized boolean registerConnectionManager(HttpClientConnectionManager connectionManager,
+                                                                 long maxIdleMillis, long connectionTTLMillis) {
+        if (maxIdleMillis <= 0)
+            maxIdleMillis = DEFAULT_MAX_IDLE_MILLISECONDS;
+        long periodMillis = maxIdleMillis / 2;
+        if (connectionTTLMillis > 0)
+            periodMillis = Math.min(periodMillis, connectionTTLMillis / 2);
+        periodMillis = Math.max(MIN_PERIOD_MILLISECONDS, Math.min(PERIOD_MILLISECONDS, periodMillis));
+
+        String poolId = "pool-" + poolIds.incrementAndGet();
+        ReapedConnectionManager reaped = new ReapedConnectionManager(connectionManager, maxIdleMillis,
+                new ConnectionReaperMetrics(poolId, periodMillis, maxIdleMillis));
+        if (!connectionManagers.add(reaped))
+            return false;
+        String objectName = MBEAN_OBJECT_NAME_PREFIX + poolId;
+        if (SdkMBeanRegistry.Factory.registerMBean(objectName, reaped.metrics))
+            reaped.objectName = objectName;
         if (instance == null) {
             instance = new IdleConnectionReaper();
             instance.start();
+        } else {
+            // Wake the reaper up in case the new schedule is due sooner
+            IdleConnectionReaper.class.notifyAll();
         }
-        return connectionManagers.add(connectionManager);
+        return true;
     }
 
     /**
@@ -99,7 +161,16 @@ public final class IdleConnectionReaper extends Thread {
      * false otherwise.
      */
     public static synchronized boolean removeConnectionManager(HttpClientConnectionManager connectionManager) {
-        boolean b = connectionManagers.remove(connectionManager);
+        boolean b = false;
+        for (int i = 0; i < connectionManagers.size(); i++) {
+            ReapedConnectionManager reaped = connectionManagers.get(i);
+            if (reaped.connectionManager == connectionManager) {
+                connectionManagers.remove(i);
+                unregister(reaped);
+                b = true;
+                break;
+            }
+        }
         if (connectionManagers.isEmpty())
             shutdown();
         return b;
@@ -107,7 +178,23 @@ public final class IdleConnectionReaper extends Thread {
 
     @SdkTestInternalApi
     public static synchronized List<HttpClientConnectionManager> getRegisteredConnectionManagers() {
-        return Collections.unmodifiableList(connectionManagers);
+        List<HttpClientConnectionManager> list =
+                new ArrayList<HttpClientConnectionManager>(connectionManagers.size());
+        for (ReapedConnectionManager reaped : connectionManagers)
+            list.add(reaped.connectionManager);
+        return Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Returns the reaper statistics of the given connection manager; or null
+     * if it is not registered.
+     */
+    public static synchronized ConnectionReaperMetrics getMetrics(HttpClientConnectionManager connectionManager) {
+        for (ReapedConnectionManager reaped : connectionManagers) {
+            if (reaped.connectionManager == connectionManager)
+                return reaped.metrics;
+        }
+        return null;
     }
 
     /**
@@ -125,6 +212,8 @@ public final class IdleConnectionReaper extends Thread {
         if (instance != null) {
             instance.markShuttingDown();
             instance.interrupt();
+            for (ReapedConnectionManager reaped : connectionManagers)
+                unregister(reaped);
             connectionManagers.clear();
             instance = null;
             return true;
@@ -132,6 +221,11 @@ public final class IdleConnectionReaper extends Thread {
         return false;
     }
 
+    private static void unregister(ReapedConnectionManager reaped) {
+        if (reaped.objectName != null)
+            SdkMBeanRegistry.Factory.getMBeanRegistry().unregisterMBean(reaped.objectName);
+    }
+
     /**
      * For testing purposes.
      * Returns the number of connection managers currently monitored by this
@@ -145,7 +239,6 @@ public final class IdleConnectionReaper extends Thread {
         shuttingDown = true;
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public void run() {
         while (true) {
@@ -154,22 +247,35 @@ public final class IdleConnectionReaper extends Thread {
                 return;
             }
             try {
-                Thread.sleep(PERIOD_MILLISECONDS);
-
-                // Copy the list of managed ConnectionManagers to avoid possible
-                // ConcurrentModificationExceptions if registerConnectionManager or
-                // removeConnectionManager are called while we're iterating (rather
-                // than block/lock while this loop executes).
-                List<HttpClientConnectionManager> connectionManagers = null;
+                // Collect the connection managers that are due rather than
+                // reaping them while holding the lock, so that
+                // registerConnectionManager or removeConnectionManager never
+                // block on a reaping in progress.
+                List<ReapedConnectionManager> due = new ArrayList<ReapedConnectionManager>();
                 synchronized (IdleConnectionReaper.class) {
-                    connectionManagers = (List<HttpClientConnectionManager>) IdleConnectionReaper.connectionManagers.clone();
+                    long waitNanos = TimeUnit.MILLISECONDS.toNanos(PERIOD_MILLISECONDS);
+                    final long now = System.nanoTime();
+                    for (ReapedConnectionManager reaped : connectionManagers) {
+                        long untilNextRun = reaped.nextRunNanos - now;
+                        if (untilNextRun <= 0) {
+                            due.add(reaped);
+                            reaped.nextRunNanos = now
+                                    + TimeUnit.MILLISECONDS.toNanos(reaped.metrics.getPeriodMillis());
+                        } else {
+                            waitNanos = Math.min(waitNanos, untilNextRun);
+                        }
+                    }
+                    if (due.isEmpty()) {
+                        TimeUnit.NANOSECONDS.timedWait(IdleConnectionReaper.class, waitNanos);
+                        continue;
+                    }
                 }
-                for (HttpClientConnectionManager connectionManager : connectionManagers) {
+                for (ReapedConnectionManager reaped : due) {
                     // When we release connections, the connection manager leaves them
                     // open so they can be reused.  We want to close out any idle
                     // connections so that they don't sit around in CLOSE_WAIT.
                     try {
-                        connectionManager.closeIdleConnections(60, TimeUnit.SECONDS);
+                        reaped.reap();
                     } catch (Exception t) {
                         log.warn("Unable to close idle connections", t);
                     }
@@ -179,4 +285,42 @@ public final class IdleConnectionReaper extends Thread {
             }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * A connection manager along with its reaping schedule and statistics.
+     */
+    private static final class ReapedConnectionManager {
+        final HttpClientConnectionManager connectionManager;
+        final long maxIdleMillis;
+        final ConnectionReaperMetrics metrics;
+        /** Only accessed while holding the lock on IdleConnectionReaper.class. */
+        long nextRunNanos;
+        String objectName;
+
+        ReapedConnectionManager(HttpClientConnectionManager connectionManager, long maxIdleMillis,
+                ConnectionReaperMetrics metrics) {
+            this.connectionManager = connectionManager;
+            this.maxIdleMillis = maxIdleMillis;
+            this.metrics = metrics;
+            this.nextRunNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(metrics.getPeriodMillis());
+        }
+
+        void reap() {
+            final int before = availableConnections();
+            connectionManager.closeExpiredConnections();
+            final int afterExpired = availableConnections();
+            connectionManager.closeIdleConnections(maxIdleMillis, TimeUnit.MILLISECONDS);
+            final int afterIdle = availableConnections();
+            // Connections released or leased concurrently skew the counts, so
+            // never report a negative number
+            metrics.recordRun(System.currentTimeMillis(), Math.max(before - afterExpired, 0),
+                    Math.max(afterExpired - afterIdle, 0));
+        }
+
+        private int availableConnections() {
+            return connectionManager instanceof ConnPoolControl<?>
+                    ? ((ConnPoolControl<?>) connectionManager).getTotalStats().getAvailable()
+                    : 0;
+        }
+    }
+}
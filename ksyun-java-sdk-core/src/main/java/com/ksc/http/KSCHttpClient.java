@@ -15,6 +15,7 @@
 package com.ksc.http;
 
 import com.ksc.AbortedException;
+import com.ksc.CachingDnsResolver;
 import com.ksc.KscClientException;
 import com.ksc.KscServiceException;
 import com.ksc.KscWebServiceRequest;
@@ -35,38 +36,55 @@ import com.ksc.auth.credentials.AWSCredentials;
 import com.ksc.event.ProgressEventType;
 import com.ksc.event.ProgressInputStream;
 import com.ksc.event.ProgressListener;
+import com.ksc.handlers.AsyncHandler;
 import com.ksc.handlers.CredentialsRequestHandler;
 import com.ksc.handlers.RequestHandler2;
 import com.ksc.http.apache.client.impl.ApacheHttpClientFactory;
 import com.ksc.http.apache.client.impl.ConnectionManagerAwareHttpClient;
+import com.ksc.http.apache.client.impl.TransportHttpClient;
 import com.ksc.http.apache.request.impl.ApacheHttpRequestFactory;
 import com.ksc.http.apache.utils.ApacheUtils;
 import com.ksc.http.client.HttpClientFactory;
+import com.ksc.http.conn.ConnectionPoolLimits;
+import com.ksc.http.conn.RoutingHttpClientConnectionManager;
 import com.ksc.http.exception.HttpRequestTimeoutException;
-import com.ksc.http.request.HttpRequestFactory;
 import com.ksc.http.settings.HttpClientSettings;
+import com.ksc.http.timers.HashedWheelTimer;
+import com.ksc.http.timers.client.ClientExecutionAbortTrackerTask;
+import com.ksc.http.timers.client.ClientExecutionDeadline;
 import com.ksc.http.timers.client.ClientExecutionTimeoutException;
 import com.ksc.http.timers.client.ClientExecutionTimer;
+import com.ksc.http.timers.client.NoOpClientExecutionAbortTrackerTask;
 import com.ksc.http.timers.client.SdkInterruptedException;
 import com.ksc.http.timers.request.HttpRequestAbortTaskTracker;
 import com.ksc.http.timers.request.HttpRequestTimer;
 import com.ksc.internal.CRC32MismatchException;
+import com.ksc.internal.MetricsInputStream;
 import com.ksc.internal.ReleasableInputStream;
 import com.ksc.internal.ResettableInputStream;
 import com.ksc.internal.SdkBufferedInputStream;
+import com.ksc.jmx.spi.SdkMBeanRegistry;
 import com.ksc.metrics.KscSdkMetrics;
 import com.ksc.metrics.RequestMetricCollector;
+import com.ksc.retry.AdaptiveRateLimiter;
+import com.ksc.retry.CircuitBreaker;
+import com.ksc.retry.CircuitBreakerOpenException;
+import com.ksc.retry.PreviousDelayAwareBackoffStrategy;
 import com.ksc.retry.RetryPolicy;
 import com.ksc.retry.RetryUtils;
 import com.ksc.retry.internal.AuthErrorRetryStrategy;
 import com.ksc.retry.internal.AuthRetryParameters;
+import com.ksc.tracing.Span;
+import com.ksc.tracing.Tracer;
 import com.ksc.util.KscRequestMetrics;
+import com.ksc.util.KscRequestMetricsFullSupport;
 import com.ksc.util.CapacityManager;
 import com.ksc.util.CollectionUtils;
 import com.ksc.util.CountingInputStream;
 import com.ksc.util.DateUtils;
 import com.ksc.util.FakeIOException;
 import com.ksc.util.ImmutableMapParameter;
+import com.ksc.util.PartitionedCapacityManager;
 import com.ksc.util.ResponseMetadataCache;
 import com.ksc.util.TimingInfo;
 import com.ksc.util.UnreliableFilterInputStream;
@@ -82,7 +100,10 @@ import org.apache.http.StatusLine;
 import org.apache.http.annotation.ThreadSafe;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.concurrent.Cancellable;
+import org.apache.http.conn.HttpClientConnectionManager;
 import org.apache.http.entity.BufferedHttpEntity;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.pool.ConnPoolControl;
 
 import java.io.BufferedInputStream;
@@ -98,7 +119,24 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Queue;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.AbstractQueuedSynchronizer;
 
 import static com.ksc.SDKGlobalConfiguration.PROFILING_SYSTEM_PROPERTY;
 import static com.ksc.event.SDKProgressPublisher.publishProgress;
@@ -151,6 +189,17 @@ public class KSCHttpClient {
      */
     private static final int THROTTLED_RETRIES = 100;
 
+    private static final String CIRCUIT_BREAKER_OBJECT_NAME_PREFIX =
+            "com.ksc.management:type=CircuitBreaker,client=";
+
+    private static final String CONNECTION_POOL_LIMITS_OBJECT_NAME_PREFIX =
+            "com.ksc.management:type=ConnectionPoolLimits,client=";
+
+    private static final String DNS_CACHE_OBJECT_NAME_PREFIX =
+            "com.ksc.management:type=DnsCache,client=";
+
+    private static final AtomicInteger CLIENT_IDS = new AtomicInteger();
+
     static {
         // Customers have reported XML parsing issues with the following
         // JVM versions, which don't occur with more recent versions, so
@@ -164,7 +213,7 @@ public class KSCHttpClient {
         }
     }
 
-    private final HttpRequestFactory<HttpRequestBase> httpRequestFactory =
+    private final ApacheHttpRequestFactory httpRequestFactory =
             new ApacheHttpRequestFactory();
     /**
      * Internal client for sending HTTP requests
@@ -188,8 +237,47 @@ public class KSCHttpClient {
      */
     private final HttpRequestTimer httpRequestTimer;
 
-    /** Retry capacity manager, used to manage throttled retry resource */
-    private final CapacityManager retryCapacity;
+    /**
+     * Retry capacity managers, used to manage throttled retry resource, one
+     * per endpoint so that a failing endpoint cannot drain the retry capacity
+     * of healthy ones.
+     */
+    private final PartitionedCapacityManager retryCapacities;
+
+    /**
+     * Adaptive rate limiters by endpoint; or null if adaptive rate limiting is
+     * disabled.
+     */
+    private final ConcurrentMap<String, AdaptiveRateLimiter> rateLimiters;
+
+    /**
+     * Circuit breakers by endpoint; or null if circuit breaking is disabled.
+     */
+    private final ConcurrentMap<String, CircuitBreaker> circuitBreakers;
+
+    /**
+     * Clock skew estimates by endpoint; or null if proactive clock skew
+     * correction is disabled.
+     */
+    private final ClockSkewTracker clockSkews;
+
+    /** Names of the circuit breaker MBeans registered by this client. */
+    private final Queue<String> circuitBreakerObjectNames = new ConcurrentLinkedQueue<String>();
+
+    /** Names of the connection pool limits and DNS cache MBeans registered by this client. */
+    private final Queue<String> connectionObjectNames = new ConcurrentLinkedQueue<String>();
+
+    /** Sends hedged requests; or null if request hedging is disabled. */
+    private final HedgedRequestSender hedgedRequestSender;
+
+    /** Runs the attempts of asynchronous executions. */
+    private final ExecutorService asyncExecutor;
+
+    /** Whether the async executor was created by, and is shut down with, this client. */
+    private final boolean ownsAsyncExecutor;
+
+    /** Identifies this client in the names of its MBeans. */
+    private final int clientId = CLIENT_IDS.incrementAndGet();
 
     /**
      * Timer to enforce timeouts on the whole execution of the request (request handlers, retries, backoff strategy,
@@ -247,7 +335,11 @@ public class KSCHttpClient {
                             boolean useBrowserCompatibleHostNameVerifier) {
         this(config, requestMetricCollector, HttpClientSettings.adapt(config,
                 useBrowserCompatibleHostNameVerifier));
-        this.httpClient = httpClientFactory.create(this.httpClientSettings);
+        this.httpClient = config.getHttpTransportFactory() != null
+                ? TransportHttpClient.create(config.getHttpTransportFactory(), this.httpClientSettings)
+                : httpClientFactory.create(this.httpClientSettings);
+        registerConnectionPoolLimits();
+        registerDnsCache();
     }
 
 
@@ -277,7 +369,38 @@ public class KSCHttpClient {
         // and desired number of retries.
         int throttledRetryMaxCapacity = clientConfig.useThrottledRetries()
                 ? THROTTLED_RETRY_COST * THROTTLED_RETRIES : -1;
-        this.retryCapacity = new CapacityManager(throttledRetryMaxCapacity);
+        this.retryCapacities = new PartitionedCapacityManager(throttledRetryMaxCapacity);
+        this.rateLimiters = clientConfig.useAdaptiveRateLimiting()
+                ? new ConcurrentHashMap<String, AdaptiveRateLimiter>() : null;
+        this.circuitBreakers = clientConfig.getCircuitBreakerConfig() != null
+                ? new ConcurrentHashMap<String, CircuitBreaker>() : null;
+        this.hedgedRequestSender = clientConfig.getHedgingPolicy() != null
+                ? new HedgedRequestSender(clientConfig.getHedgingPolicy()) : null;
+        this.clockSkews = clientConfig.useClockSkewCorrection() ? new ClockSkewTracker() : null;
+        this.ownsAsyncExecutor = clientConfig.getAsyncExecutor() == null;
+        this.asyncExecutor = ownsAsyncExecutor
+                ? newAsyncExecutor(Math.max(1, clientConfig.getMaxConnections()),
+                        clientConfig.getAsyncExecutorQueueSize())
+                : clientConfig.getAsyncExecutor();
+    }
+
+    /**
+     * Creates the executor of asynchronous executions, with at most one
+     * thread per connection and a bounded queue, which rejects the attempts
+     * once full; idle threads are not kept around.
+     */
+    private static ExecutorService newAsyncExecutor(int maxThreads, int queueSize) {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(queueSize), new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "java-sdk-async-execution");
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
     }
 
     /**
@@ -361,6 +484,48 @@ public class KSCHttpClient {
         }
     }
 
+    /**
+     * Executes the request asynchronously. The attempts run on the
+     * {@link ClientConfiguration#getAsyncExecutor() async executor}, and the
+     * pauses before retries are scheduled on the shared timer, so a request
+     * waiting to be retried holds no thread. The client execution timeout
+     * aborts the HTTP request in flight and fails the returned future with a
+     * {@link ClientExecutionTimeoutException}; cancelling the future aborts
+     * the execution.
+     *
+     * @see #execute(Request, HttpResponseHandler, HttpResponseHandler, ExecutionContext)
+     */
+    public <T> Future<Response<T>> executeAsync(Request<?> request,
+                                                HttpResponseHandler<KscWebServiceResponse<T>> responseHandler,
+                                                HttpResponseHandler<KscServiceException> errorResponseHandler,
+                                                ExecutionContext executionContext) {
+        return executeAsync(request, responseHandler, errorResponseHandler, executionContext, null);
+    }
+
+    /**
+     * Executes the request asynchronously, and notifies the given handler of
+     * the outcome before the returned future completes. A cancelled future
+     * completes right away, and the handler is notified of the
+     * {@link CancellationException} once the execution has ended.
+     *
+     * @param asyncHandler Notified of the response or the failure; may be null.
+     * @see #executeAsync(Request, HttpResponseHandler, HttpResponseHandler, ExecutionContext)
+     */
+    public <T> Future<Response<T>> executeAsync(Request<?> request,
+                                                HttpResponseHandler<KscWebServiceResponse<T>> responseHandler,
+                                                HttpResponseHandler<KscServiceException> errorResponseHandler,
+                                                ExecutionContext executionContext,
+                                                AsyncHandler<KscWebServiceRequest<?>, Response<T>> asyncHandler) {
+        if (executionContext == null) {
+            throw new KscClientException("Internal SDK Error: No execution context parameter specified.");
+        }
+        final AsyncExecution<T> execution = new AsyncExecution<T>(request,
+                getNonNullResponseHandler(responseHandler), getNonNullResponseHandler(errorResponseHandler),
+                executionContext, asyncHandler);
+        execution.start();
+        return execution.future;
+    }
+
     /**
      * Ensures the response handler is not null. If it is this method returns a dummy response handler.
      *
@@ -392,7 +557,9 @@ public class KSCHttpClient {
      * Start and end client execution timer around the execution of the request. It's important that the client
      * execution task is canceled before the InterruptedExecption is handled by {@link #execute(Request,
      * HttpResponseHandler, HttpResponseHandler, ExecutionContext)} so the interrupt status doesn't leak out to the
-     * callers code
+     * callers code. The execution is also given a deadline, which bounds the timeouts of each attempt. When the timeout
+     * is {@link ClientConfiguration#setUseCooperativeClientExecutionTimeout(boolean) enforced cooperatively}, the timer
+     * only aborts the HTTP request in flight.
      *
      * @throws InterruptedException
      */
@@ -400,12 +567,21 @@ public class KSCHttpClient {
                                             HttpResponseHandler<KscWebServiceResponse<T>> responseHandler,
                                             HttpResponseHandler<KscServiceException> errorResponseHandler,
                                             ExecutionContext executionContext) throws InterruptedException {
+        final boolean cooperative = config.useCooperativeClientExecutionTimeout();
         try {
-            executionContext.setClientExecutionTrackerTask(
-                    clientExecutionTimer.startTimer(getClientExecutionTimeout(request.getOriginalRequest())));
+            final int timeout = getClientExecutionTimeout(request.getOriginalRequest());
+            executionContext.setClientExecutionDeadline(ClientExecutionDeadline.after(timeout));
+            executionContext.setClientExecutionTrackerTask(cooperative
+                    ? clientExecutionTimer.startAbortOnlyTimer(timeout)
+                    : clientExecutionTimer.startTimer(timeout));
             return doExecute(request, responseHandler, errorResponseHandler, executionContext);
         } finally {
-            executionContext.getClientExecutionTrackerTask().cancelTask();
+            final ClientExecutionAbortTrackerTask trackerTask = executionContext.getClientExecutionTrackerTask();
+            trackerTask.cancelTask();
+            if (!cooperative && trackerTask.hasTimeoutExpired()) {
+                // The deadline may have been noticed just before the timer fired, so clear its interrupt
+                Thread.interrupted();
+            }
         }
     }
 
@@ -413,6 +589,27 @@ public class KSCHttpClient {
                                       HttpResponseHandler<KscWebServiceResponse<T>> responseHandler,
                                       HttpResponseHandler<KscServiceException> errorResponseHandler,
                                       ExecutionContext executionContext) throws InterruptedException {
+        final ClientExecution execution = beginExecution(request, executionContext);
+        Response<T> response = null;
+        try {
+            publishProgress(execution.listener, ProgressEventType.CLIENT_REQUEST_STARTED_EVENT);
+            response = executeHelper(request, responseHandler, errorResponseHandler, executionContext,
+                    execution.requestHandler2s);
+            return completeExecution(request, executionContext, execution, response);
+        } catch (KscClientException e) {
+            failExecution(request, execution, response, e);
+            throw e;
+        } finally {
+            endExecution(request, execution);
+        }
+    }
+
+    /**
+     * Runs the request handlers and prepares the given request for its
+     * attempts: custom headers and parameters, tracing span and content stream
+     * made resettable for retries.
+     */
+    private ClientExecution beginExecution(Request<?> request, ExecutionContext executionContext) {
         final List<RequestHandler2> requestHandler2s = requestHandler2s(request, executionContext);
 
         KscWebServiceRequest kscreq = request.getOriginalRequest();
@@ -431,31 +628,59 @@ public class KSCHttpClient {
         if (customQueryParams != null) {
             mergeQueryParameters(request, customQueryParams);
         }
-        final KscRequestMetrics kscRequestMetrics = executionContext.getKscRequestMetrics();
-        Response<T> response = null;
+        final Span executionSpan = startClientExecutionSpan(request, executionContext);
         final InputStream origContent = request.getContent();
         final InputStream toBeClosed = beforeRequest(request); // for progress tracking
         // make "notCloseable", so reset would work with retries
         final InputStream notCloseable = (toBeClosed == null) ? null
                 : ReleasableInputStream.wrap(toBeClosed).disableClose();
         request.setContent(notCloseable);
-        try {
-            publishProgress(listener, ProgressEventType.CLIENT_REQUEST_STARTED_EVENT);
-            response = executeHelper(request, responseHandler, errorResponseHandler, executionContext,
-                    requestHandler2s);
-            publishProgress(listener, ProgressEventType.CLIENT_REQUEST_SUCCESS_EVENT);
-            TimingInfo timingInfo = kscRequestMetrics.getTimingInfo().endTiming();
-            afterResponse(request, requestHandler2s, response, timingInfo);
-            return response;
-        } catch (KscClientException e) {
-            publishProgress(listener, ProgressEventType.CLIENT_REQUEST_FAILED_EVENT);
-            afterError(request, response, requestHandler2s, e);
-            throw e;
-        } finally {
-            // Always close so any progress tracking would get the final events propagated.
-            closeQuietly(toBeClosed, log);
-            request.setContent(origContent); // restore the original content
+        return new ClientExecution(requestHandler2s, listener, executionSpan, origContent, toBeClosed);
+    }
+
+    private <T> Response<T> completeExecution(Request<?> request,
+                                              ExecutionContext executionContext,
+                                              ClientExecution execution,
+                                              Response<T> response) throws InterruptedException {
+        publishProgress(execution.listener, ProgressEventType.CLIENT_REQUEST_SUCCESS_EVENT);
+        TimingInfo timingInfo = executionContext.getKscRequestMetrics().getTimingInfo().endTiming();
+        afterResponse(request, execution.requestHandler2s, response, timingInfo);
+        checkDeadline(executionContext, response);
+        return response;
+    }
+
+    private void failExecution(Request<?> request,
+                               ClientExecution execution,
+                               Response<?> response,
+                               KscClientException e) throws InterruptedException {
+        execution.executionSpan.recordException(e);
+        publishProgress(execution.listener, ProgressEventType.CLIENT_REQUEST_FAILED_EVENT);
+        afterError(request, response, execution.requestHandler2s, e);
+    }
+
+    private void endExecution(Request<?> request, ClientExecution execution) {
+        execution.executionSpan.end();
+        // Always close so any progress tracking would get the final events propagated.
+        closeQuietly(execution.toBeClosed, log);
+        request.setContent(execution.origContent); // restore the original content
+    }
+
+    /**
+     * Starts the tracing span of the client execution and makes it available
+     * to the attempts via the execution context.
+     */
+    private Span startClientExecutionSpan(Request<?> request, ExecutionContext executionContext) {
+        final Span span = config.getTracer().startSpan(Tracer.CLIENT_EXECUTION, null);
+        if (span.isRecording()) {
+            KscWebServiceRequest<?> kscreq = request.getOriginalRequest();
+            span.setAttribute(Tracer.SERVICE_ATTRIBUTE, request.getServiceName());
+            if (kscreq.getAction() != null)
+                span.setAttribute(Tracer.OPERATION_ATTRIBUTE, kscreq.getAction());
+            if (request.getEndpoint() != null)
+                span.setAttribute(Tracer.ENDPOINT_ATTRIBUTE, request.getEndpoint().toString());
         }
+        executionContext.setClientExecutionSpan(span);
+        return span;
     }
 
     /**
@@ -530,6 +755,23 @@ public class KSCHttpClient {
         }
     }
 
+    /**
+     * Check if the deadline of the client execution has passed. If so throw a {@link ClientExecutionTimeoutException}.
+     * This is the counterpart of {@link #checkInterrupted(Response)} when the client execution timeout is enforced
+     * cooperatively.
+     *
+     * @param response Response whose connection is released before returning control to the caller, if any.
+     * @throws ClientExecutionTimeoutException If the deadline has passed
+     */
+    private void checkDeadline(ExecutionContext executionContext, Response<?> response) {
+        if (executionContext.getClientExecutionDeadline().hasExpired()) {
+            if (response != null) {
+                response.getHttpResponse().getHttpRequest().abort();
+            }
+            throw new ClientExecutionTimeoutException();
+        }
+    }
+
     /**
      * Merge query parameters into the given request.
      */
@@ -636,20 +878,69 @@ public class KSCHttpClient {
                                           HttpResponseHandler<KscServiceException> errorResponseHandler,
                                           final ExecutionContext executionContext,
                                           List<RequestHandler2> requestHandlers) throws InterruptedException {
+        final KscRequestMetrics kscRequestMetrics = startRequestMetrics(request, executionContext);
+        final ExecOneRequestParams execOneParams = newExecOneRequestParams(request);
+        final ClientExecutionDeadline deadline = executionContext.getClientExecutionDeadline();
+        while (true) {
+            prepareAttempt(request, kscRequestMetrics, execOneParams);
+            checkDeadline(executionContext, null);
+            if (execOneParams.isRetry()) {
+                final long delay = beginRetryPause(request, kscRequestMetrics, execOneParams, executionContext);
+                try {
+                    // Fail now rather than pause until the deadline to time out anyway
+                    if (delay >= deadline.remainingMillis()) {
+                        throw new ClientExecutionTimeoutException();
+                    }
+                    if (delay > 0) {
+                        Thread.sleep(delay);
+                    }
+                } finally {
+                    endRetryPause(kscRequestMetrics, execOneParams);
+                }
+            }
+            Response<T> response = executeAttempt(request, responseHandler, errorResponseHandler,
+                    executionContext, kscRequestMetrics, execOneParams, requestHandlers);
+            if (response != null) {
+                return response;
+            }
+        } /* end while (true) */
+    }
+
+    /**
+     * Adds the service endpoint and API action of the given request to its
+     * metrics, and returns them.
+     */
+    private KscRequestMetrics startRequestMetrics(final Request<?> request,
+                                                  final ExecutionContext executionContext) {
         /*
          * add the service endpoint to the logs. You can infer service name from service endpoint
          */
         final KscRequestMetrics kscRequestMetrics = executionContext.getKscRequestMetrics()
                 .addPropertyWith(Field.ServiceName, request.getServiceName())
                 .addPropertyWith(Field.ServiceEndpoint, request.getEndpoint());
+        final KscWebServiceRequest<?> originalRequest = request.getOriginalRequest();
+        if (originalRequest != null) {
+            if (originalRequest.getProduct() != null)
+                kscRequestMetrics.addProperty(Field.Product, originalRequest.getProduct());
+            if (originalRequest.getAction() != null)
+                kscRequestMetrics.addProperty(Field.Operation, originalRequest.getAction());
+        }
+        return kscRequestMetrics;
+    }
+
+    /**
+     * Returns the state of the attempts of the given request, having copied
+     * its original parameters, headers and content position.
+     */
+    private ExecOneRequestParams newExecOneRequestParams(final Request<?> request) {
         // Make a copy of the original request params and headers so that we can
         // permute it in this loop and start over with the original every time.
-        final Map<String, List<String>> originalParameters = new LinkedHashMap<String, List<String>>(
-                request.getParameters());
-        final Map<String, String> originalHeaders = new HashMap<String, String>(request.getHeaders());
+        final ExecOneRequestParams execOneParams = new ExecOneRequestParams(
+                new LinkedHashMap<String, List<String>>(request.getParameters()),
+                new HashMap<String, String>(request.getHeaders()),
+                request.getContent());
         // Always mark the input stream before execution.
-        final ExecOneRequestParams execOneParams = new ExecOneRequestParams();
-        final InputStream originalContent = request.getContent();
+        final InputStream originalContent = execOneParams.originalContent;
         if (originalContent != null && originalContent.markSupported()
                 && !(originalContent instanceof BufferedInputStream)) {
             // Mark only once for non-BufferedInputStream
@@ -657,82 +948,109 @@ public class KSCHttpClient {
             final int readLimit = kscreq.getRequestClientOptions().getReadLimit();
             originalContent.mark(readLimit);
         }
-        while (true) {
-            checkInterrupted();
-            if (originalContent instanceof BufferedInputStream && originalContent.markSupported()) {
-                // Mark everytime for BufferedInputStream, since the marker could
-                // have been invalidated
-                KscWebServiceRequest kscreq = request.getOriginalRequest();
-                final int readLimit = kscreq.getRequestClientOptions().getReadLimit();
-                originalContent.mark(readLimit);
-            }
-            execOneParams.initPerRetry();
-            if (execOneParams.redirectedURI != null) {
-                /*
-                 * [scheme:][//authority][path][?query][#fragment]
-                 */
-                String scheme = execOneParams.redirectedURI.getScheme();
-                String beforeAuthority = scheme == null ? "" : scheme + "://";
-                String authority = execOneParams.redirectedURI.getAuthority();
-                String path = execOneParams.redirectedURI.getPath();
-
-                request.setEndpoint(URI.create(beforeAuthority + authority));
-                request.setResourcePath(path);
-            }
-            if (execOneParams.authRetryParam != null) {
-                request.setEndpoint(execOneParams.authRetryParam.getEndpointForRetry());
-            }
-            kscRequestMetrics.setCounter(Field.RequestCount, execOneParams.requestCount);
-            if (execOneParams.isRetry()) {
-                request.setParameters(originalParameters);
-                request.setHeaders(originalHeaders);
-                request.setContent(originalContent);
+        return execOneParams;
+    }
+
+    /**
+     * Resets the given request to its original state, or to the redirected
+     * endpoint, before the next attempt.
+     */
+    private void prepareAttempt(final Request<?> request,
+                                final KscRequestMetrics kscRequestMetrics,
+                                final ExecOneRequestParams execOneParams) throws InterruptedException {
+        checkInterrupted();
+        final InputStream originalContent = execOneParams.originalContent;
+        if (originalContent instanceof BufferedInputStream && originalContent.markSupported()) {
+            // Mark everytime for BufferedInputStream, since the marker could
+            // have been invalidated
+            KscWebServiceRequest<?> kscreq = request.getOriginalRequest();
+            final int readLimit = kscreq.getRequestClientOptions().getReadLimit();
+            originalContent.mark(readLimit);
+        }
+        execOneParams.initPerRetry();
+        if (execOneParams.redirectedURI != null) {
+            /*
+             * [scheme:][//authority][path][?query][#fragment]
+             */
+            String scheme = execOneParams.redirectedURI.getScheme();
+            String beforeAuthority = scheme == null ? "" : scheme + "://";
+            String authority = execOneParams.redirectedURI.getAuthority();
+            String path = execOneParams.redirectedURI.getPath();
+
+            request.setEndpoint(URI.create(beforeAuthority + authority));
+            request.setResourcePath(path);
+        }
+        if (execOneParams.authRetryParam != null) {
+            request.setEndpoint(execOneParams.authRetryParam.getEndpointForRetry());
+        }
+        kscRequestMetrics.setCounter(Field.RequestCount, execOneParams.requestCount);
+        if (execOneParams.isRetry()) {
+            request.setParameters(execOneParams.originalParameters);
+            request.setHeaders(execOneParams.originalHeaders);
+            request.setContent(originalContent);
+        }
+    }
+
+    /**
+     * Executes one attempt of the given request.
+     *
+     * @return the response; or null if the request should be retried.
+     */
+    private <T> Response<T> executeAttempt(final Request<?> request,
+                                           HttpResponseHandler<KscWebServiceResponse<T>> responseHandler,
+                                           HttpResponseHandler<KscServiceException> errorResponseHandler,
+                                           final ExecutionContext executionContext,
+                                           final KscRequestMetrics kscRequestMetrics,
+                                           final ExecOneRequestParams execOneParams,
+                                           List<RequestHandler2> requestHandlers) throws InterruptedException {
+        try {
+            return executeOneRequest(request, responseHandler, errorResponseHandler,
+                    executionContext, kscRequestMetrics, execOneParams, requestHandlers);
+        } catch (IOException ioe) {
+            execOneParams.attemptSpan.recordException(ioe);
+            execOneParams.recordOutcome(true);
+            if (log.isInfoEnabled()) {
+                log.info("Unable to execute HTTP request: " + ioe.getMessage(), ioe);
             }
-            try {
-                Response<T> response = executeOneRequest(request, responseHandler, errorResponseHandler,
-                        executionContext, kscRequestMetrics, execOneParams, requestHandlers);
-                if (response != null) {
-                    return response;
-                }
-            } catch (IOException ioe) {
-                if (log.isInfoEnabled()) {
-                    log.info("Unable to execute HTTP request: " + ioe.getMessage(), ioe);
-                }
-                captureExceptionMetrics(ioe, kscRequestMetrics);
-                kscRequestMetrics.addProperty(Field.KSCRequestID, null);
-                KscClientException ace = new KscClientException(
-                        "Unable to execute HTTP request: " + ioe.getMessage(), ioe);
-                if (!shouldRetry(request.getOriginalRequest(), execOneParams, ace,
-                        executionContext)) {
-                    throw lastReset(ace, request);
-                }
-                // Cache the retryable exception
-                execOneParams.retriedException = ace;
-            } catch (RuntimeException e) {
-                throw lastReset(captureExceptionMetrics(e, kscRequestMetrics), request);
-            } catch (Error e) {
-                throw lastReset(captureExceptionMetrics(e, kscRequestMetrics), request);
-            } finally {
-                /*
-                 * Some response handlers need to manually manage the HTTP connection and will take
-                 * care of releasing the connection on their own, but if this response handler
-                 * doesn't need the connection left open, we go ahead and release the it to free up
-                 * resources.
-                 */
-                if (!execOneParams.leaveHttpConnectionOpen) {
-                    if (execOneParams.apacheResponse != null) {
-                        HttpEntity entity = execOneParams.apacheResponse.getEntity();
-                        if (entity != null) {
-                            try {
-                                closeQuietly(entity.getContent(), log);
-                            } catch (IOException e) {
-                                log.warn("Cannot close the response content.", e);
-                            }
+            captureExceptionMetrics(ioe, kscRequestMetrics);
+            kscRequestMetrics.addProperty(Field.KSCRequestID, null);
+            KscClientException ace = new KscClientException(
+                    "Unable to execute HTTP request: " + ioe.getMessage(), ioe);
+            if (!shouldRetry(request.getOriginalRequest(), execOneParams, ace,
+                    executionContext)) {
+                throw lastReset(ace, request);
+            }
+            // Cache the retryable exception
+            execOneParams.retriedException = ace;
+            return null;
+        } catch (RuntimeException e) {
+            execOneParams.attemptSpan.recordException(e);
+            throw lastReset(captureExceptionMetrics(e, kscRequestMetrics), request);
+        } catch (Error e) {
+            execOneParams.attemptSpan.recordException(e);
+            throw lastReset(captureExceptionMetrics(e, kscRequestMetrics), request);
+        } finally {
+            execOneParams.endAttemptSpan();
+            /*
+             * Some response handlers need to manually manage the HTTP connection and will take
+             * care of releasing the connection on their own, but if this response handler
+             * doesn't need the connection left open, we go ahead and release the it to free up
+             * resources.
+             */
+            if (!execOneParams.leaveHttpConnectionOpen) {
+                if (execOneParams.apacheResponse != null) {
+                    HttpEntity entity = execOneParams.apacheResponse.getEntity();
+                    if (entity != null) {
+                        try {
+                            closeQuietly(entity.getContent(), log);
+                        } catch (IOException e) {
+                            log.warn("Cannot close the response content.", e);
                         }
                     }
                 }
+                execOneParams.flushSocketReadMetrics();
             }
-        } /* end while (true) */
+        }
     }
 
     /**
@@ -787,6 +1105,12 @@ public class KSCHttpClient {
                                               ExecOneRequestParams execOneParams,
                                               List<RequestHandler2> requestHandlers)
             throws IOException, InterruptedException {
+        execOneParams.retryCapacity = retryCapacities.forPartition(String.valueOf(request.getEndpoint()));
+        execOneParams.circuitBreaker = circuitBreakerFor(request);
+        if (execOneParams.circuitBreaker != null && !execOneParams.circuitBreaker.allowRequest()) {
+            kscRequestMetrics.incrementCounter(Field.CircuitBreakerRejected);
+            throw new CircuitBreakerOpenException(execOneParams.circuitBreaker.getEndpoint());
+        }
         if (execOneParams.isRetry()) {
             resetRequestInputStream(request);
         }
@@ -798,17 +1122,40 @@ public class KSCHttpClient {
         final KscWebServiceRequest kscreq = request.getOriginalRequest();
         final ProgressListener listener = kscreq.getGeneralProgressListener();
 
-        if (execOneParams.isRetry()) {
-            pauseBeforeRetry(request, kscRequestMetrics, execOneParams, listener);
-        }
+        final Tracer tracer = config.getTracer();
         updateRetryHeaderInfo(request, execOneParams);
+        final AdaptiveRateLimiter rateLimiter = rateLimiterFor(request);
+        final boolean rateLimiterTokenAcquired = execOneParams.rateLimiterTokenAcquired;
+        execOneParams.rateLimiterTokenAcquired = false;
+        if (rateLimiter != null && rateLimiter.isEnabled() && !rateLimiterTokenAcquired) {
+            kscRequestMetrics.startEvent(Field.RateLimiterDelayTime);
+            final boolean acquired;
+            try {
+                acquired = rateLimiter.tryAcquire(execContext.getClientExecutionDeadline().remainingMillis());
+            } finally {
+                kscRequestMetrics.endEvent(Field.RateLimiterDelayTime);
+            }
+            // Fail now rather than wait for a token until the deadline to time out anyway
+            if (!acquired) {
+                throw new ClientExecutionTimeoutException();
+            }
+        }
+        final Span attemptSpan = execOneParams.startAttemptSpan(tracer, execContext.getClientExecutionSpan());
+        tracer.inject(attemptSpan, request);
 
         // Sign the request if a signer was provided
         execOneParams.newSigner(request, execContext);
         if (execOneParams.signer != null && credentials != null) {
+            final Span signingSpan = tracer.startSpan(Tracer.REQUEST_SIGNING, attemptSpan);
             kscRequestMetrics.startEvent(Field.RequestSigningTime);
             try {
-                if (timeOffset != 0) {
+                final Integer endpointTimeOffset = clockSkews == null ? null
+                        : clockSkews.getTimeOffset(String.valueOf(request.getEndpoint()));
+                if (endpointTimeOffset != null) {
+                    // The clock skew estimated from the latest responses of
+                    // the endpoint takes precedence, being the most accurate.
+                    request.setTimeOffset(endpointTimeOffset);
+                } else if (timeOffset != 0) {
                     // Always use the client level timeOffset if it was
                     // non-zero; Otherwise, we respect the timeOffset in the
                     // request, which could have been externally configured (at
@@ -822,31 +1169,40 @@ public class KSCHttpClient {
                 execOneParams.signer.sign(request, credentials);
             } finally {
                 kscRequestMetrics.endEvent(Field.RequestSigningTime);
+                signingSpan.end();
             }
         }
 
         checkInterrupted();
-        execOneParams.newApacheRequest(httpRequestFactory, request, httpClientSettings);
+        checkDeadline(execContext, null);
+        execOneParams.newApacheRequest(httpRequestFactory, request, httpClientSettings,
+                execContext.getClientExecutionDeadline());
 
         captureConnectionPoolMetrics(kscRequestMetrics);
 
         final HttpClientContext localRequestContext =
                 ApacheUtils.newClientContext(httpClientSettings, ImmutableMapParameter.of
                         (KscRequestMetrics.class.getSimpleName(), kscRequestMetrics));
+        execOneParams.localRequestContext = localRequestContext;
 
         execOneParams.resetBeforeHttpRequest();
         publishProgress(listener, ProgressEventType.HTTP_REQUEST_STARTED_EVENT);
         kscRequestMetrics.startEvent(Field.HttpRequestTime);
-        kscRequestMetrics.setCounter(Field.RetryCapacityConsumed, retryCapacity.consumedCapacity());
+        kscRequestMetrics.setCounter(Field.RetryCapacityConsumed, execOneParams.retryCapacity.consumedCapacity());
 
         /////////// Send HTTP request ////////////
         execContext.getClientExecutionTrackerTask().setCurrentHttpRequest(execOneParams.apacheRequest);
         final boolean isHeaderReqIdAvail;
         final HttpRequestAbortTaskTracker requestAbortTaskTracker = httpRequestTimer
                 .startTimer(execOneParams.apacheRequest, getRequestTimeout(kscreq));
+        final long sentAtMillis = System.currentTimeMillis();
 
         try {
-            execOneParams.apacheResponse = httpClient.execute(execOneParams.apacheRequest, localRequestContext);
+            if (isHedged(request, responseHandler)) {
+                sendHedged(request, execContext, kscRequestMetrics, execOneParams);
+            } else {
+                execOneParams.apacheResponse = httpClient.execute(execOneParams.apacheRequest, localRequestContext);
+            }
             if (shouldBufferHttpEntity(responseHandler.needsConnectionLeftOpen(), execContext, execOneParams,
                     requestAbortTaskTracker)) {
                 execOneParams.apacheResponse
@@ -855,7 +1211,9 @@ public class KSCHttpClient {
             isHeaderReqIdAvail = logHeaderRequestId(execOneParams.apacheResponse);
         } catch (IOException ioe) {
             // Client execution timeouts take precedence as it's not retryable
-            if (execContext.getClientExecutionTrackerTask().hasTimeoutExpired()) {
+            if (execContext.getClientExecutionDeadline().hasExpired()) {
+                throw new ClientExecutionTimeoutException();
+            } else if (execContext.getClientExecutionTrackerTask().hasTimeoutExpired()) {
                 throw new InterruptedException();
             } else if (requestAbortTaskTracker.httpRequestAborted()) {
                 throw new HttpRequestTimeoutException(ioe);
@@ -870,17 +1228,31 @@ public class KSCHttpClient {
         publishProgress(listener, ProgressEventType.HTTP_REQUEST_COMPLETED_EVENT);
         final StatusLine statusLine = execOneParams.apacheResponse.getStatusLine();
         final int statusCode = statusLine == null ? -1 : statusLine.getStatusCode();
+        attemptSpan.setAttribute(Tracer.STATUS_CODE_ATTRIBUTE, statusCode);
         if (isRequestSuccessful(execOneParams.apacheResponse)) {
+            if (rateLimiter != null) {
+                rateLimiter.updateSendingRate(false);
+            }
+            execOneParams.recordOutcome(false);
+            recordClockSkew(request, execOneParams.apacheResponse, sentAtMillis, kscRequestMetrics);
             kscRequestMetrics.addProperty(Field.StatusCode, statusCode);
             /*
              * If we get back any 2xx status code, then we know we should treat the service call as
              * successful.
              */
+            // Don't bother unmarshalling a response nobody waits for anymore
+            checkDeadline(execContext, null);
             execOneParams.leaveHttpConnectionOpen = responseHandler.needsConnectionLeftOpen();
             HttpResponse httpResponse = createResponse(execOneParams.apacheRequest, request,
                     execOneParams.apacheResponse);
-            T response = handleResponse(request, responseHandler, execOneParams.apacheRequest, httpResponse,
-                    execOneParams.apacheResponse, execContext, isHeaderReqIdAvail, requestHandlers);
+            final Span unmarshallingSpan = tracer.startSpan(Tracer.RESPONSE_UNMARSHALLING, attemptSpan);
+            final T response;
+            try {
+                response = handleResponse(request, responseHandler, execOneParams.apacheRequest, httpResponse,
+                        execOneParams.apacheResponse, execContext, isHeaderReqIdAvail, requestHandlers);
+            } finally {
+                unmarshallingSpan.end();
+            }
 
             /*
              * If this was a successful retry attempt we'll release the full retry capacity that
@@ -888,9 +1260,9 @@ public class KSCHttpClient {
              * we return a lesser amount.
              */
             if (execOneParams.isRetry() && execContext.retryCapacityConsumed()) {
-                retryCapacity.release(THROTTLED_RETRY_COST);
+                execOneParams.retryCapacity.release(THROTTLED_RETRY_COST);
             } else {
-                retryCapacity.release();
+                execOneParams.retryCapacity.release();
             }
             return new Response<T>(response, httpResponse);
         }
@@ -900,6 +1272,7 @@ public class KSCHttpClient {
              * endpoint. If we get a 307, we'll point the HTTP method to the redirected location,
              * and let the next retry deliver the request to the right location.
              */
+            execOneParams.recordOutcome(false);
             Header[] locationHeaders = execOneParams.apacheResponse.getHeaders("location");
             String redirectedLocation = locationHeaders[0].getValue();
             if (log.isDebugEnabled())
@@ -916,6 +1289,11 @@ public class KSCHttpClient {
         kscRequestMetrics.addPropertyWith(Field.KSCRequestID, ase.getRequestId())
                 .addPropertyWith(Field.KSCErrorCode, ase.getErrorCode())
                 .addPropertyWith(Field.StatusCode, ase.getStatusCode());
+        if (rateLimiter != null) {
+            rateLimiter.updateSendingRate(RetryUtils.isThrottlingException(ase));
+        }
+        // Throttling means the endpoint is alive, so only other 5xx errors trip the breaker
+        execOneParams.recordOutcome(ase.getStatusCode() >= 500 && !RetryUtils.isThrottlingException(ase));
         // Check whether we should internally retry the auth error
         execOneParams.authRetryParam = null;
         AuthErrorRetryStrategy authRetry = execContext.getAuthErrorRetryStrategy();
@@ -937,6 +1315,7 @@ public class KSCHttpClient {
         }
         // Cache the retryable exception
         execOneParams.retriedException = ase;
+        attemptSpan.recordException(ase);
         /*
          * Checking for clock skew error again because we don't want to set the global time offset
          * for every service exception.
@@ -944,11 +1323,210 @@ public class KSCHttpClient {
         if (RetryUtils.isClockSkewError(ase)) {
             int clockSkew = parseClockSkewOffset(execOneParams.apacheResponse, ase);
             SDKGlobalTime.setGlobalTimeOffset(timeOffset = clockSkew);
+            if (clockSkews != null && clockSkew != 0) {
+                // The estimate of the endpoint was wrong, start over from the error
+                clockSkews.reset(String.valueOf(request.getEndpoint()), clockSkew * 1000L);
+            }
             request.setTimeOffset(timeOffset); // adjust time offset for the retry
         }
         return null; // => retry
     }
 
+    /**
+     * Updates the clock skew estimate of the endpoint of the given request
+     * from the Date header of its response, and records it in the metrics.
+     */
+    private void recordClockSkew(Request<?> request,
+                                 org.apache.http.HttpResponse apacheResponse,
+                                 long sentAtMillis,
+                                 KscRequestMetrics kscRequestMetrics) {
+        if (clockSkews == null) {
+            return;
+        }
+        final String endpoint = String.valueOf(request.getEndpoint());
+        clockSkews.record(endpoint, apacheResponse, sentAtMillis, System.currentTimeMillis());
+        final Long skewMillis = clockSkews.getSkewMillis(endpoint);
+        if (skewMillis != null) {
+            kscRequestMetrics.setCounter(Field.ClockSkewOffset, skewMillis);
+        }
+    }
+
+    /**
+     * Opens the given number of connections to the given endpoint in
+     * parallel, completing their TCP and TLS handshakes, and leaves them idle
+     * in the connection pool so that the first requests to the endpoint do not
+     * pay for them. The number of connections is capped by the maximum number
+     * of connections per route; failures are reported rather than thrown.
+     *
+     * @return How many connections were opened and how long it took.
+     */
+    public ConnectionWarmUpResult warmUpConnections(URI endpoint, int connections) {
+        return new ConnectionWarmer(httpClient.getHttpClientConnectionManager(), httpClientSettings)
+                .warmUp(endpoint, connections);
+    }
+
+    /**
+     * Returns the estimated clock skew in milliseconds between this client and
+     * the given endpoint, client time minus server time; or null if unknown,
+     * or if {@link ClientConfiguration#setUseClockSkewCorrection(boolean)
+     * proactive clock skew correction} is disabled.
+     */
+    public Long getClockSkewMillis(URI endpoint) {
+        return clockSkews == null ? null : clockSkews.getSkewMillis(String.valueOf(endpoint));
+    }
+
+    /**
+     * Returns the adaptive rate limiter of the endpoint of the given request;
+     * or null if adaptive rate limiting is disabled.
+     */
+    private AdaptiveRateLimiter rateLimiterFor(Request<?> request) {
+        if (rateLimiters == null) {
+            return null;
+        }
+        final String endpoint = String.valueOf(request.getEndpoint());
+        AdaptiveRateLimiter limiter = rateLimiters.get(endpoint);
+        if (limiter == null) {
+            AdaptiveRateLimiter newLimiter = new AdaptiveRateLimiter();
+            limiter = rateLimiters.putIfAbsent(endpoint, newLimiter);
+            if (limiter == null) {
+                limiter = newLimiter;
+            }
+        }
+        return limiter;
+    }
+
+    /**
+     * Returns true if the given request may be hedged, ie hedging is enabled
+     * for its action and its content, if any, can be sent twice concurrently.
+     */
+    private boolean isHedged(Request<?> request, HttpResponseHandler<?> responseHandler) {
+        return hedgedRequestSender != null
+                && request.getContent() == null
+                && !responseHandler.needsConnectionLeftOpen()
+                && hedgedRequestSender.isHedged(request.getOriginalRequest().getAction());
+    }
+
+    /**
+     * Sends the current request, along with a hedged copy if it is too slow,
+     * and keeps the request and response which won in the given params.
+     */
+    private void sendHedged(final Request<?> request,
+                            final ExecutionContext execContext,
+                            final KscRequestMetrics kscRequestMetrics,
+                            final ExecOneRequestParams execOneParams) throws IOException, InterruptedException {
+        final HttpRequestBase hedgeRequest = httpRequestFactory.create(request, httpClientSettings,
+                execContext.getClientExecutionDeadline());
+        hedgeRequest.setURI(execOneParams.apacheRequest.getURI());
+        // The hedged request runs concurrently on another thread, so records
+        // into metrics of its own which are merged back once it is done
+        final KscRequestMetrics hedgeMetrics = kscRequestMetrics.isEnabled()
+                ? new KscRequestMetricsFullSupport() : new KscRequestMetrics();
+        final HttpClientContext hedgeContext = ApacheUtils.newClientContext(httpClientSettings,
+                ImmutableMapParameter.of(KscRequestMetrics.class.getSimpleName(), hedgeMetrics));
+        final HedgedRequestSender.Outcome outcome = hedgedRequestSender.send(httpClient,
+                execOneParams.apacheRequest, execOneParams.localRequestContext, hedgeRequest, hedgeContext,
+                hedgeMetrics, request.getOriginalRequest().getAction(), execOneParams.retryCapacity,
+                THROTTLED_RETRY_COST, httpRequestTimer, getRequestTimeout(request.getOriginalRequest()));
+        if (outcome.isHedged()) {
+            kscRequestMetrics.incrementCounter(Field.HedgedRequestCount);
+        }
+        if (outcome.getHedgeMetrics() != null) {
+            kscRequestMetrics.merge(outcome.getHedgeMetrics());
+        }
+        if (outcome.isHedgeWon()) {
+            kscRequestMetrics.incrementCounter(Field.HedgedRequestWinCount);
+            execOneParams.apacheRequest = outcome.getRequest();
+            execContext.getClientExecutionTrackerTask().setCurrentHttpRequest(outcome.getRequest());
+        }
+        execOneParams.apacheResponse = outcome.getResponse();
+    }
+
+    /**
+     * Returns the circuit breaker of the endpoint of the given request; or
+     * null if circuit breaking is disabled.
+     */
+    private CircuitBreaker circuitBreakerFor(Request<?> request) {
+        if (circuitBreakers == null) {
+            return null;
+        }
+        final String endpoint = String.valueOf(request.getEndpoint());
+        CircuitBreaker breaker = circuitBreakers.get(endpoint);
+        if (breaker == null) {
+            CircuitBreaker newBreaker = new CircuitBreaker(endpoint, config.getCircuitBreakerConfig());
+            breaker = circuitBreakers.putIfAbsent(endpoint, newBreaker);
+            if (breaker == null) {
+                breaker = newBreaker;
+                String objectName = CIRCUIT_BREAKER_OBJECT_NAME_PREFIX + clientId
+                        + ",endpoint=" + quoteObjectNameValue(endpoint);
+                if (SdkMBeanRegistry.Factory.registerMBean(objectName, breaker))
+                    circuitBreakerObjectNames.add(objectName);
+            }
+        }
+        return breaker;
+    }
+
+    /**
+     * Registers an MBean to inspect and resize each connection pool of this
+     * client.
+     */
+    private void registerConnectionPoolLimits() {
+        final HttpClientConnectionManager cm = httpClient.getHttpClientConnectionManager();
+        if (cm instanceof PoolingHttpClientConnectionManager) {
+            registerConnectionPoolLimits("default", (PoolingHttpClientConnectionManager) cm, null);
+        } else if (cm instanceof RoutingHttpClientConnectionManager) {
+            RoutingHttpClientConnectionManager routingCm = (RoutingHttpClientConnectionManager) cm;
+            registerConnectionPoolLimits("default", routingCm.getDefaultPool(), routingCm);
+            for (Map.Entry<String, PoolingHttpClientConnectionManager> group
+                    : routingCm.getGroupPools().entrySet()) {
+                registerConnectionPoolLimits(group.getKey(), group.getValue(), routingCm);
+            }
+        }
+    }
+
+    private void registerConnectionPoolLimits(String poolName, PoolingHttpClientConnectionManager pool,
+                                              RoutingHttpClientConnectionManager routingCm) {
+        String objectName = CONNECTION_POOL_LIMITS_OBJECT_NAME_PREFIX + clientId
+                + ",pool=" + quoteObjectNameValue(poolName);
+        if (SdkMBeanRegistry.Factory.registerMBean(objectName,
+                new ConnectionPoolLimits(poolName, pool, routingCm)))
+            connectionObjectNames.add(objectName);
+    }
+
+    /**
+     * Registers an MBean with the statistics of the DNS cache of this client,
+     * if it uses one.
+     */
+    private void registerDnsCache() {
+        if (config.getDnsResolver() instanceof CachingDnsResolver) {
+            String objectName = DNS_CACHE_OBJECT_NAME_PREFIX + clientId;
+            if (SdkMBeanRegistry.Factory.registerMBean(objectName, config.getDnsResolver()))
+                connectionObjectNames.add(objectName);
+        }
+    }
+
+    /**
+     * Quotes the given value for use in a JMX object name, as in
+     * javax.management.ObjectName#quote, which is not referenced directly
+     * since JMX may be unavailable.
+     */
+    private static String quoteObjectNameValue(String value) {
+        StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+            case '\\': case '"': case '*': case '?':
+                sb.append('\\').append(c);
+                break;
+            case '\n':
+                sb.append("\\n");
+                break;
+            default:
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
     /**
      * Reset the input stream of the request before a retry.
      *
@@ -1086,7 +1664,7 @@ public class KSCHttpClient {
      * @param execOneRequestParams Request context containing retry information
      */
     private void updateRetryHeaderInfo(Request<?> request, ExecOneRequestParams execOneRequestParams) {
-        int availableRetryCapacity = retryCapacity.availableCapacity();
+        int availableRetryCapacity = execOneRequestParams.retryCapacity.availableCapacity();
 
         String headerValue = String.format("%s/%s/%s",
                 execOneRequestParams.requestCount - 1,
@@ -1104,9 +1682,24 @@ public class KSCHttpClient {
     public void shutdown() {
         clientExecutionTimer.shutdown();
         httpRequestTimer.shutdown();
+        if (hedgedRequestSender != null) {
+            hedgedRequestSender.shutdown();
+        }
+        if (ownsAsyncExecutor) {
+            asyncExecutor.shutdown();
+        }
         IdleConnectionReaper.removeConnectionManager(httpClient
                 .getHttpClientConnectionManager());
+        ConnectionPoolSampler.removeConnectionManager(httpClient
+                .getHttpClientConnectionManager());
         httpClient.getHttpClientConnectionManager().shutdown();
+        String objectName;
+        while ((objectName = circuitBreakerObjectNames.poll()) != null) {
+            SdkMBeanRegistry.Factory.getMBeanRegistry().unregisterMBean(objectName);
+        }
+        while ((objectName = connectionObjectNames.poll()) != null) {
+            SdkMBeanRegistry.Factory.getMBeanRegistry().unregisterMBean(objectName);
+        }
     }
 
     /**
@@ -1143,6 +1736,14 @@ public class KSCHttpClient {
         if (retries >= maxErrorRetry)
             return false;
 
+        // Never retry against an endpoint whose circuit breaker just opened
+        if (params.circuitBreaker != null && params.circuitBreaker.isOpen())
+            return false;
+
+        // Never retry once the retry time budget of the execution is spent
+        if (remainingRetryTimeMillis(params) <= 0)
+            return false;
+
         // Never retry on requests containing non-repeatable entity
         if (method instanceof HttpEntityEnclosingRequest) {
             HttpEntity entity = ((HttpEntityEnclosingRequest) method).getEntity();
@@ -1160,7 +1761,7 @@ public class KSCHttpClient {
         {
             // See if we have enough available retry capacity to be able to execute
             // this retry attempt.
-            if (!retryCapacity.acquire(THROTTLED_RETRY_COST)) {
+            if (!params.retryCapacity.acquire(THROTTLED_RETRY_COST)) {
                 return false;
             }
             executionContext.markRetryCapacityConsumed();
@@ -1171,7 +1772,7 @@ public class KSCHttpClient {
         if (!retryPolicy.getRetryCondition().shouldRetry(originalRequest, exception, retries)) {
             // If the retry policy fails we immediately return consumed capacity to the pool.
             if (executionContext.retryCapacityConsumed()) {
-                retryCapacity.release(THROTTLED_RETRY_COST);
+                params.retryCapacity.release(THROTTLED_RETRY_COST);
             }
             return false;
         }
@@ -1364,6 +1965,7 @@ public class KSCHttpClient {
 
         exception.setStatusCode(statusCode);
         exception.setServiceName(request.getServiceName());
+        exception.setHttpHeaders(response.getHeaders());
         exception.fillInStackTrace();
         return exception;
     }
@@ -1396,52 +1998,86 @@ public class KSCHttpClient {
     }
 
     /**
-     * Pause before the next retry and record metrics around retry behavior.
+     * Starts the pause before the next retry and the metrics around retry
+     * behavior, and returns how long to pause; the caller either sleeps or
+     * schedules the next attempt, then calls {@link #endRetryPause}.
      */
-    private void pauseBeforeRetry(final Request<?> request,
-                                  final KscRequestMetrics kscRequestMetrics,
-                                  ExecOneRequestParams execOneParams,
-                                  final ProgressListener listener) throws InterruptedException {
-        publishProgress(listener, ProgressEventType.CLIENT_REQUEST_RETRY_EVENT);
+    private long beginRetryPause(final Request<?> request,
+                                 final KscRequestMetrics kscRequestMetrics,
+                                 final ExecOneRequestParams execOneParams,
+                                 final ExecutionContext executionContext) {
         // Notify the progress listener of the retry
+        publishProgress(request.getOriginalRequest().getGeneralProgressListener(),
+                ProgressEventType.CLIENT_REQUEST_RETRY_EVENT);
         kscRequestMetrics.startEvent(Field.RetryPauseTime);
-        try {
-            // don't pause if the retry was not due to a redirection
-            // ie when retried exception is null
-            if (execOneParams.retriedException != null) {
-                doPauseBeforeRetry(request.getOriginalRequest(), execOneParams.retriedException,
-                        execOneParams.requestCount, config.getRetryPolicy(), execOneParams);
-            }
-        } finally {
-            kscRequestMetrics.endEvent(Field.RetryPauseTime);
+        // don't pause if the retry was not due to a redirection
+        // ie when retried exception is null
+        if (execOneParams.retriedException == null) {
+            return 0;
+        }
+        execOneParams.backoffSpan = config.getTracer().startSpan(Tracer.RETRY_BACKOFF,
+                executionContext.getClientExecutionSpan());
+        return computeBackoffDelay(request.getOriginalRequest(), execOneParams.retriedException,
+                execOneParams.requestCount, config.getRetryPolicy(), execOneParams);
+    }
+
+    /**
+     * Ends the pause before the next retry.
+     */
+    private void endRetryPause(final KscRequestMetrics kscRequestMetrics,
+                               final ExecOneRequestParams execOneParams) {
+        if (execOneParams.backoffSpan != null) {
+            execOneParams.backoffSpan.setAttribute(Tracer.BACKOFF_DELAY_ATTRIBUTE, execOneParams.lastBackoffDelay);
+            execOneParams.backoffSpan.end();
+            execOneParams.backoffSpan = null;
         }
+        kscRequestMetrics.endEvent(Field.RetryPauseTime);
     }
 
     /**
-     * Sleep for a period of time on failed request to avoid flooding a service with retries.
+     * Returns how long to pause on failed request to avoid flooding a service with retries.
      *
      * @param originalRequest   The original service request that is being executed.
      * @param previousException Exception information for the previous attempt, if any.
      * @param requestCount      current request count (including the next attempt after the delay)
      * @param retryPolicy       The retry policy configured in this httpClientSettings client.
      */
-    private void doPauseBeforeRetry(KscWebServiceRequest originalRequest,
-                                    KscClientException previousException,
-                                    int requestCount,
-                                    RetryPolicy retryPolicy,
-                                    ExecOneRequestParams execOneParams) throws InterruptedException {
+    private long computeBackoffDelay(KscWebServiceRequest<?> originalRequest,
+                                     KscClientException previousException,
+                                     int requestCount,
+                                     RetryPolicy retryPolicy,
+                                     ExecOneRequestParams execOneParams) {
         final int retries = requestCount // including next attempt
                 - 1 // number of attempted requests
                 - 1; // number of attempted retries
 
-        long delay = retryPolicy.getBackoffStrategy().delayBeforeNextRetry(originalRequest, previousException, retries);
+        final RetryPolicy.BackoffStrategy backoffStrategy = retryPolicy.getBackoffStrategy();
+        long delay = backoffStrategy instanceof PreviousDelayAwareBackoffStrategy
+                ? ((PreviousDelayAwareBackoffStrategy) backoffStrategy).delayBeforeNextRetry(
+                        originalRequest, previousException, retries, execOneParams.lastBackoffDelay)
+                : backoffStrategy.delayBeforeNextRetry(originalRequest, previousException, retries);
+        // Never sleep past the retry time budget
+        delay = Math.max(0, Math.min(delay, remainingRetryTimeMillis(execOneParams)));
         execOneParams.lastBackoffDelay = delay;
 
         if (log.isDebugEnabled()) {
             log.debug("Retriable error detected, " + "will retry in " + delay + "ms, attempt number: " + retries);
         }
+        return delay;
+    }
 
-        Thread.sleep(delay);
+    /**
+     * Returns the time in milliseconds left for retries of the current
+     * execution, or Long.MAX_VALUE if it has no retry time budget.
+     *
+     * @see ClientConfiguration#setMaxRetryTimeMillis(long)
+     */
+    private long remainingRetryTimeMillis(ExecOneRequestParams execOneParams) {
+        final long maxRetryTimeMillis = config.getMaxRetryTimeMillis();
+        if (maxRetryTimeMillis < 0) {
+            return Long.MAX_VALUE;
+        }
+        return maxRetryTimeMillis - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - execOneParams.startNanos);
     }
 
     // SWF: Signature not yet current: 20140819T173921Z is still later than 20140819T173829Z
@@ -1546,18 +2182,498 @@ public class KSCHttpClient {
 
     }
 
+    /**
+     * State of a client execution, from the request handlers to the end of
+     * its last attempt.
+     */
+    private static class ClientExecution {
+        final List<RequestHandler2> requestHandler2s;
+        final ProgressListener listener;
+        final Span executionSpan;
+        final InputStream origContent;
+        final InputStream toBeClosed;
+
+        ClientExecution(List<RequestHandler2> requestHandler2s, ProgressListener listener, Span executionSpan,
+                        InputStream origContent, InputStream toBeClosed) {
+            this.requestHandler2s = requestHandler2s;
+            this.listener = listener;
+            this.executionSpan = executionSpan;
+            this.origContent = origContent;
+            this.toBeClosed = toBeClosed;
+        }
+    }
+
+    /**
+     * The future response of an asynchronous execution. The handler, if any,
+     * is notified before the future completes, so that it has run by the
+     * time {@link #get()} returns; except on cancellation, which completes
+     * the future right away while the handler is notified by the thread
+     * owning the execution once the execution has ended.
+     */
+    private static final class ResponseFuture<T> implements Future<Response<T>> {
+        private final Sync sync = new Sync();
+        private final KscWebServiceRequest<?> originalRequest;
+        private final AsyncHandler<KscWebServiceRequest<?>, Response<T>> handler;
+        private final Runnable onCancel;
+        private final AtomicBoolean cancellationNotified = new AtomicBoolean();
+        // Written before the state is settled, read after
+        private Response<T> response;
+        private Throwable failure;
+
+        ResponseFuture(KscWebServiceRequest<?> originalRequest,
+                       AsyncHandler<KscWebServiceRequest<?>, Response<T>> handler,
+                       Runnable onCancel) {
+            this.originalRequest = originalRequest;
+            this.handler = handler;
+            this.onCancel = onCancel;
+        }
+
+        /** Completes the future with the given response, unless it is already done. */
+        boolean complete(Response<T> response) {
+            if (!sync.begin()) {
+                return false;
+            }
+            this.response = response;
+            if (handler != null) {
+                try {
+                    handler.onSuccess(originalRequest, response);
+                } catch (RuntimeException e) {
+                    log.warn("Async handler failed to handle the response", e);
+                }
+            }
+            sync.settle(Sync.COMPLETED);
+            return true;
+        }
+
+        /** Fails the future with the given cause, unless it is already done. */
+        boolean fail(Throwable t) {
+            if (!sync.begin()) {
+                return false;
+            }
+            this.failure = t;
+            notifyError(t instanceof Exception ? (Exception) t : new KscClientException(t));
+            sync.settle(Sync.FAILED);
+            return true;
+        }
+
+        /**
+         * Cancels the future, and then aborts the execution. The handler is
+         * not notified here, since the execution may still be running: see
+         * {@link #notifyCancellation()}.
+         */
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            if (!sync.begin()) {
+                return false;
+            }
+            sync.settle(Sync.CANCELLED);
+            onCancel.run();
+            return true;
+        }
+
+        /**
+         * Called by the thread owning the execution once it has ended, if the
+         * future could not be completed or failed. Waits for the concurrent
+         * cancellation to settle the future, and then notifies the handler
+         * with a {@link CancellationException}, once.
+         */
+        void notifyCancellation() {
+            if (sync.awaitUninterruptibly() == Sync.CANCELLED && cancellationNotified.compareAndSet(false, true)) {
+                notifyError(new CancellationException());
+            }
+        }
+
+        private void notifyError(Exception e) {
+            if (handler != null) {
+                try {
+                    handler.onError(e);
+                } catch (RuntimeException re) {
+                    log.warn("Async handler failed to handle the error", re);
+                }
+            }
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return sync.state() == Sync.CANCELLED;
+        }
+
+        @Override
+        public boolean isDone() {
+            return sync.state() > Sync.COMPLETING;
+        }
+
+        @Override
+        public Response<T> get() throws InterruptedException, ExecutionException {
+            return report(sync.await());
+        }
+
+        @Override
+        public Response<T> get(long timeout, TimeUnit unit)
+                throws InterruptedException, ExecutionException, TimeoutException {
+            return report(sync.await(unit.toNanos(timeout)));
+        }
+
+        private Response<T> report(int state) throws ExecutionException {
+            if (state == Sync.CANCELLED) {
+                throw new CancellationException();
+            }
+            if (state == Sync.FAILED) {
+                throw new ExecutionException(failure);
+            }
+            return response;
+        }
+
+        /**
+         * The state of the future; waiters are released once it is settled.
+         */
+        private static final class Sync extends AbstractQueuedSynchronizer {
+            private static final long serialVersionUID = 1L;
+            static final int RUNNING = 0;
+            static final int COMPLETING = 1;
+            static final int COMPLETED = 2;
+            static final int FAILED = 3;
+            static final int CANCELLED = 4;
+
+            /** Claims the right to settle the future. */
+            boolean begin() {
+                return compareAndSetState(RUNNING, COMPLETING);
+            }
+
+            void settle(int state) {
+                releaseShared(state);
+            }
+
+            int state() {
+                return getState();
+            }
+
+            int await() throws InterruptedException {
+                acquireSharedInterruptibly(0);
+                return getState();
+            }
+
+            int awaitUninterruptibly() {
+                acquireShared(0);
+                return getState();
+            }
+
+            int await(long nanos) throws InterruptedException, TimeoutException {
+                if (!tryAcquireSharedNanos(0, nanos)) {
+                    throw new TimeoutException();
+                }
+                return getState();
+            }
+
+            @Override
+            protected int tryAcquireShared(int ignored) {
+                return getState() > COMPLETING ? 1 : -1;
+            }
+
+            @Override
+            protected boolean tryReleaseShared(int state) {
+                setState(state);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Drives the attempts of an asynchronous execution: each attempt runs on
+     * the async executor, and the next one is scheduled on the shared timer
+     * once the back-off delay has elapsed. The execution context tracks the
+     * current HTTP request through this object so that it can be aborted on
+     * timeout or cancellation.
+     */
+    private final class AsyncExecution<T> implements Runnable, ClientExecutionAbortTrackerTask {
+        private final Request<?> request;
+        private final HttpResponseHandler<KscWebServiceResponse<T>> responseHandler;
+        private final HttpResponseHandler<KscServiceException> errorResponseHandler;
+        private final ExecutionContext executionContext;
+        final ResponseFuture<T> future;
+        private final AtomicBoolean finished = new AtomicBoolean();
+        /* Whether the scheduled attempt has been handed to the executor. */
+        private final AtomicBoolean dispatched = new AtomicBoolean(true);
+        private ClientExecutionAbortTrackerTask timerTask = NoOpClientExecutionAbortTrackerTask.INSTANCE;
+        private volatile HttpRequestBase currentHttpRequest;
+        private volatile Cancellable scheduledAttempt;
+        // Accessed by one thread at a time, handed over through the executor
+        private ClientExecution execution;
+        private KscRequestMetrics kscRequestMetrics;
+        private ExecOneRequestParams execOneParams;
+        private boolean pausing;
+        private boolean waitingForRateLimiter;
+
+        AsyncExecution(Request<?> request,
+                       HttpResponseHandler<KscWebServiceResponse<T>> responseHandler,
+                       HttpResponseHandler<KscServiceException> errorResponseHandler,
+                       ExecutionContext executionContext,
+                       AsyncHandler<KscWebServiceRequest<?>, Response<T>> asyncHandler) {
+            this.request = request;
+            this.responseHandler = responseHandler;
+            this.errorResponseHandler = errorResponseHandler;
+            this.executionContext = executionContext;
+            this.future = new ResponseFuture<T>(request.getOriginalRequest(), asyncHandler, new Runnable() {
+                @Override
+                public void run() {
+                    abort();
+                }
+            });
+        }
+
+        void start() {
+            final int timeout = getClientExecutionTimeout(request.getOriginalRequest());
+            if (timeout > 0) {
+                executionContext.setClientExecutionDeadline(ClientExecutionDeadline.after(timeout));
+                timerTask = clientExecutionTimer.startAbortOnlyTimer(timeout);
+            }
+            executionContext.setClientExecutionTrackerTask(this);
+            try {
+                execution = beginExecution(request, executionContext);
+                publishProgress(execution.listener, ProgressEventType.CLIENT_REQUEST_STARTED_EVENT);
+                kscRequestMetrics = startRequestMetrics(request, executionContext);
+                execOneParams = newExecOneRequestParams(request);
+                prepareAttempt(request, kscRequestMetrics, execOneParams);
+                schedule(0);
+            } catch (Throwable t) {
+                fail(t);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (pausing) {
+                    pausing = false;
+                    endRetryPause(kscRequestMetrics, execOneParams);
+                }
+                if (future.isCancelled()) {
+                    endCancelled();
+                    return;
+                }
+                if (hasTimeoutExpired() || executionContext.getClientExecutionDeadline().hasExpired()) {
+                    throw new ClientExecutionTimeoutException();
+                }
+                if (!acquireRateLimiterToken()) {
+                    return;
+                }
+                final Response<T> response = executeAttempt(request, responseHandler, errorResponseHandler,
+                        executionContext, kscRequestMetrics, execOneParams, execution.requestHandler2s);
+                if (response != null) {
+                    succeed(response);
+                    return;
+                }
+                if (future.isCancelled()) {
+                    endCancelled();
+                    return;
+                }
+                prepareAttempt(request, kscRequestMetrics, execOneParams);
+                final long delay = beginRetryPause(request, kscRequestMetrics, execOneParams, executionContext);
+                pausing = true;
+                schedule(Math.min(delay, executionContext.getClientExecutionDeadline().remainingMillis()));
+            } catch (Throwable t) {
+                fail(t);
+            }
+        }
+
+        /**
+         * Acquires the rate limiter token of the next attempt without
+         * blocking. When none is available yet, the attempt is scheduled
+         * again on the shared timer for when one is expected, so that the wait
+         * holds no thread of the executor.
+         *
+         * @return false if the attempt was scheduled again
+         */
+        private boolean acquireRateLimiterToken() {
+            final AdaptiveRateLimiter rateLimiter = rateLimiterFor(request);
+            final long waitMillis = rateLimiter == null ? 0 : rateLimiter.tryAcquireNow();
+            if (waitMillis == 0) {
+                endRateLimiterWait();
+                execOneParams.rateLimiterTokenAcquired = rateLimiter != null;
+                return true;
+            }
+            // Fail now rather than wait for a token until the deadline to time out anyway
+            if (waitMillis >= executionContext.getClientExecutionDeadline().remainingMillis()) {
+                throw new ClientExecutionTimeoutException();
+            }
+            if (!waitingForRateLimiter) {
+                waitingForRateLimiter = true;
+                kscRequestMetrics.startEvent(Field.RateLimiterDelayTime);
+            }
+            schedule(waitMillis);
+            return false;
+        }
+
+        private void endRateLimiterWait() {
+            if (waitingForRateLimiter) {
+                waitingForRateLimiter = false;
+                kscRequestMetrics.endEvent(Field.RateLimiterDelayTime);
+            }
+        }
+
+        /**
+         * Schedules the next attempt; must be the last action of the thread
+         * currently owning the execution.
+         */
+        private void schedule(long delayMillis) {
+            dispatched.set(false);
+            if (delayMillis <= 0) {
+                dispatch();
+            } else {
+                scheduledAttempt = HashedWheelTimer.getSharedTimer().schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        dispatch();
+                    }
+                }, delayMillis, TimeUnit.MILLISECONDS);
+                // A cancellation since the last check must not wait for the delay
+                if (future.isCancelled()) {
+                    abort();
+                }
+            }
+        }
+
+        /** Runs the scheduled attempt on the async executor, unless already done. */
+        private void dispatch() {
+            if (dispatched.compareAndSet(false, true)) {
+                try {
+                    asyncExecutor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    fail(new KscClientException("Unable to execute the request: the async executor rejected it", e));
+                }
+            }
+        }
+
+        private void succeed(Response<T> response) {
+            try {
+                completeExecution(request, executionContext, execution, response);
+            } catch (Throwable t) {
+                fail(t);
+                return;
+            }
+            finish();
+            if (!future.complete(response)) {
+                future.notifyCancellation();
+            }
+        }
+
+        /**
+         * Fails the execution with the given failure, translated as for a
+         * synchronous execution, after running the request handlers and
+         * publishing the failure as {@link #doExecute} does.
+         */
+        private void fail(Throwable t) {
+            // Never leave the interrupt status on a pooled thread
+            Thread.interrupted();
+            t = translate(t);
+            if (t instanceof KscClientException && execution != null) {
+                try {
+                    failExecution(request, execution, null, (KscClientException) t);
+                } catch (Throwable e) {
+                    Thread.interrupted();
+                    t = translate(e);
+                }
+            }
+            finish();
+            if (!future.fail(t)) {
+                future.notifyCancellation();
+            }
+        }
+
+        private Throwable translate(Throwable t) {
+            if (t instanceof InterruptedException) {
+                return hasTimeoutExpired() || executionContext.getClientExecutionDeadline().hasExpired()
+                        ? new ClientExecutionTimeoutException() : new KscClientException(t);
+            } else if (t instanceof AbortedException) {
+                return handleAbortedException(executionContext, (AbortedException) t);
+            }
+            return t;
+        }
+
+        /** Ends the execution of a cancelled future. */
+        private void endCancelled() {
+            finish();
+            future.notifyCancellation();
+        }
+
+        /** Releases the resources of the execution, once. */
+        private void finish() {
+            if (!finished.compareAndSet(false, true)) {
+                return;
+            }
+            if (pausing) {
+                pausing = false;
+                endRetryPause(kscRequestMetrics, execOneParams);
+            }
+            endRateLimiterWait();
+            timerTask.cancelTask();
+            if (execution != null) {
+                endExecution(request, execution);
+            }
+        }
+
+        /** Called when the future is cancelled. */
+        void abort() {
+            final Cancellable attempt = scheduledAttempt;
+            if (attempt != null) {
+                attempt.cancel();
+            }
+            // Run any pending attempt right away, so that it notices the
+            // cancellation and releases the resources of the execution
+            dispatch();
+            final HttpRequestBase httpRequest = currentHttpRequest;
+            if (httpRequest != null) {
+                httpRequest.abort();
+            }
+        }
+
+        @Override
+        public void setCurrentHttpRequest(HttpRequestBase newRequest) {
+            currentHttpRequest = newRequest;
+            timerTask.setCurrentHttpRequest(newRequest);
+        }
+
+        @Override
+        public boolean hasTimeoutExpired() {
+            return timerTask.hasTimeoutExpired();
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return timerTask.isEnabled();
+        }
+
+        @Override
+        public void cancelTask() {
+            timerTask.cancelTask();
+        }
+    }
+
     /**
      * Stateful parameters that are used for executing a single httpClientSettings request.
      */
     private static class ExecOneRequestParams {
+        /* The request as it was before any attempt, restored before each retry. */
+        final Map<String, List<String>> originalParameters;
+        final Map<String, String> originalHeaders;
+        final InputStream originalContent;
         int requestCount; // monotonic increasing
         /**
          * Last delay between retries
          */
         long lastBackoffDelay = 0;
+        /* When the execution started, for the retry time budget. */
+        final long startNanos = System.nanoTime();
         KscClientException retriedException; // last retryable exception
         HttpRequestBase apacheRequest;
         org.apache.http.HttpResponse apacheResponse;
+        HttpClientContext localRequestContext;
+        /* The retry capacity of the endpoint of the current attempt. */
+        CapacityManager retryCapacity;
+        /* The circuit breaker of the endpoint of the current attempt; or null if disabled. */
+        CircuitBreaker circuitBreaker;
+        /* Whether the rate limiter token of the next attempt was acquired ahead of it, without blocking. */
+        boolean rateLimiterTokenAcquired;
         URI redirectedURI;
         AuthRetryParameters authRetryParam;
         /*
@@ -1569,15 +2685,64 @@ public class KSCHttpClient {
         boolean leaveHttpConnectionOpen;
         private Signer signer; // cached
         private URI signerURI;
+        /* The tracing span of the current attempt; ended after each attempt. */
+        Span attemptSpan = Span.NOOP;
+        /* The tracing span of the pause before the current retry, if any. */
+        Span backoffSpan;
+
+        ExecOneRequestParams(Map<String, List<String>> originalParameters,
+                             Map<String, String> originalHeaders,
+                             InputStream originalContent) {
+            this.originalParameters = originalParameters;
+            this.originalHeaders = originalHeaders;
+            this.originalContent = originalContent;
+        }
 
         boolean isRetry() {
             return requestCount > 1 || redirectedURI != null || authRetryParam != null;
         }
 
+        void recordOutcome(final boolean failed) {
+            if (circuitBreaker == null) {
+                return;
+            }
+            if (failed) {
+                circuitBreaker.recordFailure();
+            } else {
+                circuitBreaker.recordSuccess();
+            }
+        }
+
+        Span startAttemptSpan(final Tracer tracer, final Span executionSpan) {
+            attemptSpan = tracer.startSpan(Tracer.HTTP_ATTEMPT, executionSpan)
+                    .setAttribute(Tracer.ATTEMPT_ATTRIBUTE, requestCount);
+            return attemptSpan;
+        }
+
+        void endAttemptSpan() {
+            final Span span = attemptSpan;
+            attemptSpan = Span.NOOP;
+            span.end();
+        }
+
+        /**
+         * Records the summary of the socket reads of this attempt, if the
+         * socket read metric is enabled in aggregating mode.
+         */
+        void flushSocketReadMetrics() {
+            if (localRequestContext != null) {
+                Object summary = localRequestContext.getAttribute(
+                        MetricsInputStream.ReadSummary.class.getSimpleName());
+                if (summary instanceof MetricsInputStream.ReadSummary)
+                    ((MetricsInputStream.ReadSummary) summary).flush();
+            }
+        }
+
         void initPerRetry() {
             requestCount++;
             apacheRequest = null;
             apacheResponse = null;
+            localRequestContext = null;
             leaveHttpConnectionOpen = false;
         }
 
@@ -1601,11 +2766,12 @@ public class KSCHttpClient {
          * @throws FakeIOException thrown only during test simulation
          */
         HttpRequestBase newApacheRequest(
-                final HttpRequestFactory<HttpRequestBase> httpRequestFactory,
+                final ApacheHttpRequestFactory httpRequestFactory,
                 final Request<?> request,
-                final HttpClientSettings options) throws IOException {
+                final HttpClientSettings options,
+                final ClientExecutionDeadline deadline) throws IOException {
 
-            apacheRequest = httpRequestFactory.create(request, options);
+            apacheRequest = httpRequestFactory.create(request, options, deadline);
             if (redirectedURI != null)
                 apacheRequest.setURI(redirectedURI);
             return apacheRequest;
@@ -20,6 +20,10 @@ import java.net.Socket;
 import java.net.UnknownHostException;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.HostnameVerifier;
@@ -44,10 +48,15 @@ import org.apache.http.impl.conn.DefaultSchemePortResolver;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.protocol.HttpContext;
 
+import com.ksc.CachingDnsResolver;
+import com.ksc.ConnectionPoolGroup;
+import com.ksc.DnsResolver;
 import com.ksc.SDKGlobalConfiguration;
 import com.ksc.http.KSCHttpClient;
 import com.ksc.http.DelegatingDnsResolver;
 import com.ksc.http.client.ConnectionManagerFactory;
+import com.ksc.http.conn.ConnectionTrackingSocketFactory;
+import com.ksc.http.conn.RoutingHttpClientConnectionManager;
 import com.ksc.http.conn.ssl.SdkTLSSocketFactory;
 import com.ksc.http.settings.HttpClientSettings;
 import com.ksc.internal.SdkSSLContext;
@@ -63,21 +72,51 @@ public class ApacheConnectionManagerFactory implements
     @Override
     public HttpClientConnectionManager create(final HttpClientSettings settings) {
         ConnectionSocketFactory sslsf = getPreferredSocketFactory(settings);
+        Registry<ConnectionSocketFactory> registry = createSocketFactoryRegistry(sslsf,
+                settings.getDnsResolver());
 
+        final PoolingHttpClientConnectionManager cm = createPool(settings, registry,
+                settings.getMaxConnections());
+
+        final List<ConnectionPoolGroup> groups = settings.getConnectionPoolGroups();
+        final Map<String, Integer> maxConnectionsPerHost = settings.getMaxConnectionsPerHost();
+        if ((groups == null || groups.isEmpty())
+                && (maxConnectionsPerHost == null || maxConnectionsPerHost.isEmpty())) {
+            return cm;
+        }
+
+        final Map<String, PoolingHttpClientConnectionManager> groupPools =
+                new LinkedHashMap<String, PoolingHttpClientConnectionManager>();
+        final Map<String, Set<String>> groupHosts = new LinkedHashMap<String, Set<String>>();
+        if (groups != null) {
+            for (ConnectionPoolGroup group : groups) {
+                if (groupPools.containsKey(group.getName())) {
+                    throw new IllegalArgumentException("Duplicate connection pool group " + group.getName());
+                }
+                groupPools.put(group.getName(), createPool(settings, registry, group.getMaxConnections()));
+                groupHosts.put(group.getName(), group.getHosts());
+            }
+        }
+        return new RoutingHttpClientConnectionManager(cm, groupPools, groupHosts, maxConnectionsPerHost);
+    }
+
+    private PoolingHttpClientConnectionManager createPool(HttpClientSettings settings,
+                                                          Registry<ConnectionSocketFactory> registry,
+                                                          int maxConnections) {
         final PoolingHttpClientConnectionManager cm = new
                 PoolingHttpClientConnectionManager(
-                createSocketFactoryRegistry(sslsf),
+                registry,
                 null,
                 DefaultSchemePortResolver.INSTANCE,
                 new DelegatingDnsResolver(settings.getDnsResolver()),
                 settings.getConnectionPoolTTL(),
                 TimeUnit.MILLISECONDS);
 
-        cm.setDefaultMaxPerRoute(settings.getMaxConnections());
-        cm.setMaxTotal(settings.getMaxConnections());
+        cm.setDefaultMaxPerRoute(maxConnections);
+        cm.setMaxTotal(maxConnections);
         cm.setDefaultSocketConfig(buildSocketConfig(settings));
         cm.setDefaultConnectionConfig(buildConnectionConfig(settings));
-
+        cm.setValidateAfterInactivity(settings.getValidateAfterInactivityMillis());
         return cm;
     }
 
@@ -87,7 +126,8 @@ public class ApacheConnectionManagerFactory implements
         return sslsf != null
                 ? sslsf
                 : new SdkTLSSocketFactory(
-                SdkSSLContext.getPreferredSSLContext(settings.getSecureRandom()),
+                SdkSSLContext.getPreferredSSLContext(settings.getSecureRandom(),
+                        settings.getTlsSessionCacheSize(), settings.getTlsSessionTimeoutSeconds()),
                 getHostNameVerifier(settings));
     }
 
@@ -120,7 +160,8 @@ public class ApacheConnectionManagerFactory implements
                 : SSLConnectionSocketFactory.STRICT_HOSTNAME_VERIFIER;
     }
 
-    private Registry<ConnectionSocketFactory> createSocketFactoryRegistry(ConnectionSocketFactory sslSocketFactory) {
+    private Registry<ConnectionSocketFactory> createSocketFactoryRegistry(ConnectionSocketFactory sslSocketFactory,
+                                                                          DnsResolver dnsResolver) {
 
         /*
          * If SSL cert checking for endpoints has been explicitly disabled,
@@ -135,8 +176,21 @@ public class ApacheConnectionManagerFactory implements
             sslSocketFactory = new TrustingSocketFactory();
         }
 
+        ConnectionSocketFactory plainSocketFactory = PlainConnectionSocketFactory.getSocketFactory();
+
+        /*
+         * Let a caching resolver count the connections to each address if it
+         * orders them by number of connections.
+         */
+        if (dnsResolver instanceof CachingDnsResolver && ((CachingDnsResolver) dnsResolver).getAddressOrdering()
+                == CachingDnsResolver.AddressOrdering.LEAST_CONNECTIONS) {
+            CachingDnsResolver resolver = (CachingDnsResolver) dnsResolver;
+            plainSocketFactory = new ConnectionTrackingSocketFactory(plainSocketFactory, resolver);
+            sslSocketFactory = new ConnectionTrackingSocketFactory(sslSocketFactory, resolver);
+        }
+
         return RegistryBuilder.<ConnectionSocketFactory>create()
-                .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                .register("http", plainSocketFactory)
                 .register("https", sslSocketFactory)
                 .build();
     }
@@ -21,6 +21,7 @@ import org.apache.http.conn.HttpClientConnectionManager;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.HttpClients;
 
+import com.ksc.http.ConnectionPoolSampler;
 import com.ksc.http.KSCHttpClient;
 import com.ksc.http.IdleConnectionReaper;
 import com.ksc.http.apache.SdkProxyRoutePlanner;
@@ -69,7 +70,13 @@ public class ApacheHttpClientFactory implements HttpClientFactory<ConnectionMana
         final ConnectionManagerAwareHttpClient httpClient = new SdkHttpClient(builder.build(), cm);
 
         if (settings.useReaper()) {
-            IdleConnectionReaper.registerConnectionManager(cm);
+            IdleConnectionReaper.registerConnectionManager(cm, settings.getMaxIdleConnectionTime(),
+                    settings.getConnectionPoolTTL());
+        }
+
+        if (settings.getConnectionPoolSamplingIntervalMillis() > 0) {
+            ConnectionPoolSampler.registerConnectionManager(cm,
+                    settings.getConnectionPoolSamplingIntervalMillis());
         }
 
         return httpClient;
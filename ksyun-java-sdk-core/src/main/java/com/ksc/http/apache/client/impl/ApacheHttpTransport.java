@@ -0,0 +1,156 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.http.apache.client.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.entity.AbstractHttpEntity;
+
+import com.ksc.annotation.ThreadSafe;
+import com.ksc.http.apache.utils.ApacheUtils;
+import com.ksc.http.client.HttpTransport;
+import com.ksc.http.client.HttpTransportRequest;
+import com.ksc.http.client.HttpTransportResponse;
+import com.ksc.http.settings.HttpClientSettings;
+import com.ksc.util.ImmutableMapParameter;
+import com.ksc.util.KscRequestMetrics;
+
+/**
+ * A transport which sends the requests with the Apache http client.
+ *
+ * @see ApacheHttpTransportFactory
+ */
+@ThreadSafe
+class ApacheHttpTransport implements HttpTransport {
+
+    private final ConnectionManagerAwareHttpClient httpClient;
+    private final HttpClientSettings settings;
+
+    ApacheHttpTransport(ConnectionManagerAwareHttpClient httpClient, HttpClientSettings settings) {
+        this.httpClient = httpClient;
+        this.settings = settings;
+    }
+
+    /**
+     * Returns the Apache http client sending the requests.
+     */
+    ConnectionManagerAwareHttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    @Override
+    public HttpTransportResponse execute(HttpTransportRequest request) throws IOException {
+        final HttpUriRequest apacheRequest = newApacheRequest(request);
+        request.setAbortHandler(new Runnable() {
+            @Override
+            public void run() {
+                apacheRequest.abort();
+            }
+        });
+        final HttpResponse response = httpClient.execute(apacheRequest, ApacheUtils.newClientContext(settings,
+                ImmutableMapParameter.of(KscRequestMetrics.class.getSimpleName(), request.getRequestMetrics())));
+
+        final Map<String, List<String>> headers = new LinkedHashMap<String, List<String>>();
+        for (Header header : response.getAllHeaders()) {
+            List<String> values = headers.get(header.getName());
+            if (values == null) {
+                values = new ArrayList<String>(1);
+                headers.put(header.getName(), values);
+            }
+            values.add(header.getValue());
+        }
+        final HttpEntity entity = response.getEntity();
+        return new HttpTransportResponse(response.getStatusLine().getProtocolVersion().toString(),
+                response.getStatusLine().getStatusCode(), response.getStatusLine().getReasonPhrase(),
+                headers, entity == null ? null : entity.getContent());
+    }
+
+    private HttpUriRequest newApacheRequest(HttpTransportRequest request) {
+        final RequestBuilder builder = RequestBuilder.create(request.getMethod()).setUri(request.getUri());
+        for (Map.Entry<String, List<String>> header : request.getHeaders().entrySet()) {
+            // Set by the Apache http client itself
+            if (header.getKey().equalsIgnoreCase("Content-Length")
+                    || header.getKey().equalsIgnoreCase("Transfer-Encoding")) {
+                continue;
+            }
+            for (String value : header.getValue()) {
+                builder.addHeader(header.getKey(), value);
+            }
+        }
+        if (request.getContent() != null) {
+            builder.setEntity(new ContentEntity(request.getContent()));
+        }
+        final RequestConfig config = RequestConfig.custom()
+                .setConnectionRequestTimeout(settings.getConnectionPoolRequestTimeout())
+                .setConnectTimeout(request.getConnectTimeoutMillis())
+                .setSocketTimeout(request.getSocketTimeoutMillis())
+                .setLocalAddress(settings.getLocalAddress())
+                .build();
+        return builder.setConfig(config).build();
+    }
+
+    @Override
+    public void shutdown() {
+        httpClient.getHttpClientConnectionManager().shutdown();
+    }
+
+    /**
+     * The entity of a request, read from its content.
+     */
+    private static final class ContentEntity extends AbstractHttpEntity {
+        private final HttpTransportRequest.Content content;
+
+        ContentEntity(HttpTransportRequest.Content content) {
+            this.content = content;
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return false;
+        }
+
+        @Override
+        public long getContentLength() {
+            return content.getLength();
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            return content.getStream();
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            content.writeTo(out);
+        }
+
+        @Override
+        public boolean isStreaming() {
+            return true;
+        }
+    }
+}
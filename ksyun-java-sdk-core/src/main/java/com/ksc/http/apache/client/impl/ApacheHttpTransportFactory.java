@@ -0,0 +1,37 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.http.apache.client.impl;
+
+import com.ksc.ClientConfiguration;
+import com.ksc.annotation.Beta;
+import com.ksc.http.client.HttpTransport;
+import com.ksc.http.client.HttpTransportFactory;
+import com.ksc.http.settings.HttpClientSettings;
+
+/**
+ * Factory of transports sending the requests with the Apache http client,
+ * which the SDK uses when no transport factory is set with
+ * {@link ClientConfiguration#setHttpTransportFactory}. A client given this
+ * factory uses the Apache http client directly, with its connection pool. A
+ * transport wrapping one of its transports is adapted like any other.
+ */
+@Beta
+public class ApacheHttpTransportFactory implements HttpTransportFactory {
+
+    @Override
+    public HttpTransport create(HttpClientSettings settings) {
+        return new ApacheHttpTransport(new ApacheHttpClientFactory().create(settings), settings);
+    }
+}
@@ -0,0 +1,319 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.http.apache.client.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpVersion;
+import org.apache.http.ParseException;
+import org.apache.http.ProtocolVersion;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.Configurable;
+import org.apache.http.client.methods.HttpExecutionAware;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.concurrent.Cancellable;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.execchain.RequestAbortedException;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.message.BasicLineParser;
+import org.apache.http.message.BasicStatusLine;
+import org.apache.http.message.ParserCursor;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.CharArrayBuffer;
+
+import com.ksc.annotation.SdkInternalApi;
+import com.ksc.annotation.ThreadSafe;
+import com.ksc.http.apache.utils.ApacheUtils;
+import com.ksc.http.client.HttpTransport;
+import com.ksc.http.client.HttpTransportFactory;
+import com.ksc.http.client.HttpTransportRequest;
+import com.ksc.http.client.HttpTransportResponse;
+import com.ksc.http.conn.UnpooledConnectionManager;
+import com.ksc.http.settings.HttpClientSettings;
+import com.ksc.util.KscRequestMetrics;
+
+/**
+ * Sends the requests of the SDK with a {@link HttpTransport}, translating
+ * between the Apache http client request and response types used inside the
+ * SDK and those of the transport. The connections of the transport are not
+ * pooled by the SDK, so the connection pool settings, the idle connection
+ * reaper, the warm-up of connections and the pool metrics do not apply.
+ */
+@SdkInternalApi
+@ThreadSafe
+public class TransportHttpClient extends CloseableHttpClient implements ConnectionManagerAwareHttpClient {
+
+    private static final Log LOG = LogFactory.getLog(TransportHttpClient.class);
+
+    private final HttpTransport transport;
+    private final HttpClientSettings settings;
+    private final UnpooledConnectionManager connectionManager;
+
+    private TransportHttpClient(final HttpTransport transport, HttpClientSettings settings) {
+        this.transport = transport;
+        this.settings = settings;
+        this.connectionManager = new UnpooledConnectionManager() {
+            @Override
+            public void shutdown() {
+                final boolean wasShutdown = isShutdown();
+                super.shutdown();
+                if (!wasShutdown) {
+                    transport.shutdown();
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns the http client sending requests with a transport of the given
+     * factory. The Apache transport is used as is, with its connection pool.
+     */
+    public static ConnectionManagerAwareHttpClient create(HttpTransportFactory factory,
+                                                          HttpClientSettings settings) {
+        final HttpTransport transport = factory.create(settings);
+        if (transport instanceof ApacheHttpTransport) {
+            return ((ApacheHttpTransport) transport).getHttpClient();
+        }
+        if (settings.getApacheHttpClientConfig().getSslSocketFactory() != null) {
+            LOG.warn("The SSL socket factory of the Apache http client configuration is ignored by "
+                    + transport.getClass().getName() + "; the SDK's TLS context is used instead");
+        }
+        return new TransportHttpClient(transport, settings);
+    }
+
+    @Override
+    protected CloseableHttpResponse doExecute(HttpHost target, HttpRequest request, HttpContext context)
+            throws IOException {
+        if (connectionManager.isShutdown()) {
+            throw new IllegalStateException("Connection pool shut down");
+        }
+        final HttpTransportRequest transportRequest = newTransportRequest(target, request, context);
+        if (request instanceof HttpExecutionAware) {
+            final HttpExecutionAware execution = (HttpExecutionAware) request;
+            if (execution.isAborted()) {
+                throw new RequestAbortedException("Request aborted");
+            }
+            execution.setCancellable(new Cancellable() {
+                @Override
+                public boolean cancel() {
+                    transportRequest.abort();
+                    return true;
+                }
+            });
+        }
+        final HttpTransportResponse transportResponse;
+        try {
+            transportResponse = transport.execute(transportRequest);
+        } catch (IOException e) {
+            throw transportRequest.isAborted() ? aborted(e) : e;
+        }
+        if (transportRequest.isAborted()) {
+            transportResponse.close();
+            throw new RequestAbortedException("Request aborted");
+        }
+        return newResponse(request, transportResponse);
+    }
+
+    private static RequestAbortedException aborted(IOException cause) {
+        final RequestAbortedException aborted = new RequestAbortedException("Request aborted");
+        aborted.initCause(cause);
+        return aborted;
+    }
+
+    private HttpTransportRequest newTransportRequest(HttpHost target, HttpRequest request, HttpContext context)
+            throws ClientProtocolException {
+        final URI uri;
+        try {
+            uri = request instanceof HttpUriRequest && ((HttpUriRequest) request).getURI().isAbsolute()
+                    ? ((HttpUriRequest) request).getURI()
+                    : new URI(target.toURI() + request.getRequestLine().getUri());
+        } catch (URISyntaxException e) {
+            throw new ClientProtocolException(e);
+        }
+        final HttpEntity entity = request instanceof HttpEntityEnclosingRequest
+                ? ((HttpEntityEnclosingRequest) request).getEntity() : null;
+
+        final Map<String, List<String>> headers = new LinkedHashMap<String, List<String>>();
+        for (Header header : request.getAllHeaders()) {
+            addHeader(headers, header.getName(), header.getValue());
+        }
+        if (entity != null && entity.getContentType() != null
+                && !request.containsHeader(HttpHeaders.CONTENT_TYPE)) {
+            addHeader(headers, HttpHeaders.CONTENT_TYPE, entity.getContentType().getValue());
+        }
+        if (entity != null && entity.getContentEncoding() != null
+                && !request.containsHeader(HttpHeaders.CONTENT_ENCODING)) {
+            addHeader(headers, HttpHeaders.CONTENT_ENCODING, entity.getContentEncoding().getValue());
+        }
+        if (settings.useGzip() && !request.containsHeader(HttpHeaders.ACCEPT_ENCODING)) {
+            addHeader(headers, HttpHeaders.ACCEPT_ENCODING, "gzip");
+        }
+
+        final RequestConfig config = request instanceof Configurable
+                ? ((Configurable) request).getConfig() : null;
+        final KscRequestMetrics requestMetrics = context == null ? null
+                : (KscRequestMetrics) context.getAttribute(KscRequestMetrics.class.getSimpleName());
+        return new HttpTransportRequest(request.getRequestLine().getMethod(), uri, headers,
+                entity == null ? null : new EntityContent(entity),
+                timeout(config == null ? -1 : config.getConnectTimeout(), settings.getConnectionTimeout()),
+                timeout(config == null ? -1 : config.getSocketTimeout(), settings.getSocketTimeout()),
+                requestMetrics == null ? new KscRequestMetrics() : requestMetrics);
+    }
+
+    private static void addHeader(Map<String, List<String>> headers, String name, String value) {
+        List<String> values = headers.get(name);
+        if (values == null) {
+            values = new ArrayList<String>(1);
+            headers.put(name, values);
+        }
+        values.add(value);
+    }
+
+    /**
+     * Returns the timeout of the request if it has one, as bounded by the
+     * client execution deadline; or the configured one otherwise.
+     */
+    private static int timeout(int requestTimeout, int configuredTimeout) {
+        return Math.max(requestTimeout >= 0 ? requestTimeout : configuredTimeout, 0);
+    }
+
+    private CloseableHttpResponse newResponse(HttpRequest request, HttpTransportResponse transportResponse)
+            throws IOException {
+        final TransportHttpResponse response = new TransportHttpResponse(new BasicStatusLine(
+                protocolVersionOf(transportResponse.getProtocol()), transportResponse.getStatusCode(),
+                transportResponse.getReasonPhrase()));
+        for (Map.Entry<String, List<String>> header : transportResponse.getHeaders().entrySet()) {
+            for (String value : header.getValue()) {
+                response.addHeader(header.getKey(), value);
+            }
+        }
+        final InputStream content = transportResponse.getContent();
+        if (content == null || "HEAD".equalsIgnoreCase(request.getRequestLine().getMethod())) {
+            transportResponse.close();
+            return response;
+        }
+        ApacheUtils.setResponseEntity(response, content, settings.useGzip());
+        return response;
+    }
+
+    private static ProtocolVersion protocolVersionOf(String protocol) {
+        if (protocol != null) {
+            final CharArrayBuffer buffer = new CharArrayBuffer(protocol.length());
+            buffer.append(protocol);
+            try {
+                return BasicLineParser.INSTANCE.parseProtocolVersion(buffer,
+                        new ParserCursor(0, buffer.length()));
+            } catch (ParseException e) {
+                // fall back to HTTP/1.1
+            }
+        }
+        return HttpVersion.HTTP_1_1;
+    }
+
+    @Override
+    public HttpClientConnectionManager getHttpClientConnectionManager() {
+        return connectionManager;
+    }
+
+    @Override
+    public void close() {
+        connectionManager.shutdown();
+    }
+
+    /**
+     * Not used by the SDK; required by the Apache http client interface,
+     * hence the deprecated types.
+     */
+    @Override
+    @SuppressWarnings("deprecation")
+    public org.apache.http.params.HttpParams getParams() {
+        return new org.apache.http.params.BasicHttpParams();
+    }
+
+    /**
+     * Not supported, since the connections of the transport are not managed
+     * by the SDK; the SDK uses {@link #getHttpClientConnectionManager()}.
+     */
+    @Override
+    @SuppressWarnings("deprecation")
+    public org.apache.http.conn.ClientConnectionManager getConnectionManager() {
+        throw new UnsupportedOperationException(
+                "The connections of " + transport.getClass().getName() + " are not managed by a connection manager");
+    }
+
+    /**
+     * The content of a request, read from its entity.
+     */
+    private static final class EntityContent implements HttpTransportRequest.Content {
+        private final HttpEntity entity;
+
+        EntityContent(HttpEntity entity) {
+            this.entity = entity;
+        }
+
+        @Override
+        public long getLength() {
+            return entity.getContentLength();
+        }
+
+        @Override
+        public InputStream getStream() throws IOException {
+            return entity.getContent();
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            entity.writeTo(out);
+        }
+    }
+
+    /**
+     * A response whose content is that of the transport response, which
+     * closing releases.
+     */
+    private static final class TransportHttpResponse extends BasicHttpResponse implements CloseableHttpResponse {
+
+        TransportHttpResponse(BasicStatusLine statusLine) {
+            super(statusLine);
+        }
+
+        @Override
+        public void close() throws IOException {
+            final HttpEntity entity = getEntity();
+            if (entity != null && entity.isStreaming()) {
+                entity.getContent().close();
+            }
+        }
+    }
+}
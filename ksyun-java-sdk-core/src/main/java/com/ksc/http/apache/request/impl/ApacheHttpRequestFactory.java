@@ -21,6 +21,7 @@ import com.ksc.http.RepeatableInputStreamRequestEntity;
 import com.ksc.http.apache.utils.ApacheUtils;
 import com.ksc.http.request.HttpRequestFactory;
 import com.ksc.http.settings.HttpClientSettings;
+import com.ksc.http.timers.client.ClientExecutionDeadline;
 import com.ksc.util.FakeIOException;
 import com.ksc.util.SdkHttpUtils;
 
@@ -57,6 +58,20 @@ public class ApacheHttpRequestFactory implements
                                   final HttpClientSettings settings)
             throws
             FakeIOException {
+        return create(request, settings, ClientExecutionDeadline.NONE);
+    }
+
+    /**
+     * Same as {@link #create(Request, HttpClientSettings)}, except that the
+     * connection pool request, connect and socket timeouts of the request are
+     * shortened to the time left before the given deadline, so that the
+     * attempt can't outlive the client execution it belongs to.
+     */
+    public HttpRequestBase create(final Request<?> request,
+                                  final HttpClientSettings settings,
+                                  final ClientExecutionDeadline deadline)
+            throws
+            FakeIOException {
         URI endpoint = request.getEndpoint();
 
         /*
@@ -82,22 +97,20 @@ public class ApacheHttpRequestFactory implements
 
         final HttpRequestBase base = createApacheRequest(request, uri, encodedParams);
         addHeadersToRequest(base, request);
-        addRequestConfig(base, request, settings);
+        addRequestConfig(base, request, settings, deadline);
 
         return base;
     }
 
     private void addRequestConfig(final HttpRequestBase base,
                                   final Request<?> request,
-                                  final HttpClientSettings settings) {
-        @SuppressWarnings("deprecation")
-		final RequestConfig.Builder requestConfigBuilder = RequestConfig
+                                  final HttpClientSettings settings,
+                                  final ClientExecutionDeadline deadline) {
+        final RequestConfig.Builder requestConfigBuilder = RequestConfig
                 .custom()
-                .setConnectionRequestTimeout(settings.getConnectionPoolRequestTimeout())
-                .setConnectTimeout(settings.getConnectionTimeout())
-                .setSocketTimeout(settings.getSocketTimeout())
-                .setStaleConnectionCheckEnabled(true) // TODO Handle
-                        // deprecation here.
+                .setConnectionRequestTimeout(deadline.boundTimeout(settings.getConnectionPoolRequestTimeout()))
+                .setConnectTimeout(deadline.boundTimeout(settings.getConnectionTimeout()))
+                .setSocketTimeout(deadline.boundTimeout(settings.getSocketTimeout()))
                 .setLocalAddress(settings.getLocalAddress());
 
         /*
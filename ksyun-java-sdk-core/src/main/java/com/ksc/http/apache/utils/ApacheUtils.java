@@ -15,17 +15,23 @@
 package com.ksc.http.apache.utils;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.util.Map;
 
+import org.apache.http.Header;
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
 import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.Credentials;
 import org.apache.http.auth.NTCredentials;
 import org.apache.http.client.AuthCache;
 import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.entity.GzipDecompressingEntity;
 import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.entity.BasicHttpEntity;
 import org.apache.http.entity.BufferedHttpEntity;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.auth.BasicScheme;
@@ -73,6 +79,42 @@ public class ApacheUtils {
         }
     }
 
+    /**
+     * Sets the given content as the entity of a response received by an http
+     * client other than the Apache one, described by the headers of the
+     * response. Gzip content is decompressed if requested, in which case the
+     * headers describing the compressed content are dropped, as the Apache
+     * http client does.
+     */
+    public static void setResponseEntity(HttpResponse response, InputStream content, boolean decompressGzip) {
+        final BasicHttpEntity entity = new BasicHttpEntity();
+        entity.setContent(content);
+        entity.setContentLength(contentLengthOf(response));
+        entity.setContentType(response.getFirstHeader(HttpHeaders.CONTENT_TYPE));
+        entity.setContentEncoding(response.getFirstHeader(HttpHeaders.CONTENT_ENCODING));
+        if (decompressGzip && entity.getContentEncoding() != null
+                && "gzip".equalsIgnoreCase(entity.getContentEncoding().getValue())) {
+            response.setEntity(new GzipDecompressingEntity(entity));
+            response.removeHeaders(HttpHeaders.CONTENT_LENGTH);
+            response.removeHeaders(HttpHeaders.CONTENT_ENCODING);
+            response.removeHeaders(HttpHeaders.CONTENT_MD5);
+        } else {
+            response.setEntity(entity);
+        }
+    }
+
+    private static long contentLengthOf(HttpResponse response) {
+        final Header header = response.getFirstHeader(HttpHeaders.CONTENT_LENGTH);
+        if (header != null) {
+            try {
+                return Long.parseLong(header.getValue().trim());
+            } catch (NumberFormatException e) {
+                // unknown length
+            }
+        }
+        return -1;
+    }
+
     /**
      * Returns a new HttpClientContext used for request execution.
      */
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2015-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.http.client;
+
+import java.io.IOException;
+
+import com.ksc.annotation.Beta;
+import com.ksc.annotation.ThreadSafe;
+
+/**
+ * Sends the HTTP requests of a client. The SDK marshals, signs, retries and
+ * times out the requests, and handles the responses, whatever transport
+ * sends them; a transport only has to send one request and return its
+ * response, honoring the timeouts of the request and aborting it when asked
+ * to.
+ *
+ * @see HttpTransportFactory
+ */
+@Beta
+@ThreadSafe
+public interface HttpTransport {
+
+    /**
+     * Sends the request and returns its response once its status line and
+     * headers have been received; the content of the response is read by the
+     * caller, who closes the response.
+     *
+     * @throws IOException
+     *             If the request could not be sent or the response could not
+     *             be received, including when the request is aborted.
+     */
+    HttpTransportResponse execute(HttpTransportRequest request) throws IOException;
+
+    /**
+     * Releases the resources of this transport. It is called once, when the
+     * client is shut down, after which no more requests are sent.
+     */
+    void shutdown();
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2015-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.http.client;
+
+import com.ksc.ClientConfiguration;
+import com.ksc.annotation.Beta;
+import com.ksc.http.settings.HttpClientSettings;
+
+/**
+ * Creates the transport sending the HTTP requests of a client. To use one,
+ * set it with {@link ClientConfiguration#setHttpTransportFactory}.
+ */
+@Beta
+public interface HttpTransportFactory {
+
+    /**
+     * Returns a new transport following the given settings; the settings
+     * which the transport can't honor are ignored.
+     */
+    HttpTransport create(HttpClientSettings settings);
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2015-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.http.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+
+import com.ksc.annotation.Beta;
+import com.ksc.annotation.ThreadSafe;
+import com.ksc.util.KscRequestMetrics;
+
+/**
+ * An HTTP request to be sent by a {@link HttpTransport}, as marshalled and
+ * signed by the SDK. Besides its content, it carries the timeouts to apply
+ * when sending it and the request metrics to record the sending in, and it
+ * can be aborted while being sent.
+ */
+@Beta
+@ThreadSafe
+public final class HttpTransportRequest {
+
+    /**
+     * The content of a request.
+     */
+    public interface Content {
+
+        /** Returns the length of the content in bytes; or -1 if unknown. */
+        long getLength();
+
+        /** Returns a stream of the content. */
+        InputStream getStream() throws IOException;
+
+        /** Writes the content to the given stream. */
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    private final String method;
+    private final URI uri;
+    private final Map<String, List<String>> headers;
+    private final Content content;
+    private final int connectTimeoutMillis;
+    private final int socketTimeoutMillis;
+    private final KscRequestMetrics requestMetrics;
+
+    /* Guarded by this */
+    private boolean aborted;
+    private Runnable abortHandler;
+
+    /**
+     * @param method
+     *            The HTTP method, eg "GET".
+     * @param uri
+     *            The absolute URI of the request.
+     * @param headers
+     *            The headers to send, by name. They include the
+     *            {@code Content-Type} of the content, if any.
+     * @param content
+     *            The content to send; or null if there is none.
+     * @param connectTimeoutMillis
+     *            The timeout to open a connection; or zero for none.
+     * @param socketTimeoutMillis
+     *            The timeout to wait for data; or zero for none.
+     * @param requestMetrics
+     *            The request metrics to record the sending of the request in.
+     */
+    public HttpTransportRequest(String method, URI uri, Map<String, List<String>> headers, Content content,
+                                int connectTimeoutMillis, int socketTimeoutMillis,
+                                KscRequestMetrics requestMetrics) {
+        this.method = method;
+        this.uri = uri;
+        this.headers = headers;
+        this.content = content;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.socketTimeoutMillis = socketTimeoutMillis;
+        this.requestMetrics = requestMetrics;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public URI getUri() {
+        return uri;
+    }
+
+    public Map<String, List<String>> getHeaders() {
+        return headers;
+    }
+
+    /** Returns the content to send; or null if there is none. */
+    public Content getContent() {
+        return content;
+    }
+
+    /** Returns the timeout to open a connection; or zero for none. */
+    public int getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    /** Returns the timeout to wait for data; or zero for none. */
+    public int getSocketTimeoutMillis() {
+        return socketTimeoutMillis;
+    }
+
+    /**
+     * Returns the request metrics in which the transport records the time
+     * spent sending the request and receiving the response.
+     */
+    public KscRequestMetrics getRequestMetrics() {
+        return requestMetrics;
+    }
+
+    /**
+     * Sets what to do to abort the request while it is being sent, such as
+     * closing its connection. The handler is run right away if the request
+     * has already been aborted.
+     */
+    public void setAbortHandler(Runnable abortHandler) {
+        final boolean abortNow;
+        synchronized (this) {
+            this.abortHandler = abortHandler;
+            abortNow = aborted;
+        }
+        if (abortNow && abortHandler != null) {
+            abortHandler.run();
+        }
+    }
+
+    /**
+     * Aborts the request, running its abort handler if one is set.
+     */
+    public void abort() {
+        final Runnable handler;
+        synchronized (this) {
+            if (aborted) {
+                return;
+            }
+            aborted = true;
+            handler = abortHandler;
+        }
+        if (handler != null) {
+            handler.run();
+        }
+    }
+
+    public synchronized boolean isAborted() {
+        return aborted;
+    }
+}
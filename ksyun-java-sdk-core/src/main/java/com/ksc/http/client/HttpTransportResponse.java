@@ -0,0 +1,94 @@
+/*
+ * Copyright 2015-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.http.client;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+
+import com.ksc.annotation.Beta;
+
+/**
+ * The response to a {@link HttpTransportRequest}, whose content is read
+ * from the transport as the caller consumes it. Closing the response closes
+ * its content, which lets the transport reuse or release the connection.
+ */
+@Beta
+public final class HttpTransportResponse implements Closeable {
+
+    private final String protocol;
+    private final int statusCode;
+    private final String reasonPhrase;
+    private final Map<String, List<String>> headers;
+    private final InputStream content;
+
+    /**
+     * @param protocol
+     *            The protocol of the response, eg "HTTP/1.1" or "HTTP/2".
+     * @param statusCode
+     *            The status code of the response.
+     * @param reasonPhrase
+     *            The reason phrase of the status; or null if there is none.
+     * @param headers
+     *            The headers of the response, by name.
+     * @param content
+     *            The content of the response, as received; or null if there
+     *            is none.
+     */
+    public HttpTransportResponse(String protocol, int statusCode, String reasonPhrase,
+                                 Map<String, List<String>> headers, InputStream content) {
+        this.protocol = protocol;
+        this.statusCode = statusCode;
+        this.reasonPhrase = reasonPhrase;
+        this.headers = headers;
+        this.content = content;
+    }
+
+    /** Returns the protocol of the response, eg "HTTP/1.1" or "HTTP/2". */
+    public String getProtocol() {
+        return protocol;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /** Returns the reason phrase of the status; or null if there is none. */
+    public String getReasonPhrase() {
+        return reasonPhrase;
+    }
+
+    public Map<String, List<String>> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * Returns the content of the response, as received, which may be
+     * compressed as described by its {@code Content-Encoding}; or null if
+     * there is none.
+     */
+    public InputStream getContent() {
+        return content;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (content != null) {
+            content.close();
+        }
+    }
+}
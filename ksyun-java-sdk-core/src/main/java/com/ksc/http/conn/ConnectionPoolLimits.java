@@ -0,0 +1,151 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.http.conn;
+
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+import org.apache.http.HttpHost;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+
+import com.ksc.annotation.SdkInternalApi;
+import com.ksc.annotation.ThreadSafe;
+
+/**
+ * Exposes the limits of an http connection pool so that they can be tuned
+ * at runtime, for instance through JMX.
+ * <p>
+ * When the client routes its requests through a
+ * {@link RoutingHttpClientConnectionManager}, the limit of a host is set on
+ * the manager, which applies it to any route to that host within the pool
+ * serving it. Otherwise the pool only knows about routes, so the limit is
+ * applied to the routes to that host the pool currently holds and to the
+ * default http and https ports of the host.
+ */
+@SdkInternalApi
+@ThreadSafe
+public class ConnectionPoolLimits implements ConnectionPoolLimitsMBean {
+
+    private final String poolName;
+    private final PoolingHttpClientConnectionManager pool;
+    private final RoutingHttpClientConnectionManager router;
+
+    /**
+     * @param poolName the name of the pool: "default" or the name of its group.
+     * @param pool the pool to inspect and resize.
+     * @param router the manager routing the requests to the pool; or null if
+     *            the pool is the only one of the client.
+     */
+    public ConnectionPoolLimits(String poolName, PoolingHttpClientConnectionManager pool,
+                                RoutingHttpClientConnectionManager router) {
+        this.poolName = poolName;
+        this.pool = pool;
+        this.router = router;
+    }
+
+    @Override
+    public String getPoolName() {
+        return poolName;
+    }
+
+    @Override
+    public int getMaxTotal() {
+        return pool.getMaxTotal();
+    }
+
+    @Override
+    public void setMaxTotal(int max) {
+        pool.setMaxTotal(max);
+    }
+
+    @Override
+    public int getDefaultMaxPerRoute() {
+        return pool.getDefaultMaxPerRoute();
+    }
+
+    @Override
+    public void setDefaultMaxPerRoute(int max) {
+        pool.setDefaultMaxPerRoute(max);
+    }
+
+    @Override
+    public int getMaxConnectionsPerHost(String host) {
+        if (router != null) {
+            return router.getMaxConnectionsPerHost(host);
+        }
+        int max = 0;
+        for (HttpRoute route : routesTo(host)) {
+            max = Math.max(max, pool.getMaxPerRoute(route));
+        }
+        return max;
+    }
+
+    @Override
+    public void setMaxConnectionsPerHost(String host, int max) {
+        if (router != null) {
+            router.setMaxConnectionsPerHost(host, max);
+            return;
+        }
+        for (HttpRoute route : routesTo(host)) {
+            pool.setMaxPerRoute(route, max);
+        }
+    }
+
+    /**
+     * Returns the routes of the pool to the given host, given as "host" for
+     * any port or "host:port", along with the direct routes to its default
+     * ports when no port is given.
+     */
+    private Set<HttpRoute> routesTo(String host) {
+        final String spec = host.trim().toLowerCase(Locale.ENGLISH);
+        final int colon = spec.indexOf(':');
+        final String hostName = colon > 0 ? spec.substring(0, colon) : spec;
+        final int port;
+        try {
+            port = colon > 0 ? Integer.parseInt(spec.substring(colon + 1)) : -1;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid port in host " + host, e);
+        }
+        final Set<HttpRoute> routes = new LinkedHashSet<HttpRoute>();
+        for (HttpRoute route : pool.getRoutes()) {
+            HttpHost target = route.getTargetHost();
+            if (target.getHostName().equalsIgnoreCase(hostName) && (port < 0 || target.getPort() == port)) {
+                routes.add(route);
+            }
+        }
+        if (port < 0) {
+            routes.add(new HttpRoute(new HttpHost(hostName, 80, "http"), null, false));
+            routes.add(new HttpRoute(new HttpHost(hostName, 443, "https"), null, true));
+        }
+        return routes;
+    }
+
+    @Override
+    public int getLeased() {
+        return pool.getTotalStats().getLeased();
+    }
+
+    @Override
+    public int getAvailable() {
+        return pool.getTotalStats().getAvailable();
+    }
+
+    @Override
+    public int getPending() {
+        return pool.getTotalStats().getPending();
+    }
+}
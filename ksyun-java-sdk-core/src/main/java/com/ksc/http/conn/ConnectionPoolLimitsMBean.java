@@ -0,0 +1,57 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.http.conn;
+
+/**
+ * MBean interface to inspect and resize an http connection pool of a client
+ * at runtime.
+ */
+public interface ConnectionPoolLimitsMBean {
+    /** Returns the name of the pool: "default" or the name of its group. */
+    public String getPoolName();
+
+    /** Returns the maximum number of connections of the pool. */
+    public int getMaxTotal();
+
+    /** Sets the maximum number of connections of the pool. */
+    public void setMaxTotal(int max);
+
+    /** Returns the maximum number of connections per route by default. */
+    public int getDefaultMaxPerRoute();
+
+    /** Sets the maximum number of connections per route by default. */
+    public void setDefaultMaxPerRoute(int max);
+
+    /**
+     * Returns the maximum number of connections to the given host, given as
+     * "host" or "host:port"; the highest limit of its routes if they differ.
+     */
+    public int getMaxConnectionsPerHost(String host);
+
+    /**
+     * Sets the maximum number of connections to the given host, given as
+     * "host" for any port or "host:port".
+     */
+    public void setMaxConnectionsPerHost(String host, int max);
+
+    /** Returns the number of leased connections. */
+    public int getLeased();
+
+    /** Returns the number of idle connections. */
+    public int getAvailable();
+
+    /** Returns the number of connection requests awaiting a free connection. */
+    public int getPending();
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.http.conn;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+import org.apache.http.HttpHost;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.LayeredConnectionSocketFactory;
+import org.apache.http.protocol.HttpContext;
+
+import com.ksc.CachingDnsResolver;
+import com.ksc.annotation.SdkInternalApi;
+import com.ksc.annotation.ThreadSafe;
+
+/**
+ * Reports each connection opened through the wrapped socket factory to a
+ * {@link CachingDnsResolver}, so that it can order the addresses of a host
+ * name by their number of open connections.
+ * <p>
+ * Sockets layered over a proxy tunnel are not reported, since they are
+ * connected to the proxy rather than to one of the resolved addresses.
+ */
+@SdkInternalApi
+@ThreadSafe
+public class ConnectionTrackingSocketFactory implements LayeredConnectionSocketFactory {
+
+    private final ConnectionSocketFactory delegate;
+    private final CachingDnsResolver resolver;
+
+    public ConnectionTrackingSocketFactory(ConnectionSocketFactory delegate, CachingDnsResolver resolver) {
+        this.delegate = delegate;
+        this.resolver = resolver;
+    }
+
+    @Override
+    public Socket createSocket(HttpContext context) throws IOException {
+        return delegate.createSocket(context);
+    }
+
+    @Override
+    public Socket connectSocket(int connectTimeout, Socket sock, HttpHost host, InetSocketAddress remoteAddress,
+                                InetSocketAddress localAddress, HttpContext context) throws IOException {
+        final Socket connected = delegate.connectSocket(connectTimeout, sock, host, remoteAddress,
+                localAddress, context);
+        resolver.connectionOpened(connected);
+        return connected;
+    }
+
+    @Override
+    public Socket createLayeredSocket(Socket socket, String target, int port, HttpContext context)
+            throws IOException {
+        if (!(delegate instanceof LayeredConnectionSocketFactory)) {
+            throw new UnsupportedOperationException(delegate + " cannot layer sockets");
+        }
+        return ((LayeredConnectionSocketFactory) delegate).createLayeredSocket(socket, target, port, context);
+    }
+}
@@ -0,0 +1,305 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.http.conn;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpHost;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.ConnPoolControl;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+
+import com.ksc.annotation.SdkInternalApi;
+import com.ksc.annotation.ThreadSafe;
+
+/**
+ * A connection manager made of several isolated connection pools: the
+ * requests to the hosts of each {@link com.ksc.ConnectionPoolGroup} lease
+ * their connections from the pool of their group, and all the other requests
+ * from the default pool.
+ * <p>
+ * It also enforces the maximum number of connections per host: a pool only
+ * knows about routes, so the limit of a host is applied to each route to that
+ * host the first time a connection is requested for it.
+ * <p>
+ * The {@link ConnPoolControl} methods without route apply to the default
+ * pool, except for {@link #getTotalStats()} which sums up all the pools.
+ */
+@SdkInternalApi
+@ThreadSafe
+public class RoutingHttpClientConnectionManager
+        implements HttpClientConnectionManager, ConnPoolControl<HttpRoute> {
+
+    private final PoolingHttpClientConnectionManager defaultPool;
+    /** Pools of the groups by host or host:port, in lower case. */
+    private final Map<String, PoolingHttpClientConnectionManager> poolsByHost;
+    /** Pools of the groups by name. */
+    private final Map<String, PoolingHttpClientConnectionManager> groupPools;
+    /** The pool each leased connection has to be released to. */
+    private final ConcurrentMap<HttpClientConnection, PoolingHttpClientConnectionManager> leases =
+            new ConcurrentHashMap<HttpClientConnection, PoolingHttpClientConnectionManager>();
+    /** Maximum number of connections by host or host:port, in lower case. */
+    private final ConcurrentMap<String, Integer> hostLimits = new ConcurrentHashMap<String, Integer>();
+    /** The host limit last applied to each route. */
+    private final ConcurrentMap<HttpRoute, Integer> routeLimits = new ConcurrentHashMap<HttpRoute, Integer>();
+
+    /**
+     * @param defaultPool the pool of the hosts of no group.
+     * @param groupPools the pool of each group by group name.
+     * @param groupHosts the hosts of each group by group name.
+     * @param maxConnectionsPerHost the maximum number of connections by host
+     *            or host:port; or null if there is none.
+     */
+    public RoutingHttpClientConnectionManager(PoolingHttpClientConnectionManager defaultPool,
+                                              Map<String, PoolingHttpClientConnectionManager> groupPools,
+                                              Map<String, ? extends Set<String>> groupHosts,
+                                              Map<String, Integer> maxConnectionsPerHost) {
+        this.defaultPool = defaultPool;
+        this.groupPools = Collections.unmodifiableMap(
+                new LinkedHashMap<String, PoolingHttpClientConnectionManager>(groupPools));
+        Map<String, PoolingHttpClientConnectionManager> byHost =
+                new ConcurrentHashMap<String, PoolingHttpClientConnectionManager>();
+        for (Map.Entry<String, ? extends Set<String>> group : groupHosts.entrySet()) {
+            PoolingHttpClientConnectionManager pool = groupPools.get(group.getKey());
+            for (String host : group.getValue()) {
+                byHost.put(host.toLowerCase(Locale.ENGLISH), pool);
+            }
+        }
+        this.poolsByHost = byHost;
+        if (maxConnectionsPerHost != null) {
+            for (Map.Entry<String, Integer> entry : maxConnectionsPerHost.entrySet()) {
+                setMaxConnectionsPerHost(entry.getKey(), entry.getValue() == null ? 0 : entry.getValue());
+            }
+        }
+    }
+
+    /** Returns the pool of the hosts of no group. */
+    public PoolingHttpClientConnectionManager getDefaultPool() {
+        return defaultPool;
+    }
+
+    /** Returns the pools of the groups by group name. */
+    public Map<String, PoolingHttpClientConnectionManager> getGroupPools() {
+        return groupPools;
+    }
+
+    /** Returns the pool the connections of the given route are leased from. */
+    public PoolingHttpClientConnectionManager poolFor(HttpRoute route) {
+        final HttpHost target = route.getTargetHost();
+        final String host = target.getHostName().toLowerCase(Locale.ENGLISH);
+        PoolingHttpClientConnectionManager pool = poolsByHost.get(host + ":" + target.getPort());
+        if (pool == null) {
+            pool = poolsByHost.get(host);
+        }
+        return pool == null ? defaultPool : pool;
+    }
+
+    /**
+     * Returns the maximum number of connections to the given host, given as
+     * "host" or "host:port"; or the default maximum per route of the pool
+     * serving it if the host has no limit of its own.
+     */
+    public int getMaxConnectionsPerHost(String host) {
+        final String key = host.trim().toLowerCase(Locale.ENGLISH);
+        final String hostName = key.indexOf(':') > 0 ? key.substring(0, key.indexOf(':')) : key;
+        Integer limit = hostLimits.get(key);
+        if (limit == null) {
+            limit = hostLimits.get(hostName);
+        }
+        if (limit != null) {
+            return limit;
+        }
+        PoolingHttpClientConnectionManager pool = poolsByHost.get(key);
+        if (pool == null) {
+            pool = poolsByHost.get(hostName);
+        }
+        return (pool == null ? defaultPool : pool).getDefaultMaxPerRoute();
+    }
+
+    /**
+     * Sets the maximum number of connections to the given host, given as
+     * "host" for any port or "host:port", within the pool serving it.
+     */
+    public void setMaxConnectionsPerHost(String host, int max) {
+        if (max <= 0) {
+            throw new IllegalArgumentException("Invalid maximum number of connections " + max
+                    + " for host " + host);
+        }
+        hostLimits.put(host.trim().toLowerCase(Locale.ENGLISH), max);
+        for (HttpRoute route : getRoutes()) {
+            applyHostLimit(route);
+        }
+    }
+
+    private void applyHostLimit(HttpRoute route) {
+        final HttpHost target = route.getTargetHost();
+        final String host = target.getHostName().toLowerCase(Locale.ENGLISH);
+        Integer limit = hostLimits.get(host + ":" + target.getPort());
+        if (limit == null) {
+            limit = hostLimits.get(host);
+        }
+        if (limit != null && !limit.equals(routeLimits.put(route, limit))) {
+            poolFor(route).setMaxPerRoute(route, limit);
+        }
+    }
+
+    /** Returns the routes of all the pools. */
+    public Set<HttpRoute> getRoutes() {
+        Set<HttpRoute> routes = new LinkedHashSet<HttpRoute>(defaultPool.getRoutes());
+        for (PoolingHttpClientConnectionManager pool : groupPools.values()) {
+            routes.addAll(pool.getRoutes());
+        }
+        return routes;
+    }
+
+    @Override
+    public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+        final PoolingHttpClientConnectionManager pool = poolFor(route);
+        if (!hostLimits.isEmpty()) {
+            applyHostLimit(route);
+        }
+        final ConnectionRequest request = pool.requestConnection(route, state);
+        return new ConnectionRequest() {
+            @Override
+            public HttpClientConnection get(long timeout, TimeUnit tunit)
+                    throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+                HttpClientConnection conn = request.get(timeout, tunit);
+                leases.put(conn, pool);
+                return conn;
+            }
+
+            @Override
+            public boolean cancel() {
+                return request.cancel();
+            }
+        };
+    }
+
+    @Override
+    public void releaseConnection(HttpClientConnection conn, Object newState, long validDuration,
+                                  TimeUnit timeUnit) {
+        PoolingHttpClientConnectionManager pool = leases.remove(conn);
+        (pool == null ? defaultPool : pool).releaseConnection(conn, newState, validDuration, timeUnit);
+    }
+
+    @Override
+    public void connect(HttpClientConnection conn, HttpRoute route, int connectTimeout, HttpContext context)
+            throws IOException {
+        poolFor(route).connect(conn, route, connectTimeout, context);
+    }
+
+    @Override
+    public void upgrade(HttpClientConnection conn, HttpRoute route, HttpContext context) throws IOException {
+        poolFor(route).upgrade(conn, route, context);
+    }
+
+    @Override
+    public void routeComplete(HttpClientConnection conn, HttpRoute route, HttpContext context)
+            throws IOException {
+        poolFor(route).routeComplete(conn, route, context);
+    }
+
+    @Override
+    public void closeIdleConnections(long idletime, TimeUnit tunit) {
+        defaultPool.closeIdleConnections(idletime, tunit);
+        for (PoolingHttpClientConnectionManager pool : groupPools.values()) {
+            pool.closeIdleConnections(idletime, tunit);
+        }
+    }
+
+    @Override
+    public void closeExpiredConnections() {
+        defaultPool.closeExpiredConnections();
+        for (PoolingHttpClientConnectionManager pool : groupPools.values()) {
+            pool.closeExpiredConnections();
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        defaultPool.shutdown();
+        for (PoolingHttpClientConnectionManager pool : groupPools.values()) {
+            pool.shutdown();
+        }
+    }
+
+    @Override
+    public void setMaxTotal(int max) {
+        defaultPool.setMaxTotal(max);
+    }
+
+    @Override
+    public int getMaxTotal() {
+        return defaultPool.getMaxTotal();
+    }
+
+    @Override
+    public void setDefaultMaxPerRoute(int max) {
+        defaultPool.setDefaultMaxPerRoute(max);
+    }
+
+    @Override
+    public int getDefaultMaxPerRoute() {
+        return defaultPool.getDefaultMaxPerRoute();
+    }
+
+    @Override
+    public void setMaxPerRoute(HttpRoute route, int max) {
+        poolFor(route).setMaxPerRoute(route, max);
+    }
+
+    @Override
+    public int getMaxPerRoute(HttpRoute route) {
+        return poolFor(route).getMaxPerRoute(route);
+    }
+
+    @Override
+    public PoolStats getTotalStats() {
+        PoolStats stats = defaultPool.getTotalStats();
+        int leased = stats.getLeased();
+        int pending = stats.getPending();
+        int available = stats.getAvailable();
+        int max = stats.getMax();
+        for (PoolingHttpClientConnectionManager pool : groupPools.values()) {
+            stats = pool.getTotalStats();
+            leased += stats.getLeased();
+            pending += stats.getPending();
+            available += stats.getAvailable();
+            max += stats.getMax();
+        }
+        return new PoolStats(leased, pending, available, max);
+    }
+
+    @Override
+    public PoolStats getStats(HttpRoute route) {
+        return poolFor(route).getStats(route);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.http.conn;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.protocol.HttpContext;
+
+import com.ksc.annotation.SdkInternalApi;
+import com.ksc.annotation.ThreadSafe;
+
+/**
+ * Stands for the connections of an http client which are managed by the JDK
+ * rather than leased from a pool. Connections can't be requested from it; it
+ * only records whether the client has been shut down.
+ */
+@SdkInternalApi
+@ThreadSafe
+public class UnpooledConnectionManager implements HttpClientConnectionManager {
+
+    private volatile boolean shutdown;
+
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+        throw unsupported();
+    }
+
+    @Override
+    public void releaseConnection(HttpClientConnection conn, Object newState, long validDuration,
+                                  TimeUnit timeUnit) {
+        throw unsupported();
+    }
+
+    @Override
+    public void connect(HttpClientConnection conn, HttpRoute route, int connectTimeout,
+                        HttpContext context) {
+        throw unsupported();
+    }
+
+    @Override
+    public void upgrade(HttpClientConnection conn, HttpRoute route, HttpContext context) {
+        throw unsupported();
+    }
+
+    @Override
+    public void routeComplete(HttpClientConnection conn, HttpRoute route, HttpContext context) {
+        throw unsupported();
+    }
+
+    @Override
+    public void closeIdleConnections(long idletime, TimeUnit tunit) {
+        // the JDK closes the connections it keeps alive by itself
+    }
+
+    @Override
+    public void closeExpiredConnections() {
+        // the JDK closes the connections it keeps alive by itself
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+    }
+
+    private static UnsupportedOperationException unsupported() {
+        return new UnsupportedOperationException(
+                "The connections of this http client are managed by the JDK");
+    }
+}
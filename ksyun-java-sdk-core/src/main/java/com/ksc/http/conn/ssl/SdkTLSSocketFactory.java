@@ -19,7 +19,11 @@ import com.ksc.internal.SdkSSLMetricsSocket;
 import com.ksc.internal.SdkSSLSocket;
 import com.ksc.internal.SdkSocket;
 import com.ksc.metrics.KscSdkMetrics;
+import com.ksc.metrics.ServiceMetricCollector;
+import com.ksc.metrics.TlsHandshakeProvider;
 import com.ksc.util.JavaVersionParser;
+import com.ksc.util.KscRequestMetrics;
+import com.ksc.util.KscRequestMetrics.Field;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -42,6 +46,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Used to enforce the preferred TLS protocol during SSL handshake.
@@ -154,6 +159,57 @@ public class SdkTLSSocketFactory extends SSLConnectionSocketFactory {
         return KscSdkMetrics.isHttpSocketReadMetricEnabled() ? new SdkMetricsSocket(sdkSocket) : sdkSocket;
     }
 
+    /**
+     * {@inheritDoc} Records the duration of the TLS handshake, and whether it
+     * resumed a session cached from an earlier connection to the same host,
+     * in the metrics of the request being executed if any and in the service
+     * metrics.
+     */
+    @Override
+    public Socket createLayeredSocket(
+            final Socket socket,
+            final String target,
+            final int port,
+            final HttpContext context) throws IOException {
+        final KscRequestMetrics requestMetrics = context == null ? null
+                : (KscRequestMetrics) context.getAttribute(KscRequestMetrics.class.getSimpleName());
+        // Sessions only have a millisecond creation time, which is all that
+        // tells a resumed session from a new one
+        final long startMillis = System.currentTimeMillis();
+        final long startNano = System.nanoTime();
+        final Socket layeredSocket;
+        if (requestMetrics != null) {
+            requestMetrics.startEvent(Field.TlsHandshakeTime);
+        }
+        try {
+            layeredSocket = super.createLayeredSocket(socket, target, port, context);
+        } finally {
+            if (requestMetrics != null) {
+                requestMetrics.endEvent(Field.TlsHandshakeTime);
+            }
+        }
+        final long endNano = System.nanoTime();
+        if (layeredSocket instanceof SSLSocket) {
+            final SSLSession session = ((SSLSocket) layeredSocket).getSession();
+            final boolean resumed = session.getCreationTime() < startMillis;
+            if (requestMetrics != null) {
+                requestMetrics.incrementCounter(
+                        resumed ? Field.TlsResumedHandshakeCount : Field.TlsFullHandshakeCount);
+            }
+            final ServiceMetricCollector collector = KscSdkMetrics.getServiceMetricCollector();
+            if (collector.isEnabled()) {
+                collector.collectTlsHandshake(new TlsHandshakeProvider(
+                        target, port, session.getProtocol(), resumed, startNano, endNano));
+            }
+            if (LOG.isDebugEnabled()) {
+                LOG.debug((resumed ? "Resumed TLS session with " : "Negotiated new TLS session with ")
+                        + target + ":" + port + " in "
+                        + TimeUnit.NANOSECONDS.toMillis(endNano - startNano) + " ms");
+            }
+        }
+        return layeredSocket;
+    }
+
     /**
      * Invalidates all SSL/TLS sessions in {@code sessionContext} associated with {@code remoteAddress}.
      *
@@ -0,0 +1,390 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.http.http2;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.ProxySelector;
+import java.net.SocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.net.ssl.SSLContext;
+
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.impl.EnglishReasonPhraseCatalog;
+import org.apache.http.message.BasicHttpRequest;
+import org.apache.http.protocol.BasicHttpContext;
+
+import com.ksc.annotation.ThreadSafe;
+import com.ksc.http.apache.SdkProxyRoutePlanner;
+import com.ksc.http.client.HttpTransport;
+import com.ksc.http.client.HttpTransportRequest;
+import com.ksc.http.client.HttpTransportResponse;
+import com.ksc.http.settings.HttpClientSettings;
+import com.ksc.http.timers.HashedWheelTimer;
+import com.ksc.internal.SdkSSLContext;
+import com.ksc.jmx.spi.SdkMBeanRegistry;
+import com.ksc.metrics.Http2StreamMetrics;
+import com.ksc.util.KscRequestMetrics;
+import com.ksc.util.KscRequestMetrics.Field;
+
+/**
+ * A transport which sends the requests with the {@code java.net.http}
+ * client of the JDK. Aborting a request cancels its exchange and closes the
+ * content of its response, if received, which cancels its stream.
+ * <p>
+ * The timeout of a request only bounds the wait for its response headers in
+ * the JDK, so the socket timeout is also enforced on each read of the content
+ * of the response: a watchdog on the shared {@link HashedWheelTimer} closes
+ * the content once a read has waited for longer than the timeout, and the
+ * read fails with a {@link SocketTimeoutException}.
+ * <p>
+ * Before Java 16, cancelling the future of an exchange does not abort the
+ * exchange itself: a request aborted before its response headers arrive
+ * stops being waited for, but the JDK goes on with the exchange in the
+ * background and its response is dropped unread.
+ *
+ * @see Http2HttpTransportFactory
+ */
+@ThreadSafe
+class Http2HttpTransport implements HttpTransport {
+
+    private static final String MBEAN_OBJECT_NAME_PREFIX = "com.ksc.management:type=Http2Streams,name=client-";
+    private static final AtomicInteger clientIds = new AtomicInteger();
+
+    /**
+     * Request headers which the JDK rejects, most of which it sets itself.
+     * Date is not sent, which signers signing the X-Amz-Date header rather
+     * than Date are not affected by.
+     */
+    private static final Set<String> RESTRICTED_HEADERS = new HashSet<String>(Arrays.asList(
+            "host", "content-length", "transfer-encoding", "connection", "expect", "upgrade", "date"));
+
+    private final Object client;
+    private final Http2StreamMetrics metrics = new Http2StreamMetrics();
+    private final String objectName;
+    private final boolean registered;
+    private final AtomicBoolean shutdown = new AtomicBoolean();
+
+    Http2HttpTransport(HttpClientSettings settings) {
+        final SSLContext sslContext = SdkSSLContext.getPreferredSSLContext(settings.getSecureRandom(),
+                settings.getTlsSessionCacheSize(), settings.getTlsSessionTimeoutSeconds());
+        this.client = JavaNetHttp.newClient(settings.getConnectionTimeout(), proxySelectorOf(settings),
+                sslContext);
+        this.objectName = MBEAN_OBJECT_NAME_PREFIX + clientIds.incrementAndGet();
+        this.registered = SdkMBeanRegistry.Factory.registerMBean(objectName, metrics);
+    }
+
+    /**
+     * Returns the proxy selector following the proxy settings; or null if no
+     * proxy is configured.
+     */
+    private static ProxySelector proxySelectorOf(HttpClientSettings settings) {
+        if (settings.getProxyHost() == null || settings.getProxyPort() <= 0) {
+            return null;
+        }
+        final SdkProxyRoutePlanner routePlanner = new SdkProxyRoutePlanner(settings.getProxyHost(),
+                settings.getProxyPort(), settings.getNonProxyHosts());
+        return new ProxySelector() {
+            @Override
+            public List<Proxy> select(URI uri) {
+                final HttpHost target = new HttpHost(uri.getHost(), uri.getPort(), uri.getScheme());
+                final HttpHost proxy;
+                try {
+                    proxy = routePlanner.determineRoute(target, new BasicHttpRequest("GET", "/"),
+                            new BasicHttpContext()).getProxyHost();
+                } catch (HttpException e) {
+                    throw new IllegalArgumentException(e);
+                }
+                return Collections.singletonList(proxy == null ? Proxy.NO_PROXY
+                        : new Proxy(Proxy.Type.HTTP, new InetSocketAddress(proxy.getHostName(), proxy.getPort())));
+            }
+
+            @Override
+            public void connectFailed(URI uri, SocketAddress sa, IOException ioe) {
+                // nothing to remember
+            }
+        };
+    }
+
+    @Override
+    public HttpTransportResponse execute(HttpTransportRequest request) throws IOException {
+        if (shutdown.get()) {
+            throw new IllegalStateException("Transport shut down");
+        }
+        final KscRequestMetrics requestMetrics = request.getRequestMetrics();
+        final Object jdkRequest = newRequest(request);
+
+        requestMetrics.setCounter(Field.Http2ActiveStreamCount, metrics.streamOpened());
+        boolean streamOpen = false;
+        try {
+            requestMetrics.startEvent(Field.HttpClientReceiveResponseTime);
+            final Object jdkResponse;
+            final AtomicReference<InputStream> content = new AtomicReference<InputStream>();
+            try {
+                final Future<Object> future = JavaNetHttp.sendAsync(client, jdkRequest);
+                request.setAbortHandler(new Runnable() {
+                    @Override
+                    public void run() {
+                        future.cancel(true);
+                        final InputStream in = content.get();
+                        if (in != null) {
+                            try {
+                                in.close();
+                            } catch (IOException ignored) {
+                                // the stream is cancelled anyway
+                            }
+                        }
+                    }
+                });
+                jdkResponse = waitFor(future);
+            } finally {
+                requestMetrics.endEvent(Field.HttpClientReceiveResponseTime);
+            }
+            final HttpTransportResponse response = newResponse(request, jdkResponse, content);
+            streamOpen = response.getContent() != null;
+            return response;
+        } finally {
+            if (!streamOpen) {
+                metrics.streamClosed();
+            }
+        }
+    }
+
+    private static Object newRequest(HttpTransportRequest request) throws IOException {
+        final List<String[]> headers = new ArrayList<String[]>();
+        for (Map.Entry<String, List<String>> header : request.getHeaders().entrySet()) {
+            if (RESTRICTED_HEADERS.contains(header.getKey().toLowerCase(Locale.ENGLISH))) {
+                continue;
+            }
+            for (String value : header.getValue()) {
+                headers.add(new String[] {header.getKey(), value});
+            }
+        }
+        final HttpTransportRequest.Content content = request.getContent();
+        final JavaNetHttp.BodySupplier body = content == null ? null : new JavaNetHttp.BodySupplier() {
+            @Override
+            public InputStream get() {
+                try {
+                    return content.getStream();
+                } catch (IOException e) {
+                    throw new IllegalStateException("Unable to read the request content", e);
+                }
+            }
+        };
+        try {
+            return JavaNetHttp.newRequest(request.getUri(), request.getMethod(), headers, body,
+                    content == null ? 0 : content.getLength(), request.getSocketTimeoutMillis());
+        } catch (IllegalArgumentException e) {
+            // eg a header the JDK does not allow
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    private static Object waitFor(Future<Object> future) throws IOException {
+        try {
+            return future.get();
+        } catch (CancellationException e) {
+            throw new InterruptedIOException("Request aborted");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            final InterruptedIOException interrupted = new InterruptedIOException("Request interrupted");
+            interrupted.initCause(e);
+            throw interrupted;
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private HttpTransportResponse newResponse(HttpTransportRequest request, Object jdkResponse,
+                                              AtomicReference<InputStream> content) {
+        final int statusCode = JavaNetHttp.statusCode(jdkResponse);
+        final boolean http2 = JavaNetHttp.isHttp2(jdkResponse);
+        metrics.responseReceived(request.getUri().getHost(), http2);
+        if (http2) {
+            request.getRequestMetrics().incrementCounter(Field.Http2ResponseCount);
+        }
+
+        final Map<String, List<String>> headers = new LinkedHashMap<String, List<String>>();
+        for (Map.Entry<String, List<String>> header : JavaNetHttp.headers(jdkResponse).entrySet()) {
+            // Skip the HTTP/2 pseudo headers such as :status
+            if (!header.getKey().startsWith(":")) {
+                headers.put(header.getKey(), header.getValue());
+            }
+        }
+        final InputStream body = JavaNetHttp.body(jdkResponse);
+        final StreamInputStream streamContent = body == null ? null
+                : new StreamInputStream(body, request.getSocketTimeoutMillis());
+        content.set(streamContent);
+        // An abort between the arrival of the response and the line above
+        // found no content to close
+        if (streamContent != null && request.isAborted()) {
+            streamContent.closeQuietly();
+        }
+        return new HttpTransportResponse(http2 ? "HTTP/2.0" : "HTTP/1.1", statusCode,
+                EnglishReasonPhraseCatalog.INSTANCE.getReason(statusCode, Locale.ENGLISH), headers,
+                streamContent);
+    }
+
+    @Override
+    public void shutdown() {
+        if (!shutdown.compareAndSet(false, true)) {
+            return;
+        }
+        if (registered) {
+            SdkMBeanRegistry.Factory.getMBeanRegistry().unregisterMBean(objectName);
+        }
+        JavaNetHttp.shutdownNow(client);
+    }
+
+    /**
+     * The content of a response, which marks its stream closed once closed,
+     * and which is closed by a watchdog when a read waits for data for longer
+     * than the socket timeout.
+     */
+    private final class StreamInputStream extends FilterInputStream {
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final long readTimeoutNanos;
+
+        /** When the pending read started; or zero if no read is pending. */
+        private volatile long readStartNanos;
+        private volatile boolean timedOut;
+        private volatile HashedWheelTimer.Timeout watchdog;
+
+        StreamInputStream(InputStream in, int readTimeoutMillis) {
+            super(in);
+            this.readTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(readTimeoutMillis);
+            if (readTimeoutNanos > 0) {
+                watch(readTimeoutNanos);
+            }
+        }
+
+        /**
+         * Checks the pending read after the given delay. The watchdog
+         * reschedules itself rather than each read scheduling a timeout, so
+         * that reads only cost a volatile write.
+         */
+        private void watch(long delayNanos) {
+            watchdog = HashedWheelTimer.getSharedTimer().schedule(new Runnable() {
+                @Override
+                public void run() {
+                    if (closed.get()) {
+                        return;
+                    }
+                    final long start = readStartNanos;
+                    final long waited = start == 0 ? 0 : System.nanoTime() - start;
+                    if (waited >= readTimeoutNanos) {
+                        timedOut = true;
+                        closeQuietly();
+                    } else {
+                        watch(readTimeoutNanos - waited);
+                    }
+                }
+            }, delayNanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int read() throws IOException {
+            readStartNanos = System.nanoTime();
+            try {
+                return super.read();
+            } catch (IOException e) {
+                throw timedOut ? readTimedOut(e) : e;
+            } finally {
+                readStartNanos = 0;
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            readStartNanos = System.nanoTime();
+            try {
+                return super.read(b, off, len);
+            } catch (IOException e) {
+                throw timedOut ? readTimedOut(e) : e;
+            } finally {
+                readStartNanos = 0;
+            }
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            readStartNanos = System.nanoTime();
+            try {
+                return super.skip(n);
+            } catch (IOException e) {
+                throw timedOut ? readTimedOut(e) : e;
+            } finally {
+                readStartNanos = 0;
+            }
+        }
+
+        private SocketTimeoutException readTimedOut(IOException cause) {
+            final SocketTimeoutException timeout = new SocketTimeoutException("Read timed out");
+            timeout.initCause(cause);
+            return timeout;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed.compareAndSet(false, true)) {
+                metrics.streamClosed();
+                final HashedWheelTimer.Timeout timeout = watchdog;
+                if (timeout != null) {
+                    timeout.cancel();
+                }
+            }
+            super.close();
+        }
+
+        void closeQuietly() {
+            try {
+                close();
+            } catch (IOException ignored) {
+                // the stream is cancelled anyway
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.http.http2;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.ksc.ClientConfiguration;
+import com.ksc.http.client.HttpTransport;
+import com.ksc.http.client.HttpTransportFactory;
+import com.ksc.http.settings.HttpClientSettings;
+import com.ksc.http.urlconnection.UrlConnectionHttpTransportFactory;
+
+/**
+ * Factory of transports which multiplex the requests to each host over a
+ * single HTTP/2 connection, for workloads with many concurrent requests,
+ * which would otherwise each need a connection of their own. To use it, set
+ * it with {@link ClientConfiguration#setHttpTransportFactory}.
+ * <p>
+ * The requests are sent with the {@code java.net.http} client of the JDK,
+ * which negotiates HTTP/2 with ALPN over TLS, or with an upgrade for plain
+ * http, and applies the stream level flow control of the protocol; it falls
+ * back to HTTP/1.1 with the servers which do not support HTTP/2. The number
+ * of requests in flight and the hosts spoken to over HTTP/2 are exposed by
+ * an MBean named {@code com.ksc.management:type=Http2Streams,name=client-N},
+ * and recorded in the request metrics as
+ * {@link com.ksc.util.KscRequestMetrics.Field#Http2ActiveStreamCount} and
+ * {@link com.ksc.util.KscRequestMetrics.Field#Http2ResponseCount}.
+ * <p>
+ * The socket timeout bounds the wait for the response headers and each read
+ * of the response content, as it does with the other transports. Shutting a
+ * transport down stops the JDK client and its selector thread from Java 21;
+ * before, they are only released once the transport is unreachable.
+ * <p>
+ * The JDK does not let the {@code Date} request header be set, so it is not
+ * sent. The signers of the SDK sign the {@code X-Amz-Date} header, which
+ * carries the same value, but a custom signer signing {@code Date} itself
+ * can't be used with this transport. Aborting a request before its response
+ * headers arrive only abandons the exchange before Java 16, which the JDK
+ * completes in the background.
+ * <p>
+ * {@code java.net.http} requires Java 11 or later, so it is called through
+ * reflection, which keeps the SDK itself buildable and usable on older
+ * versions of Java; there, the transports created by this factory fall back
+ * to HTTP/1.1 with the {@link UrlConnectionHttpTransportFactory}. In both
+ * cases, the connection pool settings of the client configuration, the idle
+ * connection reaper, the warm-up of connections, the pool metrics, the SSL
+ * socket factory of the Apache http client configuration, the local address
+ * and the proxy authentication do not apply.
+ */
+public class Http2HttpTransportFactory implements HttpTransportFactory {
+
+    private static final Log LOG = LogFactory.getLog(Http2HttpTransportFactory.class);
+
+    @Override
+    public HttpTransport create(HttpClientSettings settings) {
+        if (JavaNetHttp.isAvailable()) {
+            return new Http2HttpTransport(settings);
+        }
+        LOG.warn("HTTP/2 requires java.net.http, which is only available on Java 11 and later; "
+                + "falling back to HTTP/1.1");
+        return new UrlConnectionHttpTransportFactory().create(settings);
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.http.http2;
+
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+import javax.net.ssl.SSLContext;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Calls the {@code java.net.http} client of Java 11 and later through
+ * reflection, since the SDK is built for older versions of Java.
+ */
+final class JavaNetHttp {
+
+    private static final Log LOG = LogFactory.getLog(JavaNetHttp.class);
+
+    private static final Api API = loadApi();
+
+    private JavaNetHttp() {
+    }
+
+    /**
+     * Returns true if the {@code java.net.http} client is available in this
+     * JVM; false otherwise.
+     */
+    static boolean isAvailable() {
+        return API != null;
+    }
+
+    /**
+     * Returns a new client preferring HTTP/2, which never follows redirects.
+     *
+     * @param connectTimeoutMillis the connect timeout, or a non-positive value for none.
+     */
+    static Object newClient(int connectTimeoutMillis, ProxySelector proxySelector, SSLContext sslContext) {
+        Object builder = invoke(API.clientNewBuilder, null);
+        builder = invoke(API.clientBuilderVersion, builder, API.versionHttp2);
+        builder = invoke(API.clientBuilderFollowRedirects, builder, API.redirectNever);
+        if (connectTimeoutMillis > 0) {
+            builder = invoke(API.clientBuilderConnectTimeout, builder, duration(connectTimeoutMillis));
+        }
+        if (proxySelector != null) {
+            builder = invoke(API.clientBuilderProxy, builder, proxySelector);
+        }
+        if (sslContext != null) {
+            builder = invoke(API.clientBuilderSslContext, builder, sslContext);
+        }
+        return invoke(API.clientBuilderBuild, builder);
+    }
+
+    /**
+     * Returns a new request.
+     *
+     * @param headers the headers of the request, as name and value pairs.
+     * @param body the body of the request, or null for none.
+     * @param contentLength the length of the body, or a negative value if unknown.
+     * @param timeoutMillis the time to wait for the response headers, or a non-positive value for no limit.
+     */
+    static Object newRequest(URI uri, String method, List<String[]> headers, BodySupplier body,
+                             long contentLength, int timeoutMillis) {
+        Object builder = invoke(API.requestNewBuilder, null, uri);
+        for (String[] header : headers) {
+            builder = invoke(API.requestBuilderHeader, builder, header[0], header[1]);
+        }
+        if (timeoutMillis > 0) {
+            builder = invoke(API.requestBuilderTimeout, builder, duration(timeoutMillis));
+        }
+        builder = invoke(API.requestBuilderMethod, builder, method, bodyPublisher(body, contentLength));
+        return invoke(API.requestBuilderBuild, builder);
+    }
+
+    /**
+     * Sends the given request, returning a future completed with the response
+     * once its headers have been received; the body of the response is then
+     * read as an input stream.
+     */
+    @SuppressWarnings("unchecked")
+    static Future<Object> sendAsync(Object client, Object request) {
+        return (Future<Object>) invoke(API.clientSendAsync, client, request,
+                invoke(API.bodyHandlersOfInputStream, null));
+    }
+
+    /**
+     * Shuts the client down, aborting its exchanges in flight and stopping
+     * its selector thread, if the JDK supports it, which it does from Java
+     * 21; before, the client and its thread only go once it is unreachable.
+     * {@code shutdownNow} rather than {@code close}, which waits for the
+     * exchanges in flight, including those whose response is never read.
+     */
+    static void shutdownNow(Object client) {
+        if (API.clientShutdownNow != null) {
+            invoke(API.clientShutdownNow, client);
+        }
+    }
+
+    static int statusCode(Object response) {
+        return (Integer) invoke(API.responseStatusCode, response);
+    }
+
+    @SuppressWarnings("unchecked")
+    static Map<String, List<String>> headers(Object response) {
+        return (Map<String, List<String>>) invoke(API.headersMap, invoke(API.responseHeaders, response));
+    }
+
+    static InputStream body(Object response) {
+        return (InputStream) invoke(API.responseBody, response);
+    }
+
+    /**
+     * Returns true if the response was received over HTTP/2; false if the
+     * client fell back to HTTP/1.1.
+     */
+    static boolean isHttp2(Object response) {
+        return API.versionHttp2 == invoke(API.responseVersion, response);
+    }
+
+    /** Supplies the body of a request; called again if the request is resent. */
+    interface BodySupplier {
+        InputStream get();
+    }
+
+    private static Object bodyPublisher(final BodySupplier body, long contentLength) {
+        if (body == null || contentLength == 0) {
+            return invoke(API.bodyPublishersNoBody, null);
+        }
+        final Object supplier = Proxy.newProxyInstance(JavaNetHttp.class.getClassLoader(),
+                new Class<?>[] {API.supplierClass}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if ("get".equals(method.getName())) {
+                            return body.get();
+                        } else if ("hashCode".equals(method.getName())) {
+                            return System.identityHashCode(proxy);
+                        } else if ("equals".equals(method.getName())) {
+                            return proxy == args[0];
+                        }
+                        return body.toString();
+                    }
+                });
+        final Object publisher = invoke(API.bodyPublishersOfInputStream, null, supplier);
+        return contentLength < 0 ? publisher
+                : invoke(API.bodyPublishersFromPublisher, null, publisher, contentLength);
+    }
+
+    private static Object duration(long millis) {
+        return invoke(API.durationOfMillis, null, millis);
+    }
+
+    private static Object invoke(Method method, Object target, Object... args) {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Api loadApi() {
+        try {
+            return new Api();
+        } catch (ClassNotFoundException e) {
+            LOG.debug("java.net.http is not available in this JVM");
+        } catch (Exception e) {
+            LOG.warn("Unable to load java.net.http", e);
+        }
+        return null;
+    }
+
+    /**
+     * The members of {@code java.net.http} used by the SDK, looked up on the
+     * exported API types so that they can be invoked on the implementation
+     * classes.
+     */
+    private static final class Api {
+        final Class<?> supplierClass;
+        final Object versionHttp2;
+        final Object redirectNever;
+        final Method durationOfMillis;
+        final Method clientNewBuilder;
+        final Method clientBuilderVersion;
+        final Method clientBuilderFollowRedirects;
+        final Method clientBuilderConnectTimeout;
+        final Method clientBuilderProxy;
+        final Method clientBuilderSslContext;
+        final Method clientBuilderBuild;
+        final Method clientSendAsync;
+        /** Null before Java 21. */
+        final Method clientShutdownNow;
+        final Method requestNewBuilder;
+        final Method requestBuilderHeader;
+        final Method requestBuilderTimeout;
+        final Method requestBuilderMethod;
+        final Method requestBuilderBuild;
+        final Method bodyPublishersNoBody;
+        final Method bodyPublishersOfInputStream;
+        final Method bodyPublishersFromPublisher;
+        final Method bodyHandlersOfInputStream;
+        final Method responseStatusCode;
+        final Method responseHeaders;
+        final Method responseBody;
+        final Method responseVersion;
+        final Method headersMap;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Api() throws Exception {
+            final Class<?> client = Class.forName("java.net.http.HttpClient");
+            final Class<?> clientBuilder = Class.forName("java.net.http.HttpClient$Builder");
+            final Class<?> version = Class.forName("java.net.http.HttpClient$Version");
+            final Class<?> redirect = Class.forName("java.net.http.HttpClient$Redirect");
+            final Class<?> request = Class.forName("java.net.http.HttpRequest");
+            final Class<?> requestBuilder = Class.forName("java.net.http.HttpRequest$Builder");
+            final Class<?> bodyPublisher = Class.forName("java.net.http.HttpRequest$BodyPublisher");
+            final Class<?> bodyPublishers = Class.forName("java.net.http.HttpRequest$BodyPublishers");
+            final Class<?> response = Class.forName("java.net.http.HttpResponse");
+            final Class<?> bodyHandler = Class.forName("java.net.http.HttpResponse$BodyHandler");
+            final Class<?> bodyHandlers = Class.forName("java.net.http.HttpResponse$BodyHandlers");
+            final Class<?> headers = Class.forName("java.net.http.HttpHeaders");
+            final Class<?> duration = Class.forName("java.time.Duration");
+            final Class<?> flowPublisher = Class.forName("java.util.concurrent.Flow$Publisher");
+
+            supplierClass = Class.forName("java.util.function.Supplier");
+            versionHttp2 = Enum.valueOf((Class<? extends Enum>) version, "HTTP_2");
+            redirectNever = Enum.valueOf((Class<? extends Enum>) redirect, "NEVER");
+            durationOfMillis = duration.getMethod("ofMillis", long.class);
+
+            clientNewBuilder = client.getMethod("newBuilder");
+            clientBuilderVersion = clientBuilder.getMethod("version", version);
+            clientBuilderFollowRedirects = clientBuilder.getMethod("followRedirects", redirect);
+            clientBuilderConnectTimeout = clientBuilder.getMethod("connectTimeout", duration);
+            clientBuilderProxy = clientBuilder.getMethod("proxy", ProxySelector.class);
+            clientBuilderSslContext = clientBuilder.getMethod("sslContext", SSLContext.class);
+            clientBuilderBuild = clientBuilder.getMethod("build");
+            clientSendAsync = client.getMethod("sendAsync", request, bodyHandler);
+            clientShutdownNow = optionalMethod(client, "shutdownNow");
+
+            requestNewBuilder = request.getMethod("newBuilder", URI.class);
+            requestBuilderHeader = requestBuilder.getMethod("header", String.class, String.class);
+            requestBuilderTimeout = requestBuilder.getMethod("timeout", duration);
+            requestBuilderMethod = requestBuilder.getMethod("method", String.class, bodyPublisher);
+            requestBuilderBuild = requestBuilder.getMethod("build");
+
+            bodyPublishersNoBody = bodyPublishers.getMethod("noBody");
+            bodyPublishersOfInputStream = bodyPublishers.getMethod("ofInputStream", supplierClass);
+            bodyPublishersFromPublisher = bodyPublishers.getMethod("fromPublisher", flowPublisher, long.class);
+            bodyHandlersOfInputStream = bodyHandlers.getMethod("ofInputStream");
+
+            responseStatusCode = response.getMethod("statusCode");
+            responseHeaders = response.getMethod("headers");
+            responseBody = response.getMethod("body");
+            responseVersion = response.getMethod("version");
+            headersMap = headers.getMethod("map");
+        }
+
+        private static Method optionalMethod(Class<?> type, String name) {
+            try {
+                return type.getMethod(name);
+            } catch (NoSuchMethodException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -25,6 +25,7 @@ import org.apache.http.conn.ManagedHttpClientConnection;
 import org.apache.http.protocol.HttpContext;
 import org.apache.http.protocol.HttpRequestExecutor;
 
+import com.ksc.internal.MetricsInputStream;
 import com.ksc.internal.SdkMetricsSocket;
 import com.ksc.internal.SdkSSLMetricsSocket;
 import com.ksc.util.KscRequestMetrics;
@@ -50,12 +51,20 @@ public class SdkHttpRequestExecutor extends HttpRequestExecutor {
         if (conn instanceof ManagedHttpClientConnection) {
             ManagedHttpClientConnection managedConn = (ManagedHttpClientConnection)conn;
             Socket sock = managedConn.getSocket();
+            MetricsInputStream metricsIS = null;
             if (sock instanceof SdkMetricsSocket) {
                 SdkMetricsSocket sdkMetricsSocket = (SdkMetricsSocket)sock;
                 sdkMetricsSocket.setMetrics(awsRequestMetrics);
+                metricsIS = sdkMetricsSocket.getMetricsInputStream();
             } else if (sock instanceof SdkSSLMetricsSocket) {
                 SdkSSLMetricsSocket sdkSSLMetricsSocket = (SdkSSLMetricsSocket)sock;
                 sdkSSLMetricsSocket.setMetrics(awsRequestMetrics);
+                metricsIS = sdkSSLMetricsSocket.getMetricsInputStream();
+            }
+            if (metricsIS != null && metricsIS.isAggregated()) {
+                // Let the caller flush the summary once the response is consumed
+                context.setAttribute(MetricsInputStream.ReadSummary.class.getSimpleName(),
+                        metricsIS.getReadSummary());
             }
         }
         awsRequestMetrics.startEvent(Field.HttpClientSendRequestTime);
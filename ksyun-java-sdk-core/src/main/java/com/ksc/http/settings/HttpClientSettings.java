@@ -16,9 +16,12 @@ package com.ksc.http.settings;
 
 import java.net.InetAddress;
 import java.security.SecureRandom;
+import java.util.List;
+import java.util.Map;
 
 import com.ksc.ApacheHttpClientConfig;
 import com.ksc.ClientConfiguration;
+import com.ksc.ConnectionPoolGroup;
 import com.ksc.DnsResolver;
 import com.ksc.annotation.SdkInternalApi;
 import com.ksc.util.ValidationUtils;
@@ -145,4 +148,28 @@ public class HttpClientSettings {
         return config.isUseExpectContinue();
     }
 
+    public long getConnectionPoolSamplingIntervalMillis() {
+        return config.getConnectionPoolSamplingIntervalMillis();
+    }
+
+    public Map<String, Integer> getMaxConnectionsPerHost() {
+        return config.getMaxConnectionsPerHost();
+    }
+
+    public List<ConnectionPoolGroup> getConnectionPoolGroups() {
+        return config.getConnectionPoolGroups();
+    }
+
+    public int getValidateAfterInactivityMillis() {
+        return config.getValidateAfterInactivityMillis();
+    }
+
+    public int getTlsSessionCacheSize() {
+        return config.getTlsSessionCacheSize();
+    }
+
+    public int getTlsSessionTimeoutSeconds() {
+        return config.getTlsSessionTimeoutSeconds();
+    }
+
 }
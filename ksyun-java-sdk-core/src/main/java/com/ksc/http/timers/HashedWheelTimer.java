@@ -0,0 +1,404 @@
+/*
+ * Copyright 2015-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.http.timers;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.concurrent.Cancellable;
+
+import com.ksc.SDKGlobalConfiguration;
+import com.ksc.annotation.SdkInternalApi;
+import com.ksc.annotation.ThreadSafe;
+import com.ksc.util.ValidationUtils;
+
+/**
+ * A hashed wheel timer used to enforce the request timeout and client execution timeout
+ * features. Scheduling and cancelling a timeout are constant time operations that only touch a
+ * lock free queue; all bookkeeping happens on a single timer thread that advances the wheel once
+ * per tick. Timeouts fire at most one tick after their deadline, which is more than precise enough
+ * for timeouts measured in seconds.
+ * <p>
+ * The timer thread is started lazily when the first timeout is scheduled and exits after it has
+ * been idle for a while, so an unused timer holds no thread. Expired tasks run on the timer
+ * thread and must therefore be short; the abort tasks of the timeout features only abort an HTTP
+ * request or interrupt a thread.
+ */
+@SdkInternalApi
+@ThreadSafe
+public class HashedWheelTimer {
+
+    /** Default tick duration in milliseconds. */
+    public static final int DEFAULT_TICK_MILLIS = 10;
+
+    /** Default number of buckets in the wheel. */
+    public static final int DEFAULT_TICKS_PER_WHEEL = 512;
+
+    private static final Log LOG = LogFactory.getLog(HashedWheelTimer.class);
+
+    /** How long the timer thread stays around with no timeouts scheduled. */
+    private static final long DEFAULT_IDLE_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private static volatile HashedWheelTimer sharedTimer;
+
+    private final long tickNanos;
+    private final long idleTimeoutNanos;
+    private final int mask;
+    private final Bucket[] wheel;
+    private final long startNanos = System.nanoTime();
+
+    private final Queue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<Timeout>();
+    private final Queue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<Timeout>();
+
+    /** Number of timeouts that are pending or sitting in a bucket. */
+    private final AtomicInteger activeTimeouts = new AtomicInteger();
+    private final AtomicBoolean workerRunning = new AtomicBoolean();
+    private volatile boolean stopped;
+
+    /**
+     * @param tickDuration
+     *            Duration between two ticks of the wheel
+     * @param unit
+     *            Unit of the tick duration
+     * @param ticksPerWheel
+     *            Number of buckets in the wheel; rounded up to a power of two
+     */
+    public HashedWheelTimer(long tickDuration, TimeUnit unit, int ticksPerWheel) {
+        this(tickDuration, unit, ticksPerWheel, DEFAULT_IDLE_TIMEOUT_NANOS);
+    }
+
+    /**
+     * Same as {@link #HashedWheelTimer(long, TimeUnit, int)} with a custom idle timeout.
+     *
+     * @param idleTimeoutNanos
+     *            How long the timer thread stays around with no timeouts scheduled
+     */
+    HashedWheelTimer(long tickDuration, TimeUnit unit, int ticksPerWheel, long idleTimeoutNanos) {
+        ValidationUtils.assertNotNull(unit, "unit");
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("tickDuration must be positive: " + tickDuration);
+        }
+        if (ticksPerWheel <= 0 || ticksPerWheel > 1 << 20) {
+            throw new IllegalArgumentException("ticksPerWheel must be between 1 and 2^20: " + ticksPerWheel);
+        }
+        int size = 1;
+        while (size < ticksPerWheel) {
+            size <<= 1;
+        }
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.idleTimeoutNanos = idleTimeoutNanos;
+        this.mask = size - 1;
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+    }
+
+    /**
+     * Returns the timer shared by all clients. Its tick duration can be overridden with the
+     * {@link SDKGlobalConfiguration#TIMEOUT_TIMER_TICK_MILLIS_SYSTEM_PROPERTY} system property.
+     */
+    public static HashedWheelTimer getSharedTimer() {
+        HashedWheelTimer timer = sharedTimer;
+        if (timer == null) {
+            synchronized (HashedWheelTimer.class) {
+                timer = sharedTimer;
+                if (timer == null) {
+                    timer = new HashedWheelTimer(sharedTickMillis(), TimeUnit.MILLISECONDS,
+                            DEFAULT_TICKS_PER_WHEEL);
+                    sharedTimer = timer;
+                }
+            }
+        }
+        return timer;
+    }
+
+    private static long sharedTickMillis() {
+        String value = System.getProperty(SDKGlobalConfiguration.TIMEOUT_TIMER_TICK_MILLIS_SYSTEM_PROPERTY);
+        if (value != null) {
+            try {
+                long tickMillis = Long.parseLong(value.trim());
+                if (tickMillis > 0) {
+                    return tickMillis;
+                }
+            } catch (NumberFormatException e) {
+                // fall through to the default
+            }
+            LOG.warn("Ignoring invalid value '" + value + "' for system property "
+                    + SDKGlobalConfiguration.TIMEOUT_TIMER_TICK_MILLIS_SYSTEM_PROPERTY);
+        }
+        return DEFAULT_TICK_MILLIS;
+    }
+
+    /**
+     * Schedule the task to run once after the specified delay.
+     *
+     * @return A handle that can be used to cancel the task before it runs
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        ValidationUtils.assertNotNull(task, "task");
+        ValidationUtils.assertNotNull(unit, "unit");
+        if (stopped) {
+            throw new IllegalStateException("Timer has been stopped");
+        }
+        Timeout timeout = new Timeout(this, task, System.nanoTime() + unit.toNanos(Math.max(delay, 0)));
+        activeTimeouts.incrementAndGet();
+        pendingTimeouts.add(timeout);
+        if (workerRunning.compareAndSet(false, true)) {
+            startWorker();
+        }
+        return timeout;
+    }
+
+    /**
+     * @return The number of timeouts that have been scheduled and have neither expired nor been
+     *         cancelled yet, give or take cancellations the timer thread has not processed yet.
+     */
+    public int getActiveTimeoutCount() {
+        return activeTimeouts.get();
+    }
+
+    /**
+     * @return True if the timer thread is running; it exits once the timer has been idle for a
+     *         while and is started again by the next schedule
+     */
+    boolean isWorkerRunning() {
+        return workerRunning.get();
+    }
+
+    /**
+     * Stop the timer. Timeouts that have not expired yet never run. The shared timer should never
+     * be stopped.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    private void startWorker() {
+        Thread thread = new Thread(new Worker(), "java-sdk-timeout-timer");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.start();
+    }
+
+    private long currentTick() {
+        return (System.nanoTime() - startNanos) / tickNanos;
+    }
+
+    /**
+     * A scheduled task. Cancelling it is a single compare-and-set plus a queue insertion; the
+     * timer thread unlinks it from its bucket on the next tick.
+     */
+    public static final class Timeout implements Cancellable {
+
+        private static final int INIT = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private static final AtomicIntegerFieldUpdater<Timeout> STATE =
+                AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+        private final HashedWheelTimer timer;
+        private final Runnable task;
+        private final long deadlineNanos;
+        // Updated through STATE rather than held in an AtomicInteger, saving an allocation per timeout
+        private volatile int state = INIT;
+
+        // Only accessed by the timer thread
+        private long remainingRounds;
+        private Bucket bucket;
+        private Timeout next;
+        private Timeout prev;
+
+        private Timeout(HashedWheelTimer timer, Runnable task, long deadlineNanos) {
+            this.timer = timer;
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /**
+         * @return True if the task was prevented from running, false if it already ran or was
+         *         already cancelled
+         */
+        @Override
+        public boolean cancel() {
+            if (!STATE.compareAndSet(this, INIT, CANCELLED)) {
+                return false;
+            }
+            timer.cancelledTimeouts.add(this);
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state == CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state == EXPIRED;
+        }
+
+        private void expire() {
+            if (!STATE.compareAndSet(this, INIT, EXPIRED)) {
+                return;
+            }
+            try {
+                task.run();
+            } catch (Throwable t) {
+                LOG.warn("Timeout task " + task + " threw an exception", t);
+            }
+        }
+    }
+
+    /**
+     * Doubly linked list of the timeouts hashed to one slot of the wheel. Only accessed by the
+     * timer thread.
+     */
+    private static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        Timeout remove(Timeout timeout) {
+            Timeout next = timeout.next;
+            if (timeout.prev != null) {
+                timeout.prev.next = next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            }
+            if (timeout == head) {
+                head = next;
+            }
+            if (timeout == tail) {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+            return next;
+        }
+    }
+
+    private final class Worker implements Runnable {
+
+        private long tick;
+
+        @Override
+        public void run() {
+            tick = currentTick();
+            long idleSinceNanos = System.nanoTime();
+            while (!stopped) {
+                if (!waitForNextTick()) {
+                    break;
+                }
+                processCancelledTimeouts();
+                transferPendingTimeouts();
+                expireTimeouts(wheel[(int) (tick & mask)]);
+                tick++;
+
+                if (activeTimeouts.get() > 0) {
+                    idleSinceNanos = System.nanoTime();
+                } else if (System.nanoTime() - idleSinceNanos >= idleTimeoutNanos) {
+                    workerRunning.set(false);
+                    // A timeout scheduled after the check above but before the flag was cleared
+                    // would otherwise never fire, so take the worker role back if we can.
+                    if (activeTimeouts.get() == 0 || !workerRunning.compareAndSet(false, true)) {
+                        return;
+                    }
+                    idleSinceNanos = System.nanoTime();
+                }
+            }
+            workerRunning.set(false);
+        }
+
+        /**
+         * Sleep until the start of the next tick.
+         *
+         * @return False if the thread was interrupted
+         */
+        private boolean waitForNextTick() {
+            long deadline = startNanos + (tick + 1) * tickNanos;
+            for (;;) {
+                long sleepNanos = deadline - System.nanoTime();
+                if (sleepNanos <= 0) {
+                    return true;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+
+        private void processCancelledTimeouts() {
+            Timeout timeout;
+            while ((timeout = cancelledTimeouts.poll()) != null) {
+                // Timeouts cancelled while still pending are dropped by transferPendingTimeouts
+                if (timeout.bucket != null) {
+                    timeout.bucket.remove(timeout);
+                    activeTimeouts.decrementAndGet();
+                }
+            }
+        }
+
+        private void transferPendingTimeouts() {
+            Timeout timeout;
+            while ((timeout = pendingTimeouts.poll()) != null) {
+                if (timeout.isCancelled()) {
+                    activeTimeouts.decrementAndGet();
+                    continue;
+                }
+                // Bucket n is expired at the end of tick n, so never before the deadline
+                long deadlineTick = (timeout.deadlineNanos - startNanos) / tickNanos;
+                timeout.remainingRounds = Math.max(deadlineTick - tick, 0) / wheel.length;
+                long ticks = Math.max(deadlineTick, tick);
+                wheel[(int) (ticks & mask)].add(timeout);
+            }
+        }
+
+        private void expireTimeouts(Bucket bucket) {
+            Timeout timeout = bucket.head;
+            while (timeout != null) {
+                if (timeout.remainingRounds <= 0) {
+                    Timeout next = bucket.remove(timeout);
+                    activeTimeouts.decrementAndGet();
+                    timeout.expire();
+                    timeout = next;
+                } else {
+                    timeout.remainingRounds--;
+                    timeout = timeout.next;
+                }
+            }
+        }
+    }
+}
@@ -25,10 +25,14 @@ import com.ksc.annotation.SdkInternalApi;
 @SdkInternalApi
 public class ClientExecutionAbortTaskImpl implements ClientExecutionAbortTask {
 
-    private boolean hasTaskExecuted;
-    private HttpRequestBase currentHttpRequest;
+    private volatile boolean hasTaskExecuted;
+    private volatile HttpRequestBase currentHttpRequest;
     private final Thread thread;
 
+    /**
+     * @param thread the thread to interrupt when the timer expires; or null
+     *            to only abort the current HTTP request.
+     */
     public ClientExecutionAbortTaskImpl(Thread thread) {
         this.thread = thread;
     }
@@ -36,11 +40,12 @@ public class ClientExecutionAbortTaskImpl implements ClientExecutionAbortTask {
     @Override
     public void run() {
         hasTaskExecuted = true;
-        if (!thread.isInterrupted()) {
+        if (thread != null && !thread.isInterrupted()) {
             thread.interrupt();
         }
-        if (!currentHttpRequest.isAborted()) {
-            currentHttpRequest.abort();
+        HttpRequestBase request = currentHttpRequest;
+        if (request != null && !request.isAborted()) {
+            request.abort();
         }
     }
 
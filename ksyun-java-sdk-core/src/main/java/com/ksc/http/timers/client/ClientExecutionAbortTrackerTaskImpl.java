@@ -14,23 +14,22 @@
  */
 package com.ksc.http.timers.client;
 
-import java.util.concurrent.ScheduledFuture;
-
 import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.concurrent.Cancellable;
 
 import com.ksc.annotation.SdkInternalApi;
 import com.ksc.util.ValidationUtils;
 
 /**
- * Keeps track of the scheduled {@link ClientExecutionAbortTask} and the associated {@link Future}
+ * Keeps track of the scheduled {@link ClientExecutionAbortTask} and the associated {@link Cancellable} handle
  */
 @SdkInternalApi
 public class ClientExecutionAbortTrackerTaskImpl implements ClientExecutionAbortTrackerTask {
 
     private final ClientExecutionAbortTask task;
-    private final ScheduledFuture<?> future;
+    private final Cancellable future;
 
-    public ClientExecutionAbortTrackerTaskImpl(final ClientExecutionAbortTask task, final ScheduledFuture<?> future) {
+    public ClientExecutionAbortTrackerTaskImpl(final ClientExecutionAbortTask task, final Cancellable future) {
         this.task = ValidationUtils.assertNotNull(task, "task");
         this.future = ValidationUtils.assertNotNull(future, "future");
     }
@@ -52,8 +51,8 @@ public class ClientExecutionAbortTrackerTaskImpl implements ClientExecutionAbort
 
     @Override
     public void cancelTask() {
-        // Ensure task is canceled even if it's running as we don't want the Thread to be
-        // interrupted in the caller's code
-        future.cancel(false);
+        // Cancelling never interrupts a task that is already running, we don't want the Thread
+        // to be interrupted in the caller's code
+        future.cancel();
     }
 }
\ No newline at end of file
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2015-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.http.timers.client;
+
+import java.util.concurrent.TimeUnit;
+
+import com.ksc.annotation.SdkInternalApi;
+import com.ksc.annotation.ThreadSafe;
+
+/**
+ * The point in time by which a client execution must complete. Carried in the
+ * {@link com.ksc.http.ExecutionContext} so that every blocking step of the execution (the
+ * connection lease, the socket reads, the pauses before retries and the unmarshalling) can bound
+ * itself by the time left instead of relying on the caller thread being interrupted.
+ */
+@SdkInternalApi
+@ThreadSafe
+public final class ClientExecutionDeadline {
+
+    /** No deadline; the execution may take as long as it needs. */
+    public static final ClientExecutionDeadline NONE = new ClientExecutionDeadline(0);
+
+    private final long deadlineNanos;
+
+    private ClientExecutionDeadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * @param timeoutMillis
+     *            Client execution timeout; a non-positive value means no deadline
+     * @return The deadline that many milliseconds from now
+     */
+    public static ClientExecutionDeadline after(int timeoutMillis) {
+        if (timeoutMillis <= 0) {
+            return NONE;
+        }
+        // Zero is reserved for NONE
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        return new ClientExecutionDeadline(deadlineNanos == 0 ? 1 : deadlineNanos);
+    }
+
+    public boolean isEnabled() {
+        return this != NONE;
+    }
+
+    public boolean hasExpired() {
+        return isEnabled() && System.nanoTime() - deadlineNanos >= 0;
+    }
+
+    /**
+     * @return The milliseconds left before the deadline, rounded up, or zero if it has passed;
+     *         {@link Long#MAX_VALUE} if there is no deadline.
+     */
+    public long remainingMillis() {
+        if (!isEnabled()) {
+            return Long.MAX_VALUE;
+        }
+        long remainingNanos = deadlineNanos - System.nanoTime();
+        if (remainingNanos <= 0) {
+            return 0;
+        }
+        return (remainingNanos + TimeUnit.MILLISECONDS.toNanos(1) - 1) / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Bounds a timeout by the time left before the deadline.
+     *
+     * @param timeoutMillis
+     *            Timeout in milliseconds, where a non-positive value means infinite as for the
+     *            Apache HTTP client timeouts
+     * @return The smaller of the timeout and the time left, never less than one millisecond so
+     *         that the result is never mistaken for an infinite timeout
+     */
+    public int boundTimeout(int timeoutMillis) {
+        if (!isEnabled()) {
+            return timeoutMillis;
+        }
+        long remaining = Math.max(remainingMillis(), 1);
+        if (timeoutMillis > 0 && timeoutMillis <= remaining) {
+            return timeoutMillis;
+        }
+        return (int) Math.min(remaining, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @throws ClientExecutionTimeoutException
+     *             If the deadline has passed
+     */
+    public void checkNotExpired() {
+        if (hasExpired()) {
+            throw new ClientExecutionTimeoutException();
+        }
+    }
+}
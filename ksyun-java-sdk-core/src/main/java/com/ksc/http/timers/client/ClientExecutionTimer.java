@@ -14,15 +14,13 @@
  */
 package com.ksc.http.timers.client;
 
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import com.ksc.annotation.SdkInternalApi;
 import com.ksc.annotation.SdkTestInternalApi;
 import com.ksc.annotation.ThreadSafe;
 import com.ksc.http.KSCHttpClient;
-import com.ksc.http.timers.TimeoutThreadPoolBuilder;
+import com.ksc.http.timers.HashedWheelTimer;
 
 /**
  * Represents a timer to enforce a timeout on the total client execution time. That is the time
@@ -33,7 +31,16 @@ import com.ksc.http.timers.TimeoutThreadPoolBuilder;
 @ThreadSafe
 public class ClientExecutionTimer {
 
-    private volatile ScheduledThreadPoolExecutor executor;
+    private final HashedWheelTimer timer;
+
+    public ClientExecutionTimer() {
+        this(HashedWheelTimer.getSharedTimer());
+    }
+
+    @SdkTestInternalApi
+    public ClientExecutionTimer(HashedWheelTimer timer) {
+        this.timer = timer;
+    }
 
     /**
      * Start the timer with the specified timeout and return a object that can be used to track the
@@ -46,48 +53,48 @@ public class ClientExecutionTimer {
      *         the task, provide it with up to date context, and cancel it if appropriate
      */
     public ClientExecutionAbortTrackerTask startTimer(int clientExecutionTimeoutMillis) {
-        if (isTimeoutDisabled(clientExecutionTimeoutMillis)) {
-            return NoOpClientExecutionAbortTrackerTask.INSTANCE;
-        } else if (executor == null) {
-            initializeExecutor();
-        }
-        return scheduleTimerTask(clientExecutionTimeoutMillis);
+        return startTimer(clientExecutionTimeoutMillis, Thread.currentThread());
     }
 
     /**
-     * Executor is lazily initialized as it's not compatible with Java 6
+     * Same as {@link #startTimer(int)}, except that the timer only aborts the
+     * current HTTP request and never interrupts a thread; used when the
+     * attempts of a request do not all run on the calling thread.
      */
-    private synchronized void initializeExecutor() {
-        if (executor == null) {
-            executor = TimeoutThreadPoolBuilder.buildDefaultTimeoutThreadPool();
+    public ClientExecutionAbortTrackerTask startAbortOnlyTimer(int clientExecutionTimeoutMillis) {
+        return startTimer(clientExecutionTimeoutMillis, null);
+    }
+
+    private ClientExecutionAbortTrackerTask startTimer(int clientExecutionTimeoutMillis, Thread thread) {
+        if (isTimeoutDisabled(clientExecutionTimeoutMillis)) {
+            return NoOpClientExecutionAbortTrackerTask.INSTANCE;
         }
+        return scheduleTimerTask(clientExecutionTimeoutMillis, thread);
     }
 
     /**
      * This method is current exposed for testing purposes
      * 
-     * @return The underlying {@link ScheduledThreadPoolExecutor}
+     * @return The underlying {@link HashedWheelTimer}
      */
     @SdkTestInternalApi
-    public ScheduledThreadPoolExecutor getExecutor() {
-        return this.executor;
+    public HashedWheelTimer getTimer() {
+        return this.timer;
     }
 
     /**
-     * Shutdown the underlying {@link ScheduledThreadPoolExecutor}. Should be invoked when
-     * {@link KSCHttpClient} is shutdown
+     * The underlying {@link HashedWheelTimer} is shared between clients and outlives them, so
+     * this is a no-op kept for {@link KSCHttpClient#shutdown()}; timeouts still scheduled simply
+     * fire or get cancelled as their executions complete.
      */
-    public synchronized void shutdown() {
-        if (executor != null) {
-            executor.shutdown();
-        }
+    public void shutdown() {
     }
 
-    private ClientExecutionAbortTrackerTask scheduleTimerTask(int clientExecutionTimeoutMillis) {
-        ClientExecutionAbortTask timerTask = new ClientExecutionAbortTaskImpl(Thread.currentThread());
-        ScheduledFuture<?> timerTaskFuture = executor.schedule(timerTask, clientExecutionTimeoutMillis,
+    private ClientExecutionAbortTrackerTask scheduleTimerTask(int clientExecutionTimeoutMillis, Thread thread) {
+        ClientExecutionAbortTask timerTask = new ClientExecutionAbortTaskImpl(thread);
+        HashedWheelTimer.Timeout timeout = timer.schedule(timerTask, clientExecutionTimeoutMillis,
                 TimeUnit.MILLISECONDS);
-        return new ClientExecutionAbortTrackerTaskImpl(timerTask, timerTaskFuture);
+        return new ClientExecutionAbortTrackerTaskImpl(timerTask, timeout);
     }
 
     private boolean isTimeoutDisabled(int clientExecutionTimeoutMillis) {
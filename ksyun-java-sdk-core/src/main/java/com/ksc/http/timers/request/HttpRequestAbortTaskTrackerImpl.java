@@ -14,22 +14,21 @@
  */
 package com.ksc.http.timers.request;
 
-import java.util.concurrent.Future;
-import java.util.concurrent.ScheduledFuture;
+import org.apache.http.concurrent.Cancellable;
 
 import com.ksc.annotation.SdkInternalApi;
 import com.ksc.util.ValidationUtils;
 
 /**
- * Keeps track of the scheduled {@link HttpRequestAbortTask} and the associated {@link Future}
+ * Keeps track of the scheduled {@link HttpRequestAbortTask} and the associated {@link Cancellable} handle
  */
 @SdkInternalApi
 public class HttpRequestAbortTaskTrackerImpl implements HttpRequestAbortTaskTracker {
 
     private final HttpRequestAbortTask task;
-    private final ScheduledFuture<?> future;
+    private final Cancellable future;
 
-    public HttpRequestAbortTaskTrackerImpl(final HttpRequestAbortTask task, final ScheduledFuture<?> future) {
+    public HttpRequestAbortTaskTrackerImpl(final HttpRequestAbortTask task, final Cancellable future) {
         this.task = ValidationUtils.assertNotNull(task, "task");
         this.future = ValidationUtils.assertNotNull(future, "future");
     }
@@ -46,7 +45,7 @@ public class HttpRequestAbortTaskTrackerImpl implements HttpRequestAbortTaskTrac
 
     @Override
     public void cancelTask() {
-        future.cancel(false);
+        future.cancel();
     }
 
 }
@@ -14,8 +14,6 @@
  */
 package com.ksc.http.timers.request;
 
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.http.client.methods.HttpRequestBase;
@@ -23,7 +21,7 @@ import org.apache.http.client.methods.HttpRequestBase;
 import com.ksc.annotation.SdkInternalApi;
 import com.ksc.annotation.SdkTestInternalApi;
 import com.ksc.annotation.ThreadSafe;
-import com.ksc.http.timers.TimeoutThreadPoolBuilder;
+import com.ksc.http.timers.HashedWheelTimer;
 
 /**
  * Represents a timer class to enforce HTTP request timeouts.
@@ -32,7 +30,16 @@ import com.ksc.http.timers.TimeoutThreadPoolBuilder;
 @SdkInternalApi
 public class HttpRequestTimer {
 
-    private volatile ScheduledThreadPoolExecutor executor;
+    private final HashedWheelTimer timer;
+
+    public HttpRequestTimer() {
+        this(HashedWheelTimer.getSharedTimer());
+    }
+
+    @SdkTestInternalApi
+    public HttpRequestTimer(HashedWheelTimer timer) {
+        this.timer = timer;
+    }
 
     /**
      * Start the timer with the specified timeout and return a object that can be used to track the
@@ -49,12 +56,10 @@ public class HttpRequestTimer {
     public HttpRequestAbortTaskTracker startTimer(final HttpRequestBase apacheRequest, final int requestTimeoutMillis) {
         if (isTimeoutDisabled(requestTimeoutMillis)) {
             return NoOpHttpRequestAbortTaskTracker.INSTANCE;
-        } else if (executor == null) {
-            initializeExecutor();
         }
         HttpRequestAbortTaskImpl timerTask = new HttpRequestAbortTaskImpl(apacheRequest);
-        ScheduledFuture<?> timerTaskFuture = executor.schedule(timerTask, requestTimeoutMillis, TimeUnit.MILLISECONDS);
-        return new HttpRequestAbortTaskTrackerImpl(timerTask, timerTaskFuture);
+        HashedWheelTimer.Timeout timeout = timer.schedule(timerTask, requestTimeoutMillis, TimeUnit.MILLISECONDS);
+        return new HttpRequestAbortTaskTrackerImpl(timerTask, timeout);
     }
 
     private boolean isTimeoutDisabled(final int requestTimeoutMillis) {
@@ -62,32 +67,21 @@ public class HttpRequestTimer {
     }
 
     /**
-     * Executor is lazily initialized as it's not compatible with Java 6
+     * The underlying {@link HashedWheelTimer} is shared between clients and outlives them, so
+     * this is a no-op kept for {@link KSCHttpClient#shutdown()}; timeouts still scheduled simply
+     * fire or get cancelled as their requests complete.
      */
-    private synchronized void initializeExecutor() {
-        if (executor == null) {
-            executor = TimeoutThreadPoolBuilder.buildDefaultTimeoutThreadPool();
-        }
-    }
-
-    /**
-     * Shutdown the underlying {@link ScheduledThreadPoolExecutor}. Should be invoked when
-     * {@link KSCHttpClient} is shutdown
-     */
-    public synchronized void shutdown() {
-        if (executor != null) {
-            executor.shutdown();
-        }
+    public void shutdown() {
     }
 
     /**
      * This method is current exposed for testing purposes
      * 
-     * @return The underlying {@link ScheduledThreadPoolExecutor}
+     * @return The underlying {@link HashedWheelTimer}
      */
     @SdkTestInternalApi
-    public ScheduledThreadPoolExecutor getExecutor() {
-        return executor;
+    public HashedWheelTimer getTimer() {
+        return timer;
     }
 
 }
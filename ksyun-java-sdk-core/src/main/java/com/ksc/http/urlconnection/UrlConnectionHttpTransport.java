@@ -0,0 +1,218 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.http.urlconnection;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.ProtocolException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocketFactory;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.conn.routing.HttpRoutePlanner;
+import org.apache.http.impl.conn.DefaultRoutePlanner;
+import org.apache.http.impl.conn.DefaultSchemePortResolver;
+import org.apache.http.message.BasicHttpRequest;
+import org.apache.http.protocol.BasicHttpContext;
+
+import com.ksc.annotation.ThreadSafe;
+import com.ksc.http.apache.SdkProxyRoutePlanner;
+import com.ksc.http.client.HttpTransport;
+import com.ksc.http.client.HttpTransportRequest;
+import com.ksc.http.client.HttpTransportResponse;
+import com.ksc.http.settings.HttpClientSettings;
+import com.ksc.internal.SdkSSLContext;
+import com.ksc.util.KscRequestMetrics;
+import com.ksc.util.KscRequestMetrics.Field;
+
+/**
+ * A transport which sends each request with a {@link HttpURLConnection}.
+ * Aborting a request disconnects its connection.
+ *
+ * @see UrlConnectionHttpTransportFactory
+ */
+@ThreadSafe
+class UrlConnectionHttpTransport implements HttpTransport {
+
+    private static final Log LOG = LogFactory.getLog(UrlConnectionHttpTransport.class);
+
+    /**
+     * Request headers set by the JDK itself, which it would otherwise reject
+     * or send twice.
+     */
+    private static final Set<String> RESTRICTED_HEADERS = new HashSet<String>(Arrays.asList(
+            "host", "content-length", "transfer-encoding", "connection", "expect"));
+
+    private final HttpClientSettings settings;
+    private final HttpRoutePlanner routePlanner;
+    private final SSLSocketFactory sslSocketFactory;
+    private volatile boolean shutdown;
+
+    UrlConnectionHttpTransport(HttpClientSettings settings) {
+        this.settings = settings;
+        this.routePlanner = settings.getProxyHost() != null && settings.getProxyPort() > 0
+                ? new SdkProxyRoutePlanner(settings.getProxyHost(), settings.getProxyPort(),
+                        settings.getNonProxyHosts())
+                : new DefaultRoutePlanner(DefaultSchemePortResolver.INSTANCE);
+        this.sslSocketFactory = SdkSSLContext.getPreferredSSLContext(settings.getSecureRandom(),
+                settings.getTlsSessionCacheSize(), settings.getTlsSessionTimeoutSeconds()).getSocketFactory();
+        if (settings.getProxyUsername() != null && LOG.isWarnEnabled()) {
+            LOG.warn("Proxy authentication is not supported by HttpURLConnection and is ignored");
+        }
+    }
+
+    @Override
+    public HttpTransportResponse execute(HttpTransportRequest request) throws IOException {
+        if (shutdown) {
+            throw new IllegalStateException("Transport shut down");
+        }
+        final KscRequestMetrics requestMetrics = request.getRequestMetrics();
+        final HttpURLConnection conn = openConnection(request);
+        request.setAbortHandler(new Runnable() {
+            @Override
+            public void run() {
+                conn.disconnect();
+            }
+        });
+        if (request.isAborted()) {
+            throw new IOException("Request aborted");
+        }
+        try {
+            requestMetrics.startEvent(Field.HttpClientSendRequestTime);
+            try {
+                sendRequest(conn, request);
+            } finally {
+                requestMetrics.endEvent(Field.HttpClientSendRequestTime);
+            }
+            requestMetrics.startEvent(Field.HttpClientReceiveResponseTime);
+            try {
+                return receiveResponse(conn);
+            } finally {
+                requestMetrics.endEvent(Field.HttpClientReceiveResponseTime);
+            }
+        } catch (IOException e) {
+            conn.disconnect();
+            throw e;
+        }
+    }
+
+    private HttpURLConnection openConnection(HttpTransportRequest request) throws IOException {
+        final URI uri = request.getUri();
+        final HttpHost proxy;
+        try {
+            proxy = routePlanner.determineRoute(new HttpHost(uri.getHost(), uri.getPort(), uri.getScheme()),
+                    new BasicHttpRequest(request.getMethod(), uri.toString()), new BasicHttpContext())
+                    .getProxyHost();
+        } catch (HttpException e) {
+            throw new IOException("Unable to determine the route to " + uri, e);
+        }
+        final HttpURLConnection conn = (HttpURLConnection) (proxy == null
+                ? uri.toURL().openConnection()
+                : uri.toURL().openConnection(new Proxy(Proxy.Type.HTTP,
+                        new InetSocketAddress(proxy.getHostName(), proxy.getPort()))));
+        if (conn instanceof HttpsURLConnection) {
+            ((HttpsURLConnection) conn).setSSLSocketFactory(sslSocketFactory);
+        }
+
+        conn.setConnectTimeout(request.getConnectTimeoutMillis());
+        conn.setReadTimeout(request.getSocketTimeoutMillis());
+        conn.setInstanceFollowRedirects(false);
+        conn.setUseCaches(false);
+        try {
+            conn.setRequestMethod(request.getMethod());
+        } catch (ProtocolException e) {
+            throw new IOException("HttpURLConnection does not support the " + request.getMethod() + " method", e);
+        }
+        for (Map.Entry<String, List<String>> header : request.getHeaders().entrySet()) {
+            if (RESTRICTED_HEADERS.contains(header.getKey().toLowerCase(Locale.ENGLISH))) {
+                continue;
+            }
+            for (String value : header.getValue()) {
+                conn.addRequestProperty(header.getKey(), value);
+            }
+        }
+        return conn;
+    }
+
+    private static void sendRequest(HttpURLConnection conn, HttpTransportRequest request) throws IOException {
+        final HttpTransportRequest.Content content = request.getContent();
+        if (content == null) {
+            conn.connect();
+            return;
+        }
+        final long contentLength = content.getLength();
+        if (contentLength >= 0 && contentLength <= Integer.MAX_VALUE) {
+            conn.setFixedLengthStreamingMode((int) contentLength);
+        } else {
+            conn.setChunkedStreamingMode(0);
+        }
+        conn.setDoOutput(true);
+        final OutputStream out = conn.getOutputStream();
+        try {
+            content.writeTo(out);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static HttpTransportResponse receiveResponse(HttpURLConnection conn) throws IOException {
+        final int statusCode = conn.getResponseCode();
+        if (statusCode < 0) {
+            throw new IOException("Invalid HTTP response from " + conn.getURL());
+        }
+        final Map<String, List<String>> headers = new LinkedHashMap<String, List<String>>();
+        // The field at index zero is the status line, which has no key
+        for (int i = 0; ; i++) {
+            final String value = conn.getHeaderField(i);
+            if (value == null) {
+                break;
+            }
+            final String name = conn.getHeaderFieldKey(i);
+            if (name != null) {
+                List<String> values = headers.get(name);
+                if (values == null) {
+                    values = new ArrayList<String>(1);
+                    headers.put(name, values);
+                }
+                values.add(value);
+            }
+        }
+        // Closing the content hands the connection back to the JDK to keep it alive
+        final InputStream content = statusCode >= 400 ? conn.getErrorStream() : conn.getInputStream();
+        return new HttpTransportResponse("HTTP/1.1", statusCode, conn.getResponseMessage(), headers, content);
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+    }
+}
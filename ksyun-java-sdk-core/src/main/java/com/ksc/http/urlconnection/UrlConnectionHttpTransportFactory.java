@@ -0,0 +1,43 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.http.urlconnection;
+
+import com.ksc.ClientConfiguration;
+import com.ksc.http.client.HttpTransport;
+import com.ksc.http.client.HttpTransportFactory;
+import com.ksc.http.settings.HttpClientSettings;
+
+/**
+ * Factory of transports which send requests with the
+ * {@link java.net.HttpURLConnection} of the JDK instead of the Apache http
+ * client, for environments where the latter is unsuitable. To use it, set it
+ * with {@link ClientConfiguration#setHttpTransportFactory}.
+ * <p>
+ * The JDK keeps the connections alive in a cache of its own, which is shared
+ * by the whole JVM and sized with the {@code http.maxConnections} system
+ * property; the connection pool settings of the client configuration, the
+ * connection pool groups, the idle connection reaper, the warm-up of
+ * connections and the pool metrics therefore do not apply. Neither does the
+ * SSL socket factory of the Apache http client configuration, the local
+ * address, the proxy authentication, the {@code Expect: 100-continue}
+ * handshake, or the PATCH method, which the JDK does not support.
+ */
+public class UrlConnectionHttpTransportFactory implements HttpTransportFactory {
+
+    @Override
+    public HttpTransport create(HttpClientSettings settings) {
+        return new UrlConnectionHttpTransport(settings);
+    }
+}
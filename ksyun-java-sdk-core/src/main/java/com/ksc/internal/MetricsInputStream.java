@@ -20,38 +20,72 @@ import java.io.InputStream;
 
 import com.ksc.util.KscRequestMetrics;
 import com.ksc.util.KscRequestMetrics.Field;
+import com.ksc.util.TimingInfo;
 
 /**
  * Record input stream read time into {@link KscRequestMetrics} under metric type
  * HttpSocketReadTime;
+ * <p>
+ * In aggregating mode, the reads are not recorded as individual events;
+ * instead the read count, total and maximum read time are accumulated in a
+ * {@link ReadSummary} bound to the metrics of each request by
+ * {@link #setMetrics(KscRequestMetrics)}, and recorded into the metrics as a
+ * single summary by {@link ReadSummary#flush()}, called by the request thread
+ * once the response has been consumed. Since each request has its own
+ * summary, handing the pooled connection to another request before the
+ * flush loses nothing.
  */
 public class MetricsInputStream extends DelegateInputStream {
 
-    private KscRequestMetrics metrics;
+    private final boolean aggregated;
+    private volatile KscRequestMetrics metrics;
+    /** The summary of the reads of the current request, in aggregating mode. */
+    private volatile ReadSummary summary;
 
     public MetricsInputStream(InputStream in) {
+        this(in, false);
+    }
+
+    public MetricsInputStream(InputStream in, boolean aggregated) {
         super(in);
+        this.aggregated = aggregated;
     }
 
-    public void setMetrics(KscRequestMetrics metrics) {
+    public synchronized void setMetrics(KscRequestMetrics metrics) {
+        if (aggregated && metrics != this.metrics) {
+            summary = metrics == null ? null : new ReadSummary(metrics);
+        }
         this.metrics = metrics;
     }
 
+    public boolean isAggregated() {
+        return aggregated;
+    }
+
+    /**
+     * Returns the summary of the reads for the metrics last set, in
+     * aggregating mode; or null otherwise.
+     */
+    public ReadSummary getReadSummary() {
+        return summary;
+    }
+
     /**
      * {@inheritDoc}
      * Record the read time into the metrics.
      */
     @Override
     public int read() throws IOException {
-        if (metrics != null) {
-            metrics.startEvent(Field.HttpSocketReadTime);
+        final KscRequestMetrics m = metrics;
+        if (m == null) {
+            return in.read();
         }
+        final ReadSummary s = summary;
+        final long startNanos = startRead(m, s);
         try {
             return in.read();
         } finally {
-            if (metrics != null) {
-                metrics.endEvent(Field.HttpSocketReadTime);
-            }
+            endRead(m, s, startNanos);
         }
     }
 
@@ -62,15 +96,16 @@ public class MetricsInputStream extends DelegateInputStream {
      */
     @Override
     public int read(byte b[]) throws IOException {
-        if (metrics != null) {
-            metrics.startEvent(Field.HttpSocketReadTime);
+        final KscRequestMetrics m = metrics;
+        if (m == null) {
+            return in.read(b);
         }
+        final ReadSummary s = summary;
+        final long startNanos = startRead(m, s);
         try {
             return in.read(b);
         } finally {
-            if (metrics != null) {
-                metrics.endEvent(Field.HttpSocketReadTime);
-            }
+            endRead(m, s, startNanos);
         }
     }
 
@@ -81,14 +116,82 @@ public class MetricsInputStream extends DelegateInputStream {
      */
     @Override
     public int read(byte b[], int off, int len) throws IOException {
-        if (metrics != null) {
-            metrics.startEvent(Field.HttpSocketReadTime);
+        final KscRequestMetrics m = metrics;
+        if (m == null) {
+            return in.read(b, off, len);
         }
+        final ReadSummary s = summary;
+        final long startNanos = startRead(m, s);
         try {
             return in.read(b, off, len);
         } finally {
-            if (metrics != null) {
-                metrics.endEvent(Field.HttpSocketReadTime);
+            endRead(m, s, startNanos);
+        }
+    }
+
+    private long startRead(KscRequestMetrics m, ReadSummary s) {
+        if (aggregated) {
+            return s == null ? 0 : System.nanoTime();
+        }
+        m.startEvent(Field.HttpSocketReadTime);
+        return 0;
+    }
+
+    private void endRead(KscRequestMetrics m, ReadSummary s, long startNanos) {
+        if (aggregated) {
+            if (s != null) {
+                s.record(startNanos, System.nanoTime() - startNanos);
+            }
+        } else {
+            m.endEvent(Field.HttpSocketReadTime);
+        }
+    }
+
+    /**
+     * The read count, total and maximum read time of one request, recorded
+     * into its metrics by {@link #flush()}.
+     */
+    public static final class ReadSummary {
+        private final KscRequestMetrics metrics;
+        private int readCount;
+        private long readTotalNanos;
+        private long readMaxNanos;
+        private long firstReadStartNanos;
+        private boolean flushed;
+
+        ReadSummary(KscRequestMetrics metrics) {
+            this.metrics = metrics;
+        }
+
+        synchronized void record(long startNanos, long nanos) {
+            if (flushed) {
+                return;
+            }
+            if (readCount++ == 0) {
+                firstReadStartNanos = startNanos;
+            }
+            readTotalNanos += nanos;
+            if (nanos > readMaxNanos) {
+                readMaxNanos = nanos;
+            }
+        }
+
+        /**
+         * Records the summary of the reads so far into the metrics, unless
+         * already done; the reads made afterwards are not recorded.
+         */
+        public synchronized void flush() {
+            if (flushed) {
+                return;
+            }
+            flushed = true;
+            if (readCount > 0) {
+                TimingInfo timingInfo = metrics.getTimingInfo();
+                timingInfo.addSubMeasurement(Field.HttpSocketReadTime.name(), TimingInfo
+                        .newTimingInfoFullSupport(firstReadStartNanos, firstReadStartNanos + readTotalNanos));
+                timingInfo.addSubMeasurement(Field.HttpSocketReadMaxTime.name(), TimingInfo
+                        .newTimingInfoFullSupport(firstReadStartNanos, firstReadStartNanos + readMaxNanos));
+                metrics.setCounter(Field.HttpSocketReadCount, readCount);
             }
         }
     }
@@ -19,6 +19,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.Socket;
 
+import com.ksc.metrics.KscSdkMetrics;
 import com.ksc.util.KscRequestMetrics;
 
 /**
@@ -27,6 +28,7 @@ import com.ksc.util.KscRequestMetrics;
 public class SdkMetricsSocket extends DelegateSocket {
 
     private MetricsInputStream metricsIS;
+    private final boolean aggregated = KscSdkMetrics.isHttpSocketReadMetricAggregated();
 
     public SdkMetricsSocket(Socket sock) {
         super(sock);
@@ -45,7 +47,15 @@ public class SdkMetricsSocket extends DelegateSocket {
 
     @Override
     public InputStream getInputStream() throws IOException {
-        metricsIS = new MetricsInputStream(sock.getInputStream());
+        metricsIS = new MetricsInputStream(sock.getInputStream(), aggregated);
+        return metricsIS;
+    }
+
+    /**
+     * Returns the metrics input stream of this socket; or null if the input
+     * stream has not been initialized.
+     */
+    public MetricsInputStream getMetricsInputStream() {
         return metricsIS;
     }
 
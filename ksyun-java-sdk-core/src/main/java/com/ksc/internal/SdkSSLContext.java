@@ -19,6 +19,7 @@ import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
 
 import org.apache.http.conn.ssl.SSLContexts;
 import org.apache.http.conn.ssl.SSLInitializationException;
@@ -41,4 +42,32 @@ public class SdkSSLContext {
             throw new SSLInitializationException(ex.getMessage(), ex);
         }
     }
+
+    /**
+     * Returns the preferred SSL context with its client session cache sized
+     * as specified.
+     *
+     * @param sessionCacheSize
+     *            Maximum number of TLS sessions cached for resumption, zero
+     *            for no limit, or a negative value for the JSSE default
+     * @param sessionTimeoutSeconds
+     *            Time in seconds a cached TLS session may be resumed, zero for
+     *            no limit, or a negative value for the JSSE default
+     * @see #getPreferredSSLContext(SecureRandom)
+     */
+    public static final SSLContext getPreferredSSLContext(final SecureRandom secureRandom,
+                                                          final int sessionCacheSize,
+                                                          final int sessionTimeoutSeconds) {
+        final SSLContext sslcontext = getPreferredSSLContext(secureRandom);
+        final SSLSessionContext sessionContext = sslcontext.getClientSessionContext();
+        if (sessionContext != null) {
+            if (sessionCacheSize >= 0) {
+                sessionContext.setSessionCacheSize(sessionCacheSize);
+            }
+            if (sessionTimeoutSeconds >= 0) {
+                sessionContext.setSessionTimeout(sessionTimeoutSeconds);
+            }
+        }
+        return sslcontext;
+    }
 }
@@ -20,6 +20,7 @@ import java.io.InputStream;
 
 import javax.net.ssl.SSLSocket;
 
+import com.ksc.metrics.KscSdkMetrics;
 import com.ksc.util.KscRequestMetrics;
 
 /**
@@ -28,6 +29,7 @@ import com.ksc.util.KscRequestMetrics;
 public class SdkSSLMetricsSocket extends DelegateSSLSocket {
 
     private MetricsInputStream metricsIS;
+    private final boolean aggregated = KscSdkMetrics.isHttpSocketReadMetricAggregated();
 
     public SdkSSLMetricsSocket(SSLSocket sock) {
         super(sock);
@@ -43,7 +45,15 @@ public class SdkSSLMetricsSocket extends DelegateSSLSocket {
 
     @Override
     public InputStream getInputStream() throws IOException {
-        metricsIS = new MetricsInputStream(sock.getInputStream());
+        metricsIS = new MetricsInputStream(sock.getInputStream(), aggregated);
+        return metricsIS;
+    }
+
+    /**
+     * Returns the metrics input stream of this socket; or null if the input
+     * stream has not been initialized.
+     */
+    public MetricsInputStream getMetricsInputStream() {
         return metricsIS;
     }
 }
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2013-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.jmx.spi;
+
+/**
+ * SPI used to register arbitrary MBeans, such as those of the connection
+ * pools, on top of the admin MBean. It is kept apart from
+ * {@link SdkMBeanRegistry} so that the implementations of the latter keep
+ * working; use {@link SdkMBeanRegistry.Factory#registerMBean(String, Object)}
+ * to register an MBean with whichever implementation is loaded.
+ */
+public interface SdkGenericMBeanRegistry extends SdkMBeanRegistry {
+    /**
+     * Returns true if the registration of the given MBean under the given
+     * object name succeeded; false otherwise.
+     */
+    public boolean registerMBean(String objectName, Object mbean);
+}
@@ -56,6 +56,18 @@ public interface SdkMBeanRegistry {
         public static SdkMBeanRegistry getMBeanRegistry() {
             return registry;
         }
+
+        /**
+         * Returns true if the registration of the given MBean under the given
+         * object name succeeded; false otherwise, including when the JMX
+         * implementation only registers the admin MBean.
+         *
+         * @see SdkGenericMBeanRegistry
+         */
+        public static boolean registerMBean(String objectName, Object mbean) {
+            return registry instanceof SdkGenericMBeanRegistry
+                    && ((SdkGenericMBeanRegistry) registry).registerMBean(objectName, mbean);
+        }
     }
     
     static final SdkMBeanRegistry NONE = new SdkMBeanRegistry() {
@@ -14,40 +14,30 @@
  */
 package com.ksc.metrics;
 
-import java.util.concurrent.TimeUnit;
-
 /**
  * Helper class to capture the byte throughput.
  * <p>
+ * The bytes and durations are only accumulated into the striped counters of
+ * the {@link ThroughputAggregator}, which reports them to the service metric
+ * collector in the background, so neither reads nor writes ever call into
+ * the collector.
+ * <p>
  * Note this class is only relevant
  * when metric is enabled. Otherwise it should not even be involved in the call
  * stack to minimize runtime overhead.
  */
-class ByteThroughputHelper extends ByteThroughputProvider {
-    private static final int REPORT_INTERVAL_SECS = 10;
+class ByteThroughputHelper {
+    private final ThroughputAggregator.Counters counters;
 
     ByteThroughputHelper(ThroughputMetricType type) {
-        super(type);
+        this.counters = ThroughputAggregator.countersOf(type);
     }
 
     long startTiming() {
-        if (TimeUnit.NANOSECONDS.toSeconds(getDurationNano()) > REPORT_INTERVAL_SECS) {
-            reportMetrics();
-        }
         return System.nanoTime();
     }
-    
-
-    void reportMetrics() {
-        if (getByteCount() > 0) {
-            ServiceMetricCollector col = KscSdkMetrics.getServiceMetricCollector();
-            col.collectByteThroughput(this);
-            reset();
-        }
-    }
 
-    @Override
-    public void increment(int bytesDelta, long startTimeNano) {
-        super.increment(bytesDelta, startTimeNano);
+    void increment(int bytesDelta, long startTimeNano) {
+        counters.increment(bytesDelta, System.nanoTime() - startTimeNano);
     }
 }
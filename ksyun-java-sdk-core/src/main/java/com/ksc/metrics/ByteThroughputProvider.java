@@ -43,6 +43,15 @@ public abstract class ByteThroughputProvider {
         this.duration += System.nanoTime() - startTimeNano;
     }
     
+    /**
+     * @param byteCount the number of bytes
+     * @param durationNano the duration in nano seconds
+     */
+    protected void set(int byteCount, long durationNano) {
+        this.byteCount = byteCount;
+        this.duration = durationNano;
+    }
+
     protected void reset() {
         this.byteCount = 0;
         this.duration = 0;
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.metrics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.ksc.metrics.ConnectionPoolTimeSeries.Sample;
+
+/**
+ * The time series of the total and per-route statistics of one http
+ * connection pool, fed by a background sampler and exposed as an MBean.
+ */
+public class ConnectionPoolMetrics implements ConnectionPoolMetricsMBean {
+    private final String poolId;
+    private final int capacity;
+    private final ConnectionPoolTimeSeries total;
+    private final ConcurrentMap<String, ConnectionPoolTimeSeries> routes =
+            new ConcurrentHashMap<String, ConnectionPoolTimeSeries>();
+    /**
+     * Guards the recording and reporting against {@link #close()}, so that a
+     * sample still running when the pool is closed cannot report it again.
+     */
+    private final Object lock = new Object();
+    /** True once closed; guarded by lock. */
+    private boolean closed;
+
+    /**
+     * @param capacity
+     *            number of samples retained per time series.
+     */
+    public ConnectionPoolMetrics(String poolId, int capacity) {
+        this.poolId = poolId;
+        this.capacity = capacity;
+        this.total = new ConnectionPoolTimeSeries(capacity);
+    }
+
+    /**
+     * Records a sample of the whole pool and reports it to the service metric
+     * collector.
+     */
+    public void recordTotal(long epochMilli, int leased, int available, int pending, int max) {
+        synchronized (lock) {
+            if (closed)
+                return;
+            total.record(epochMilli, leased, available, pending, max);
+            report(null, total);
+        }
+    }
+
+    /**
+     * Records a sample of a single route and reports it to the service metric
+     * collector.
+     */
+    public void recordRoute(String route, long epochMilli, int leased, int available,
+            int pending, int max) {
+        synchronized (lock) {
+            if (closed)
+                return;
+            ConnectionPoolTimeSeries series = routes.get(route);
+            if (series == null) {
+                ConnectionPoolTimeSeries created = new ConnectionPoolTimeSeries(capacity);
+                series = routes.putIfAbsent(route, created);
+                if (series == null)
+                    series = created;
+            }
+            series.record(epochMilli, leased, available, pending, max);
+            report(route, series);
+        }
+    }
+
+    /**
+     * Drops the time series of routes which are no longer part of the pool.
+     */
+    public void retainRoutes(Collection<String> liveRoutes) {
+        synchronized (lock) {
+            if (closed)
+                return;
+            for (Iterator<String> it = routes.keySet().iterator(); it.hasNext();) {
+                String route = it.next();
+                if (!liveRoutes.contains(route)) {
+                    it.remove();
+                    reportRemoval(route);
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops the time series of all the routes, and reports the whole pool as
+     * removed to the service metric collector. Called once the pool is no
+     * longer sampled; the samples recorded afterwards are ignored.
+     */
+    public void close() {
+        synchronized (lock) {
+            if (closed)
+                return;
+            closed = true;
+            routes.clear();
+            reportRemoval(null);
+        }
+    }
+
+    /** Returns true once {@link #close()} has been called. */
+    public boolean isClosed() {
+        synchronized (lock) {
+            return closed;
+        }
+    }
+
+    private void report(String route, ConnectionPoolTimeSeries series) {
+        ServiceMetricCollector col = KscSdkMetrics.getServiceMetricCollector();
+        if (col.isEnabled())
+            col.collectConnectionPoolStats(new ConnectionPoolStatsProvider(poolId, route, series.latest()));
+    }
+
+    private void reportRemoval(String route) {
+        ServiceMetricCollector col = KscSdkMetrics.getServiceMetricCollector();
+        if (col.isEnabled())
+            col.collectConnectionPoolRemoval(new ConnectionPoolStatsProvider(poolId, route, null));
+    }
+
+    public ConnectionPoolTimeSeries getTotalSeries() {
+        return total;
+    }
+
+    /** Returns the time series of the given route; or null if there is none. */
+    public ConnectionPoolTimeSeries getRouteSeries(String route) {
+        return routes.get(route);
+    }
+
+    public Collection<String> getRoutes() {
+        return new ArrayList<String>(routes.keySet());
+    }
+
+    @Override public String getPoolId() { return poolId; }
+    @Override public int getLeased() { Sample s = total.latest(); return s == null ? 0 : s.getLeased(); }
+    @Override public int getAvailable() { Sample s = total.latest(); return s == null ? 0 : s.getAvailable(); }
+    @Override public int getPending() { Sample s = total.latest(); return s == null ? 0 : s.getPending(); }
+    @Override public int getMax() { Sample s = total.latest(); return s == null ? 0 : s.getMax(); }
+    @Override public int getPeakLeased() { return total.peakLeased(); }
+    @Override public int getPeakPending() { return total.peakPending(); }
+    @Override public int getSampleCount() { return total.size(); }
+
+    @Override
+    public int[] getLeasedHistory() {
+        List<Sample> samples = total.snapshot();
+        int[] values = new int[samples.size()];
+        for (int i = 0; i < values.length; i++)
+            values[i] = samples.get(i).getLeased();
+        return values;
+    }
+
+    @Override
+    public int[] getPendingHistory() {
+        List<Sample> samples = total.snapshot();
+        int[] values = new int[samples.size()];
+        for (int i = 0; i < values.length; i++)
+            values[i] = samples.get(i).getPending();
+        return values;
+    }
+
+    @Override
+    public String[] getRouteStats() {
+        List<String> stats = new ArrayList<String>();
+        for (Map.Entry<String, ConnectionPoolTimeSeries> e : routes.entrySet()) {
+            Sample s = e.getValue().latest();
+            if (s != null)
+                stats.add(e.getKey() + ": " + s);
+        }
+        return stats.toArray(new String[stats.size()]);
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.metrics;
+
+/**
+ * MBean interface of the continuously sampled statistics of an http
+ * connection pool.
+ */
+public interface ConnectionPoolMetricsMBean {
+    /** Returns the identifier of the pool. */
+    public String getPoolId();
+
+    /** Returns the number of leased connections at the last sample. */
+    public int getLeased();
+
+    /** Returns the number of idle connections at the last sample. */
+    public int getAvailable();
+
+    /**
+     * Returns the number of connection requests blocked awaiting a free
+     * connection at the last sample.
+     */
+    public int getPending();
+
+    /** Returns the maximum number of connections of the pool. */
+    public int getMax();
+
+    /** Returns the highest leased count within the sampled window. */
+    public int getPeakLeased();
+
+    /** Returns the highest pending count within the sampled window. */
+    public int getPeakPending();
+
+    /** Returns the number of samples currently held. */
+    public int getSampleCount();
+
+    /** Returns the leased counts within the sampled window, oldest first. */
+    public int[] getLeasedHistory();
+
+    /** Returns the pending counts within the sampled window, oldest first. */
+    public int[] getPendingHistory();
+
+    /**
+     * Returns the last sample of each route in the pool, formatted as
+     * "route: leased=.., available=.., pending=.., max=..".
+     */
+    public String[] getRouteStats();
+}
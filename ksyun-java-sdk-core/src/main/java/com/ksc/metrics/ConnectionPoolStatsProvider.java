@@ -0,0 +1,48 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.metrics;
+
+import com.ksc.metrics.ConnectionPoolTimeSeries.Sample;
+
+/**
+ * A sample of the statistics of an http connection pool, either for the
+ * pool as a whole or for a single route, as reported to
+ * {@link ServiceMetricCollector#collectConnectionPoolStats}.
+ */
+public class ConnectionPoolStatsProvider {
+    private final String poolId;
+    private final String route;
+    private final Sample sample;
+
+    public ConnectionPoolStatsProvider(String poolId, String route, Sample sample) {
+        this.poolId = poolId;
+        this.route = route;
+        this.sample = sample;
+    }
+
+    /** Returns the identifier of the sampled pool. */
+    public String getPoolId() { return poolId; }
+
+    /** Returns the sampled route; or null if this is the total of the pool. */
+    public String getRoute() { return route; }
+
+    /** Returns the sample; or null if the pool or route has been removed. */
+    public Sample getSample() { return sample; }
+
+    @Override
+    public String toString() {
+        return String.format("poolId=%s, route=%s, %s", poolId, route, sample);
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.ksc.annotation.ThreadSafe;
+
+/**
+ * A fixed capacity ring buffer of connection pool samples. Once full, each
+ * new sample overwrites the oldest one, so the buffer always holds the most
+ * recent window of pool activity.
+ */
+@ThreadSafe
+public class ConnectionPoolTimeSeries {
+    private final long[] timestamps;
+    private final int[] leased;
+    private final int[] available;
+    private final int[] pending;
+    private final int[] max;
+    /** Index of the slot the next sample will be written to. */
+    private int next;
+    private int size;
+
+    public ConnectionPoolTimeSeries(int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("capacity must be at least 1");
+        timestamps = new long[capacity];
+        leased = new int[capacity];
+        available = new int[capacity];
+        pending = new int[capacity];
+        max = new int[capacity];
+    }
+
+    public synchronized void record(long epochMilli, int leased, int available,
+            int pending, int max) {
+        timestamps[next] = epochMilli;
+        this.leased[next] = leased;
+        this.available[next] = available;
+        this.pending[next] = pending;
+        this.max[next] = max;
+        next = (next + 1) % timestamps.length;
+        if (size < timestamps.length)
+            size++;
+    }
+
+    public int capacity() {
+        return timestamps.length;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /** Returns the most recent sample; or null if nothing has been recorded. */
+    public synchronized Sample latest() {
+        return size == 0 ? null : sampleAt(size - 1);
+    }
+
+    /** Returns the samples currently held, oldest first. */
+    public synchronized List<Sample> snapshot() {
+        if (size == 0)
+            return Collections.emptyList();
+        List<Sample> samples = new ArrayList<Sample>(size);
+        for (int i = 0; i < size; i++)
+            samples.add(sampleAt(i));
+        return samples;
+    }
+
+    /** Returns the highest leased count within the current window. */
+    public synchronized int peakLeased() {
+        return peak(leased);
+    }
+
+    /** Returns the highest pending count within the current window. */
+    public synchronized int peakPending() {
+        return peak(pending);
+    }
+
+    private int peak(int[] values) {
+        int peak = 0;
+        for (int i = 0; i < size; i++)
+            peak = Math.max(peak, values[slot(i)]);
+        return peak;
+    }
+
+    /** Maps the i-th oldest sample to its slot in the arrays. */
+    private int slot(int i) {
+        int start = size < timestamps.length ? 0 : next;
+        return (start + i) % timestamps.length;
+    }
+
+    private Sample sampleAt(int i) {
+        int s = slot(i);
+        return new Sample(timestamps[s], leased[s], available[s], pending[s], max[s]);
+    }
+
+    /** An immutable point in a {@link ConnectionPoolTimeSeries}. */
+    public static final class Sample {
+        private final long timestamp;
+        private final int leased;
+        private final int available;
+        private final int pending;
+        private final int max;
+
+        Sample(long timestamp, int leased, int available, int pending, int max) {
+            this.timestamp = timestamp;
+            this.leased = leased;
+            this.available = available;
+            this.pending = pending;
+            this.max = max;
+        }
+
+        public long getTimestamp() { return timestamp; }
+        public int getLeased() { return leased; }
+        public int getAvailable() { return available; }
+        public int getPending() { return pending; }
+        public int getMax() { return max; }
+
+        @Override
+        public String toString() {
+            return "leased=" + leased + ", available=" + available
+                    + ", pending=" + pending + ", max=" + max;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The statistics of the idle connection reaper for one http connection pool,
+ * exposed as an MBean.
+ */
+public class ConnectionReaperMetrics implements ConnectionReaperMetricsMBean {
+    private final String poolId;
+    private final long periodMillis;
+    private final long maxIdleMillis;
+    private final AtomicLong runCount = new AtomicLong();
+    private final AtomicLong closedIdle = new AtomicLong();
+    private final AtomicLong closedExpired = new AtomicLong();
+    private volatile long lastRunTime;
+    private volatile int lastClosed;
+
+    public ConnectionReaperMetrics(String poolId, long periodMillis, long maxIdleMillis) {
+        this.poolId = poolId;
+        this.periodMillis = periodMillis;
+        this.maxIdleMillis = maxIdleMillis;
+    }
+
+    /**
+     * Records a run of the reaper.
+     *
+     * @param expired the number of connections closed for having expired.
+     * @param idle the number of connections closed for having been idle.
+     */
+    public void recordRun(long epochMilli, int expired, int idle) {
+        closedExpired.addAndGet(expired);
+        closedIdle.addAndGet(idle);
+        lastClosed = expired + idle;
+        lastRunTime = epochMilli;
+        runCount.incrementAndGet();
+    }
+
+    @Override public String getPoolId() { return poolId; }
+    @Override public long getPeriodMillis() { return periodMillis; }
+    @Override public long getMaxIdleMillis() { return maxIdleMillis; }
+    @Override public long getRunCount() { return runCount.get(); }
+    @Override public long getLastRunTime() { return lastRunTime; }
+    @Override public int getLastClosedConnections() { return lastClosed; }
+    @Override public long getClosedIdleConnections() { return closedIdle.get(); }
+    @Override public long getClosedExpiredConnections() { return closedExpired.get(); }
+}
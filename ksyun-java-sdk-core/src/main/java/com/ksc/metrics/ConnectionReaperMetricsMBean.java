@@ -0,0 +1,45 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.metrics;
+
+/**
+ * MBean interface of the statistics of the idle connection reaper for one
+ * http connection pool.
+ */
+public interface ConnectionReaperMetricsMBean {
+    /** Returns the identifier of the pool. */
+    public String getPoolId();
+
+    /** Returns the period between two runs of the reaper in milliseconds. */
+    public long getPeriodMillis();
+
+    /** Returns how long a connection may stay idle before it is closed, in milliseconds. */
+    public long getMaxIdleMillis();
+
+    /** Returns the number of times the reaper has run. */
+    public long getRunCount();
+
+    /** Returns when the reaper last ran, in milliseconds since the epoch; or 0 if never. */
+    public long getLastRunTime();
+
+    /** Returns the number of connections closed by the last run. */
+    public int getLastClosedConnections();
+
+    /** Returns the number of connections closed for having been idle for too long. */
+    public long getClosedIdleConnections();
+
+    /** Returns the number of connections closed for having outlived their time to live. */
+    public long getClosedExpiredConnections();
+}
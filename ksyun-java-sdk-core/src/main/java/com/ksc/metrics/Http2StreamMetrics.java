@@ -0,0 +1,79 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.metrics;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.ksc.annotation.ThreadSafe;
+
+/**
+ * The statistics of the streams of an HTTP/2 http client, exposed as an
+ * MBean.
+ */
+@ThreadSafe
+public class Http2StreamMetrics implements Http2StreamMetricsMBean {
+    private final AtomicInteger activeStreams = new AtomicInteger();
+    private final AtomicInteger peakActiveStreams = new AtomicInteger();
+    private final AtomicLong http2Responses = new AtomicLong();
+    private final AtomicLong http11Responses = new AtomicLong();
+    private final Set<String> http2Hosts =
+            Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /**
+     * Records a request being sent.
+     *
+     * @return the number of requests in flight, this one included.
+     */
+    public int streamOpened() {
+        final int active = activeStreams.incrementAndGet();
+        int peak;
+        while (active > (peak = peakActiveStreams.get())) {
+            if (peakActiveStreams.compareAndSet(peak, active)) {
+                break;
+            }
+        }
+        return active;
+    }
+
+    /** Records a request having failed or its response having been read. */
+    public void streamClosed() {
+        activeStreams.decrementAndGet();
+    }
+
+    /**
+     * Records a response from the given host.
+     *
+     * @param http2 true if it was received over HTTP/2; false if over HTTP/1.1.
+     */
+    public void responseReceived(String host, boolean http2) {
+        if (http2) {
+            http2Responses.incrementAndGet();
+            http2Hosts.add(host);
+        } else {
+            http11Responses.incrementAndGet();
+        }
+    }
+
+    @Override public int getActiveStreams() { return activeStreams.get(); }
+    @Override public int getPeakActiveStreams() { return peakActiveStreams.get(); }
+    @Override public int getHttp2HostCount() { return http2Hosts.size(); }
+    @Override public String[] getHttp2Hosts() { return http2Hosts.toArray(new String[0]); }
+    @Override public long getHttp2Responses() { return http2Responses.get(); }
+    @Override public long getHttp11Responses() { return http11Responses.get(); }
+}
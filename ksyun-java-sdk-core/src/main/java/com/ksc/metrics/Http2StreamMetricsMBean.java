@@ -0,0 +1,46 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.metrics;
+
+/**
+ * MBean interface of the statistics of the streams of an HTTP/2 http client.
+ */
+public interface Http2StreamMetricsMBean {
+    /** Returns the number of requests currently in flight. */
+    public int getActiveStreams();
+
+    /** Returns the highest number of requests which have been in flight at once. */
+    public int getPeakActiveStreams();
+
+    /**
+     * Returns the number of hosts the client has negotiated HTTP/2 with. The
+     * JDK multiplexes the requests to each of them over a connection it
+     * manages, which it may close and reopen, so this is not a live count of
+     * connections.
+     */
+    public int getHttp2HostCount();
+
+    /** Returns the hosts the client negotiated HTTP/2 with. */
+    public String[] getHttp2Hosts();
+
+    /** Returns the number of responses received over HTTP/2. */
+    public long getHttp2Responses();
+
+    /**
+     * Returns the number of responses received over HTTP/1.1, because the
+     * server did not negotiate HTTP/2.
+     */
+    public long getHttp11Responses();
+}
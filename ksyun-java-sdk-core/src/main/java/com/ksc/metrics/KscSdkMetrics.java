@@ -34,6 +34,9 @@ import com.ksc.auth.DefaultAWSCredentialsProviderChain;
 import com.ksc.auth.PropertiesCredentials;
 import com.ksc.auth.credentials.AWSCredentials;
 import com.ksc.jmx.spi.SdkMBeanRegistry;
+import com.ksc.metrics.latency.AsyncLatencySink;
+import com.ksc.metrics.latency.LatencySink;
+import com.ksc.metrics.latency.LoggingLatencySink;
 import com.ksc.regions.Regions;
 import com.ksc.util.KscServiceMetrics;
 import com.ksc.util.KscRequestMetrics.Field;
@@ -220,6 +223,18 @@ public enum KscSdkMetrics {
      * </pre>
      */
     private static final String ENABLE_HTTP_SOCKET_READ_METRIC = "enableHttpSocketReadMetric";
+
+    /**
+     * Used to enable {@link Field#HttpSocketReadTime} in aggregating mode,
+     * where the socket read times of a request are accumulated on the socket
+     * and recorded as a single summary rather than one event per read.
+     *
+     * <pre>
+     * Example:
+     *  -Dcom.amazonaws.sdk.enableDefaultMetrics=aggregateHttpSocketReadMetric
+     * </pre>
+     */
+    private static final String AGGREGATE_HTTP_SOCKET_READ_METRIC = "aggregateHttpSocketReadMetric";
     /**
      * True if the system property {@link #DEFAULT_METRICS_SYSTEM_PROPERTY} has
      * been set; false otherwise.
@@ -244,6 +259,18 @@ public enum KscSdkMetrics {
      */
     private static volatile boolean httpSocketReadMetricEnabled;
 
+    /**
+     * True if the socket read time metric, when enabled, is to be recorded as
+     * a single summary per request; false otherwise.
+     */
+    private static volatile boolean httpSocketReadMetricAggregated;
+
+    /**
+     * Destination of the per request latency log; defaults to the
+     * <code>com.ksc.latency</code> logger in the legacy key=value format.
+     */
+    private static volatile LatencySink latencySink = new LoggingLatencySink();
+
     private static volatile Regions region;
     private static volatile Integer metricQueueSize;
     private static volatile Long queuePollTimeoutMilli;
@@ -285,6 +312,7 @@ public enum KscSdkMetrics {
             boolean includePerHostMetrics = false;
             boolean useSingleMetricNamespace = false;
             boolean enableHttpSocketReadMetric = false;
+            boolean aggregateHttpSocketReadMetric = false;
             for (String s: values) {
                 String part = s.trim();
                 if (!excludeMachineMetrics && EXCLUDE_MACHINE_METRICS.equals(part)) {
@@ -295,6 +323,9 @@ public enum KscSdkMetrics {
                     useSingleMetricNamespace = true;
                 } else if (!enableHttpSocketReadMetric && ENABLE_HTTP_SOCKET_READ_METRIC.equals(part)) {
                     enableHttpSocketReadMetric = true;
+                } else if (!aggregateHttpSocketReadMetric && AGGREGATE_HTTP_SOCKET_READ_METRIC.equals(part)) {
+                    enableHttpSocketReadMetric = true;
+                    aggregateHttpSocketReadMetric = true;
                 } else {
                     String[] pair = part.split("=");
                     if (pair.length == 2) {
@@ -335,6 +366,7 @@ public enum KscSdkMetrics {
             perHostMetricsIncluded = includePerHostMetrics;
             singleMetricNamespace = useSingleMetricNamespace;
             httpSocketReadMetricEnabled = enableHttpSocketReadMetric;
+            httpSocketReadMetricAggregated = aggregateHttpSocketReadMetric;
         }
     }
 
@@ -592,6 +624,41 @@ public enum KscSdkMetrics {
         return httpSocketReadMetricEnabled;
     }
 
+    /**
+     * Used to choose whether the {@link Field#HttpSocketReadTime} metric, when
+     * enabled, is recorded as a single summary per request instead of one
+     * event per socket read. Only affects sockets created afterwards.
+     */
+    public static void setHttpSocketReadMetricAggregated(boolean aggregated) {
+        KscSdkMetrics.httpSocketReadMetricAggregated = aggregated;
+    }
+
+    /**
+     * Returns true if the socket read time metric is recorded as a single
+     * summary per request; false otherwise.
+     */
+    public static boolean isHttpSocketReadMetricAggregated() {
+        return httpSocketReadMetricAggregated;
+    }
+
+    /**
+     * Returns the sink that receives the request metrics of every completed
+     * request when request metrics are enabled; never null.
+     */
+    public static LatencySink getLatencySink() {
+        return latencySink;
+    }
+
+    /**
+     * Sets the sink that receives the request metrics of every completed
+     * request, such as an {@link AsyncLatencySink} to move the encoding and
+     * writing of the latency log off the request thread. A null value
+     * disables the latency log.
+     */
+    public static void setLatencySink(LatencySink latencySink) {
+        KscSdkMetrics.latencySink = latencySink == null ? LatencySink.NONE : latencySink;
+    }
+
     /**
      * Starts the default AWS SDK metric collector, but
      * only if no metric collector is currently in use at the AWS SDK
@@ -878,6 +945,12 @@ public enum KscSdkMetrics {
             metricTypes.add(Field.HttpClientPoolAvailableCount);
             metricTypes.add(Field.HttpClientPoolLeasedCount);
             metricTypes.add(Field.HttpClientPoolPendingCount);
+            metricTypes.add(Field.HedgedRequestTime);
+            metricTypes.add(Field.TlsHandshakeTime);
+            metricTypes.add(Field.TlsFullHandshakeCount);
+            metricTypes.add(Field.TlsResumedHandshakeCount);
+            metricTypes.add(Field.Http2ActiveStreamCount);
+            metricTypes.add(Field.Http2ResponseCount);
             metricTypes.add(KscServiceMetrics.HttpClientGetConnectionTime);
             syncReadOnly();
         }
@@ -48,7 +48,6 @@ public class MetricFilterInputStream extends SdkFilterInputStream {
 
     @Override
     public void close() throws IOException {
-        helper.reportMetrics();
         in.close();
         abortIfNeeded();
     }
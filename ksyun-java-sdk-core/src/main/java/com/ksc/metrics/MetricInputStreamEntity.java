@@ -99,7 +99,6 @@ public class MetricInputStreamEntity extends InputStreamEntity {
                 }
             }
         } finally {
-            helper.reportMetrics();
             instream.close();
         }
     }
@@ -35,6 +35,23 @@ public abstract class ServiceMetricCollector {
      * Collects metrics for non-request specific latencies.
      */
     public abstract void collectLatency(ServiceLatencyProvider provider);
+    /**
+     * Collects a periodic sample of the statistics of an http connection pool.
+     * Does nothing by default.
+     */
+    public void collectConnectionPoolStats(ConnectionPoolStatsProvider provider) {}
+    /**
+     * Collects that a route of an http connection pool, or the whole pool if
+     * the route is null, is no longer sampled, so that the series of its
+     * previous samples can be dropped. The provider carries no sample. Does
+     * nothing by default.
+     */
+    public void collectConnectionPoolRemoval(ConnectionPoolStatsProvider provider) {}
+    /**
+     * Collects the duration of a TLS handshake and whether it resumed a
+     * cached session. Does nothing by default.
+     */
+    public void collectTlsHandshake(TlsHandshakeProvider provider) {}
 
     public boolean isEnabled() { return true; }
     /** A convenient instance of a no-op service metric collector. */
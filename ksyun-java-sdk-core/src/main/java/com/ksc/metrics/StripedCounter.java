@@ -0,0 +1,64 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.ksc.annotation.ThreadSafe;
+
+/**
+ * A long counter striped across several cells, each updated only by the
+ * threads hashing to it, so that concurrent writers rarely contend on the
+ * same cache line. Reads sum all the cells and are meant to be infrequent.
+ */
+@ThreadSafe
+class StripedCounter {
+    /** Cells are spaced this many longs apart to avoid false sharing. */
+    private static final int PADDING = 8;
+    private static final int STRIPES;
+    static {
+        int n = 1;
+        int target = Runtime.getRuntime().availableProcessors() * 2;
+        while (n < target && n < 64)
+            n <<= 1;
+        STRIPES = n;
+    }
+
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+    void add(long delta) {
+        final int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+        cells.addAndGet(stripe * PADDING, delta);
+    }
+
+    long sum() {
+        long sum = 0;
+        for (int i = 0; i < STRIPES; i++)
+            sum += cells.get(i * PADDING);
+        return sum;
+    }
+
+    /**
+     * Returns the sum of all the cells while resetting each of them to zero.
+     * Concurrent additions are never lost; they are either included in the
+     * returned sum or left for the next call.
+     */
+    long sumThenReset() {
+        long sum = 0;
+        for (int i = 0; i < STRIPES; i++)
+            sum += cells.getAndSet(i * PADDING, 0);
+        return sum;
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.ksc.annotation.ThreadSafe;
+
+/**
+ * Accumulates the byte throughput of all the metric streams per
+ * {@link ThroughputMetricType} into striped counters, and periodically
+ * reports the totals to the {@link ServiceMetricCollector} from a single
+ * background daemon thread. This keeps the read and write paths of the
+ * streams free of any call into the collectors.
+ */
+@ThreadSafe
+final class ThroughputAggregator {
+    static final int REPORT_INTERVAL_SECS = 10;
+    private static final Log log = LogFactory.getLog(ThroughputAggregator.class);
+    private static final Map<ThroughputMetricType, Counters> counters =
+            new ConcurrentHashMap<ThroughputMetricType, Counters>();
+    /** Lazily started on the first registration. */
+    private static ScheduledThreadPoolExecutor executor;
+
+    private ThroughputAggregator() {
+    }
+
+    /** The byte and duration counters of one throughput metric type. */
+    static final class Counters {
+        private final ThroughputMetricType type;
+        private final StripedCounter bytes = new StripedCounter();
+        private final StripedCounter nanos = new StripedCounter();
+
+        private Counters(ThroughputMetricType type) {
+            this.type = type;
+        }
+
+        void increment(int bytesDelta, long durationNano) {
+            bytes.add(bytesDelta);
+            nanos.add(durationNano);
+        }
+    }
+
+    /**
+     * Returns the counters of the given metric type, starting the background
+     * aggregation if necessary.
+     */
+    static Counters countersOf(ThroughputMetricType type) {
+        Counters c = counters.get(type);
+        if (c == null) {
+            synchronized (ThroughputAggregator.class) {
+                c = counters.get(type);
+                if (c == null) {
+                    c = new Counters(type);
+                    counters.put(type, c);
+                    startIfNecessary();
+                }
+            }
+        }
+        return c;
+    }
+
+    private static void startIfNecessary() {
+        if (executor != null)
+            return;
+        executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "java-sdk-throughput-aggregator");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    report();
+                } catch (Throwable t) {
+                    log.debug("Failed to report byte throughput", t);
+                }
+            }
+        }, REPORT_INTERVAL_SECS, REPORT_INTERVAL_SECS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Reports the bytes and durations accumulated since the last report to
+     * the current service metric collector.
+     */
+    static void report() {
+        ServiceMetricCollector col = KscSdkMetrics.getServiceMetricCollector();
+        for (Counters c : counters.values()) {
+            long byteCount = c.bytes.sumThenReset();
+            long durationNano = c.nanos.sumThenReset();
+            // Chunk the total since providers expose an int byte count
+            while (byteCount > 0) {
+                int chunk = (int) Math.min(byteCount, Integer.MAX_VALUE);
+                long chunkNano = chunk == byteCount
+                        ? durationNano : (long) (durationNano * ((double) chunk / byteCount));
+                col.collectByteThroughput(new Total(c.type, chunk, chunkNano));
+                byteCount -= chunk;
+                durationNano -= chunkNano;
+            }
+        }
+    }
+
+    /** The throughput of one metric type over a report interval. */
+    private static final class Total extends ByteThroughputProvider {
+        Total(ThroughputMetricType type, int byteCount, long durationNano) {
+            super(type);
+            set(byteCount, durationNano);
+        }
+
+        @Override
+        public String getProviderId() {
+            return getThroughputMetricType().name();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.metrics;
+
+import com.ksc.util.TimingInfo;
+
+/**
+ * A completed TLS handshake, as reported to
+ * {@link ServiceMetricCollector#collectTlsHandshake}.
+ */
+public class TlsHandshakeProvider {
+    private final String host;
+    private final int port;
+    private final String protocol;
+    private final boolean resumed;
+    private final long startNano;
+    private final long endNano;
+
+    public TlsHandshakeProvider(String host, int port, String protocol, boolean resumed,
+                                long startNano, long endNano) {
+        this.host = host;
+        this.port = port;
+        this.protocol = protocol;
+        this.resumed = resumed;
+        this.startNano = startNano;
+        this.endNano = endNano;
+    }
+
+    /** Returns the host name the handshake took place with. */
+    public String getHost() { return host; }
+
+    public int getPort() { return port; }
+
+    /** Returns the negotiated protocol, eg TLSv1.2. */
+    public String getProtocol() { return protocol; }
+
+    /**
+     * Returns true if the handshake resumed a cached session; false if it was
+     * a full handshake.
+     */
+    public boolean isResumed() { return resumed; }
+
+    public double getDurationMilli() {
+        return TimingInfo.durationMilliOf(startNano, endNano);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("host=%s, port=%d, protocol=%s, resumed=%s, startNano=%d, endNano=%d",
+                host, port, protocol, resumed, startNano, endNano);
+    }
+}
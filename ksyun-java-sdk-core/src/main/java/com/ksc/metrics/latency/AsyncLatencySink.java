@@ -0,0 +1,214 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.metrics.latency;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.ksc.annotation.ThreadSafe;
+import com.ksc.util.KscRequestMetrics;
+
+/**
+ * A latency sink that moves the encoding and writing of the latency log off
+ * the request thread.
+ * <p>
+ * The request thread only samples and offers the request metrics to a
+ * bounded queue; if the queue is full the entry is dropped and counted
+ * rather than blocking the request. A single daemon writer thread drains the
+ * queue in batches, encodes each entry into a reused buffer and writes it
+ * either to the given {@link Writer}, one entry per line, or to the
+ * <code>com.ksc.latency</code> logger at INFO level.
+ */
+@ThreadSafe
+public class AsyncLatencySink extends LatencySink {
+    public static final int DEFAULT_QUEUE_SIZE = 4096;
+    private static final int MAX_BATCH_SIZE = 256;
+    /** Writer buffers larger than this are not retained between batches. */
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+    /** How long the writer thread waits for an entry before checking for shutdown. */
+    private static final long POLL_TIMEOUT_MILLIS = 100;
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator", "\n");
+    private static final Log log = LogFactory.getLog(AsyncLatencySink.class);
+
+    private final LatencyEncoder encoder;
+    private final Writer writer;
+    private final int sampleRate;
+    private final BlockingQueue<KscRequestMetrics> queue;
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final Thread writerThread;
+    private volatile boolean shutdown;
+    /* Only accessed by the writer thread. */
+    private char[] chars = new char[512];
+
+    /**
+     * Logs every request in JSON lines format to the
+     * <code>com.ksc.latency</code> logger.
+     */
+    public AsyncLatencySink() {
+        this(new JsonLinesLatencyEncoder(), null, DEFAULT_QUEUE_SIZE, 1);
+    }
+
+    /**
+     * @param encoder
+     *            the encoder of each line
+     * @param writer
+     *            the destination of the log, or null to use the
+     *            <code>com.ksc.latency</code> logger; closed by
+     *            {@link #close()}
+     * @param queueSize
+     *            the maximum number of entries waiting to be written before
+     *            new entries are dropped
+     * @param sampleRate
+     *            only one in every <code>sampleRate</code> requests is logged;
+     *            1 logs every request
+     */
+    public AsyncLatencySink(LatencyEncoder encoder, Writer writer,
+            int queueSize, int sampleRate) {
+        if (encoder == null)
+            throw new IllegalArgumentException("encoder must not be null");
+        if (queueSize <= 0)
+            throw new IllegalArgumentException("queueSize must be positive: " + queueSize);
+        if (sampleRate <= 0)
+            throw new IllegalArgumentException("sampleRate must be positive: " + sampleRate);
+        this.encoder = encoder;
+        this.writer = writer;
+        this.sampleRate = sampleRate;
+        this.queue = new ArrayBlockingQueue<KscRequestMetrics>(queueSize);
+        this.writerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeLoop();
+            }
+        }, "java-sdk-latency-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @Override
+    public void log(KscRequestMetrics metrics) {
+        if (shutdown)
+            return;
+        if (sampleRate > 1 && sequence.getAndIncrement() % sampleRate != 0)
+            return;
+        if (!queue.offer(metrics))
+            dropped.incrementAndGet();
+    }
+
+    /** Returns the number of entries dropped because the queue was full. */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /** Returns the number of entries written so far. */
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    /**
+     * Stops accepting new entries, writes out the entries already queued and
+     * closes the writer, if any.
+     * <p>
+     * The writer thread is not interrupted, since an interrupt closes writers
+     * backed by an interruptible channel and loses the queued entries; it
+     * notices the shutdown within {@value #POLL_TIMEOUT_MILLIS} ms instead.
+     */
+    public void close() {
+        shutdown = true;
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        final List<KscRequestMetrics> batch = new ArrayList<KscRequestMetrics>(MAX_BATCH_SIZE);
+        StringBuilder buffer = new StringBuilder(512);
+        try {
+            while (!shutdown) {
+                KscRequestMetrics first;
+                try {
+                    first = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    // Not interrupted by close(); stop as if it had been called
+                    break;
+                }
+                if (first == null)
+                    continue;
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+                buffer = writeBatch(batch, buffer);
+            }
+            // Flush whatever was queued before shutdown
+            while (queue.drainTo(batch, MAX_BATCH_SIZE) > 0) {
+                buffer = writeBatch(batch, buffer);
+            }
+        } finally {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    log.debug("Failed to close latency log writer", e);
+                }
+            }
+        }
+    }
+
+    private StringBuilder writeBatch(List<KscRequestMetrics> batch, StringBuilder buffer) {
+        for (int i = 0; i < batch.size(); i++) {
+            buffer.setLength(0);
+            try {
+                encoder.encode(batch.get(i), buffer);
+                if (writer == null) {
+                    LoggingLatencySink.latencyLogger.info(buffer.toString());
+                } else {
+                    buffer.append(LINE_SEPARATOR);
+                    final int len = buffer.length();
+                    if (chars.length < len)
+                        chars = new char[Math.max(len, chars.length * 2)];
+                    buffer.getChars(0, len, chars, 0);
+                    writer.write(chars, 0, len);
+                }
+                written.incrementAndGet();
+            } catch (Exception e) {
+                log.debug("Failed to write latency log entry", e);
+            }
+        }
+        batch.clear();
+        if (writer != null) {
+            try {
+                writer.flush();
+            } catch (IOException e) {
+                log.debug("Failed to flush latency log writer", e);
+            }
+        }
+        if (buffer.capacity() > MAX_RETAINED_BUFFER_SIZE) {
+            chars = new char[512];
+            return new StringBuilder(512);
+        }
+        return buffer;
+    }
+}
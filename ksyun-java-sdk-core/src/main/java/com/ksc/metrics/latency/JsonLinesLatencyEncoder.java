@@ -0,0 +1,138 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.metrics.latency;
+
+import java.util.List;
+import java.util.Map.Entry;
+
+import com.ksc.util.KscRequestMetrics;
+import com.ksc.util.TimingInfo;
+
+/**
+ * Encodes request metrics as one compact JSON object per line with fixed
+ * top level field names:
+ * <pre>
+ * {"startTime":1476780000000,
+ *  "properties":{"ServiceName":["ec2"],"StatusCode":[200]},
+ *  "counters":{"RequestCount":1},
+ *  "timings":{"HttpRequestTime":[12.5],"RequestSigningTime":[0.3]}}
+ * </pre>
+ * Timings are in milliseconds. Values are appended directly to the buffer
+ * rather than via the <code>toString()</code> of the underlying collections,
+ * so the output is stable and easy to parse. Non-finite floating point values
+ * are written as <code>null</code>.
+ */
+public class JsonLinesLatencyEncoder implements LatencyEncoder {
+
+    @Override
+    public void encode(KscRequestMetrics metrics, StringBuilder out) {
+        final TimingInfo timingInfo = metrics.getTimingInfo();
+        out.append('{');
+        Long startTime = timingInfo.getStartEpochTimeMilliIfKnown();
+        if (startTime != null) {
+            out.append("\"startTime\":").append(startTime.longValue()).append(',');
+        }
+
+        out.append("\"properties\":{");
+        boolean first = true;
+        for (Entry<String, List<Object>> entry : metrics.getAllProperties().entrySet()) {
+            first = key(entry.getKey(), first, out);
+            out.append('[');
+            List<Object> values = entry.getValue();
+            for (int i = 0; i < values.size(); i++) {
+                if (i > 0)
+                    out.append(',');
+                value(values.get(i), out);
+            }
+            out.append(']');
+        }
+
+        out.append("},\"counters\":{");
+        first = true;
+        for (Entry<String, Number> entry : timingInfo.getAllCounters().entrySet()) {
+            first = key(entry.getKey(), first, out);
+            value(entry.getValue(), out);
+        }
+
+        out.append("},\"timings\":{");
+        first = true;
+        for (Entry<String, List<TimingInfo>> entry : timingInfo.getSubMeasurementsByName().entrySet()) {
+            first = key(entry.getKey(), first, out);
+            out.append('[');
+            List<TimingInfo> timings = entry.getValue();
+            for (int i = 0; i < timings.size(); i++) {
+                if (i > 0)
+                    out.append(',');
+                TimingInfo t = timings.get(i);
+                if (t.isEndTimeKnown())
+                    out.append(TimingInfo.durationMilliOf(t.getStartTimeNano(), t.getEndTimeNano()));
+                else
+                    out.append("null");
+            }
+            out.append(']');
+        }
+        out.append("}}");
+    }
+
+    private static boolean key(String key, boolean first, StringBuilder out) {
+        if (!first)
+            out.append(',');
+        string(key, out);
+        out.append(':');
+        return false;
+    }
+
+    private static void value(Object value, StringBuilder out) {
+        if (value == null) {
+            out.append("null");
+        } else if (value instanceof Double || value instanceof Float) {
+            // JSON has no literal for NaN and the infinities
+            double d = ((Number) value).doubleValue();
+            if (Double.isNaN(d) || Double.isInfinite(d))
+                out.append("null");
+            else
+                out.append(value);
+        } else if (value instanceof Number || value instanceof Boolean) {
+            out.append(value);
+        } else if (value instanceof Throwable) {
+            string(value.getClass().getName(), out);
+        } else {
+            string(value.toString(), out);
+        }
+    }
+
+    private static void string(String s, StringBuilder out) {
+        out.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+            case '"': out.append("\\\""); break;
+            case '\\': out.append("\\\\"); break;
+            case '\n': out.append("\\n"); break;
+            case '\r': out.append("\\r"); break;
+            case '\t': out.append("\\t"); break;
+            default:
+                if (c < 0x20) {
+                    out.append("\\u00");
+                    out.append(Character.forDigit(c >> 4, 16));
+                    out.append(Character.forDigit(c & 0xF, 16));
+                } else {
+                    out.append(c);
+                }
+            }
+        }
+        out.append('"');
+    }
+}
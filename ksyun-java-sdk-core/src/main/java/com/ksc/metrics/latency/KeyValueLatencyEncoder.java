@@ -0,0 +1,48 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.metrics.latency;
+
+import java.util.List;
+import java.util.Map.Entry;
+
+import com.ksc.util.KscRequestMetrics;
+import com.ksc.util.TimingInfo;
+
+/**
+ * The original "key=value, " format of the <code>com.ksc.latency</code>
+ * logger, kept as the default for backward compatibility.
+ */
+public class KeyValueLatencyEncoder implements LatencyEncoder {
+    private static final String KEY_VALUE_SEPARATOR = "=";
+    private static final String COMMA_SEPARATOR = ", ";
+
+    @Override
+    public void encode(KscRequestMetrics metrics, StringBuilder out) {
+        for (Entry<String, List<Object>> entry : metrics.getAllProperties().entrySet()) {
+            keyValueFormat(entry.getKey(), entry.getValue(), out);
+        }
+        TimingInfo timingInfo = metrics.getTimingInfo();
+        for (Entry<String, Number> entry : timingInfo.getAllCounters().entrySet()) {
+            keyValueFormat(entry.getKey(), entry.getValue(), out);
+        }
+        for (Entry<String, List<TimingInfo>> entry : timingInfo.getSubMeasurementsByName().entrySet()) {
+            keyValueFormat(entry.getKey(), entry.getValue(), out);
+        }
+    }
+
+    private void keyValueFormat(Object key, Object value, StringBuilder out) {
+        out.append(key).append(KEY_VALUE_SEPARATOR).append(value).append(COMMA_SEPARATOR);
+    }
+}
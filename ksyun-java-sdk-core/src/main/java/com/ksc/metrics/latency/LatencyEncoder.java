@@ -0,0 +1,29 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.metrics.latency;
+
+import com.ksc.util.KscRequestMetrics;
+
+/**
+ * Encodes the request metrics of a completed request into a single line of
+ * the latency log, without the trailing line separator.
+ */
+public interface LatencyEncoder {
+    /**
+     * Appends the encoded form of the given request metrics to the given
+     * buffer.
+     */
+    public void encode(KscRequestMetrics metrics, StringBuilder out);
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.metrics.latency;
+
+import com.ksc.metrics.KscSdkMetrics;
+import com.ksc.util.KscRequestMetrics;
+
+/**
+ * A service provider interface for the destination of the latency log, ie
+ * the request metrics of each completed request.
+ *
+ * @see KscSdkMetrics#setLatencySink(LatencySink)
+ */
+public abstract class LatencySink {
+    /**
+     * Called once at the end of each request/response cycle with the
+     * request metrics of the request. The given metrics are no longer
+     * modified by the SDK once passed to this method.
+     */
+    public abstract void log(KscRequestMetrics metrics);
+
+    /** A convenient instance of a no-op latency sink. */
+    public static final LatencySink NONE = new LatencySink() {
+        @Override public void log(KscRequestMetrics metrics) {}
+    };
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.metrics.latency;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.ksc.util.KscRequestMetrics;
+
+/**
+ * Synchronously encodes and writes the request metrics to the
+ * <code>com.ksc.latency</code> logger at INFO level, on the thread completing
+ * the request. This is the default latency sink.
+ */
+public class LoggingLatencySink extends LatencySink {
+    /* Latency Logger */
+    static final Log latencyLogger = LogFactory.getLog("com.ksc.latency");
+
+    private final LatencyEncoder encoder;
+
+    /** Uses the legacy key=value format. */
+    public LoggingLatencySink() {
+        this(new KeyValueLatencyEncoder());
+    }
+
+    public LoggingLatencySink(LatencyEncoder encoder) {
+        this.encoder = encoder;
+    }
+
+    @Override
+    public void log(KscRequestMetrics metrics) {
+        if (latencyLogger.isInfoEnabled()) {
+            StringBuilder builder = new StringBuilder();
+            encoder.encode(metrics, builder);
+            latencyLogger.info(builder.toString());
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.metrics.openmetrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A monotonically increasing OpenMetrics counter family. Samples are exposed
+ * with the conventional <code>_total</code> suffix.
+ */
+public class Counter extends MetricFamily<Counter.Child> {
+
+    public Counter(String name, String help, String... labelNames) {
+        super(name, help, labelNames);
+    }
+
+    /** The counter of a single label combination. */
+    public static final class Child {
+        private final AtomicLong value = new AtomicLong();
+
+        public void inc() { value.incrementAndGet(); }
+
+        /** Increments by the given non-negative amount. */
+        public void inc(long amount) {
+            if (amount < 0)
+                throw new IllegalArgumentException("Counters can only be incremented");
+            value.addAndGet(amount);
+        }
+
+        public long get() { return value.get(); }
+    }
+
+    @Override protected Child newChild() { return new Child(); }
+    @Override protected String type() { return "counter"; }
+
+    @Override
+    protected void writeSamples(StringBuilder out, String labels, Child child) {
+        sample(out, getName() + "_total", labels, null, Long.toString(child.get()));
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.metrics.openmetrics;
+
+/**
+ * An OpenMetrics gauge family holding the last value set per label
+ * combination.
+ */
+public class Gauge extends MetricFamily<Gauge.Child> {
+
+    public Gauge(String name, String help, String... labelNames) {
+        super(name, help, labelNames);
+    }
+
+    /** The gauge of a single label combination. */
+    public static final class Child {
+        private volatile long value;
+
+        public void set(long value) { this.value = value; }
+        public long get() { return value; }
+    }
+
+    @Override protected Child newChild() { return new Child(); }
+    @Override protected String type() { return "gauge"; }
+
+    @Override
+    protected void writeSamples(StringBuilder out, String labels, Child child) {
+        sample(out, getName(), labels, null, Long.toString(child.get()));
+    }
+}
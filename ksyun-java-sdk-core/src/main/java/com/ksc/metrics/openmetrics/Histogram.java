@@ -0,0 +1,92 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.metrics.openmetrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * An OpenMetrics histogram family with fixed, cumulative bucket boundaries.
+ * Observations are recorded lock-free; the rendered buckets are cumulative
+ * as required by the exposition format.
+ */
+public class Histogram extends MetricFamily<Histogram.Child> {
+    /**
+     * Default bucket upper bounds in seconds, suitable for request latencies
+     * ranging from a few milliseconds to tens of seconds.
+     */
+    public static final double[] DEFAULT_SECONDS_BUCKETS = {
+        0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30 };
+
+    private final double[] upperBounds;
+
+    public Histogram(String name, String help, double[] upperBounds, String... labelNames) {
+        super(name, help, labelNames);
+        double[] bounds = upperBounds == null ? DEFAULT_SECONDS_BUCKETS : upperBounds;
+        for (int i = 1; i < bounds.length; i++) {
+            if (bounds[i] <= bounds[i - 1])
+                throw new IllegalArgumentException("Histogram buckets must be in increasing order");
+        }
+        this.upperBounds = bounds.clone();
+    }
+
+    /** Returns the bucket upper bounds, without the trailing +Inf bucket. */
+    public double[] getUpperBounds() {
+        return upperBounds.clone();
+    }
+
+    /** The histogram of a single label combination. */
+    public final class Child {
+        // One slot per upper bound, plus the trailing +Inf bucket
+        private final AtomicLongArray buckets = new AtomicLongArray(upperBounds.length + 1);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sumBits = new AtomicLong(Double.doubleToLongBits(0));
+
+        public void observe(double value) {
+            int i = 0;
+            while (i < upperBounds.length && value > upperBounds[i])
+                i++;
+            buckets.incrementAndGet(i);
+            for (;;) {
+                long bits = sumBits.get();
+                long next = Double.doubleToLongBits(Double.longBitsToDouble(bits) + value);
+                if (sumBits.compareAndSet(bits, next))
+                    break;
+            }
+            count.incrementAndGet();
+        }
+
+        public long getCount() { return count.get(); }
+        public double getSum() { return Double.longBitsToDouble(sumBits.get()); }
+    }
+
+    @Override protected Child newChild() { return new Child(); }
+    @Override protected String type() { return "histogram"; }
+
+    @Override
+    protected void writeSamples(StringBuilder out, String labels, Child child) {
+        final String bucketName = getName() + "_bucket";
+        long cumulative = 0;
+        for (int i = 0; i <= upperBounds.length; i++) {
+            cumulative += child.buckets.get(i);
+            String le = i < upperBounds.length ? format(upperBounds[i]) : "+Inf";
+            sample(out, bucketName, labels, "le=\"" + le + "\"", Long.toString(cumulative));
+        }
+        // Count is derived from the buckets so the rendered samples are
+        // self-consistent even under concurrent observations.
+        sample(out, getName() + "_count", labels, null, Long.toString(cumulative));
+        sample(out, getName() + "_sum", labels, null, format(child.getSum()));
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.metrics.openmetrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Base class of a named OpenMetrics metric family, which owns one child per
+ * distinct combination of label values.
+ *
+ * @param <C> the type of the per-label child holding the actual samples
+ */
+public abstract class MetricFamily<C> {
+    private final String name;
+    private final String help;
+    private final String[] labelNames;
+    private final ConcurrentMap<List<String>, C> children =
+            new ConcurrentHashMap<List<String>, C>();
+
+    protected MetricFamily(String name, String help, String... labelNames) {
+        if (name == null || name.isEmpty())
+            throw new IllegalArgumentException("metric name must not be empty");
+        this.name = name;
+        this.help = help;
+        this.labelNames = labelNames == null ? new String[0] : labelNames.clone();
+    }
+
+    public final String getName() { return name; }
+    public final String getHelp() { return help; }
+    public final List<String> getLabelNames() { return Arrays.asList(labelNames); }
+
+    /**
+     * Returns the child for the given label values, creating it if necessary.
+     *
+     * @throws IllegalArgumentException
+     *             if the number of label values does not match the number of
+     *             label names of this family.
+     */
+    public final C labels(String... labelValues) {
+        if (labelValues.length != labelNames.length) {
+            throw new IllegalArgumentException("Expected " + labelNames.length
+                    + " label values for " + name + " but got " + labelValues.length);
+        }
+        List<String> key = Arrays.asList(labelValues.clone());
+        C child = children.get(key);
+        if (child == null) {
+            C created = newChild();
+            child = children.putIfAbsent(key, created);
+            if (child == null)
+                child = created;
+        }
+        return child;
+    }
+
+    /**
+     * Removes the children whose value of the given label is the given
+     * value, such as all the series of a connection pool which has been shut
+     * down.
+     *
+     * @throws IllegalArgumentException
+     *             if this family has no such label.
+     */
+    public final void removeMatching(String labelName, String labelValue) {
+        int index = Arrays.asList(labelNames).indexOf(labelName);
+        if (index < 0)
+            throw new IllegalArgumentException(name + " has no label " + labelName);
+        for (Iterator<List<String>> it = children.keySet().iterator(); it.hasNext();) {
+            if (it.next().get(index).equals(labelValue))
+                it.remove();
+        }
+    }
+
+    /** Removes the child of the given label values, if any. */
+    public final void remove(String... labelValues) {
+        children.remove(Arrays.asList(labelValues));
+    }
+
+    /** Returns a new child holding the samples of one label combination. */
+    protected abstract C newChild();
+
+    /** Returns the OpenMetrics type of this family, such as "counter". */
+    protected abstract String type();
+
+    /**
+     * Appends the samples of the given child in OpenMetrics text format.
+     *
+     * @param labels
+     *            the already rendered label set of the child, such as
+     *            <code>service="ec2"</code>; empty if there is none.
+     */
+    protected abstract void writeSamples(StringBuilder out, String labels, C child);
+
+    final void writeTo(StringBuilder out) {
+        out.append("# TYPE ").append(name).append(' ').append(type()).append('\n');
+        if (help != null) {
+            out.append("# HELP ").append(name).append(' ');
+            escape(help, out);
+            out.append('\n');
+        }
+        List<Map.Entry<List<String>, C>> entries =
+                new ArrayList<Map.Entry<List<String>, C>>(children.entrySet());
+        for (Map.Entry<List<String>, C> e : entries) {
+            writeSamples(out, renderLabels(e.getKey()), e.getValue());
+        }
+    }
+
+    private String renderLabels(List<String> values) {
+        if (labelNames.length == 0)
+            return "";
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < labelNames.length; i++) {
+            if (i > 0)
+                sb.append(',');
+            sb.append(labelNames[i]).append("=\"");
+            escape(values.get(i), sb);
+            sb.append('"');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Appends a sample line using the given label set plus an optional extra
+     * label, such as the <code>le</code> label of histogram buckets.
+     */
+    static void sample(StringBuilder out, String name, String labels,
+            String extraLabel, String value) {
+        out.append(name);
+        boolean hasLabels = labels.length() > 0;
+        if (hasLabels || extraLabel != null) {
+            out.append('{').append(labels);
+            if (extraLabel != null) {
+                if (hasLabels)
+                    out.append(',');
+                out.append(extraLabel);
+            }
+            out.append('}');
+        }
+        out.append(' ').append(value).append('\n');
+    }
+
+    static String format(double d) {
+        if (d == Double.POSITIVE_INFINITY)
+            return "+Inf";
+        if (d == Double.NEGATIVE_INFINITY)
+            return "-Inf";
+        if (d == Math.rint(d) && Math.abs(d) < 1e15)
+            return Long.toString((long) d);
+        return Double.toString(d);
+    }
+
+    private static void escape(String s, StringBuilder out) {
+        if (s == null)
+            return;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+            case '\\': out.append("\\\\"); break;
+            case '"': out.append("\\\""); break;
+            case '\n': out.append("\\n"); break;
+            default: out.append(c);
+            }
+        }
+    }
+}
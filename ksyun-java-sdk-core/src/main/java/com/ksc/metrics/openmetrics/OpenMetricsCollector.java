@@ -0,0 +1,126 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.metrics.openmetrics;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
+import org.apache.commons.logging.LogFactory;
+
+import com.ksc.metrics.KscSdkMetrics;
+import com.ksc.metrics.MetricCollector;
+import com.ksc.metrics.RequestMetricCollector;
+import com.ksc.metrics.ServiceMetricCollector;
+
+/**
+ * A metric collector which keeps all the KSC SDK metrics in memory in an
+ * {@link OpenMetricsRegistry}, optionally exposed over HTTP by an embedded
+ * {@link OpenMetricsHttpExporter}.
+ * <p>
+ * Example:
+ * <pre>
+ * OpenMetricsCollector collector =
+ *     new OpenMetricsCollector(new InetSocketAddress(9400));
+ * collector.start();
+ * KscSdkMetrics.setMetricCollector(collector);
+ * </pre>
+ *
+ * @see KscSdkMetrics#setMetricCollector(MetricCollector)
+ */
+public class OpenMetricsCollector extends MetricCollector {
+    private final OpenMetricsRegistry registry;
+    private final OpenMetricsRequestMetricCollector requestMetricCollector;
+    private final OpenMetricsServiceMetricCollector serviceMetricCollector;
+    private final InetSocketAddress exporterAddress;
+    private OpenMetricsHttpExporter exporter;
+
+    /** Constructs a collector without an HTTP exporter. */
+    public OpenMetricsCollector() {
+        this(new OpenMetricsRegistry(), null);
+    }
+
+    /**
+     * Constructs a collector which serves the metrics at the given address
+     * once started.
+     */
+    public OpenMetricsCollector(InetSocketAddress exporterAddress) {
+        this(new OpenMetricsRegistry(), exporterAddress);
+    }
+
+    /**
+     * @param exporterAddress
+     *            address for the embedded HTTP exporter; or null if the
+     *            metrics are to be rendered via {@link #getRegistry()} only.
+     */
+    public OpenMetricsCollector(OpenMetricsRegistry registry, InetSocketAddress exporterAddress) {
+        this.registry = registry;
+        this.requestMetricCollector = new OpenMetricsRequestMetricCollector(registry);
+        this.serviceMetricCollector = new OpenMetricsServiceMetricCollector(registry);
+        this.exporterAddress = exporterAddress;
+    }
+
+    @Override
+    public synchronized boolean start() {
+        if (exporter != null || exporterAddress == null)
+            return false;
+        try {
+            OpenMetricsHttpExporter e = new OpenMetricsHttpExporter(registry, exporterAddress);
+            e.start();
+            exporter = e;
+            return true;
+        } catch (IOException ex) {
+            LogFactory.getLog(OpenMetricsCollector.class).warn(
+                    "Failed to start the OpenMetrics exporter on " + exporterAddress, ex);
+            return false;
+        }
+    }
+
+    @Override
+    public synchronized boolean stop() {
+        if (exporter == null)
+            return false;
+        exporter.stop();
+        exporter = null;
+        return true;
+    }
+
+    /** Always returns true, as metrics are aggregated whether or not exported. */
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public RequestMetricCollector getRequestMetricCollector() {
+        return requestMetricCollector;
+    }
+
+    @Override
+    public ServiceMetricCollector getServiceMetricCollector() {
+        return serviceMetricCollector;
+    }
+
+    public OpenMetricsRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Returns the address the exporter is listening on; or null if the
+     * exporter is not running.
+     */
+    public synchronized InetSocketAddress getExporterAddress() {
+        return exporter == null ? null : exporter.getAddress();
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.metrics.openmetrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.commons.logging.LogFactory;
+
+import com.ksc.util.StringUtils;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A minimal embedded HTTP server, based on the JDK built-in
+ * {@link HttpServer}, which serves the content of an
+ * {@link OpenMetricsRegistry} for scraping by Prometheus.
+ * <p>
+ * Requests are served by a single daemon thread, so an exporter that is never
+ * stopped does not prevent the JVM from exiting.
+ */
+public class OpenMetricsHttpExporter {
+    /** The default path the metrics are served from. */
+    public static final String DEFAULT_PATH = "/metrics";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Binds a new exporter serving the given registry under
+     * {@link #DEFAULT_PATH}. Use port 0 to bind to an ephemeral port.
+     */
+    public OpenMetricsHttpExporter(OpenMetricsRegistry registry, InetSocketAddress address)
+            throws IOException {
+        this(registry, address, DEFAULT_PATH);
+    }
+
+    public OpenMetricsHttpExporter(final OpenMetricsRegistry registry,
+            InetSocketAddress address, String path) throws IOException {
+        this.server = HttpServer.create(address, 0);
+        this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "ksc-sdk-openmetrics-exporter");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        server.setExecutor(executor);
+        server.createContext(path, new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    String method = exchange.getRequestMethod();
+                    if (!"GET".equals(method) && !"HEAD".equals(method)) {
+                        exchange.sendResponseHeaders(405, -1);
+                        return;
+                    }
+                    byte[] body = registry.render().getBytes(StringUtils.UTF8);
+                    exchange.getResponseHeaders().set("Content-Type",
+                            OpenMetricsRegistry.CONTENT_TYPE);
+                    if ("HEAD".equals(method)) {
+                        exchange.sendResponseHeaders(200, -1);
+                        return;
+                    }
+                    exchange.sendResponseHeaders(200, body.length);
+                    OutputStream os = exchange.getResponseBody();
+                    try {
+                        os.write(body);
+                    } finally {
+                        os.close();
+                    }
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+    }
+
+    public void start() {
+        server.start();
+        LogFactory.getLog(OpenMetricsHttpExporter.class).debug(
+                "OpenMetrics exporter listening on " + getAddress());
+    }
+
+    /**
+     * Stops serving, waiting at most one second for in-flight scrapes to
+     * complete.
+     */
+    public void stop() {
+        server.stop(1);
+        executor.shutdownNow();
+    }
+
+    /** Returns the address actually bound, including any ephemeral port. */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.metrics.openmetrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.http.annotation.ThreadSafe;
+
+/**
+ * A registry of metric families which can be rendered in the OpenMetrics
+ * text exposition format, as scraped by Prometheus.
+ * <p>
+ * Families are looked up by name, so asking twice for the same name returns
+ * the same family; asking for an existing name with a different metric type,
+ * label names or histogram buckets is an error.
+ */
+@ThreadSafe
+public class OpenMetricsRegistry {
+    /** The content type of the text rendered by {@link #render()}. */
+    public static final String CONTENT_TYPE =
+            "application/openmetrics-text; version=1.0.0; charset=utf-8";
+
+    private final Map<String, MetricFamily<?>> families =
+            new LinkedHashMap<String, MetricFamily<?>>();
+
+    public Counter counter(String name, String help, String... labelNames) {
+        return register(Counter.class, new Counter(name, help, labelNames));
+    }
+
+    public Gauge gauge(String name, String help, String... labelNames) {
+        return register(Gauge.class, new Gauge(name, help, labelNames));
+    }
+
+    /**
+     * @param upperBounds
+     *            bucket upper bounds in increasing order; or null for
+     *            {@link Histogram#DEFAULT_SECONDS_BUCKETS}.
+     */
+    public Histogram histogram(String name, String help, double[] upperBounds,
+            String... labelNames) {
+        return register(Histogram.class, new Histogram(name, help, upperBounds, labelNames));
+    }
+
+    /**
+     * Returns the family registered under the given name; or null if there is
+     * none.
+     */
+    public synchronized MetricFamily<?> get(String name) {
+        return families.get(name);
+    }
+
+    private synchronized <F extends MetricFamily<?>> F register(Class<F> type, F family) {
+        MetricFamily<?> existing = families.get(family.getName());
+        if (existing == null) {
+            families.put(family.getName(), family);
+            return family;
+        }
+        if (!type.isInstance(existing)) {
+            throw new IllegalArgumentException("Metric " + family.getName()
+                    + " is already registered as a " + existing.type());
+        }
+        if (!existing.getLabelNames().equals(family.getLabelNames())) {
+            throw new IllegalArgumentException("Metric " + family.getName()
+                    + " is already registered with labels " + existing.getLabelNames()
+                    + ", not " + family.getLabelNames());
+        }
+        if (existing instanceof Histogram && !Arrays.equals(((Histogram) existing).getUpperBounds(),
+                ((Histogram) family).getUpperBounds())) {
+            throw new IllegalArgumentException("Metric " + family.getName()
+                    + " is already registered with buckets "
+                    + Arrays.toString(((Histogram) existing).getUpperBounds()));
+        }
+        return type.cast(existing);
+    }
+
+    /**
+     * Returns all the registered families in the OpenMetrics text format,
+     * terminated by the mandatory <code># EOF</code> marker.
+     */
+    public String render() {
+        List<MetricFamily<?>> snapshot;
+        synchronized (this) {
+            snapshot = new ArrayList<MetricFamily<?>>(families.values());
+        }
+        StringBuilder out = new StringBuilder(256 * (snapshot.size() + 1));
+        for (MetricFamily<?> family : snapshot) {
+            family.writeTo(out);
+        }
+        out.append("# EOF\n");
+        return out.toString();
+    }
+}
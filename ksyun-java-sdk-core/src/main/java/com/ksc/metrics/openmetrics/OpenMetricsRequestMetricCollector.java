@@ -0,0 +1,158 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.metrics.openmetrics;
+
+import java.util.List;
+
+import com.ksc.Request;
+import com.ksc.Response;
+import com.ksc.metrics.MetricType;
+import com.ksc.metrics.RequestMetricCollector;
+import com.ksc.util.KscRequestMetrics;
+import com.ksc.util.KscRequestMetrics.Field;
+import com.ksc.util.TimingInfo;
+
+/**
+ * A request metric collector which aggregates the {@link KscRequestMetrics}
+ * of every completed request into an {@link OpenMetricsRegistry}.
+ * <p>
+ * Latencies are recorded as histograms in seconds, and throttles, retries,
+ * exceptions and status codes as counters. The connection pool gauges are
+ * published by {@link OpenMetricsServiceMetricCollector} from the samples of
+ * the connection pool sampler rather than from the snapshot captured before
+ * each request, so that each pool has a single family. All series are labelled
+ * by the service name of the request, and further labelled by the product
+ * and operation, ie the {@link Field#Product} and {@link Field#Operation} of
+ * the request, so that slow or throttled APIs of a product stand out.
+ */
+public class OpenMetricsRequestMetricCollector extends RequestMetricCollector {
+    static final String SERVICE_LABEL = "service";
+    static final String PRODUCT_LABEL = "product";
+    static final String OPERATION_LABEL = "operation";
+    /** Product or operation label value of requests without one. */
+    static final String UNKNOWN = "unknown";
+
+    /** The request timings exported as histograms, in this order. */
+    private static final Field[] LATENCY_FIELDS = {
+        Field.ClientExecuteTime,
+        Field.HttpRequestTime,
+        Field.RequestSigningTime,
+        Field.ResponseProcessingTime,
+        Field.RetryPauseTime,
+    };
+
+    private final Histogram[] latencies = new Histogram[LATENCY_FIELDS.length];
+    private final Counter requests;
+    private final Counter retries;
+    private final Counter throttles;
+    private final Counter exceptions;
+    private final Counter statusCodes;
+
+    public OpenMetricsRequestMetricCollector(OpenMetricsRegistry registry) {
+        for (int i = 0; i < LATENCY_FIELDS.length; i++) {
+            Field f = LATENCY_FIELDS[i];
+            latencies[i] = registry.histogram(metricName(f) + "_seconds",
+                    f.name() + " of KSC requests.", null, SERVICE_LABEL, PRODUCT_LABEL, OPERATION_LABEL);
+        }
+        requests = registry.counter("ksc_sdk_requests",
+                "Number of logical requests to KSC.", SERVICE_LABEL, PRODUCT_LABEL, OPERATION_LABEL);
+        retries = registry.counter("ksc_sdk_retries",
+                "Number of retries of requests to KSC.", SERVICE_LABEL, PRODUCT_LABEL, OPERATION_LABEL);
+        throttles = registry.counter("ksc_sdk_throttles",
+                "Number of requests throttled by KSC.", SERVICE_LABEL, PRODUCT_LABEL, OPERATION_LABEL);
+        exceptions = registry.counter("ksc_sdk_exceptions",
+                "Number of failed request attempts.", SERVICE_LABEL, PRODUCT_LABEL, OPERATION_LABEL);
+        statusCodes = registry.counter("ksc_sdk_responses",
+                "Number of HTTP responses by status code.", SERVICE_LABEL, PRODUCT_LABEL, OPERATION_LABEL, "status_code");
+    }
+
+    /**
+     * Returns the snake case metric name for the given field, eg
+     * <code>ksc_sdk_http_request_time</code> for {@link Field#HttpRequestTime}.
+     */
+    static String metricName(MetricType type) {
+        String name = type.name();
+        StringBuilder sb = new StringBuilder("ksc_sdk");
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.isUpperCase(c)) {
+                sb.append('_').append(Character.toLowerCase(c));
+            } else if (Character.isLetterOrDigit(c)) {
+                sb.append(c);
+            } else {
+                sb.append('_');
+            }
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public void collectMetrics(Request<?> request, Response<?> response) {
+        final KscRequestMetrics metrics = request.getKscRequestMetrics();
+        if (metrics == null || !metrics.isEnabled())
+            return;
+        final String service = String.valueOf(request.getServiceName());
+        final String product = labelOf(metrics, Field.Product);
+        final String operation = labelOf(metrics, Field.Operation);
+        final TimingInfo timingInfo = metrics.getTimingInfo();
+
+        for (int i = 0; i < LATENCY_FIELDS.length; i++) {
+            List<TimingInfo> events = timingInfo.getAllSubMeasurements(LATENCY_FIELDS[i].name());
+            if (events == null)
+                continue;
+            Histogram.Child child = latencies[i].labels(service, product, operation);
+            for (TimingInfo event : events) {
+                Double millis = event.getTimeTakenMillisIfKnown();
+                if (millis != null)
+                    child.observe(millis / 1000.0);
+            }
+        }
+
+        requests.labels(service, product, operation).inc();
+        long requestCount = counter(timingInfo, Field.RequestCount);
+        if (requestCount > 1)
+            retries.labels(service, product, operation).inc(requestCount - 1);
+        long throttleCount = counter(timingInfo, Field.ThrottleException);
+        if (throttleCount > 0)
+            throttles.labels(service, product, operation).inc(throttleCount);
+        long exceptionCount = counter(timingInfo, Field.Exception);
+        if (exceptionCount > 0)
+            exceptions.labels(service, product, operation).inc(exceptionCount);
+
+        List<Object> codes = metrics.getProperty(Field.StatusCode);
+        if (codes != null) {
+            for (Object code : codes) {
+                if (code != null)
+                    statusCodes.labels(service, product, operation, code.toString()).inc();
+            }
+        }
+    }
+
+    /**
+     * Returns the value of the given property recorded for the request, such
+     * as its operation, or {@value #UNKNOWN} if none.
+     */
+    static String labelOf(KscRequestMetrics metrics, Field property) {
+        List<Object> values = metrics.getProperty(property);
+        if (values == null || values.isEmpty() || values.get(0) == null)
+            return UNKNOWN;
+        return values.get(0).toString();
+    }
+
+    private static long counter(TimingInfo timingInfo, Field f) {
+        Number n = timingInfo.getCounter(f.name());
+        return n == null ? 0 : n.longValue();
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.metrics.openmetrics;
+
+import java.util.concurrent.TimeUnit;
+
+import com.ksc.metrics.ByteThroughputProvider;
+import com.ksc.metrics.ConnectionPoolStatsProvider;
+import com.ksc.metrics.ConnectionPoolTimeSeries.Sample;
+import com.ksc.metrics.ServiceLatencyProvider;
+import com.ksc.metrics.ServiceMetricCollector;
+import com.ksc.metrics.TlsHandshakeProvider;
+
+/**
+ * A service metric collector which aggregates byte throughput,
+ * non-request specific latencies, connection pool samples and TLS handshakes
+ * into an {@link OpenMetricsRegistry}.
+ */
+public class OpenMetricsServiceMetricCollector extends ServiceMetricCollector {
+    static final String METRIC_LABEL = "metric";
+    static final String POOL_LABEL = "pool";
+    static final String ROUTE_LABEL = "route";
+    /** Route label value of the samples of a pool as a whole. */
+    static final String TOTAL_ROUTE = "total";
+    static final String HOST_LABEL = "host";
+    static final String RESUMED_LABEL = "resumed";
+
+    private final Counter bytes;
+    private final Counter transferNanos;
+    private final Histogram latency;
+    private final Gauge poolLeased;
+    private final Gauge poolAvailable;
+    private final Gauge poolPending;
+    private final Gauge poolMax;
+    private final Histogram tlsHandshakes;
+
+    public OpenMetricsServiceMetricCollector(OpenMetricsRegistry registry) {
+        bytes = registry.counter("ksc_sdk_transferred_bytes",
+                "Number of bytes uploaded or downloaded.", METRIC_LABEL);
+        transferNanos = registry.counter("ksc_sdk_transfer_time_nanoseconds",
+                "Time spent in uploading or downloading bytes.", METRIC_LABEL);
+        latency = registry.histogram("ksc_sdk_service_latency_seconds",
+                "Non-request specific latencies, such as getting a connection.",
+                null, METRIC_LABEL);
+        poolLeased = registry.gauge("ksc_sdk_connection_pool_leased",
+                "Sampled number of leased connections.", POOL_LABEL, ROUTE_LABEL);
+        poolAvailable = registry.gauge("ksc_sdk_connection_pool_available",
+                "Sampled number of idle connections.", POOL_LABEL, ROUTE_LABEL);
+        poolPending = registry.gauge("ksc_sdk_connection_pool_pending",
+                "Sampled number of connection requests awaiting a connection.",
+                POOL_LABEL, ROUTE_LABEL);
+        poolMax = registry.gauge("ksc_sdk_connection_pool_max",
+                "Maximum number of connections.", POOL_LABEL, ROUTE_LABEL);
+        tlsHandshakes = registry.histogram("ksc_sdk_tls_handshake_seconds",
+                "TLS handshakes by host and by whether they resumed a cached session.",
+                null, HOST_LABEL, RESUMED_LABEL);
+    }
+
+    @Override
+    public void collectByteThroughput(ByteThroughputProvider provider) {
+        String metric = provider.getThroughputMetricType().name();
+        bytes.labels(metric).inc(provider.getByteCount());
+        transferNanos.labels(metric).inc(Math.max(0, provider.getDurationNano()));
+    }
+
+    @Override
+    public void collectLatency(ServiceLatencyProvider provider) {
+        latency.labels(provider.getServiceMetricType().name())
+               .observe(provider.getDurationMilli() / TimeUnit.SECONDS.toMillis(1));
+    }
+
+    @Override
+    public void collectConnectionPoolStats(ConnectionPoolStatsProvider provider) {
+        Sample sample = provider.getSample();
+        if (sample == null)
+            return;
+        String pool = provider.getPoolId();
+        String route = provider.getRoute() == null ? TOTAL_ROUTE : provider.getRoute();
+        poolLeased.labels(pool, route).set(sample.getLeased());
+        poolAvailable.labels(pool, route).set(sample.getAvailable());
+        poolPending.labels(pool, route).set(sample.getPending());
+        poolMax.labels(pool, route).set(sample.getMax());
+    }
+
+    @Override
+    public void collectConnectionPoolRemoval(ConnectionPoolStatsProvider provider) {
+        String pool = provider.getPoolId();
+        String route = provider.getRoute();
+        for (Gauge gauge : new Gauge[] {poolLeased, poolAvailable, poolPending, poolMax}) {
+            if (route == null)
+                gauge.removeMatching(POOL_LABEL, pool);
+            else
+                gauge.remove(pool, route);
+        }
+    }
+
+    @Override
+    public void collectTlsHandshake(TlsHandshakeProvider provider) {
+        tlsHandshakes.labels(String.valueOf(provider.getHost()), String.valueOf(provider.isResumed()))
+                     .observe(provider.getDurationMilli() / TimeUnit.SECONDS.toMillis(1));
+    }
+}
@@ -66,6 +66,18 @@
  * <li>RetryCount - Number of retries per logical request. Captured on a per service 
  * client type level. </li>
  * <li>ThrottleException - Number of times of a request has been throttled by the service.</li>
+ * <li>HedgedRequestTime - Number of milliseconds taken by the hedged request
+ * sent because the response to the first one was too slow.</li>
+ * <li>TlsHandshakeTime - Number of milliseconds taken by the TLS handshakes of
+ * the connections opened for a request.</li>
+ * <li>TlsFullHandshakeCount - Number of TLS handshakes of a request which
+ * negotiated a new session.</li>
+ * <li>TlsResumedHandshakeCount - Number of TLS handshakes of a request which
+ * resumed a session cached from an earlier connection to the same host.</li>
+ * <li>Http2ActiveStreamCount - Number of requests in flight on the HTTP/2
+ * transport of the client when a request was sent, the request included.</li>
+ * <li>Http2ResponseCount - Number of responses of a request received over
+ * HTTP/2 by the HTTP/2 transport.</li>
  * <li>DynamoDBConsumedCapacity - Number of Amazon DynamoDB capacity units consumed.
  * Captured on a per request type level, and is only available if the request
  * has been specified with the necessary "ReturnConsumedCapacity" parameter.
@@ -75,6 +87,9 @@
  * <ol>
  * <li>HttpClientGetConnectionTime - Total number of milliseconds taken for the
  * underlying http client library to get a connection.
+ * <li>TLS handshakes - Duration of each TLS handshake by host, and whether it
+ * resumed a cached session, collected through
+ * {@link com.ksc.metrics.ServiceMetricCollector#collectTlsHandshake}.</li>
  * <li>S3DownloadThroughput - Number of bytes downloaded from S3 per second.</li>
  * <li>S3DownloadByteCount - Number of bytes downloaded from S3.</li>
  * <li>S3UploadThroughput - Number of bytes uploaded to S3 per second.</li>
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.retry;
+
+import java.util.concurrent.TimeUnit;
+
+import com.ksc.annotation.ThreadSafe;
+
+/**
+ * A client side token bucket rate limiter whose fill rate adapts to the
+ * throttling responses of the service.
+ * <p>
+ * The bucket is only enforced once a throttling response has been seen.
+ * From then on, every throttle multiplicatively decreases the sending rate,
+ * and every other response grows it back along a cubic curve centered on the
+ * rate at the time of the last throttle (as in TCP CUBIC), so that sustained
+ * load converges on the quota of the service instead of oscillating around
+ * it. The rate is also capped at twice the measured sending rate.
+ */
+@ThreadSafe
+public class AdaptiveRateLimiter {
+    private static final double MIN_FILL_RATE = 0.5;
+    private static final double MIN_CAPACITY = 1;
+    /** Weight of the latest sample in the measured sending rate. */
+    private static final double SMOOTH = 0.8;
+    /** Multiplicative decrease factor on throttling. */
+    private static final double BETA = 0.7;
+    private static final double SCALE_CONSTANT = 0.4;
+    /** Width of the buckets the sending rate is measured over, in seconds. */
+    private static final double MEASURE_BUCKET_SECS = 0.5;
+
+    private double fillRate;
+    private double maxCapacity;
+    private double currentCapacity;
+    private double lastTimestamp = -1;
+    private boolean enabled;
+
+    private double measuredTxRate;
+    private double lastTxRateBucket;
+    private long requestCount;
+    private double lastMaxRate;
+    private double lastThrottleTime;
+    private double timeWindow;
+
+    public AdaptiveRateLimiter() {
+        double now = now();
+        this.lastTxRateBucket = Math.floor(now);
+        this.lastThrottleTime = now;
+    }
+
+    /**
+     * Acquires a token for sending a request, waiting as long as necessary
+     * for one to become available.
+     *
+     * @return the number of milliseconds waited
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public long acquire() throws InterruptedException {
+        final long startNanos = System.nanoTime();
+        tryAcquire(Long.MAX_VALUE);
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Acquires a token for sending a request if one becomes available within
+     * the given time. Gives up without waiting as soon as the token is known
+     * to come too late, rather than sleeping until the timeout to fail anyway.
+     *
+     * @param timeoutMillis
+     *            the maximum number of milliseconds to wait
+     * @return true if a token was acquired; false otherwise
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean tryAcquire(long timeoutMillis) throws InterruptedException {
+        final long startNanos = System.nanoTime();
+        while (true) {
+            final long waitMillis = tryAcquireNow();
+            if (waitMillis == 0) {
+                return true;
+            }
+            final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            if (waitMillis >= timeoutMillis - elapsedMillis) {
+                return false;
+            }
+            Thread.sleep(waitMillis);
+        }
+    }
+
+    /**
+     * Acquires a token for sending a request if one is available right away,
+     * without waiting; callers which must not block, such as asynchronous
+     * executions, retry once the returned time has elapsed.
+     *
+     * @return zero if a token was acquired; otherwise the number of
+     *         milliseconds until one is expected to become available
+     */
+    public synchronized long tryAcquireNow() {
+        if (!enabled) {
+            return 0;
+        }
+        refill();
+        if (currentCapacity >= 1) {
+            currentCapacity -= 1;
+            return 0;
+        }
+        return Math.max(1, (long) Math.ceil((1 - currentCapacity) / fillRate * 1000));
+    }
+
+    /**
+     * Updates the sending rate after a response has been received.
+     *
+     * @param throttled
+     *            true if the response was a throttling error; false otherwise
+     */
+    public synchronized void updateSendingRate(boolean throttled) {
+        final double now = now();
+        updateMeasuredRate(now);
+        final double calculatedRate;
+        if (throttled) {
+            double rateToUse = enabled ? Math.min(measuredTxRate, fillRate) : measuredTxRate;
+            lastMaxRate = rateToUse;
+            calculateTimeWindow();
+            lastThrottleTime = now;
+            calculatedRate = rateToUse * BETA;
+            enabled = true;
+        } else {
+            calculateTimeWindow();
+            double t = now - lastThrottleTime - timeWindow;
+            calculatedRate = SCALE_CONSTANT * t * t * t + lastMaxRate;
+        }
+        updateRate(Math.min(calculatedRate, 2 * measuredTxRate), now);
+    }
+
+    /** Returns true once the limiter has started to gate requests. */
+    public synchronized boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Returns the current number of requests per second allowed. */
+    public synchronized double getFillRate() {
+        return fillRate;
+    }
+
+    /** Returns the smoothed rate of requests per second measured so far. */
+    public synchronized double getMeasuredSendingRate() {
+        return measuredTxRate;
+    }
+
+    private void refill() {
+        refill(now());
+    }
+
+    private void refill(double now) {
+        if (lastTimestamp < 0) {
+            lastTimestamp = now;
+            return;
+        }
+        currentCapacity = Math.min(maxCapacity, currentCapacity + (now - lastTimestamp) * fillRate);
+        lastTimestamp = now;
+    }
+
+    private void updateRate(double newRps, double now) {
+        refill(now);
+        fillRate = Math.max(newRps, MIN_FILL_RATE);
+        maxCapacity = Math.max(newRps, MIN_CAPACITY);
+        currentCapacity = Math.min(currentCapacity, maxCapacity);
+    }
+
+    private void calculateTimeWindow() {
+        timeWindow = Math.cbrt(lastMaxRate * (1 - BETA) / SCALE_CONSTANT);
+    }
+
+    private void updateMeasuredRate(double now) {
+        double timeBucket = Math.floor(now / MEASURE_BUCKET_SECS) * MEASURE_BUCKET_SECS;
+        requestCount++;
+        if (timeBucket > lastTxRateBucket) {
+            double currentRate = requestCount / (timeBucket - lastTxRateBucket);
+            measuredTxRate = currentRate * SMOOTH + measuredTxRate * (1 - SMOOTH);
+            requestCount = 0;
+            lastTxRateBucket = timeBucket;
+        }
+    }
+
+    /** Returns the current time in seconds. */
+    private static double now() {
+        return System.nanoTime() / 1e9;
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.retry;
+
+import com.ksc.KscClientException;
+import com.ksc.KscWebServiceRequest;
+
+import java.util.Random;
+
+/**
+ * Factory of back-off strategies, to be combined with a retry condition into
+ * a {@link RetryPolicy} set on the {@link com.ksc.ClientConfiguration}.
+ * <p>
+ * Full jitter spreads retries the most and is the SDK default; equal jitter
+ * keeps at least half of the exponential delay; decorrelated jitter grows the
+ * delay from the previous one rather than from the retry count. Any of them
+ * can be wrapped to honour the Retry-After hint of the service.
+ * </p>
+ *
+ * @see PredefinedRetryPolicies
+ */
+public final class BackoffStrategies {
+
+    /** Default base delay in milliseconds. */
+    public static final int DEFAULT_BASE_DELAY = 100;
+
+    /** Default maximum delay in milliseconds. */
+    public static final int DEFAULT_MAX_BACKOFF_IN_MILLISECONDS = 20 * 1000;
+
+    private BackoffStrategies() {
+    }
+
+    /**
+     * Returns a strategy waiting a random delay between zero and the capped
+     * exponential delay {@code baseDelay * 2^retriesAttempted}.
+     */
+    public static RetryPolicy.BackoffStrategy fullJitter(int baseDelay, int maxBackoffInMilliseconds) {
+        return new FullJitterBackoffStrategy(baseDelay, maxBackoffInMilliseconds);
+    }
+
+    /**
+     * Returns a strategy waiting half of the capped exponential delay plus a
+     * random amount up to the other half.
+     */
+    public static RetryPolicy.BackoffStrategy equalJitter(int baseDelay, int maxBackoffInMilliseconds) {
+        return new EqualJitterBackoffStrategy(baseDelay, maxBackoffInMilliseconds);
+    }
+
+    /**
+     * Returns a strategy waiting a random delay between the base delay and
+     * three times the previous delay, capped.
+     */
+    public static PreviousDelayAwareBackoffStrategy decorrelatedJitter(int baseDelay, int maxBackoffInMilliseconds) {
+        return new DecorrelatedJitterBackoffStrategy(baseDelay, maxBackoffInMilliseconds);
+    }
+
+    /**
+     * Returns a strategy waiting at least as long as the Retry-After hint of
+     * the service, if any, and at least as long as the given strategy, but no
+     * longer than the given maximum.
+     *
+     * @param fallback
+     *            The strategy used to compute the delay when there is no hint.
+     * @param maxBackoffInMilliseconds
+     *            The cap applied to the hint of the service.
+     */
+    public static PreviousDelayAwareBackoffStrategy honoringRetryAfter(RetryPolicy.BackoffStrategy fallback,
+                                                                       long maxBackoffInMilliseconds) {
+        if (fallback == null)
+            throw new IllegalArgumentException("fallback cannot be null");
+        return new RetryAfterBackoffStrategy(fallback, maxBackoffInMilliseconds);
+    }
+
+    private static void validate(int baseDelay, int maxBackoffInMilliseconds) {
+        if (baseDelay < 0)
+            throw new IllegalArgumentException("baseDelay cannot be negative");
+        if (maxBackoffInMilliseconds < 0)
+            throw new IllegalArgumentException("maxBackoffInMilliseconds cannot be negative");
+    }
+
+    private static class FullJitterBackoffStrategy implements RetryPolicy.BackoffStrategy {
+        private final int baseDelay;
+        private final int maxBackoffInMilliseconds;
+        private final Random random = new Random();
+
+        FullJitterBackoffStrategy(int baseDelay, int maxBackoffInMilliseconds) {
+            validate(baseDelay, maxBackoffInMilliseconds);
+            this.baseDelay = baseDelay;
+            this.maxBackoffInMilliseconds = maxBackoffInMilliseconds;
+        }
+
+        @Override
+        @SuppressWarnings("rawtypes") // as declared by RetryPolicy
+        public long delayBeforeNextRetry(KscWebServiceRequest originalRequest,
+                                         KscClientException exception,
+                                         int retriesAttempted) {
+            return (retriesAttempted < 0) ? 0 : RetryUtils.calculateFullJitterBackoff(
+                    retriesAttempted, baseDelay, maxBackoffInMilliseconds, random);
+        }
+    }
+
+    private static class EqualJitterBackoffStrategy implements RetryPolicy.BackoffStrategy {
+        private final int baseDelay;
+        private final int maxBackoffInMilliseconds;
+        private final Random random = new Random();
+
+        EqualJitterBackoffStrategy(int baseDelay, int maxBackoffInMilliseconds) {
+            validate(baseDelay, maxBackoffInMilliseconds);
+            this.baseDelay = baseDelay;
+            this.maxBackoffInMilliseconds = maxBackoffInMilliseconds;
+        }
+
+        @Override
+        @SuppressWarnings("rawtypes") // as declared by RetryPolicy
+        public long delayBeforeNextRetry(KscWebServiceRequest originalRequest,
+                                         KscClientException exception,
+                                         int retriesAttempted) {
+            return (retriesAttempted < 0) ? 0 : RetryUtils.calculateEqualJitterBackoff(
+                    retriesAttempted, baseDelay, maxBackoffInMilliseconds, random);
+        }
+    }
+
+    private static class DecorrelatedJitterBackoffStrategy implements PreviousDelayAwareBackoffStrategy {
+        private final int baseDelay;
+        private final int maxBackoffInMilliseconds;
+        private final Random random = new Random();
+
+        DecorrelatedJitterBackoffStrategy(int baseDelay, int maxBackoffInMilliseconds) {
+            validate(baseDelay, maxBackoffInMilliseconds);
+            this.baseDelay = baseDelay;
+            this.maxBackoffInMilliseconds = maxBackoffInMilliseconds;
+        }
+
+        @Override
+        public long delayBeforeNextRetry(KscWebServiceRequest<?> originalRequest,
+                                         KscClientException exception,
+                                         int retriesAttempted,
+                                         long previousDelay) {
+            return (retriesAttempted < 0) ? 0 : RetryUtils.calculateDecorrelatedJitterBackoff(
+                    previousDelay, baseDelay, maxBackoffInMilliseconds, random);
+        }
+
+        /** Used when the previous delay is unknown: starts from the base delay. */
+        @Override
+        @SuppressWarnings("rawtypes") // as declared by RetryPolicy
+        public long delayBeforeNextRetry(KscWebServiceRequest originalRequest,
+                                         KscClientException exception,
+                                         int retriesAttempted) {
+            return delayBeforeNextRetry(originalRequest, exception, retriesAttempted, 0);
+        }
+    }
+
+    private static class RetryAfterBackoffStrategy implements PreviousDelayAwareBackoffStrategy {
+        private final RetryPolicy.BackoffStrategy fallback;
+        private final long maxBackoffInMilliseconds;
+
+        RetryAfterBackoffStrategy(RetryPolicy.BackoffStrategy fallback, long maxBackoffInMilliseconds) {
+            if (maxBackoffInMilliseconds < 0)
+                throw new IllegalArgumentException("maxBackoffInMilliseconds cannot be negative");
+            this.fallback = fallback;
+            this.maxBackoffInMilliseconds = maxBackoffInMilliseconds;
+        }
+
+        @Override
+        public long delayBeforeNextRetry(KscWebServiceRequest<?> originalRequest,
+                                         KscClientException exception,
+                                         int retriesAttempted,
+                                         long previousDelay) {
+            long delay = fallback instanceof PreviousDelayAwareBackoffStrategy
+                    ? ((PreviousDelayAwareBackoffStrategy) fallback).delayBeforeNextRetry(
+                            originalRequest, exception, retriesAttempted, previousDelay)
+                    : fallback.delayBeforeNextRetry(originalRequest, exception, retriesAttempted);
+            long retryAfter = RetryUtils.getRetryAfterMillis(exception);
+            if (retryAfter > delay) {
+                delay = Math.min(retryAfter, Math.max(delay, maxBackoffInMilliseconds));
+            }
+            return delay;
+        }
+
+        @Override
+        @SuppressWarnings("rawtypes") // as declared by RetryPolicy
+        public long delayBeforeNextRetry(KscWebServiceRequest originalRequest,
+                                         KscClientException exception,
+                                         int retriesAttempted) {
+            return delayBeforeNextRetry(originalRequest, exception, retriesAttempted, 0);
+        }
+    }
+}
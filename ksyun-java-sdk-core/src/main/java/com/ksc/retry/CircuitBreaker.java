@@ -0,0 +1,183 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.retry;
+
+import com.ksc.annotation.ThreadSafe;
+
+/**
+ * A circuit breaker guarding a single endpoint.
+ * <p>
+ * While CLOSED, the outcome of every call is recorded into a window of the
+ * most recent calls; IO errors and 5xx responses count as failures. Once the
+ * window holds enough calls and the failure rate reaches the threshold, the
+ * breaker turns OPEN and calls are failed fast for the configured duration.
+ * It then turns HALF_OPEN and lets a few trial calls through: it closes
+ * again if they all succeed, and reopens on the first failure.
+ */
+@ThreadSafe
+public class CircuitBreaker implements CircuitBreakerMBean {
+    public static enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String endpoint;
+    private final CircuitBreakerConfig config;
+    /** Ring buffer of the outcomes of the most recent calls; true if failed. */
+    private final boolean[] window;
+    private int windowIndex;
+    private int bufferedCalls;
+    private int failedCalls;
+
+    private State state = State.CLOSED;
+    private long openedAtMillis;
+    private long halfOpenAtMillis;
+    private int halfOpenPermitted;
+    private int halfOpenSucceeded;
+    private long openedCount;
+    private long rejectedCount;
+
+    public CircuitBreaker(String endpoint, CircuitBreakerConfig config) {
+        this.endpoint = endpoint;
+        this.config = new CircuitBreakerConfig(config);
+        this.window = new boolean[this.config.getWindowSize()];
+    }
+
+    /**
+     * Returns true if a call may be sent to the endpoint; false if it must be
+     * failed fast.
+     */
+    public synchronized boolean allowRequest() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() - openedAtMillis < config.getOpenDurationMillis()) {
+                rejectedCount++;
+                return false;
+            }
+            state = State.HALF_OPEN;
+            halfOpenAtMillis = System.currentTimeMillis();
+            halfOpenPermitted = 0;
+            halfOpenSucceeded = 0;
+        }
+        if (halfOpenPermitted >= config.getHalfOpenCalls()
+                && System.currentTimeMillis() - halfOpenAtMillis >= config.getOpenDurationMillis()) {
+            // The outcome of the trial calls never came back; try again
+            halfOpenAtMillis = System.currentTimeMillis();
+            halfOpenPermitted = 0;
+            halfOpenSucceeded = 0;
+        }
+        if (halfOpenPermitted < config.getHalfOpenCalls()) {
+            halfOpenPermitted++;
+            return true;
+        }
+        rejectedCount++;
+        return false;
+    }
+
+    /** Records a call which reached the endpoint and was not a 5xx error. */
+    public synchronized void recordSuccess() {
+        if (state == State.HALF_OPEN) {
+            if (++halfOpenSucceeded >= config.getHalfOpenCalls()) {
+                close();
+            }
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    /** Records an IO error or a 5xx response. */
+    public synchronized void recordFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (bufferedCalls >= config.getMinimumCalls()
+                    && failedCalls * 100L >= (long) config.getFailureRateThreshold() * bufferedCalls) {
+                open();
+            }
+        }
+    }
+
+    /** Returns true if calls are currently failed fast. */
+    public synchronized boolean isOpen() {
+        return state == State.OPEN;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    @Override
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    @Override
+    public synchronized String getStateName() {
+        return state.name();
+    }
+
+    @Override
+    public synchronized double getFailureRate() {
+        return bufferedCalls == 0 ? 0 : failedCalls * 100.0 / bufferedCalls;
+    }
+
+    @Override
+    public synchronized int getBufferedCalls() {
+        return bufferedCalls;
+    }
+
+    @Override
+    public synchronized long getOpenedCount() {
+        return openedCount;
+    }
+
+    @Override
+    public synchronized long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    private void record(boolean failed) {
+        if (bufferedCalls == window.length) {
+            if (window[windowIndex])
+                failedCalls--;
+        } else {
+            bufferedCalls++;
+        }
+        window[windowIndex] = failed;
+        if (failed)
+            failedCalls++;
+        windowIndex = (windowIndex + 1) % window.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAtMillis = System.currentTimeMillis();
+        openedCount++;
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        windowIndex = 0;
+        bufferedCalls = 0;
+        failedCalls = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "CircuitBreaker(" + endpoint + ": " + getStateName() + ")";
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.retry;
+
+/**
+ * Configuration of the per endpoint circuit breakers of a client.
+ *
+ * @see com.ksc.ClientConfiguration#setCircuitBreakerConfig(CircuitBreakerConfig)
+ */
+public class CircuitBreakerConfig {
+    /** The default number of most recent calls the failure rate is computed over. */
+    public static final int DEFAULT_WINDOW_SIZE = 20;
+    /** The default minimum number of calls in the window before the breaker may open. */
+    public static final int DEFAULT_MINIMUM_CALLS = 10;
+    /** The default failure rate in percent at or above which the breaker opens. */
+    public static final int DEFAULT_FAILURE_RATE_THRESHOLD = 50;
+    /** The default time in milliseconds the breaker stays open before a trial call. */
+    public static final long DEFAULT_OPEN_DURATION_MILLIS = 30 * 1000;
+    /** The default number of trial calls permitted while half open. */
+    public static final int DEFAULT_HALF_OPEN_CALLS = 1;
+
+    private int windowSize = DEFAULT_WINDOW_SIZE;
+    private int minimumCalls = DEFAULT_MINIMUM_CALLS;
+    private int failureRateThreshold = DEFAULT_FAILURE_RATE_THRESHOLD;
+    private long openDurationMillis = DEFAULT_OPEN_DURATION_MILLIS;
+    private int halfOpenCalls = DEFAULT_HALF_OPEN_CALLS;
+
+    public CircuitBreakerConfig() {
+    }
+
+    public CircuitBreakerConfig(CircuitBreakerConfig that) {
+        this.windowSize = that.windowSize;
+        this.minimumCalls = that.minimumCalls;
+        this.failureRateThreshold = that.failureRateThreshold;
+        this.openDurationMillis = that.openDurationMillis;
+        this.halfOpenCalls = that.halfOpenCalls;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * Sets the number of most recent calls, ie IO errors, 5xx responses and
+     * other responses, the failure rate is computed over.
+     */
+    public void setWindowSize(int windowSize) {
+        if (windowSize <= 0)
+            throw new IllegalArgumentException("windowSize must be positive");
+        this.windowSize = windowSize;
+    }
+
+    public CircuitBreakerConfig withWindowSize(int windowSize) {
+        setWindowSize(windowSize);
+        return this;
+    }
+
+    public int getMinimumCalls() {
+        return minimumCalls;
+    }
+
+    /**
+     * Sets the minimum number of calls in the window before the failure rate
+     * is evaluated.
+     */
+    public void setMinimumCalls(int minimumCalls) {
+        if (minimumCalls <= 0)
+            throw new IllegalArgumentException("minimumCalls must be positive");
+        this.minimumCalls = minimumCalls;
+    }
+
+    public CircuitBreakerConfig withMinimumCalls(int minimumCalls) {
+        setMinimumCalls(minimumCalls);
+        return this;
+    }
+
+    public int getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    /**
+     * Sets the failure rate in percent at or above which the breaker opens.
+     */
+    public void setFailureRateThreshold(int failureRateThreshold) {
+        if (failureRateThreshold <= 0 || failureRateThreshold > 100)
+            throw new IllegalArgumentException("failureRateThreshold must be within (0, 100]");
+        this.failureRateThreshold = failureRateThreshold;
+    }
+
+    public CircuitBreakerConfig withFailureRateThreshold(int failureRateThreshold) {
+        setFailureRateThreshold(failureRateThreshold);
+        return this;
+    }
+
+    public long getOpenDurationMillis() {
+        return openDurationMillis;
+    }
+
+    /**
+     * Sets the time in milliseconds the breaker fails calls fast once opened,
+     * before letting trial calls through.
+     */
+    public void setOpenDurationMillis(long openDurationMillis) {
+        if (openDurationMillis < 0)
+            throw new IllegalArgumentException("openDurationMillis cannot be negative");
+        this.openDurationMillis = openDurationMillis;
+    }
+
+    public CircuitBreakerConfig withOpenDurationMillis(long openDurationMillis) {
+        setOpenDurationMillis(openDurationMillis);
+        return this;
+    }
+
+    public int getHalfOpenCalls() {
+        return halfOpenCalls;
+    }
+
+    /**
+     * Sets the number of trial calls let through while half open; the
+     * breaker closes once all of them have succeeded.
+     */
+    public void setHalfOpenCalls(int halfOpenCalls) {
+        if (halfOpenCalls <= 0)
+            throw new IllegalArgumentException("halfOpenCalls must be positive");
+        this.halfOpenCalls = halfOpenCalls;
+    }
+
+    public CircuitBreakerConfig withHalfOpenCalls(int halfOpenCalls) {
+        setHalfOpenCalls(halfOpenCalls);
+        return this;
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.retry;
+
+/**
+ * MBean interface of the circuit breaker of an endpoint.
+ */
+public interface CircuitBreakerMBean {
+    /** Returns the endpoint guarded by the breaker. */
+    public String getEndpoint();
+
+    /** Returns the current state: CLOSED, OPEN or HALF_OPEN. */
+    public String getStateName();
+
+    /** Returns the failure rate in percent over the current window. */
+    public double getFailureRate();
+
+    /** Returns the number of calls in the current window. */
+    public int getBufferedCalls();
+
+    /** Returns the number of times the breaker has opened. */
+    public long getOpenedCount();
+
+    /** Returns the number of calls failed fast while open. */
+    public long getRejectedCount();
+}
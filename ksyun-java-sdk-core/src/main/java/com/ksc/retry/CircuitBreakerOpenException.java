@@ -0,0 +1,32 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.retry;
+
+import com.ksc.KscClientException;
+
+/**
+ * Thrown without sending a request when the circuit breaker of its endpoint
+ * is open, ie the endpoint has recently been failing.
+ */
+public class CircuitBreakerOpenException extends KscClientException {
+
+    public CircuitBreakerOpenException(String endpoint) {
+        super("Circuit breaker is open for endpoint " + endpoint
+                + "; the request was not sent.");
+    }
+
+    private static final long serialVersionUID = 2694328913460931742L;
+
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.retry;
+
+import com.ksc.KscClientException;
+import com.ksc.KscServiceException;
+import com.ksc.KscWebServiceRequest;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Retry condition with per error code rules: for service exceptions whose
+ * error code has a rule, the rule decides whether and how many times to
+ * retry; every other exception is delegated to a fallback condition, by
+ * default {@link PredefinedRetryPolicies#DEFAULT_RETRY_CONDITION}.
+ * <p>
+ * For example, to retry a transient error code of a service up to five
+ * times, and never retry a 503 carrying a quota error:
+ * <pre>
+ * new ErrorCodeRetryCondition()
+ *         .withMaxRetries("InstanceLocked", 5)
+ *         .withNonRetryableErrorCodes("QuotaExceeded");
+ * </pre>
+ * The maximum number of retries of the {@link RetryPolicy} still applies.
+ * Instances are meant to be configured before being shared by clients.
+ * </p>
+ */
+public class ErrorCodeRetryCondition implements RetryPolicy.RetryCondition {
+
+    /** Rules by error code: the maximum number of retries, 0 to never retry. */
+    private final Map<String, Integer> maxRetriesByErrorCode = new HashMap<String, Integer>();
+
+    private final RetryPolicy.RetryCondition fallback;
+
+    /**
+     * Constructs a condition falling back to the SDK default condition for
+     * exceptions without a rule.
+     */
+    public ErrorCodeRetryCondition() {
+        this(PredefinedRetryPolicies.DEFAULT_RETRY_CONDITION);
+    }
+
+    /**
+     * Constructs a condition falling back to the given condition for
+     * exceptions without a rule.
+     */
+    public ErrorCodeRetryCondition(RetryPolicy.RetryCondition fallback) {
+        if (fallback == null)
+            throw new IllegalArgumentException("fallback cannot be null");
+        this.fallback = fallback;
+    }
+
+    /**
+     * Retries service exceptions with the given error codes, as many times as
+     * the retry policy allows.
+     */
+    public ErrorCodeRetryCondition withRetryableErrorCodes(String... errorCodes) {
+        for (String errorCode : errorCodes) {
+            withMaxRetries(errorCode, Integer.MAX_VALUE);
+        }
+        return this;
+    }
+
+    /**
+     * Never retries service exceptions with the given error codes.
+     */
+    public ErrorCodeRetryCondition withNonRetryableErrorCodes(String... errorCodes) {
+        for (String errorCode : errorCodes) {
+            withMaxRetries(errorCode, 0);
+        }
+        return this;
+    }
+
+    /**
+     * Retries service exceptions with the given error code at most the given
+     * number of times.
+     */
+    public ErrorCodeRetryCondition withMaxRetries(String errorCode, int maxRetries) {
+        if (errorCode == null)
+            throw new IllegalArgumentException("errorCode cannot be null");
+        if (maxRetries < 0)
+            throw new IllegalArgumentException("maxRetries cannot be negative");
+        maxRetriesByErrorCode.put(errorCode, maxRetries);
+        return this;
+    }
+
+    /**
+     * Returns the maximum number of retries by error code.
+     */
+    public Map<String, Integer> getRules() {
+        return Collections.unmodifiableMap(maxRetriesByErrorCode);
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes") // as declared by RetryPolicy
+    public boolean shouldRetry(KscWebServiceRequest originalRequest,
+                               KscClientException exception,
+                               int retriesAttempted) {
+        if (exception instanceof KscServiceException) {
+            Integer maxRetries = maxRetriesByErrorCode.get(((KscServiceException) exception).getErrorCode());
+            if (maxRetries != null) {
+                return retriesAttempted < maxRetries;
+            }
+        }
+        return fallback.shouldRetry(originalRequest, exception, retriesAttempted);
+    }
+}
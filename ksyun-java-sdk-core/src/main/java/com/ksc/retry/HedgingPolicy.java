@@ -0,0 +1,192 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.retry;
+
+import com.ksc.util.IdempotentUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Configuration of hedged requests: when the response to an idempotent
+ * request has not arrived within a delay derived from the recent latency of
+ * the operation, a second identical request is sent and whichever returns a
+ * successful response first is used, the other one being aborted.
+ *
+ * @see com.ksc.ClientConfiguration#setHedgingPolicy(HedgingPolicy)
+ */
+public class HedgingPolicy {
+    /** The default latency percentile after which a hedged request is sent. */
+    public static final double DEFAULT_DELAY_PERCENTILE = 95.0;
+    /** The default delay in milliseconds used until enough latencies are recorded. */
+    public static final long DEFAULT_INITIAL_DELAY_MILLIS = 100;
+    /** The default lower bound in milliseconds of the hedging delay. */
+    public static final long DEFAULT_MINIMUM_DELAY_MILLIS = 5;
+    /** The default number of latencies recorded before the percentile is used. */
+    public static final int DEFAULT_MINIMUM_SAMPLES = 20;
+    /** The default maximum number of hedged requests in flight per client. */
+    public static final int DEFAULT_MAX_CONCURRENT_HEDGES = 16;
+
+    private double delayPercentile = DEFAULT_DELAY_PERCENTILE;
+    private long initialDelayMillis = DEFAULT_INITIAL_DELAY_MILLIS;
+    private long minimumDelayMillis = DEFAULT_MINIMUM_DELAY_MILLIS;
+    private int minimumSamples = DEFAULT_MINIMUM_SAMPLES;
+    private int maxConcurrentHedges = DEFAULT_MAX_CONCURRENT_HEDGES;
+    private Set<String> operations = Collections.emptySet();
+
+    public HedgingPolicy() {
+    }
+
+    public HedgingPolicy(HedgingPolicy that) {
+        this.delayPercentile = that.delayPercentile;
+        this.initialDelayMillis = that.initialDelayMillis;
+        this.minimumDelayMillis = that.minimumDelayMillis;
+        this.minimumSamples = that.minimumSamples;
+        this.maxConcurrentHedges = that.maxConcurrentHedges;
+        this.operations = that.operations;
+    }
+
+    /**
+     * Returns true if requests of the given API action may be hedged. Unless
+     * explicitly configured, only actions which are idempotent by naming
+     * convention are hedged.
+     *
+     * @see IdempotentUtils#isIdempotentAction(String)
+     */
+    public boolean isHedged(String action) {
+        if (operations.isEmpty())
+            return IdempotentUtils.isIdempotentAction(action);
+        return action != null && operations.contains(action);
+    }
+
+    public Set<String> getOperations() {
+        return operations;
+    }
+
+    /**
+     * Sets the API actions to hedge; if empty, actions which are idempotent
+     * by naming convention (Describe*, List*, Get*, Query*) are hedged. The
+     * given actions must be safe to send more than once.
+     */
+    public void setOperations(String... operations) {
+        this.operations = operations == null || operations.length == 0
+                ? Collections.<String>emptySet()
+                : Collections.unmodifiableSet(new HashSet<String>(Arrays.asList(operations)));
+    }
+
+    public HedgingPolicy withOperations(String... operations) {
+        setOperations(operations);
+        return this;
+    }
+
+    public double getDelayPercentile() {
+        return delayPercentile;
+    }
+
+    /**
+     * Sets the percentile of the recent latencies of an operation after
+     * which a hedged request is sent.
+     */
+    public void setDelayPercentile(double delayPercentile) {
+        if (delayPercentile <= 0 || delayPercentile > 100)
+            throw new IllegalArgumentException("delayPercentile must be within (0, 100]");
+        this.delayPercentile = delayPercentile;
+    }
+
+    public HedgingPolicy withDelayPercentile(double delayPercentile) {
+        setDelayPercentile(delayPercentile);
+        return this;
+    }
+
+    public long getInitialDelayMillis() {
+        return initialDelayMillis;
+    }
+
+    /**
+     * Sets the hedging delay in milliseconds used until the minimum number of
+     * latencies of the operation have been recorded.
+     */
+    public void setInitialDelayMillis(long initialDelayMillis) {
+        if (initialDelayMillis < 0)
+            throw new IllegalArgumentException("initialDelayMillis cannot be negative");
+        this.initialDelayMillis = initialDelayMillis;
+    }
+
+    public HedgingPolicy withInitialDelayMillis(long initialDelayMillis) {
+        setInitialDelayMillis(initialDelayMillis);
+        return this;
+    }
+
+    public long getMinimumDelayMillis() {
+        return minimumDelayMillis;
+    }
+
+    /**
+     * Sets the lower bound in milliseconds of the hedging delay, so that
+     * very fast operations are not systematically sent twice.
+     */
+    public void setMinimumDelayMillis(long minimumDelayMillis) {
+        if (minimumDelayMillis < 0)
+            throw new IllegalArgumentException("minimumDelayMillis cannot be negative");
+        this.minimumDelayMillis = minimumDelayMillis;
+    }
+
+    public HedgingPolicy withMinimumDelayMillis(long minimumDelayMillis) {
+        setMinimumDelayMillis(minimumDelayMillis);
+        return this;
+    }
+
+    public int getMinimumSamples() {
+        return minimumSamples;
+    }
+
+    /**
+     * Sets the number of latencies of an operation to record before the
+     * delay percentile is used instead of the initial delay.
+     */
+    public void setMinimumSamples(int minimumSamples) {
+        if (minimumSamples <= 0)
+            throw new IllegalArgumentException("minimumSamples must be positive");
+        this.minimumSamples = minimumSamples;
+    }
+
+    public HedgingPolicy withMinimumSamples(int minimumSamples) {
+        setMinimumSamples(minimumSamples);
+        return this;
+    }
+
+    public int getMaxConcurrentHedges() {
+        return maxConcurrentHedges;
+    }
+
+    /**
+     * Sets the maximum number of hedged requests a client has in flight at
+     * any time. Requests that are too slow while that many hedged requests
+     * are in flight are not hedged. This cap applies whether or not throttled
+     * retries, and so the retry capacity, are enabled.
+     */
+    public void setMaxConcurrentHedges(int maxConcurrentHedges) {
+        if (maxConcurrentHedges <= 0)
+            throw new IllegalArgumentException("maxConcurrentHedges must be positive");
+        this.maxConcurrentHedges = maxConcurrentHedges;
+    }
+
+    public HedgingPolicy withMaxConcurrentHedges(int maxConcurrentHedges) {
+        setMaxConcurrentHedges(maxConcurrentHedges);
+        return this;
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.retry;
+
+import com.ksc.KscClientException;
+import com.ksc.KscWebServiceRequest;
+
+/**
+ * A back-off strategy whose delay depends on the delay before the previous
+ * retry of the same request, such as decorrelated jitter. The SDK calls
+ * {@link #delayBeforeNextRetry(KscWebServiceRequest, KscClientException, int, long)}
+ * instead of the stateless method for such strategies.
+ *
+ * @see BackoffStrategies#decorrelatedJitter(int, int)
+ */
+public interface PreviousDelayAwareBackoffStrategy extends RetryPolicy.BackoffStrategy {
+
+    /**
+     * Returns the delay (in milliseconds) before next retry attempt.
+     *
+     * @param originalRequest
+     *            The original request object being executed.
+     * @param exception
+     *            The exception from the failed request.
+     * @param retriesAttempted
+     *            The number of times the current request has been attempted
+     *            (not including the next attempt after the delay).
+     * @param previousDelay
+     *            The delay (in milliseconds) before the previous retry of the
+     *            request, or 0 if this is the first retry.
+     *
+     * @return The delay (in milliseconds) before next retry attempt.
+     * @see RetryPolicy.BackoffStrategy#delayBeforeNextRetry(KscWebServiceRequest, KscClientException, int)
+     */
+    public long delayBeforeNextRetry(KscWebServiceRequest<?> originalRequest,
+                                     KscClientException exception,
+                                     int retriesAttempted,
+                                     long previousDelay);
+}
@@ -16,15 +16,21 @@ package com.ksc.retry;
 
 import org.apache.http.HttpStatus;
 
+import com.ksc.KscClientException;
 import com.ksc.KscServiceException;
 import com.ksc.annotation.SdkInternalApi;
+import com.ksc.util.DateUtils;
 
+import java.util.Map;
 import java.util.Random;
 import java.util.HashSet;
 import java.util.Set;
 
 public class RetryUtils {
 
+    /** The response header by which a service hints how long to wait before retrying. */
+    public static final String RETRY_AFTER_HEADER = "Retry-After";
+
     private static final Set<String> THROTTLING_ERROR_CODES = new HashSet<String>(9);
     private static final Set<String> CLOCK_SKEW_ERROR_CODES = new HashSet<String>(6);
 
@@ -103,12 +109,76 @@ public class RetryUtils {
         return CLOCK_SKEW_ERROR_CODES.contains(ase.getErrorCode());
     }
 
+    /**
+     * Returns the delay the service asked to wait before retrying, from the
+     * Retry-After header of its error response, either in seconds or as an
+     * HTTP date.
+     *
+     * @param exception The exception to inspect.
+     * @return The delay in milliseconds, or -1 if the exception is not a
+     * service exception carrying a valid Retry-After header.
+     */
+    public static long getRetryAfterMillis(KscClientException exception) {
+        if (!(exception instanceof KscServiceException)) {
+            return -1;
+        }
+        String value = null;
+        for (Map.Entry<String, String> header : ((KscServiceException) exception).getHttpHeaders().entrySet()) {
+            if (RETRY_AFTER_HEADER.equalsIgnoreCase(header.getKey())) {
+                value = header.getValue();
+                break;
+            }
+        }
+        if (value == null || (value = value.trim()).length() == 0) {
+            return -1;
+        }
+        try {
+            if (Character.isDigit(value.charAt(0))) {
+                return Long.parseLong(value) * 1000;
+            }
+            return Math.max(0, DateUtils.parseRFC822Date(value).getTime() - System.currentTimeMillis());
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+
     @SdkInternalApi
     static int calculateFullJitterBackoff(int retriesAttempted,
                                           int baseDelay,
                                           int maxBackoffTime,
                                           Random random) {
-        int delayUpperBound = Math.min(baseDelay * (1 << retriesAttempted), maxBackoffTime);
+        int delayUpperBound = (int) Math.min((long) baseDelay << Math.min(retriesAttempted, 30), maxBackoffTime);
         return random.nextInt(delayUpperBound + 1);
     }
+
+    /**
+     * Returns half of the exponential delay plus a random amount up to the
+     * other half, so that the delay never drops close to zero.
+     */
+    @SdkInternalApi
+    static int calculateEqualJitterBackoff(int retriesAttempted,
+                                           int baseDelay,
+                                           int maxBackoffTime,
+                                           Random random) {
+        int delayUpperBound = (int) Math.min((long) baseDelay << Math.min(retriesAttempted, 30), maxBackoffTime);
+        int half = delayUpperBound / 2;
+        return half + random.nextInt(delayUpperBound - half + 1);
+    }
+
+    /**
+     * Returns a random delay between the base delay and three times the
+     * previous delay, capped; consecutive delays of a request are thus
+     * decorrelated rather than following a fixed exponential curve.
+     */
+    @SdkInternalApi
+    static long calculateDecorrelatedJitterBackoff(long previousDelay,
+                                                   int baseDelay,
+                                                   int maxBackoffTime,
+                                                   Random random) {
+        long upperBound = Math.min(Math.max(previousDelay, baseDelay) * 3, maxBackoffTime);
+        if (upperBound <= baseDelay) {
+            return upperBound;
+        }
+        return baseDelay + (long) (random.nextDouble() * (upperBound - baseDelay + 1));
+    }
 }
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.tracing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.ksc.Request;
+import com.ksc.annotation.ThreadSafe;
+
+/**
+ * A tracer which keeps every span in memory, mainly for use in tests to
+ * assert on the spans produced by a request. Context is propagated with a
+ * W3C trace context {@value #TRACEPARENT_HEADER} header.
+ */
+@ThreadSafe
+public class InMemoryTracer extends Tracer {
+    public static final String TRACEPARENT_HEADER = "traceparent";
+
+    private final Random random = new Random();
+    private final List<RecordedSpan> started = new ArrayList<RecordedSpan>();
+    private final List<RecordedSpan> finished = new ArrayList<RecordedSpan>();
+
+    @Override
+    public Span startSpan(String name, Span parent) {
+        final RecordedSpan span;
+        if (parent instanceof RecordedSpan) {
+            RecordedSpan p = (RecordedSpan) parent;
+            span = new RecordedSpan(this, name, p.getTraceId(), newId(), p.getSpanId());
+        } else {
+            span = new RecordedSpan(this, name, newId() + newId(), newId(), null);
+        }
+        synchronized (this) {
+            started.add(span);
+        }
+        return span;
+    }
+
+    @Override
+    public void inject(Span span, Request<?> request) {
+        if (span instanceof RecordedSpan) {
+            RecordedSpan s = (RecordedSpan) span;
+            request.addHeader(TRACEPARENT_HEADER,
+                    "00-" + s.getTraceId() + "-" + s.getSpanId() + "-01");
+        }
+    }
+
+    synchronized void finished(RecordedSpan span) {
+        finished.add(span);
+    }
+
+    /** Returns the spans started so far, in start order. */
+    public synchronized List<RecordedSpan> getStartedSpans() {
+        return new ArrayList<RecordedSpan>(started);
+    }
+
+    /** Returns the spans ended so far, in end order. */
+    public synchronized List<RecordedSpan> getFinishedSpans() {
+        return new ArrayList<RecordedSpan>(finished);
+    }
+
+    /** Returns the ended spans with the given name, in end order. */
+    public synchronized List<RecordedSpan> getFinishedSpans(String name) {
+        List<RecordedSpan> list = new ArrayList<RecordedSpan>();
+        for (RecordedSpan span : finished) {
+            if (span.getName().equals(name))
+                list.add(span);
+        }
+        return list;
+    }
+
+    /** Forgets all spans recorded so far. */
+    public synchronized void clear() {
+        started.clear();
+        finished.clear();
+    }
+
+    private String newId() {
+        long id;
+        do {
+            id = random.nextLong();
+        } while (id == 0);
+        String hex = Long.toHexString(id);
+        StringBuilder sb = new StringBuilder(16);
+        for (int i = hex.length(); i < 16; i++)
+            sb.append('0');
+        return sb.append(hex).toString();
+    }
+}
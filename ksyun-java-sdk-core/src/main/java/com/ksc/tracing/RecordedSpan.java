@@ -0,0 +1,119 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.tracing;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A span recorded by {@link InMemoryTracer}.
+ */
+public class RecordedSpan extends Span {
+    private final InMemoryTracer tracer;
+    private final String name;
+    private final String traceId;
+    private final String spanId;
+    private final String parentSpanId;
+    private final long startTimeNano;
+    private volatile long endTimeNano = -1;
+    private final Map<String, Object> attributes = new LinkedHashMap<String, Object>();
+    private volatile Throwable exception;
+
+    RecordedSpan(InMemoryTracer tracer, String name, String traceId,
+            String spanId, String parentSpanId) {
+        this.tracer = tracer;
+        this.name = name;
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.parentSpanId = parentSpanId;
+        this.startTimeNano = System.nanoTime();
+    }
+
+    @Override
+    public synchronized Span setAttribute(String key, String value) {
+        attributes.put(key, value);
+        return this;
+    }
+
+    @Override
+    public synchronized Span setAttribute(String key, long value) {
+        attributes.put(key, value);
+        return this;
+    }
+
+    @Override
+    public Span recordException(Throwable t) {
+        this.exception = t;
+        return this;
+    }
+
+    @Override
+    public void end() {
+        if (endTimeNano != -1)
+            throw new IllegalStateException("Span " + name + " already ended");
+        endTimeNano = System.nanoTime();
+        tracer.finished(this);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /** Returns the 32 hex digit trace id shared by all spans of a trace. */
+    public String getTraceId() {
+        return traceId;
+    }
+
+    /** Returns the 16 hex digit id of this span. */
+    public String getSpanId() {
+        return spanId;
+    }
+
+    /** Returns the span id of the parent, or null for a root span. */
+    public String getParentSpanId() {
+        return parentSpanId;
+    }
+
+    public synchronized Map<String, Object> getAttributes() {
+        return Collections.unmodifiableMap(new LinkedHashMap<String, Object>(attributes));
+    }
+
+    public synchronized Object getAttribute(String key) {
+        return attributes.get(key);
+    }
+
+    /** Returns the recorded failure, or null if none. */
+    public Throwable getException() {
+        return exception;
+    }
+
+    public boolean isEnded() {
+        return endTimeNano != -1;
+    }
+
+    /** Returns the duration of this span in nanoseconds, or -1 if not ended. */
+    public long getDurationNanos() {
+        long end = endTimeNano;
+        return end == -1 ? -1 : end - startTimeNano;
+    }
+
+    @Override
+    public String toString() {
+        return name + "[" + traceId + "/" + spanId
+                + (parentSpanId == null ? "" : " parent=" + parentSpanId) + "] "
+                + getAttributes();
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.tracing;
+
+/**
+ * A unit of work within the execution of a request, as reported to a
+ * {@link Tracer}. A span is started by {@link Tracer#startSpan(String, Span)}
+ * and must be ended exactly once by {@link #end()}.
+ * <p>
+ * Attribute setters take only strings and primitives so that a disabled
+ * tracer incurs no allocation.
+ */
+public abstract class Span {
+    /** Sets a string attribute of this span. */
+    public abstract Span setAttribute(String key, String value);
+
+    /** Sets a numeric attribute of this span. */
+    public abstract Span setAttribute(String key, long value);
+
+    /** Records the failure that ended the work of this span. */
+    public abstract Span recordException(Throwable t);
+
+    /** Marks the end of this span. */
+    public abstract void end();
+
+    /**
+     * Returns true if this span records anything; false for the no-op span,
+     * in which case callers can skip computing attribute values.
+     */
+    public boolean isRecording() {
+        return true;
+    }
+
+    /** A span that records nothing. */
+    public static final Span NOOP = new Span() {
+        @Override public Span setAttribute(String key, String value) { return this; }
+        @Override public Span setAttribute(String key, long value) { return this; }
+        @Override public Span recordException(Throwable t) { return this; }
+        @Override public void end() {}
+        @Override public boolean isRecording() { return false; }
+    };
+}
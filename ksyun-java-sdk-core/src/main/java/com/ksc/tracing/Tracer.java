@@ -0,0 +1,69 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.tracing;
+
+import com.ksc.ClientConfiguration;
+import com.ksc.Request;
+
+/**
+ * A service provider interface for distributed tracing of KSC requests.
+ * <p>
+ * For every client execution the http client opens a
+ * {@value #CLIENT_EXECUTION} span, with child spans for each
+ * {@value #HTTP_ATTEMPT} (including retries) and {@value #RETRY_BACKOFF}
+ * pause. Each attempt span has child spans for {@value #REQUEST_SIGNING} and
+ * {@value #RESPONSE_UNMARSHALLING}. Before an attempt is signed,
+ * {@link #inject(Span, Request)} is given the chance to add context
+ * propagation headers to the request.
+ *
+ * @see ClientConfiguration#setTracer(Tracer)
+ */
+public abstract class Tracer {
+    public static final String CLIENT_EXECUTION = "ksc.client.execution";
+    public static final String HTTP_ATTEMPT = "ksc.http.attempt";
+    public static final String RETRY_BACKOFF = "ksc.retry.backoff";
+    public static final String REQUEST_SIGNING = "ksc.request.signing";
+    public static final String RESPONSE_UNMARSHALLING = "ksc.response.unmarshalling";
+
+    public static final String SERVICE_ATTRIBUTE = "ksc.service";
+    public static final String OPERATION_ATTRIBUTE = "ksc.operation";
+    public static final String ENDPOINT_ATTRIBUTE = "ksc.endpoint";
+    public static final String ATTEMPT_ATTRIBUTE = "ksc.attempt";
+    public static final String STATUS_CODE_ATTRIBUTE = "http.status_code";
+    public static final String BACKOFF_DELAY_ATTRIBUTE = "ksc.backoff.delay_ms";
+
+    /**
+     * Starts a new span.
+     *
+     * @param name
+     *            the name of the span
+     * @param parent
+     *            the parent span, or null for a root span
+     */
+    public abstract Span startSpan(String name, Span parent);
+
+    /**
+     * Adds the headers propagating the context of the given span to the
+     * given request, such as a W3C <code>traceparent</code> header. Called
+     * once per attempt; the headers of a previous attempt have already been
+     * removed. The default implementation adds nothing.
+     */
+    public void inject(Span span, Request<?> request) {}
+
+    /** A tracer that records nothing and always returns {@link Span#NOOP}. */
+    public static final Tracer NONE = new Tracer() {
+        @Override public Span startSpan(String name, Span parent) { return Span.NOOP; }
+    };
+}
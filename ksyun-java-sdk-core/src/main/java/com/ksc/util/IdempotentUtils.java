@@ -24,6 +24,9 @@ import com.ksc.annotation.SdkProtectedApi;
  */
 @SdkProtectedApi
 public final class IdempotentUtils {
+    private static final String[] IDEMPOTENT_ACTION_PREFIXES = {
+            "Describe", "List", "Get", "Query" };
+
     /**
      * This method is intended for internal use only.
      * if input token is null, create and return a new unique token.
@@ -34,4 +37,22 @@ public final class IdempotentUtils {
     public static String resolveString(String token) {
         return token != null ? token : UUID.randomUUID().toString();
     }
+
+    /**
+     * This method is intended for internal use only.
+     * Returns true if the given API action is a read only operation by naming
+     * convention, ie Describe*, List*, Get* or Query*, and can therefore be
+     * sent more than once without side effects.
+     * @param action the API action, eg "DescribeInstances"
+     * @return true if the action is known to be idempotent.
+     */
+    public static boolean isIdempotentAction(String action) {
+        if (action == null)
+            return false;
+        for (String prefix : IDEMPOTENT_ACTION_PREFIXES) {
+            if (action.startsWith(prefix))
+                return true;
+        }
+        return false;
+    }
 }
@@ -22,6 +22,7 @@ import org.apache.http.annotation.NotThreadSafe;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Used as both a base class and a minimal support of KSC SDK request metrics.
@@ -110,9 +111,20 @@ public class KscRequestMetrics {
         HttpClientReceiveResponseTime,
 
         /**
-         * Time taken for socket to read.
+         * Time taken for socket to read. In aggregating mode, a single
+         * measurement of the total socket read time of the request.
          */
         HttpSocketReadTime,
+        /**
+         * Number of socket reads of the request; only recorded in aggregating
+         * mode.
+         */
+        HttpSocketReadCount,
+        /**
+         * The longest single socket read of the request; only recorded in
+         * aggregating mode.
+         */
+        HttpSocketReadMaxTime,
 
         /**
          * The number of idle persistent connections.
@@ -140,8 +152,73 @@ public class KscRequestMetrics {
          */
         HttpClientPoolPendingCount,
         RetryPauseTime,
+        /**
+         * Time spent waiting for the adaptive client side rate limiter before
+         * sending a request.
+         */
+        RateLimiterDelayTime,
+        /**
+         * Number of attempts failed fast because the circuit breaker of the
+         * endpoint was open.
+         */
+        CircuitBreakerRejected,
+        /**
+         * Number of hedged requests sent, ie second identical requests sent
+         * because the response to the first one was too slow.
+         */
+        HedgedRequestCount,
+        /**
+         * Number of times the response of the hedged request was used, the
+         * first request being aborted.
+         */
+        HedgedRequestWinCount,
+        /**
+         * Time taken by the hedged request, from sending it to receiving its
+         * response or failure. Only recorded if the hedged request completed
+         * before the outcome of the request was decided.
+         */
+        HedgedRequestTime,
+        /**
+         * The clock skew with the endpoint, in milliseconds, as estimated from
+         * the Date header of its responses; client time minus server time.
+         */
+        ClockSkewOffset,
+        /**
+         * Time taken by the TLS handshakes of the connections opened for the
+         * request, including the verification of the host name.
+         */
+        TlsHandshakeTime,
+        /**
+         * Number of TLS handshakes of the request which negotiated a new
+         * session.
+         */
+        TlsFullHandshakeCount,
+        /**
+         * Number of TLS handshakes of the request which resumed a session
+         * cached from an earlier connection to the same host.
+         */
+        TlsResumedHandshakeCount,
+        /**
+         * The number of requests in flight on the HTTP/2 transport of the
+         * client when the request was sent, the request included.
+         */
+        Http2ActiveStreamCount,
+        /**
+         * Number of responses of the request received over HTTP/2 by the
+         * HTTP/2 transport, as opposed to HTTP/1.1 when the server did not
+         * negotiate HTTP/2.
+         */
+        Http2ResponseCount,
 //      S3DownloadThroughput, // migrated to S3RequestMetric in the S3 client library
 //      S3UploadThroughput,   // migrated to S3RequestMetric in the S3 client library
+        /**
+         * The API action of the request, ie {@link com.ksc.KscWebServiceRequest#getAction()}.
+         */
+        Operation,
+        /**
+         * The KSC product of the request, ie {@link com.ksc.KscWebServiceRequest#getProduct()}.
+         */
+        Product,
         ServiceEndpoint,
         ServiceName,
         StatusCode, // The http status code
@@ -220,7 +297,15 @@ public class KscRequestMetrics {
         return this;
     }
 
+    /**
+     * Adds the events and counters of the given metrics, gathered on another
+     * thread on behalf of the same request, to this one. Does nothing by
+     * default.
+     */
+    public void merge(KscRequestMetrics other) {}
+
     public void log() {}
     public List<Object> getProperty(String propertyName){ return Collections.emptyList(); }
     public List<Object> getProperty(MetricType f) { return Collections.emptyList(); }
+    public Map<String, List<Object>> getAllProperties() { return Collections.emptyMap(); }
 }
@@ -16,12 +16,11 @@
 package com.ksc.util;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 
-import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.http.annotation.NotThreadSafe;
 
@@ -46,10 +45,6 @@ public class KscRequestMetricsFullSupport extends KscRequestMetrics {
     
     /* A map to store events that are being profiled. */
     private final Map<String, TimingInfo> eventsBeingProfiled = new HashMap<String, TimingInfo>();
-    /* Latency Logger */
-    private static final Log latencyLogger = LogFactory.getLog("com.ksc.latency");
-    private static final Object KEY_VALUE_SEPARATOR = "=";
-    private static final Object COMMA_SEPARATOR = ", ";
 
     /**
      * This constructor should be used in the case when KSC SDK metrics
@@ -153,6 +148,26 @@ public class KscRequestMetricsFullSupport extends KscRequestMetrics {
         setCounter(f.name(), count);
     }
     
+    /**
+     * Adds the events and counters of the given metrics to this one, such as
+     * those of a hedged request sent on another thread. Counters present in
+     * both are summed. The given metrics must no longer be updated.
+     */
+    @Override
+    public void merge(KscRequestMetrics other) {
+        final TimingInfo otherTimingInfo = other.getTimingInfo();
+        for (Map.Entry<String, List<TimingInfo>> e : otherTimingInfo.getSubMeasurementsByName().entrySet()) {
+            for (TimingInfo event : e.getValue()) {
+                timingInfo.addSubMeasurement(e.getKey(), event);
+            }
+        }
+        for (Map.Entry<String, Number> e : otherTimingInfo.getAllCounters().entrySet()) {
+            final Number count = timingInfo.getCounter(e.getKey());
+            timingInfo.setCounter(e.getKey(),
+                    (count == null ? 0 : count.longValue()) + e.getValue().longValue());
+        }
+    }
+
     /**
      * Add a property. If you add the same property more than once, it stores
      * all values a list.
@@ -183,29 +198,19 @@ public class KscRequestMetricsFullSupport extends KscRequestMetrics {
         addProperty(f.name(), value);
     }
 
+    /**
+     * Hands these request metrics over to the current latency sink.
+     *
+     * @see KscSdkMetrics#setLatencySink(com.ksc.metrics.latency.LatencySink)
+     */
     @Override
     public void log() {
-        if (latencyLogger.isInfoEnabled()) {
-            StringBuilder builder = new StringBuilder();
-
-            for (Entry<String, List<Object>> entry : properties.entrySet()) {
-                keyValueFormat(entry.getKey(), entry.getValue(), builder);
-            }
-
-            for (Entry<String, Number> entry : timingInfo.getAllCounters()
-                    .entrySet()) {
-                keyValueFormat(entry.getKey(), entry.getValue(), builder);
-            }
-            for (Entry<String, List<TimingInfo>> entry : timingInfo
-                    .getSubMeasurementsByName().entrySet()) {
-                keyValueFormat(entry.getKey(), entry.getValue(), builder);
-            }
-            latencyLogger.info(builder.toString());
-        }
+        KscSdkMetrics.getLatencySink().log(this);
     }
 
-    private void keyValueFormat(Object key, Object value, StringBuilder builder) {
-        builder.append(key).append(KEY_VALUE_SEPARATOR).append(value).append(COMMA_SEPARATOR);
+    @Override
+    public Map<String, List<Object>> getAllProperties() {
+        return Collections.unmodifiableMap(properties);
     }
 
     @Override
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.ksc.annotation.ThreadSafe;
+
+/**
+ * Partitions a capacity, such as the retry capacity of a client, into one
+ * independent {@link CapacityManager} per key, such as per endpoint, so that
+ * draining the capacity of one partition does not affect the others.
+ */
+@ThreadSafe
+public class PartitionedCapacityManager {
+    private final int maxCapacityPerPartition;
+    private final ConcurrentMap<String, CapacityManager> partitions =
+            new ConcurrentHashMap<String, CapacityManager>();
+    /** Shared by all partitions in the no-op passthrough mode. */
+    private final CapacityManager unlimited;
+
+    /**
+     * @param maxCapacityPerPartition
+     *            maximum capacity of each partition; if negative, all
+     *            partitions operate in the no-op passthrough mode of
+     *            {@link CapacityManager}.
+     */
+    public PartitionedCapacityManager(int maxCapacityPerPartition) {
+        this.maxCapacityPerPartition = maxCapacityPerPartition;
+        this.unlimited = maxCapacityPerPartition < 0 ? new CapacityManager(maxCapacityPerPartition) : null;
+    }
+
+    /**
+     * Returns the capacity manager of the given partition, creating it if
+     * necessary.
+     */
+    public CapacityManager forPartition(String key) {
+        if (unlimited != null) {
+            return unlimited;
+        }
+        CapacityManager partition = partitions.get(key);
+        if (partition == null) {
+            CapacityManager newPartition = new CapacityManager(maxCapacityPerPartition);
+            partition = partitions.putIfAbsent(key, newPartition);
+            if (partition == null) {
+                partition = newPartition;
+            }
+        }
+        return partition;
+    }
+
+    /** Returns the maximum capacity of each partition. */
+    public int getMaxCapacityPerPartition() {
+        return maxCapacityPerPartition;
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+public class CachingDnsResolverTest extends TestCase {
+    private static final int THREADS = 8;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger lookups = new AtomicInteger();
+    private ExecutorService executor;
+
+    @Override
+    protected void setUp() {
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @Override
+    protected void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    /** A resolver whose lookups wait for the release, and fail for "unknown". */
+    private DnsResolver blockingResolver() {
+        return new DnsResolver() {
+            @Override
+            public InetAddress[] resolve(String host) throws UnknownHostException {
+                lookups.incrementAndGet();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (host.startsWith("unknown")) {
+                    throw new UnknownHostException(host);
+                }
+                return new InetAddress[] {InetAddress.getByAddress(host, new byte[] {10, 0, 0, 1})};
+            }
+        };
+    }
+
+    private List<Future<InetAddress[]>> resolveConcurrently(final CachingDnsResolver resolver, final String host)
+            throws InterruptedException {
+        List<Future<InetAddress[]>> results = new ArrayList<Future<InetAddress[]>>();
+        for (int i = 0; i < THREADS; i++) {
+            results.add(executor.submit(new Callable<InetAddress[]>() {
+                @Override
+                public InetAddress[] call() throws UnknownHostException {
+                    return resolver.resolve(host);
+                }
+            }));
+        }
+        // Let every thread miss the cache before the lookup completes
+        Thread.sleep(200);
+        release.countDown();
+        return results;
+    }
+
+    public void testConcurrentMissesShareOneLookup() throws Exception {
+        CachingDnsResolver resolver = new CachingDnsResolver(blockingResolver());
+        for (Future<InetAddress[]> result : resolveConcurrently(resolver, "example.com")) {
+            InetAddress[] addresses = result.get(5, TimeUnit.SECONDS);
+            assertEquals(1, addresses.length);
+            assertEquals("10.0.0.1", addresses[0].getHostAddress());
+        }
+        assertEquals(1, lookups.get());
+        assertEquals(THREADS, resolver.getMissCount());
+
+        resolver.resolve("EXAMPLE.com");
+        assertEquals(1, lookups.get());
+        assertEquals(1, resolver.getHitCount());
+    }
+
+    public void testConcurrentMissesShareOneFailure() throws Exception {
+        CachingDnsResolver resolver = new CachingDnsResolver(blockingResolver());
+        for (Future<InetAddress[]> result : resolveConcurrently(resolver, "unknown.example.com")) {
+            try {
+                result.get(5, TimeUnit.SECONDS);
+                fail("expected the lookup to fail");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof UnknownHostException);
+            }
+        }
+        assertEquals(1, lookups.get());
+        assertEquals(1, resolver.getFailedLookupCount());
+    }
+
+    public void testMissesAreNotSharedWithoutCaching() throws Exception {
+        release.countDown();
+        CachingDnsResolver resolver = new CachingDnsResolver(blockingResolver()).withTtlMillis(0);
+        resolver.resolve("example.com");
+        resolver.resolve("example.com");
+        assertEquals(2, lookups.get());
+    }
+}
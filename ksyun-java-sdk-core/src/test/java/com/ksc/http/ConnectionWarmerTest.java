@@ -0,0 +1,183 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.http;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
+
+import com.ksc.ClientConfiguration;
+import com.ksc.http.settings.HttpClientSettings;
+
+public class ConnectionWarmerTest extends TestCase {
+    private static final int CONNECT_DELAY_MILLIS = 300;
+
+    private ServerSocket server;
+    private final List<Socket> accepted = new ArrayList<Socket>();
+    private PoolingHttpClientConnectionManager pool;
+
+    @Override
+    protected void setUp() throws IOException {
+        server = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        Thread acceptor = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (true) {
+                        Socket socket = server.accept();
+                        synchronized (accepted) {
+                            accepted.add(socket);
+                        }
+                    }
+                } catch (IOException e) {
+                    // closed by tearDown
+                }
+            }
+        });
+        acceptor.setDaemon(true);
+        acceptor.start();
+        pool = new PoolingHttpClientConnectionManager();
+        pool.setDefaultMaxPerRoute(4);
+    }
+
+    @Override
+    protected void tearDown() throws IOException {
+        pool.shutdown();
+        server.close();
+        synchronized (accepted) {
+            for (Socket socket : accepted) {
+                socket.close();
+            }
+        }
+    }
+
+    private URI endpoint() {
+        return URI.create("http://127.0.0.1:" + server.getLocalPort() + "/");
+    }
+
+    private ConnectionWarmer newWarmer(HttpClientConnectionManager connectionManager) {
+        return new ConnectionWarmer(connectionManager, HttpClientSettings.adapt(new ClientConfiguration()));
+    }
+
+    public void testWarmedUpConnectionsAreReleasedToPool() {
+        ConnectionWarmUpResult result = newWarmer(pool).warmUp(endpoint(), 3);
+        assertEquals(3, result.getOpenedConnections());
+        assertNull(result.getLastFailure());
+        assertEquals(0, pool.getTotalStats().getLeased());
+        assertEquals(3, pool.getTotalStats().getAvailable());
+    }
+
+    public void testInterruptedWarmUpReleasesLeasedConnections() throws InterruptedException {
+        final ConnectionWarmer warmer = newWarmer(new SlowConnectConnectionManager(pool));
+        final AtomicReference<ConnectionWarmUpResult> result = new AtomicReference<ConnectionWarmUpResult>();
+        Thread warming = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                result.set(warmer.warmUp(endpoint(), 3));
+            }
+        });
+        warming.start();
+        // Interrupt while the connections are leased and being connected
+        Thread.sleep(CONNECT_DELAY_MILLIS / 3);
+        warming.interrupt();
+        warming.join(TimeUnit.SECONDS.toMillis(10));
+
+        assertTrue(result.get().getLastFailure() instanceof InterruptedException);
+        assertEquals(0, pool.getTotalStats().getLeased());
+    }
+
+    /**
+     * Delays each connect without regard to interrupts, as a blocking socket
+     * connect does.
+     */
+    private static final class SlowConnectConnectionManager implements HttpClientConnectionManager {
+        private final HttpClientConnectionManager delegate;
+
+        SlowConnectConnectionManager(HttpClientConnectionManager delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void connect(HttpClientConnection conn, HttpRoute route, int connectTimeout, HttpContext context)
+                throws IOException {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CONNECT_DELAY_MILLIS);
+            boolean interrupted = false;
+            long remaining;
+            while ((remaining = deadline - System.nanoTime()) > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(remaining);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            delegate.connect(conn, route, connectTimeout, context);
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+            return delegate.requestConnection(route, state);
+        }
+
+        @Override
+        public void releaseConnection(HttpClientConnection conn, Object newState, long validDuration,
+                TimeUnit timeUnit) {
+            delegate.releaseConnection(conn, newState, validDuration, timeUnit);
+        }
+
+        @Override
+        public void upgrade(HttpClientConnection conn, HttpRoute route, HttpContext context) throws IOException {
+            delegate.upgrade(conn, route, context);
+        }
+
+        @Override
+        public void routeComplete(HttpClientConnection conn, HttpRoute route, HttpContext context)
+                throws IOException {
+            delegate.routeComplete(conn, route, context);
+        }
+
+        @Override
+        public void closeIdleConnections(long idletime, TimeUnit tunit) {
+            delegate.closeIdleConnections(idletime, tunit);
+        }
+
+        @Override
+        public void closeExpiredConnections() {
+            delegate.closeExpiredConnections();
+        }
+
+        @Override
+        public void shutdown() {
+            delegate.shutdown();
+        }
+    }
+}
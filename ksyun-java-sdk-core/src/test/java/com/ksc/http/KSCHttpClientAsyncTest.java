@@ -0,0 +1,258 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.http;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import com.ksc.ClientConfiguration;
+import com.ksc.KscClientException;
+import com.ksc.KscServiceException;
+import com.ksc.KscWebServiceRequest;
+import com.ksc.Request;
+import com.ksc.Response;
+import com.ksc.handlers.AsyncHandler;
+import com.ksc.handlers.RequestHandler2;
+import com.ksc.http.timers.client.ClientExecutionTimeoutException;
+import com.ksc.retry.AdaptiveRateLimiter;
+import com.ksc.retry.PredefinedRetryPolicies;
+import com.ksc.retry.RetryPolicy;
+
+/**
+ * Checks that the attempts of asynchronous executions hold no thread of the
+ * async executor while they wait, and that the executor owned by the client
+ * is bounded.
+ */
+public class KSCHttpClientAsyncTest extends TestCase {
+    private static final long LONG_BACKOFF_MILLIS = 3000;
+
+    private StubHttpServer server;
+    private KSCHttpClient client;
+    private ExecutorService executor;
+
+    @Override
+    protected void setUp() throws Exception {
+        server = new StubHttpServer();
+    }
+
+    @Override
+    protected void tearDown() {
+        if (client != null) {
+            client.shutdown();
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        server.stop();
+    }
+
+    private Future<Response<String>> executeAsync() {
+        return client.executeAsync(server.request("DescribeInstances"), StubHttpServer.stringResponseHandler(),
+                StubHttpServer.errorResponseHandler(), new ExecutionContext());
+    }
+
+    private Future<Response<String>> executeAsync(ExecutionContext context, CountingHandler handler) {
+        return client.executeAsync(server.request("DescribeInstances"), StubHttpServer.stringResponseHandler(),
+                StubHttpServer.errorResponseHandler(), context, handler);
+    }
+
+    /** A client whose attempts all run on a single thread, retrying after a long back-off. */
+    private KSCHttpClient newSingleThreadClient(ClientConfiguration config) {
+        executor = Executors.newFixedThreadPool(1);
+        RetryPolicy.BackoffStrategy longBackoff = new RetryPolicy.BackoffStrategy() {
+            @Override
+            @SuppressWarnings("rawtypes")
+            public long delayBeforeNextRetry(KscWebServiceRequest originalRequest, KscClientException exception,
+                    int retriesAttempted) {
+                return LONG_BACKOFF_MILLIS;
+            }
+        };
+        return new KSCHttpClient(config.withAsyncExecutor(executor).withRetryPolicy(new RetryPolicy(
+                PredefinedRetryPolicies.DEFAULT_RETRY_CONDITION, longBackoff, 1, false)));
+    }
+
+    /** Counts the notifications of an execution, and records the thread of the first one. */
+    private static final class CountingHandler implements AsyncHandler<KscWebServiceRequest<?>, Response<String>> {
+        final AtomicInteger errors = new AtomicInteger();
+        final AtomicInteger successes = new AtomicInteger();
+        final CountDownLatch notified = new CountDownLatch(1);
+        volatile Exception error;
+        volatile Thread thread;
+
+        @Override
+        public void onError(Exception exception) {
+            error = exception;
+            thread = Thread.currentThread();
+            errors.incrementAndGet();
+            notified.countDown();
+        }
+
+        @Override
+        public void onSuccess(KscWebServiceRequest<?> request, Response<String> response) {
+            thread = Thread.currentThread();
+            successes.incrementAndGet();
+            notified.countDown();
+        }
+
+        void assertNotifiedOnce(Class<? extends Exception> errorType) throws InterruptedException {
+            assertTrue("handler not notified", notified.await(5, TimeUnit.SECONDS));
+            // Leave time for a second notification to show up
+            Thread.sleep(200);
+            assertEquals(0, successes.get());
+            assertEquals(1, errors.get());
+            assertTrue(String.valueOf(error), errorType.isInstance(error));
+        }
+    }
+
+    public void testRetryPauseHoldsNoThread() throws Exception {
+        client = newSingleThreadClient(new ClientConfiguration());
+        server.enqueue(503);
+        Future<Response<String>> retried = executeAsync();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (server.getRequestCount() < 1) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+
+        // The only thread of the executor is free while the first execution pauses
+        long start = System.currentTimeMillis();
+        assertEquals("ok", executeAsync().get(LONG_BACKOFF_MILLIS / 2, TimeUnit.MILLISECONDS).getKscResponse());
+        assertTrue(System.currentTimeMillis() - start < LONG_BACKOFF_MILLIS / 2);
+        assertFalse(retried.isDone());
+
+        assertEquals("ok", retried.get(2 * LONG_BACKOFF_MILLIS, TimeUnit.MILLISECONDS).getKscResponse());
+        assertEquals(3, server.getRequestCount());
+    }
+
+    public void testCancelInFlightNotifiesHandlerOnce() throws Exception {
+        client = newSingleThreadClient(new ClientConfiguration());
+        server.withDelay(1000);
+        CountingHandler handler = new CountingHandler();
+        Future<Response<String>> future = executeAsync(new ExecutionContext(), handler);
+        Thread.sleep(200);
+
+        assertTrue(future.cancel(true));
+        assertTrue(future.isCancelled());
+        assertFalse(future.cancel(true));
+        handler.assertNotifiedOnce(CancellationException.class);
+        assertTrue(handler.thread != Thread.currentThread());
+        try {
+            future.get();
+            fail("expected the future to be cancelled");
+        } catch (CancellationException e) {
+            // expected
+        }
+    }
+
+    public void testCancelDuringRetryPauseNotifiesHandlerOnce() throws Exception {
+        client = newSingleThreadClient(new ClientConfiguration());
+        server.enqueue(503);
+        CountingHandler handler = new CountingHandler();
+        Future<Response<String>> future = executeAsync(new ExecutionContext(), handler);
+        Thread.sleep(300);
+        assertEquals(1, server.getRequestCount());
+
+        long start = System.currentTimeMillis();
+        assertTrue(future.cancel(false));
+        handler.assertNotifiedOnce(CancellationException.class);
+        // Notified without waiting for the back-off to elapse
+        assertTrue(System.currentTimeMillis() - start < LONG_BACKOFF_MILLIS / 2);
+        assertTrue(handler.thread != Thread.currentThread());
+        assertEquals(1, server.getRequestCount());
+    }
+
+    public void testClientExecutionTimeoutNotifiesHandlerOnce() throws Exception {
+        client = newSingleThreadClient(new ClientConfiguration().withClientExecutionTimeout(300));
+        server.withDelay(2000);
+        final AtomicInteger afterErrors = new AtomicInteger();
+        List<RequestHandler2> requestHandlers = Collections.<RequestHandler2>singletonList(new RequestHandler2() {
+            @Override
+            public void afterError(Request<?> request, Response<?> response, Exception e) {
+                if (e instanceof ClientExecutionTimeoutException) {
+                    afterErrors.incrementAndGet();
+                }
+            }
+        });
+        CountingHandler handler = new CountingHandler();
+        Future<Response<String>> future = executeAsync(new ExecutionContext(requestHandlers, false, null), handler);
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("expected the execution to time out");
+        } catch (ExecutionException e) {
+            assertTrue(String.valueOf(e.getCause()), e.getCause() instanceof ClientExecutionTimeoutException);
+        }
+        handler.assertNotifiedOnce(ClientExecutionTimeoutException.class);
+        assertEquals(1, afterErrors.get());
+    }
+
+    public void testFullQueueRejectsAttempt() throws Exception {
+        client = new KSCHttpClient(new ClientConfiguration().withMaxConnections(1).withAsyncExecutorQueueSize(1));
+        server.withDelay(300);
+        // One attempt runs, one waits in the queue and the last one is rejected
+        Future<Response<String>> running = executeAsync();
+        Thread.sleep(100);
+        Future<Response<String>> queued = executeAsync();
+        Future<Response<String>> rejected = executeAsync();
+        try {
+            rejected.get(1, TimeUnit.SECONDS);
+            fail("expected the attempt to be rejected");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof KscClientException);
+            assertTrue(e.getCause().getCause() instanceof RejectedExecutionException);
+        }
+        assertEquals("ok", running.get(5, TimeUnit.SECONDS).getKscResponse());
+        assertEquals("ok", queued.get(5, TimeUnit.SECONDS).getKscResponse());
+        assertEquals(2, server.getRequestCount());
+    }
+
+    public void testRateLimiterWaitHoldsNoThread() throws Exception {
+        client = new KSCHttpClient(new ClientConfiguration().withMaxConnections(1).withMaxErrorRetry(0)
+                .withAdaptiveRateLimiting(true));
+        // A throttling response turns the rate limiter on, with an empty bucket
+        server.enqueue(400).withErrorCode("Throttling");
+        try {
+            client.execute(server.request("DescribeInstances"), StubHttpServer.stringResponseHandler(),
+                    StubHttpServer.errorResponseHandler(), new ExecutionContext());
+            fail("expected the throttling error");
+        } catch (KscServiceException e) {
+            assertEquals("Throttling", e.getErrorCode());
+        }
+
+        Future<Response<String>> limited = executeAsync();
+        Thread.sleep(300);
+        assertFalse(limited.isDone());
+        assertEquals(1, server.getRequestCount());
+        for (Map.Entry<Thread, StackTraceElement[]> thread : Thread.getAllStackTraces().entrySet()) {
+            for (StackTraceElement frame : thread.getValue()) {
+                assertFalse(thread.getKey().getName() + " waits in the rate limiter",
+                        frame.getClassName().equals(AdaptiveRateLimiter.class.getName()));
+            }
+        }
+        assertEquals("ok", limited.get(10, TimeUnit.SECONDS).getKscResponse());
+        assertEquals(2, server.getRequestCount());
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.ksc.DefaultRequest;
+import com.ksc.KscServiceException;
+import com.ksc.KscWebServiceRequest;
+import com.ksc.KscWebServiceResponse;
+import com.ksc.Request;
+import com.ksc.util.StringUtils;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A local HTTP server standing in for a KSC service in tests. It answers each
+ * request with the next queued status code, 200 once the queue is empty, and
+ * records the headers of every request it receives.
+ */
+public class StubHttpServer {
+    /** The product of the requests built by {@link #request(String)}. */
+    public static final String PRODUCT = "kec";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ConcurrentLinkedQueue<Integer> statusCodes = new ConcurrentLinkedQueue<Integer>();
+    private final List<Headers> requestHeaders = Collections.synchronizedList(new ArrayList<Headers>());
+    private final List<String> requestLines = Collections.synchronizedList(new ArrayList<String>());
+    private final List<String> requestBodies = Collections.synchronizedList(new ArrayList<String>());
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private volatile long delayMillis;
+    private volatile String errorCode = "ServiceUnavailable";
+
+    public StubHttpServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    respond(exchange);
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        server.start();
+    }
+
+    private void respond(HttpExchange exchange) throws IOException {
+        requestCount.incrementAndGet();
+        requestHeaders.add(exchange.getRequestHeaders());
+        requestLines.add(exchange.getRequestMethod() + " " + exchange.getRequestURI());
+        requestBodies.add(read(exchange.getRequestBody()));
+        if (delayMillis > 0) {
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        Integer queued = statusCodes.poll();
+        int statusCode = queued == null ? 200 : queued;
+        byte[] body = (statusCode == 200 ? "ok" : errorCode).getBytes(StringUtils.UTF8);
+        exchange.sendResponseHeaders(statusCode, body.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(body);
+        out.close();
+    }
+
+    /** Queues the status codes of the next responses, in order. */
+    public StubHttpServer enqueue(int... codes) {
+        for (int code : codes)
+            statusCodes.add(code);
+        return this;
+    }
+
+    /** Delays every response by the given time. */
+    public StubHttpServer withDelay(long millis) {
+        this.delayMillis = millis;
+        return this;
+    }
+
+    /** Sets the body, and so the error code, of responses other than 200. */
+    public StubHttpServer withErrorCode(String errorCode) {
+        this.errorCode = errorCode;
+        return this;
+    }
+
+    public URI getEndpoint() {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort());
+    }
+
+    /** Returns the number of requests received so far. */
+    public int getRequestCount() {
+        return requestCount.get();
+    }
+
+    /** Returns the headers of the requests received so far, in order. */
+    public List<Headers> getRequestHeaders() {
+        synchronized (requestHeaders) {
+            return new ArrayList<Headers>(requestHeaders);
+        }
+    }
+
+    /**
+     * Returns the method and URI of the requests received so far, in order,
+     * eg "GET /?Action=DescribeInstances".
+     */
+    public List<String> getRequestLines() {
+        synchronized (requestLines) {
+            return new ArrayList<String>(requestLines);
+        }
+    }
+
+    /** Returns the bodies of the requests received so far, in order. */
+    public List<String> getRequestBodies() {
+        synchronized (requestBodies) {
+            return new ArrayList<String>(requestBodies);
+        }
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /** Returns a GET request of the given action to this server. */
+    public Request<?> request(String action) {
+        KscWebServiceRequest<Void> original = new KscWebServiceRequest<Void>() {};
+        original.setAction(action);
+        original.setProduct(PRODUCT);
+        DefaultRequest<KscWebServiceRequest<Void>> request =
+                new DefaultRequest<KscWebServiceRequest<Void>>(original, PRODUCT);
+        request.setEndpoint(getEndpoint());
+        request.setHttpMethod(HttpMethodName.GET);
+        request.setResourcePath("/");
+        return request;
+    }
+
+    /** Returns a response handler whose result is the response body. */
+    public static HttpResponseHandler<KscWebServiceResponse<String>> stringResponseHandler() {
+        return new HttpResponseHandler<KscWebServiceResponse<String>>() {
+            @Override
+            public KscWebServiceResponse<String> handle(HttpResponse response) throws Exception {
+                KscWebServiceResponse<String> result = new KscWebServiceResponse<String>();
+                result.setResult(read(response.getContent()));
+                return result;
+            }
+
+            @Override
+            public boolean needsConnectionLeftOpen() {
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns an error response handler using the body as the error code,
+     * and reporting 5xx status codes as service errors.
+     */
+    public static HttpResponseHandler<KscServiceException> errorResponseHandler() {
+        return new HttpResponseHandler<KscServiceException>() {
+            @Override
+            public KscServiceException handle(HttpResponse response) throws Exception {
+                String code = read(response.getContent());
+                KscServiceException e = new KscServiceException(code);
+                e.setStatusCode(response.getStatusCode());
+                e.setErrorCode(code);
+                e.setErrorType(response.getStatusCode() >= 500
+                        ? KscServiceException.ErrorType.Service
+                        : KscServiceException.ErrorType.Client);
+                return e;
+            }
+
+            @Override
+            public boolean needsConnectionLeftOpen() {
+                return false;
+            }
+        };
+    }
+
+    static String read(InputStream in) throws IOException {
+        if (in == null)
+            return "";
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[4096];
+        int n;
+        while ((n = in.read(buf)) != -1)
+            out.write(buf, 0, n);
+        return new String(out.toByteArray(), StringUtils.UTF8);
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2015-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.http.apache.client.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.util.EntityUtils;
+
+import com.ksc.ClientConfiguration;
+import com.ksc.http.settings.HttpClientSettings;
+import com.ksc.util.StringUtils;
+
+/**
+ * Compares the latency of requests sent over one keep-alive connection of
+ * the SDK's connection pool with the stale connection check run on every
+ * lease, as requests used to enable it, and with the connection validated
+ * only after inactivity, as the pool now does. Not a unit test; run it with
+ * {@code main}, optionally passing the number of requests.
+ * <p>
+ * The server is a minimal keep-alive server writing each response in one
+ * segment; the JDK's HttpServer writes the headers and the body separately,
+ * which costs every request a delayed acknowledgement that dwarfs the check.
+ */
+public class ValidateAfterInactivityBenchmark {
+    private static final int WARM_UP_REQUESTS = 1000;
+
+    public static void main(String[] args) throws Exception {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        final ServerSocket server = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        Thread acceptor = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                accept(server);
+            }
+        });
+        acceptor.setDaemon(true);
+        acceptor.start();
+        URI endpoint = URI.create("http://127.0.0.1:" + server.getLocalPort() + "/");
+        try {
+            System.out.printf("%d sequential requests over one connection, %s%n", requests,
+                    System.getProperty("java.version"));
+            System.out.println("mode                        p50 ms  mean ms");
+            // Alternate the modes so that neither always runs on a warmer JVM
+            for (int round = 1; round <= 2; round++) {
+                run(endpoint, "stale check on each lease", true, requests);
+                run(endpoint, "validate after inactivity", false, requests);
+            }
+        } finally {
+            server.close();
+        }
+    }
+
+    private static void accept(ServerSocket server) {
+        while (!server.isClosed()) {
+            final Socket socket;
+            try {
+                socket = server.accept();
+            } catch (IOException e) {
+                return;
+            }
+            Thread connection = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    serve(socket);
+                }
+            });
+            connection.setDaemon(true);
+            connection.start();
+        }
+    }
+
+    /** Answers each request of a connection, which must have no body, with "ok". */
+    private static void serve(Socket socket) {
+        byte[] response = "HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\nok".getBytes(StringUtils.UTF8);
+        try {
+            socket.setTcpNoDelay(true);
+            InputStream in = socket.getInputStream();
+            OutputStream out = socket.getOutputStream();
+            int matched = 0;
+            int b;
+            while ((b = in.read()) != -1) {
+                // Count the bytes of the blank line ending the request headers
+                matched = b == (matched % 2 == 0 ? '\r' : '\n') ? matched + 1 : (b == '\r' ? 1 : 0);
+                if (matched == 4) {
+                    out.write(response);
+                    out.flush();
+                    matched = 0;
+                }
+            }
+        } catch (IOException e) {
+            // the client closed the connection
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // ignored
+            }
+        }
+    }
+
+    private static void run(URI endpoint, String mode, boolean staleCheck, int requests)
+            throws Exception {
+        ClientConfiguration config = new ClientConfiguration()
+                .withMaxConnections(1)
+                .withValidateAfterInactivityMillis(
+                        staleCheck ? 0 : ClientConfiguration.DEFAULT_VALIDATE_AFTER_INACTIVITY_MILLIS);
+        ConnectionManagerAwareHttpClient client = new ApacheHttpClientFactory().create(
+                HttpClientSettings.adapt(config));
+        @SuppressWarnings("deprecation")
+        RequestConfig requestConfig = RequestConfig.custom().setStaleConnectionCheckEnabled(staleCheck).build();
+        long[] latencies = new long[requests];
+        try {
+            for (int i = -WARM_UP_REQUESTS; i < requests; i++) {
+                HttpGet get = new HttpGet(endpoint);
+                get.setConfig(requestConfig);
+                long start = System.nanoTime();
+                CloseableHttpResponse response = (CloseableHttpResponse) client.execute(get);
+                try {
+                    EntityUtils.consume(response.getEntity());
+                } finally {
+                    response.close();
+                }
+                if (i >= 0) {
+                    latencies[i] = System.nanoTime() - start;
+                }
+            }
+        } finally {
+            client.getHttpClientConnectionManager().shutdown();
+        }
+
+        long total = 0;
+        for (long latency : latencies) {
+            total += latency;
+        }
+        Arrays.sort(latencies);
+        System.out.printf("%-26s  %6.2f  %7.2f%n", mode, millis(latencies[requests / 2]),
+                millis(total / requests));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2015-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.http.client;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import com.ksc.ClientConfiguration;
+import com.ksc.KscClientException;
+import com.ksc.KscServiceException;
+import com.ksc.Request;
+import com.ksc.Response;
+import com.ksc.http.ExecutionContext;
+import com.ksc.http.HttpMethodName;
+import com.ksc.http.KSCHttpClient;
+import com.ksc.http.StubHttpServer;
+import com.ksc.http.apache.client.impl.ApacheHttpTransportFactory;
+import com.ksc.http.exception.HttpRequestTimeoutException;
+import com.ksc.http.settings.HttpClientSettings;
+import com.ksc.http.urlconnection.UrlConnectionHttpTransportFactory;
+
+/**
+ * Runs requests through each transport against a local server: the
+ * HttpURLConnection transport, the Apache transport, which the client uses
+ * directly, and an Apache transport decorated by another transport, which
+ * the client goes through the transport adapter for.
+ */
+public class HttpTransportTest extends TestCase {
+
+    private static Map<String, HttpTransportFactory> factories() {
+        Map<String, HttpTransportFactory> factories = new LinkedHashMap<String, HttpTransportFactory>();
+        factories.put("urlconnection", new UrlConnectionHttpTransportFactory());
+        factories.put("apache", new ApacheHttpTransportFactory());
+        factories.put("decorated apache", new DecoratingTransportFactory(new ApacheHttpTransportFactory()));
+        return factories;
+    }
+
+    private static KSCHttpClient newClient(HttpTransportFactory factory) {
+        return newClient(new ClientConfiguration(), factory);
+    }
+
+    private static KSCHttpClient newClient(ClientConfiguration config, HttpTransportFactory factory) {
+        return new KSCHttpClient(config.withHttpTransportFactory(factory));
+    }
+
+    private Response<String> execute(KSCHttpClient client, Request<?> request) {
+        return client.execute(request, StubHttpServer.stringResponseHandler(),
+                StubHttpServer.errorResponseHandler(), new ExecutionContext());
+    }
+
+    public void testGet() {
+        for (Map.Entry<String, HttpTransportFactory> factory : factories().entrySet()) {
+            String name = factory.getKey();
+            StubHttpServer server = newServer();
+            KSCHttpClient client = newClient(factory.getValue());
+            try {
+                Request<?> request = server.request("DescribeInstances");
+                request.addParameter("InstanceId.1", "i-1 2");
+                assertEquals(name, "ok", execute(client, request).getKscResponse());
+                assertEquals(name, 1, server.getRequestCount());
+                assertEquals(name, "GET /?InstanceId.1=i-1+2", server.getRequestLines().get(0));
+                assertEquals(name, "", server.getRequestBodies().get(0));
+            } finally {
+                client.shutdown();
+                server.stop();
+            }
+        }
+    }
+
+    public void testFormPost() {
+        for (Map.Entry<String, HttpTransportFactory> factory : factories().entrySet()) {
+            String name = factory.getKey();
+            StubHttpServer server = newServer();
+            KSCHttpClient client = newClient(factory.getValue());
+            try {
+                Request<?> request = server.request("RunInstances");
+                request.setHttpMethod(HttpMethodName.POST);
+                request.addParameter("ImageId", "img-1");
+                request.addParameter("MaxCount", "2");
+                assertEquals(name, "ok", execute(client, request).getKscResponse());
+                assertEquals(name, "POST /", server.getRequestLines().get(0));
+                assertEquals(name, "ImageId=img-1&MaxCount=2", server.getRequestBodies().get(0));
+                assertTrue(name, server.getRequestHeaders().get(0).getFirst("Content-Type")
+                        .startsWith("application/x-www-form-urlencoded"));
+            } finally {
+                client.shutdown();
+                server.stop();
+            }
+        }
+    }
+
+    public void testRetriedServiceUnavailable() {
+        for (Map.Entry<String, HttpTransportFactory> factory : factories().entrySet()) {
+            String name = factory.getKey();
+            StubHttpServer server = newServer().enqueue(503);
+            KSCHttpClient client = newClient(factory.getValue());
+            try {
+                assertEquals(name, "ok", execute(client, server.request("DescribeInstances")).getKscResponse());
+                assertEquals(name, 2, server.getRequestCount());
+            } finally {
+                client.shutdown();
+                server.stop();
+            }
+        }
+    }
+
+    public void testClientErrorIsNotRetried() {
+        for (Map.Entry<String, HttpTransportFactory> factory : factories().entrySet()) {
+            String name = factory.getKey();
+            StubHttpServer server = newServer().enqueue(400).withErrorCode("InvalidParameter");
+            KSCHttpClient client = newClient(factory.getValue());
+            try {
+                execute(client, server.request("DescribeInstances"));
+                fail(name + ": expected a service exception");
+            } catch (KscServiceException e) {
+                assertEquals(name, 400, e.getStatusCode());
+                assertEquals(name, "InvalidParameter", e.getErrorCode());
+                assertEquals(name, 1, server.getRequestCount());
+            } finally {
+                client.shutdown();
+                server.stop();
+            }
+        }
+    }
+
+    public void testRequestTimeoutAbortsRequest() {
+        for (Map.Entry<String, HttpTransportFactory> factory : factories().entrySet()) {
+            String name = factory.getKey();
+            StubHttpServer server = newServer().withDelay(5000);
+            KSCHttpClient client = newClient(
+                    new ClientConfiguration().withRequestTimeout(200).withMaxErrorRetry(0), factory.getValue());
+            long start = System.currentTimeMillis();
+            try {
+                execute(client, server.request("DescribeInstances"));
+                fail(name + ": expected the request to time out");
+            } catch (KscClientException e) {
+                assertTrue(name + ": " + e, e.getCause() instanceof HttpRequestTimeoutException);
+                assertTrue(name, System.currentTimeMillis() - start < 4000);
+            } finally {
+                client.shutdown();
+                server.stop();
+            }
+        }
+    }
+
+    public void testRejectedAfterShutdown() {
+        for (Map.Entry<String, HttpTransportFactory> factory : factories().entrySet()) {
+            String name = factory.getKey();
+            StubHttpServer server = newServer();
+            KSCHttpClient client = newClient(factory.getValue());
+            try {
+                assertEquals(name, "ok", execute(client, server.request("DescribeInstances")).getKscResponse());
+                client.shutdown();
+                execute(client, server.request("DescribeInstances"));
+                fail(name + ": expected the request to be rejected");
+            } catch (IllegalStateException e) {
+                assertEquals(name, 1, server.getRequestCount());
+            } finally {
+                server.stop();
+            }
+        }
+    }
+
+    /** Returns a new server, so that each transport sees its own requests. */
+    private static StubHttpServer newServer() {
+        try {
+            return new StubHttpServer();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Creates transports delegating to those of another factory, as a
+     * transport adding behavior to another one would.
+     */
+    private static final class DecoratingTransportFactory implements HttpTransportFactory {
+        private final HttpTransportFactory delegate;
+
+        DecoratingTransportFactory(HttpTransportFactory delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public HttpTransport create(HttpClientSettings settings) {
+            final HttpTransport transport = delegate.create(settings);
+            return new HttpTransport() {
+                @Override
+                public HttpTransportResponse execute(HttpTransportRequest request) throws IOException {
+                    return transport.execute(request);
+                }
+
+                @Override
+                public void shutdown() {
+                    transport.shutdown();
+                }
+            };
+        }
+    }
+}
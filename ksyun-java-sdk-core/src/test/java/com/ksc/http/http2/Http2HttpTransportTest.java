@@ -0,0 +1,153 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.http.http2;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import com.ksc.ClientConfiguration;
+import com.ksc.http.client.HttpTransport;
+import com.ksc.http.client.HttpTransportRequest;
+import com.ksc.http.client.HttpTransportResponse;
+import com.ksc.http.settings.HttpClientSettings;
+import com.ksc.util.KscRequestMetrics;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Runs the HTTP/2 transport against a local server whose responses stall
+ * after the first bytes of their content. The server speaks HTTP/1.1, which
+ * the transport falls back to.
+ */
+public class Http2HttpTransportTest extends TestCase {
+    private static final int SOCKET_TIMEOUT_MILLIS = 200;
+
+    private HttpServer server;
+    private final CountDownLatch release = new CountDownLatch(1);
+    private HttpTransport transport;
+
+    @Override
+    protected void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    exchange.sendResponseHeaders(200, 4);
+                    OutputStream out = exchange.getResponseBody();
+                    out.write(new byte[] {'o', 'k'});
+                    out.flush();
+                    release.await(10, TimeUnit.SECONDS);
+                    out.write(new byte[] {'o', 'k'});
+                    out.close();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        server.start();
+        transport = new Http2HttpTransportFactory().create(HttpClientSettings.adapt(
+                new ClientConfiguration().withSocketTimeout(SOCKET_TIMEOUT_MILLIS)));
+    }
+
+    @Override
+    protected void tearDown() {
+        release.countDown();
+        transport.shutdown();
+        server.stop(0);
+    }
+
+    private HttpTransportRequest newRequest() {
+        URI uri = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/");
+        Map<String, List<String>> headers = Collections.emptyMap();
+        return new HttpTransportRequest("GET", uri, headers, null, 1000, SOCKET_TIMEOUT_MILLIS,
+                new KscRequestMetrics());
+    }
+
+    public void testStalledContentTimesOut() throws IOException {
+        HttpTransportResponse response = transport.execute(newRequest());
+        InputStream in = response.getContent();
+        assertEquals('o', in.read());
+        assertEquals('k', in.read());
+        long start = System.currentTimeMillis();
+        try {
+            in.read();
+            fail("expected the stalled read to time out");
+        } catch (SocketTimeoutException e) {
+            long waited = System.currentTimeMillis() - start;
+            assertTrue("waited " + waited + " ms", waited >= SOCKET_TIMEOUT_MILLIS && waited < 2000);
+        } finally {
+            response.close();
+        }
+    }
+
+    public void testContentReadInTimeDoesNotTimeOut() throws Exception {
+        HttpTransportResponse response = transport.execute(newRequest());
+        InputStream in = response.getContent();
+        try {
+            assertEquals('o', in.read());
+            // Idle between reads for longer than the timeout
+            Thread.sleep(3 * SOCKET_TIMEOUT_MILLIS);
+            assertEquals('k', in.read());
+            release.countDown();
+            assertEquals('o', in.read());
+            assertEquals('k', in.read());
+            assertEquals(-1, in.read());
+        } finally {
+            response.close();
+        }
+    }
+
+    public void testAbortClosesContent() throws IOException {
+        HttpTransportRequest request = newRequest();
+        HttpTransportResponse response = transport.execute(request);
+        InputStream in = response.getContent();
+        assertEquals('o', in.read());
+        request.abort();
+        try {
+            in.read();
+            in.read();
+            fail("expected the aborted content to be closed");
+        } catch (SocketTimeoutException e) {
+            fail("expected the abort to close the content, not the timeout");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    public void testRejectedAfterShutdown() throws IOException {
+        transport.shutdown();
+        try {
+            transport.execute(newRequest());
+            fail("expected the request to be rejected");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+}
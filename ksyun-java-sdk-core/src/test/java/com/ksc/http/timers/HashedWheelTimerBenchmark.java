@@ -0,0 +1,232 @@
+/*
+ * Copyright 2015-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.http.timers;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.concurrent.Cancellable;
+
+/**
+ * Compares the shared {@link HashedWheelTimer} with the five thread
+ * {@link ScheduledThreadPoolExecutor} with remove-on-cancel that the timeout
+ * features used before, with 50,000 timeouts outstanding. Not a unit test;
+ * run it with {@code main}, optionally passing the number of timeouts and of
+ * caller threads.
+ * <p>
+ * Two workloads are measured:
+ * <ul>
+ * <li>Churn: the timers are filled with 30 s timeouts, as request timeouts
+ * would be, and each caller thread then repeatedly cancels its oldest
+ * timeout and schedules a new one, as each completed request and new request
+ * would. This is the cost a request pays.</li>
+ * <li>Expiry: all the timeouts are due within one second, and the time by
+ * which each one fires late is recorded.</li>
+ * </ul>
+ */
+public class HashedWheelTimerBenchmark {
+    private static final int WARM_UP_ROUNDS = 3;
+    private static final int ROUNDS = 10;
+    private static final int OPERATIONS_PER_THREAD = 200000;
+    private static final long TIMEOUT_MILLIS = 30000;
+
+    /** A timer under test. */
+    private interface Timer {
+        Cancellable schedule(Runnable task, long delayMillis);
+
+        void stop();
+    }
+
+    private static final class WheelTimer implements Timer {
+        private final HashedWheelTimer timer = new HashedWheelTimer(
+                HashedWheelTimer.DEFAULT_TICK_MILLIS, TimeUnit.MILLISECONDS, HashedWheelTimer.DEFAULT_TICKS_PER_WHEEL);
+
+        @Override
+        public Cancellable schedule(Runnable task, long delayMillis) {
+            return timer.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void stop() {
+            timer.stop();
+        }
+
+        @Override
+        public String toString() {
+            return "wheel";
+        }
+    }
+
+    private static final class ExecutorTimer implements Timer {
+        private final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(5);
+
+        ExecutorTimer() {
+            executor.setKeepAliveTime(5, TimeUnit.SECONDS);
+            executor.allowCoreThreadTimeOut(true);
+            executor.setRemoveOnCancelPolicy(true);
+        }
+
+        @Override
+        public Cancellable schedule(Runnable task, long delayMillis) {
+            final ScheduledFuture<?> future = executor.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+            return new Cancellable() {
+                @Override
+                public boolean cancel() {
+                    return future.cancel(false);
+                }
+            };
+        }
+
+        @Override
+        public void stop() {
+            executor.shutdownNow();
+        }
+
+        @Override
+        public String toString() {
+            return "executor";
+        }
+    }
+
+    private static final Runnable NOOP = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+
+    public static void main(String[] args) throws Exception {
+        int timeouts = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        System.out.printf("%d timeouts outstanding, %d caller threads, %s%n", timeouts, threads,
+                System.getProperty("java.version"));
+
+        System.out.println("churn: wall clock ns per cancel and schedule pair");
+        System.out.println("round  wheel  executor");
+        long[] wheels = new long[ROUNDS - WARM_UP_ROUNDS];
+        long[] executors = new long[ROUNDS - WARM_UP_ROUNDS];
+        for (int round = 1; round <= ROUNDS; round++) {
+            // Alternate the order so that neither always runs on a warmer JVM
+            long wheel;
+            long executor;
+            if (round % 2 == 1) {
+                wheel = churn(new WheelTimer(), timeouts, threads);
+                executor = churn(new ExecutorTimer(), timeouts, threads);
+            } else {
+                executor = churn(new ExecutorTimer(), timeouts, threads);
+                wheel = churn(new WheelTimer(), timeouts, threads);
+            }
+            System.out.printf("%5d  %5d  %8d%s%n", round, wheel, executor,
+                    round <= WARM_UP_ROUNDS ? "  (warm-up)" : "");
+            if (round > WARM_UP_ROUNDS) {
+                wheels[round - WARM_UP_ROUNDS - 1] = wheel;
+                executors[round - WARM_UP_ROUNDS - 1] = executor;
+            }
+        }
+        System.out.printf("median %5d  %8d%n", median(wheels), median(executors));
+
+        System.out.println("expiry: ms late, of timeouts due within 1 s");
+        System.out.println("timer     p50  p99  max");
+        expiry(new WheelTimer(), timeouts);
+        expiry(new ExecutorTimer(), timeouts);
+    }
+
+    /**
+     * Returns the wall clock time, in ns, per timeout cancelled and
+     * rescheduled by all the caller threads while the given number are
+     * outstanding. The time includes the final cancellation of all the
+     * timeouts, and the work the timer thread does meanwhile.
+     */
+    private static long churn(final Timer timer, int timeouts, int threads) throws InterruptedException {
+        final int perThread = timeouts / threads;
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Cancellable[] ring = new Cancellable[perThread];
+                    for (int i = 0; i < perThread; i++) {
+                        ring[i] = timer.schedule(NOOP, TIMEOUT_MILLIS);
+                    }
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                        int slot = i % perThread;
+                        ring[slot].cancel();
+                        ring[slot] = timer.schedule(NOOP, TIMEOUT_MILLIS);
+                    }
+                    for (Cancellable timeout : ring) {
+                        timeout.cancel();
+                    }
+                    done.countDown();
+                }
+            });
+            thread.start();
+        }
+        // Let the threads fill the timer before the clock starts
+        Thread.sleep(500);
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - begin;
+        timer.stop();
+        return elapsed / ((long) threads * OPERATIONS_PER_THREAD);
+    }
+
+    /**
+     * Prints by how much the given number of timeouts, spread over one
+     * second, fire late.
+     */
+    private static void expiry(Timer timer, int timeouts) throws InterruptedException {
+        final long[] lateNanos = new long[timeouts];
+        final CountDownLatch fired = new CountDownLatch(timeouts);
+        for (int i = 0; i < timeouts; i++) {
+            final int index = i;
+            final long delayMillis = 100 + i % 1000;
+            final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+            timer.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    lateNanos[index] = System.nanoTime() - deadline;
+                    fired.countDown();
+                }
+            }, delayMillis);
+        }
+        if (!fired.await(30, TimeUnit.SECONDS)) {
+            System.out.printf("%-8s %d timeouts did not fire%n", timer, fired.getCount());
+        }
+        timer.stop();
+        Arrays.sort(lateNanos);
+        System.out.printf("%-8s %4d %4d %4d%n", timer, millis(lateNanos[timeouts / 2]),
+                millis(lateNanos[timeouts * 99 / 100]), millis(lateNanos[timeouts - 1]));
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static long millis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2015-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.http.timers;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import junit.framework.TestCase;
+
+public class HashedWheelTimerTest extends TestCase {
+    private static final long TICK_MILLIS = 10;
+    private static final long IDLE_TIMEOUT_MILLIS = 200;
+
+    private HashedWheelTimer timer;
+
+    @Override
+    protected void setUp() {
+        timer = new HashedWheelTimer(TICK_MILLIS, TimeUnit.MILLISECONDS, 64,
+                TimeUnit.MILLISECONDS.toNanos(IDLE_TIMEOUT_MILLIS));
+    }
+
+    @Override
+    protected void tearDown() {
+        timer.stop();
+    }
+
+    public void testFiresWithinOneTickOfDeadline() throws InterruptedException {
+        final int count = 100;
+        final CountDownLatch fired = new CountDownLatch(count);
+        final AtomicLong maxLateNanos = new AtomicLong();
+        final AtomicInteger early = new AtomicInteger();
+        for (int i = 0; i < count; i++) {
+            // Spread over more than one turn of the 64 bucket wheel
+            final long delayMillis = 20 + i * 10;
+            final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+            timer.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    long late = System.nanoTime() - deadline;
+                    if (late < 0) {
+                        early.incrementAndGet();
+                    }
+                    long max;
+                    while ((max = maxLateNanos.get()) < late && !maxLateNanos.compareAndSet(max, late))
+                        ;
+                    fired.countDown();
+                }
+            }, delayMillis, TimeUnit.MILLISECONDS);
+        }
+        assertTrue(fired.await(5, TimeUnit.SECONDS));
+        assertEquals(0, early.get());
+        // One tick, plus slack for the scheduling of the timer thread
+        assertTrue("late by " + maxLateNanos.get() + " ns",
+                maxLateNanos.get() <= TimeUnit.MILLISECONDS.toNanos(TICK_MILLIS + 20));
+        assertEquals(0, timer.getActiveTimeoutCount());
+    }
+
+    public void testCancelBeforeTransfer() throws InterruptedException {
+        final AtomicInteger runs = new AtomicInteger();
+        HashedWheelTimer.Timeout timeout = timer.schedule(counting(runs), 30, TimeUnit.MILLISECONDS);
+        assertTrue(timeout.cancel());
+        assertFalse(timeout.cancel());
+        assertTrue(timeout.isCancelled());
+
+        Thread.sleep(100);
+        assertEquals(0, runs.get());
+        assertFalse(timeout.isExpired());
+        assertEquals(0, timer.getActiveTimeoutCount());
+    }
+
+    public void testCancelAfterTransfer() throws InterruptedException {
+        final AtomicInteger runs = new AtomicInteger();
+        HashedWheelTimer.Timeout timeout = timer.schedule(counting(runs), 300, TimeUnit.MILLISECONDS);
+        // Let a few ticks move the timeout into its bucket
+        Thread.sleep(5 * TICK_MILLIS);
+        assertEquals(1, timer.getActiveTimeoutCount());
+        assertTrue(timeout.cancel());
+
+        Thread.sleep(5 * TICK_MILLIS);
+        assertEquals(0, timer.getActiveTimeoutCount());
+        Thread.sleep(400);
+        assertEquals(0, runs.get());
+        assertFalse(timeout.isExpired());
+    }
+
+    public void testCancelAfterExpiry() throws InterruptedException {
+        final CountDownLatch fired = new CountDownLatch(1);
+        HashedWheelTimer.Timeout timeout = timer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                fired.countDown();
+            }
+        }, 10, TimeUnit.MILLISECONDS);
+        assertTrue(fired.await(1, TimeUnit.SECONDS));
+        assertTrue(timeout.isExpired());
+        assertFalse(timeout.cancel());
+        assertEquals(0, timer.getActiveTimeoutCount());
+    }
+
+    public void testActiveCountReturnsToZero() throws InterruptedException {
+        final AtomicInteger runs = new AtomicInteger();
+        HashedWheelTimer.Timeout[] timeouts = new HashedWheelTimer.Timeout[1000];
+        for (int i = 0; i < timeouts.length; i++) {
+            timeouts[i] = timer.schedule(counting(runs), i % 2 == 0 ? 20 : 60000, TimeUnit.MILLISECONDS);
+        }
+        assertEquals(timeouts.length, timer.getActiveTimeoutCount());
+        for (int i = 1; i < timeouts.length; i += 2) {
+            assertTrue(timeouts[i].cancel());
+        }
+        Thread.sleep(200);
+        assertEquals(timeouts.length / 2, runs.get());
+        assertEquals(0, timer.getActiveTimeoutCount());
+    }
+
+    public void testWorkerRestartsAfterIdleExit() throws InterruptedException {
+        final AtomicInteger runs = new AtomicInteger();
+        timer.schedule(counting(runs), 10, TimeUnit.MILLISECONDS);
+        assertTrue(timer.isWorkerRunning());
+        waitForWorkerExit();
+        assertEquals(1, runs.get());
+
+        final CountDownLatch fired = new CountDownLatch(1);
+        timer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                fired.countDown();
+            }
+        }, 10, TimeUnit.MILLISECONDS);
+        assertTrue(timer.isWorkerRunning());
+        assertTrue(fired.await(1, TimeUnit.SECONDS));
+        waitForWorkerExit();
+    }
+
+    public void testScheduleAfterStopIsRejected() {
+        timer.stop();
+        try {
+            timer.schedule(counting(new AtomicInteger()), 10, TimeUnit.MILLISECONDS);
+            fail("expected the stopped timer to reject the timeout");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    private void waitForWorkerExit() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10 * IDLE_TIMEOUT_MILLIS;
+        while (timer.isWorkerRunning()) {
+            assertTrue("timer thread did not exit", System.currentTimeMillis() < deadline);
+            Thread.sleep(TICK_MILLIS);
+        }
+    }
+
+    private static Runnable counting(final AtomicInteger runs) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                runs.incrementAndGet();
+            }
+        };
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import com.ksc.util.KscRequestMetrics;
+import com.ksc.util.KscRequestMetrics.Field;
+import com.ksc.util.KscRequestMetricsFullSupport;
+
+public class MetricsInputStreamTest extends TestCase {
+    private final MetricsInputStream in = new MetricsInputStream(new ByteArrayInputStream(new byte[64]), true);
+
+    private static Number readCount(KscRequestMetrics metrics) {
+        return metrics.getTimingInfo().getCounter(Field.HttpSocketReadCount.name());
+    }
+
+    public void testSummaryFlushedAfterConnectionIsReused() throws IOException {
+        KscRequestMetrics first = new KscRequestMetricsFullSupport();
+        in.setMetrics(first);
+        MetricsInputStream.ReadSummary firstSummary = in.getReadSummary();
+        in.read();
+        in.read(new byte[4]);
+        in.read(new byte[8], 0, 8);
+
+        // The connection goes back to the pool and serves another request
+        // before the first request flushes its summary
+        KscRequestMetrics second = new KscRequestMetricsFullSupport();
+        in.setMetrics(second);
+        in.read();
+        firstSummary.flush();
+
+        assertEquals(3, readCount(first).intValue());
+        assertEquals(1, first.getTimingInfo().getAllSubMeasurements(Field.HttpSocketReadTime.name()).size());
+        assertNull(readCount(second));
+        in.getReadSummary().flush();
+        assertEquals(1, readCount(second).intValue());
+    }
+
+    public void testReadsAfterFlushAreNotRecorded() throws IOException {
+        KscRequestMetrics metrics = new KscRequestMetricsFullSupport();
+        in.setMetrics(metrics);
+        in.read();
+        in.getReadSummary().flush();
+        in.read();
+        in.getReadSummary().flush();
+        assertEquals(1, readCount(metrics).intValue());
+    }
+
+    public void testNoSummaryWithoutAggregation() throws IOException {
+        MetricsInputStream events = new MetricsInputStream(new ByteArrayInputStream(new byte[4]));
+        KscRequestMetrics metrics = new KscRequestMetricsFullSupport();
+        events.setMetrics(metrics);
+        events.read();
+        assertNull(events.getReadSummary());
+        assertEquals(1, metrics.getTimingInfo().getAllSubMeasurements(Field.HttpSocketReadTime.name()).size());
+    }
+}
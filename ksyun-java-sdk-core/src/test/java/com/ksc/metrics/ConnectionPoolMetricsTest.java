@@ -0,0 +1,104 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks that a closed pool is not reported again to the service metric
+ * collector by a sample still in progress.
+ */
+public class ConnectionPoolMetricsTest extends TestCase {
+    /** The reports received: "stats", "removal" or "route removal". */
+    private final List<String> reports = Collections.synchronizedList(new ArrayList<String>());
+
+    @Override
+    protected void setUp() {
+        final ServiceMetricCollector service = new ServiceMetricCollector() {
+            @Override public void collectByteThroughput(ByteThroughputProvider provider) {}
+            @Override public void collectLatency(ServiceLatencyProvider provider) {}
+
+            @Override
+            public void collectConnectionPoolStats(ConnectionPoolStatsProvider provider) {
+                reports.add("stats");
+            }
+
+            @Override
+            public void collectConnectionPoolRemoval(ConnectionPoolStatsProvider provider) {
+                reports.add(provider.getRoute() == null ? "removal" : "route removal");
+            }
+        };
+        KscSdkMetrics.setMetricCollector(new MetricCollector() {
+            @Override public boolean start() { return true; }
+            @Override public boolean stop() { return true; }
+            @Override public boolean isEnabled() { return true; }
+            @Override public RequestMetricCollector getRequestMetricCollector() {
+                return RequestMetricCollector.NONE;
+            }
+            @Override public ServiceMetricCollector getServiceMetricCollector() {
+                return service;
+            }
+        });
+    }
+
+    @Override
+    protected void tearDown() {
+        KscSdkMetrics.setMetricCollector(null);
+    }
+
+    public void testRecordAfterCloseIsIgnored() {
+        ConnectionPoolMetrics metrics = new ConnectionPoolMetrics("pool-test", 10);
+        metrics.recordTotal(1, 1, 2, 0, 10);
+        metrics.close();
+        assertTrue(metrics.isClosed());
+        metrics.recordTotal(2, 1, 2, 0, 10);
+        metrics.recordRoute("http://example.com", 2, 1, 2, 0, 10);
+        metrics.close();
+
+        assertEquals(Arrays.asList("stats", "removal"), reports);
+        assertEquals(1, metrics.getSampleCount());
+        assertTrue(metrics.getRoutes().isEmpty());
+    }
+
+    public void testSampleRacingCloseIsNotReportedAfterRemoval() throws InterruptedException {
+        for (int attempt = 0; attempt < 50; attempt++) {
+            reports.clear();
+            final ConnectionPoolMetrics metrics = new ConnectionPoolMetrics("pool-test", 10);
+            final CountDownLatch started = new CountDownLatch(1);
+            Thread sampler = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 10000; i++) {
+                        metrics.recordTotal(i, 1, 2, 0, 10);
+                        metrics.recordRoute("http://example.com", i, 1, 2, 0, 10);
+                        started.countDown();
+                    }
+                }
+            });
+            sampler.start();
+            started.await();
+            metrics.close();
+            sampler.join();
+            assertEquals("removal", reports.get(reports.size() - 1));
+            assertEquals(1, Collections.frequency(reports, "removal"));
+        }
+    }
+}
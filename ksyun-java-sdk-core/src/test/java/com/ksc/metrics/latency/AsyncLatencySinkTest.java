@@ -0,0 +1,103 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.metrics.latency;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import com.ksc.util.KscRequestMetrics;
+import com.ksc.util.StringUtils;
+
+public class AsyncLatencySinkTest extends TestCase {
+    private File file;
+
+    @Override
+    protected void setUp() throws IOException {
+        file = File.createTempFile("latency", ".log");
+    }
+
+    @Override
+    protected void tearDown() {
+        file.delete();
+    }
+
+    public void testCloseWritesQueuedEntriesToChannelWriter() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        LatencyEncoder encoder = new LatencyEncoder() {
+            @Override
+            public void encode(KscRequestMetrics metrics, StringBuilder out) {
+                try {
+                    // Hold the writer thread so that entries queue up behind it
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                out.append("entry");
+            }
+        };
+        // An interrupt closes a writer backed by a file channel
+        Writer writer = Channels.newWriter(new FileOutputStream(file).getChannel(), "UTF-8");
+        final AsyncLatencySink sink = new AsyncLatencySink(encoder, writer, 100, 1);
+        for (int i = 0; i < 10; i++) {
+            sink.log(new KscRequestMetrics());
+        }
+        Thread closer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                sink.close();
+            }
+        });
+        closer.start();
+        Thread.sleep(50);
+        release.countDown();
+        closer.join(TimeUnit.SECONDS.toMillis(10));
+
+        assertEquals(10, sink.getWrittenCount());
+        assertEquals(10, countLines());
+        sink.log(new KscRequestMetrics());
+        assertEquals(10, sink.getWrittenCount());
+    }
+
+    public void testCloseReturnsPromptlyWhenIdle() {
+        AsyncLatencySink sink = new AsyncLatencySink(new KeyValueLatencyEncoder(), new StringWriter(), 10, 1);
+        long start = System.currentTimeMillis();
+        sink.close();
+        assertTrue(System.currentTimeMillis() - start < TimeUnit.SECONDS.toMillis(1));
+    }
+
+    private int countLines() throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StringUtils.UTF8));
+        try {
+            int lines = 0;
+            while (reader.readLine() != null) {
+                lines++;
+            }
+            return lines;
+        } finally {
+            reader.close();
+        }
+    }
+}
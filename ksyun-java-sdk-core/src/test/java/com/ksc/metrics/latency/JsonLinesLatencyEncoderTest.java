@@ -0,0 +1,39 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.metrics.latency;
+
+import junit.framework.TestCase;
+
+import com.ksc.util.KscRequestMetrics;
+import com.ksc.util.KscRequestMetricsFullSupport;
+
+public class JsonLinesLatencyEncoderTest extends TestCase {
+
+    public void testNonFiniteValuesAreWrittenAsNull() {
+        KscRequestMetrics metrics = new KscRequestMetricsFullSupport();
+        metrics.addProperty("Ratio", Double.NaN);
+        metrics.addProperty("Ratio", Float.POSITIVE_INFINITY);
+        metrics.addProperty("Ratio", Double.NEGATIVE_INFINITY);
+        metrics.addProperty("Ratio", 0.5d);
+        metrics.addProperty("StatusCode", 200);
+        StringBuilder out = new StringBuilder();
+        new JsonLinesLatencyEncoder().encode(metrics, out);
+        String json = out.toString();
+        assertTrue(json, json.contains("\"Ratio\":[null,null,null,0.5]"));
+        assertTrue(json, json.contains("\"StatusCode\":[200]"));
+        assertFalse(json, json.contains("NaN"));
+        assertFalse(json, json.contains("Infinity"));
+    }
+}
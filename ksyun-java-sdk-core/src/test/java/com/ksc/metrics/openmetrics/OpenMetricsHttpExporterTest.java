@@ -0,0 +1,127 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.metrics.openmetrics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+
+import junit.framework.TestCase;
+
+import com.ksc.util.StringUtils;
+
+/**
+ * Scrapes an {@link OpenMetricsCollector} started on an ephemeral localhost
+ * port.
+ */
+public class OpenMetricsHttpExporterTest extends TestCase {
+    private OpenMetricsCollector collector;
+
+    @Override
+    protected void setUp() {
+        collector = new OpenMetricsCollector(new InetSocketAddress("127.0.0.1", 0));
+        assertTrue(collector.start());
+    }
+
+    @Override
+    protected void tearDown() {
+        collector.stop();
+    }
+
+    public void testScrapeRendersRegistry() throws IOException {
+        OpenMetricsRegistry registry = collector.getRegistry();
+        registry.histogram("test_latency_seconds", "Test latency.", null, "service")
+                .labels("kec").observe(0.3);
+        registry.counter("test_events", "Help with \"quotes\".", "label")
+                .labels("v\n").inc(3);
+
+        HttpURLConnection conn = open("GET");
+        assertEquals(200, conn.getResponseCode());
+        assertEquals(OpenMetricsRegistry.CONTENT_TYPE, conn.getContentType());
+        String body = read(conn.getInputStream());
+
+        // The SDK families are registered up front by the collector.
+        assertTrue(body, body.contains("# TYPE ksc_sdk_requests counter\n"));
+        assertTrue(body, body.contains("# TYPE ksc_sdk_client_execute_time_seconds histogram\n"));
+        assertTrue(body, body.contains("# TYPE ksc_sdk_connection_pool_leased gauge\n"));
+
+        assertTrue(body, body.contains("# TYPE test_latency_seconds histogram\n"));
+        assertTrue(body, body.contains("test_latency_seconds_bucket{service=\"kec\",le=\"0.25\"} 0\n"));
+        assertTrue(body, body.contains("test_latency_seconds_bucket{service=\"kec\",le=\"0.5\"} 1\n"));
+        assertTrue(body, body.contains("test_latency_seconds_bucket{service=\"kec\",le=\"+Inf\"} 1\n"));
+        assertTrue(body, body.contains("test_latency_seconds_count{service=\"kec\"} 1\n"));
+        assertTrue(body, body.contains("test_latency_seconds_sum{service=\"kec\"} 0.3\n"));
+
+        assertTrue(body, body.contains("# HELP test_events Help with \\\"quotes\\\".\n"));
+        assertTrue(body, body.contains("test_events_total{label=\"v\\n\"} 3\n"));
+        assertTrue(body, body.endsWith("# EOF\n"));
+    }
+
+    public void testHeadHasNoBody() throws IOException {
+        HttpURLConnection conn = open("HEAD");
+        assertEquals(200, conn.getResponseCode());
+        assertEquals(OpenMetricsRegistry.CONTENT_TYPE, conn.getContentType());
+        assertEquals("", read(conn.getInputStream()));
+    }
+
+    public void testOtherMethodsAreRejected() throws IOException {
+        HttpURLConnection conn = open("POST");
+        conn.setDoOutput(true);
+        conn.getOutputStream().close();
+        assertEquals(405, conn.getResponseCode());
+    }
+
+    public void testStop() throws IOException {
+        InetSocketAddress address = collector.getExporterAddress();
+        assertFalse(collector.start());
+        assertTrue(collector.stop());
+        assertNull(collector.getExporterAddress());
+        assertFalse(collector.stop());
+
+        HttpURLConnection conn = (HttpURLConnection) new URL("http", "127.0.0.1",
+                address.getPort(), OpenMetricsHttpExporter.DEFAULT_PATH).openConnection();
+        try {
+            conn.getResponseCode();
+            fail("The exporter is still serving after stop");
+        } catch (IOException expected) {
+        }
+    }
+
+    private HttpURLConnection open(String method) throws IOException {
+        InetSocketAddress address = collector.getExporterAddress();
+        HttpURLConnection conn = (HttpURLConnection) new URL("http", "127.0.0.1",
+                address.getPort(), OpenMetricsHttpExporter.DEFAULT_PATH).openConnection();
+        conn.setRequestMethod(method);
+        conn.setConnectTimeout(5000);
+        conn.setReadTimeout(5000);
+        return conn;
+    }
+
+    private static String read(InputStream in) throws IOException {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[4096];
+            int n;
+            while ((n = in.read(buf)) != -1)
+                out.write(buf, 0, n);
+            return new String(out.toByteArray(), StringUtils.UTF8);
+        } finally {
+            in.close();
+        }
+    }
+}
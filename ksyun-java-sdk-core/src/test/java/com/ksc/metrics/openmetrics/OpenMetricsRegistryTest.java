@@ -0,0 +1,58 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.metrics.openmetrics;
+
+import junit.framework.TestCase;
+
+public class OpenMetricsRegistryTest extends TestCase {
+    private final OpenMetricsRegistry registry = new OpenMetricsRegistry();
+
+    public void testSameDefinitionReturnsSameFamily() {
+        Counter counter = registry.counter("test_events", "Events.", "service");
+        assertSame(counter, registry.counter("test_events", "Events.", "service"));
+        Histogram histogram = registry.histogram("test_seconds", "Latency.", new double[] {0.1, 1}, "service");
+        assertSame(histogram, registry.histogram("test_seconds", "Latency.", new double[] {0.1, 1}, "service"));
+    }
+
+    public void testDifferentTypeIsRejected() {
+        registry.counter("test_events", "Events.", "service");
+        try {
+            registry.gauge("test_events", "Events.", "service");
+            fail("expected the type mismatch to be rejected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testDifferentLabelNamesAreRejected() {
+        registry.counter("test_events", "Events.", "service");
+        try {
+            registry.counter("test_events", "Events.", "service", "operation");
+            fail("expected the label mismatch to be rejected");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("[service]"));
+        }
+    }
+
+    public void testDifferentBucketsAreRejected() {
+        registry.histogram("test_seconds", "Latency.", null, "service");
+        try {
+            registry.histogram("test_seconds", "Latency.", new double[] {0.1, 1}, "service");
+            fail("expected the bucket mismatch to be rejected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
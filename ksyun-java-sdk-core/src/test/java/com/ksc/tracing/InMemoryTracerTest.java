@@ -0,0 +1,106 @@
+/*
+ * Copyright 2010-2016 ksyun.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://ksyun.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.ksc.tracing;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.ksc.ClientConfiguration;
+import com.ksc.KscServiceException;
+import com.ksc.Response;
+import com.ksc.http.ExecutionContext;
+import com.ksc.http.KSCHttpClient;
+import com.ksc.http.StubHttpServer;
+import com.sun.net.httpserver.Headers;
+
+/**
+ * Traces a request which is retried once, and checks the recorded span tree
+ * and the trace context sent with each attempt.
+ */
+public class InMemoryTracerTest extends TestCase {
+    private StubHttpServer server;
+    private InMemoryTracer tracer;
+    private KSCHttpClient client;
+
+    @Override
+    protected void setUp() throws Exception {
+        server = new StubHttpServer();
+        tracer = new InMemoryTracer();
+        client = new KSCHttpClient(new ClientConfiguration().withTracer(tracer));
+    }
+
+    @Override
+    protected void tearDown() {
+        client.shutdown();
+        server.stop();
+    }
+
+    public void testRetriedRequestSpans() {
+        server.enqueue(503);
+        Response<String> response = client.execute(server.request("DescribeInstances"),
+                StubHttpServer.stringResponseHandler(), StubHttpServer.errorResponseHandler(),
+                new ExecutionContext());
+        assertEquals("ok", response.getKscResponse());
+
+        List<RecordedSpan> executions = tracer.getFinishedSpans(Tracer.CLIENT_EXECUTION);
+        assertEquals(1, executions.size());
+        RecordedSpan execution = executions.get(0);
+        assertNull(execution.getParentSpanId());
+        assertNull(execution.getException());
+        assertEquals(StubHttpServer.PRODUCT, execution.getAttribute(Tracer.SERVICE_ATTRIBUTE));
+        assertEquals("DescribeInstances", execution.getAttribute(Tracer.OPERATION_ATTRIBUTE));
+        assertEquals(server.getEndpoint().toString(), execution.getAttribute(Tracer.ENDPOINT_ATTRIBUTE));
+
+        List<RecordedSpan> attempts = tracer.getFinishedSpans(Tracer.HTTP_ATTEMPT);
+        assertEquals(2, attempts.size());
+        for (int i = 0; i < attempts.size(); i++) {
+            RecordedSpan attempt = attempts.get(i);
+            assertChildOf(execution, attempt);
+            assertEquals(Long.valueOf(i + 1), attempt.getAttribute(Tracer.ATTEMPT_ATTRIBUTE));
+        }
+        assertEquals(Long.valueOf(503), attempts.get(0).getAttribute(Tracer.STATUS_CODE_ATTRIBUTE));
+        assertTrue(attempts.get(0).getException() instanceof KscServiceException);
+        assertEquals(Long.valueOf(200), attempts.get(1).getAttribute(Tracer.STATUS_CODE_ATTRIBUTE));
+        assertNull(attempts.get(1).getException());
+
+        List<RecordedSpan> backoffs = tracer.getFinishedSpans(Tracer.RETRY_BACKOFF);
+        assertEquals(1, backoffs.size());
+        assertChildOf(execution, backoffs.get(0));
+        assertNotNull(backoffs.get(0).getAttribute(Tracer.BACKOFF_DELAY_ATTRIBUTE));
+
+        List<RecordedSpan> unmarshallings = tracer.getFinishedSpans(Tracer.RESPONSE_UNMARSHALLING);
+        assertEquals(1, unmarshallings.size());
+        assertChildOf(attempts.get(1), unmarshallings.get(0));
+
+        // The execution span ends last, and every started span has ended.
+        List<RecordedSpan> finished = tracer.getFinishedSpans();
+        assertSame(execution, finished.get(finished.size() - 1));
+        assertEquals(tracer.getStartedSpans().size(), finished.size());
+
+        List<Headers> headers = server.getRequestHeaders();
+        assertEquals(2, headers.size());
+        for (int i = 0; i < headers.size(); i++) {
+            assertEquals("00-" + execution.getTraceId() + "-" + attempts.get(i).getSpanId() + "-01",
+                    headers.get(i).getFirst(InMemoryTracer.TRACEPARENT_HEADER));
+        }
+    }
+
+    private static void assertChildOf(RecordedSpan parent, RecordedSpan child) {
+        assertEquals(parent.getTraceId(), child.getTraceId());
+        assertEquals(parent.getSpanId(), child.getParentSpanId());
+        assertTrue(child.isEnded());
+    }
+}